@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A pool of mount content of a single component type within a Context, whose capacity follows the
+ * demand for that content. Its capacity starts at {@link ComponentLifecycle#poolSize()} and grows
+ * up to the peak number of items that were in use at the same time, so that content released
+ * while scrolling quickly can be reused instead of being created again. If the peak demand drops
+ * during a whole decay window, the capacity shrinks back towards it and the excess items are
+ * dropped.
+ */
+@ThreadSafe(enableChecks = false)
+class AdaptiveMountContentPool extends RecyclePool<Object> {
+
+  @VisibleForTesting static final int MAX_ADAPTIVE_SIZE = 32;
+  @VisibleForTesting static final long DECAY_WINDOW_MS = 10000;
+
+  private final int mBaseSize;
+
+  @GuardedBy("this")
+  private final List<Object> mItems = new ArrayList<>();
+
+  @GuardedBy("this")
+  private int mCapacity;
+
+  // The number of items acquired from this pool during the current decay window that were not
+  // released yet. It starts over with each window, so that items which are never released, like
+  // the content of hosts that are unmounted without being recycled, only count for a while.
+  @GuardedBy("this")
+  private int mInUseCount;
+
+  @GuardedBy("this")
+  private int mWindowPeakInUseCount;
+
+  @GuardedBy("this")
+  private long mWindowStartMs;
+
+  @GuardedBy("this")
+  private int mAcquireCount;
+
+  @GuardedBy("this")
+  private int mHitCount;
+
+  @GuardedBy("this")
+  private int mReleaseCount;
+
+  @GuardedBy("this")
+  private int mDroppedReleaseCount;
+
+  @GuardedBy("this")
+  private int mHighWaterMark;
+
+  AdaptiveMountContentPool(String name, int baseSize) {
+    this(name, baseSize, SystemClock.uptimeMillis());
+  }
+
+  @VisibleForTesting
+  AdaptiveMountContentPool(String name, int baseSize, long nowMs) {
+    super(name, baseSize);
+    mBaseSize = baseSize;
+    mCapacity = baseSize;
+    mWindowStartMs = nowMs;
+  }
+
+  @Override
+  public Object acquire() {
+    return acquire(SystemClock.uptimeMillis());
+  }
+
+  @VisibleForTesting
+  synchronized Object acquire(long nowMs) {
+    decayIfNeeded(nowMs);
+
+    mAcquireCount++;
+    mInUseCount++;
+    mWindowPeakInUseCount = Math.max(mWindowPeakInUseCount, mInUseCount);
+    if (mBaseSize > 0) {
+      mCapacity = Math.max(mCapacity, Math.min(mWindowPeakInUseCount, MAX_ADAPTIVE_SIZE));
+    }
+
+    if (mItems.isEmpty()) {
+      return null;
+    }
+
+    mHitCount++;
+    return mItems.remove(mItems.size() - 1);
+  }
+
+  @Override
+  public void release(Object item) {
+    release(item, SystemClock.uptimeMillis());
+  }
+
+  @VisibleForTesting
+  synchronized void release(Object item, long nowMs) {
+    releaseInternal(item, nowMs);
+  }
+
+  @Override
+  synchronized boolean releasePreallocated(Object item) {
+    return releasePreallocated(item, SystemClock.uptimeMillis());
+  }
+
+  @VisibleForTesting
+  synchronized boolean releasePreallocated(Object item, long nowMs) {
+    if (isFull() || !releaseInternal(item, nowMs)) {
+      return false;
+    }
+
+    trackPreallocated(item);
+    return true;
+  }
+
+  @GuardedBy("this")
+  private boolean releaseInternal(Object item, long nowMs) {
+    decayIfNeeded(nowMs);
+
+    mReleaseCount++;
+    // Preallocated content, and content acquired in an earlier window, is released without
+    // having been counted as in use.
+    mInUseCount = Math.max(0, mInUseCount - 1);
+
+    if (mItems.size() >= mCapacity) {
+      mDroppedReleaseCount++;
+      return false;
+    }
+
+    mItems.add(item);
+    mHighWaterMark = Math.max(mHighWaterMark, mItems.size());
+    return true;
+  }
+
+  /**
+   * Shrinks the capacity of this pool to the peak demand of the last decay window if that window
+   * is over. This is also called periodically for the pools that are not being used.
+   */
+  synchronized void decayIfNeeded(long nowMs) {
+    if (nowMs - mWindowStartMs < DECAY_WINDOW_MS) {
+      return;
+    }
+
+    final int capacity =
+        Math.max(mBaseSize, Math.min(mWindowPeakInUseCount, MAX_ADAPTIVE_SIZE));
+    if (capacity < mCapacity) {
+      mCapacity = capacity;
+      trimItemsTo(capacity);
+    }
+
+    mInUseCount = 0;
+    mWindowPeakInUseCount = 0;
+    mWindowStartMs = nowMs;
+  }
+
+  /** Drops all the pooled items and resets the capacity to the base size of the component. */
+  synchronized void trim() {
+    mItems.clear();
+    clearPreallocated();
+    mCapacity = mBaseSize;
+    mInUseCount = 0;
+    mWindowPeakInUseCount = 0;
+  }
+
+  @Override
+  public synchronized int getMaxSize() {
+    return mCapacity;
+  }
+
+  @Override
+  public synchronized int getCurrentSize() {
+    return mItems.size();
+  }
+
+  @Override
+  public synchronized boolean isFull() {
+    return mItems.size() >= mCapacity;
+  }
+
+  @Override
+  public synchronized PoolStats getStats() {
+    return new PoolStats(
+        getName(),
+        mCapacity,
+        mItems.size(),
+        mAcquireCount,
+        mHitCount,
+        mReleaseCount,
+        mDroppedReleaseCount,
+        mHighWaterMark);
+  }
+
+  @Override
+  public synchronized void clear() {
+    mItems.clear();
+    clearPreallocated();
+  }
+
+  @GuardedBy("this")
+  private void trimItemsTo(int size) {
+    for (int i = mItems.size() - 1; i >= size; i--) {
+      untrackPreallocated(mItems.remove(i));
+    }
+  }
+}
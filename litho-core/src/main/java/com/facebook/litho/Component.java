@@ -40,8 +40,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
@@ -56,6 +58,8 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
   private static final AtomicInteger sIdGenerator = new AtomicInteger(0);
   private int mId = sIdGenerator.getAndIncrement();
   private String mGlobalKey;
+  // The hash the global key was built from when using compact global keys, see GlobalKeys.
+  private long mGlobalKeyHash;
   private String mKey;
   private boolean mHasManualKey;
 
@@ -77,6 +81,12 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
    */
   private Map<String, Integer> mChildCounters = new HashMap<>();
 
+  /**
+   * Holds onto the keys of the direct component children of this Component when using compact
+   * global keys, to tell their duplicate keys apart from the hash collisions of their global keys.
+   */
+  @Nullable private Set<String> mChildKeys;
+
   protected Component() {
     this(null);
   }
@@ -114,6 +124,17 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
     return this == other;
   }
 
+  /**
+   * @return a hash of the props of this component. Components that are equivalent according to
+   *     {@link #isEquivalentTo(Component)} must have the same props hash. This is used to look up
+   *     equivalent components in hash based caches and to tell apart components with different
+   *     props without comparing all of them. The default implementation returns the same value for
+   *     every component, and the generated components compute it once from their props.
+   */
+  public long getPropsHash() {
+    return 0;
+  }
+
   protected StateContainer getStateContainer() {
     return null;
   }
@@ -185,19 +206,44 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
    */
   private String generateUniqueGlobalKeyForChild(Component component, String key) {
 
-    final String childKey = getGlobalKey() + key;
+    final boolean useCompactKeys = ComponentsConfiguration.useCompactGlobalKeys;
+    final long childKeyHash = useCompactKeys ? GlobalKeys.combine(mGlobalKeyHash, key) : 0;
+    final String childKey =
+        useCompactKeys ? GlobalKeys.toKey(childKeyHash) : getGlobalKey() + key;
     final KeyHandler keyHandler = mScopedContext.getKeyHandler();
+    component.mGlobalKeyHash = childKeyHash;
 
     /** Null check is for testing only, the keyHandler should never be null here otherwise. */
     if (keyHandler == null) {
       return childKey;
     }
 
+    boolean isDuplicateKey = true;
+    if (useCompactKeys) {
+      if (mChildKeys == null) {
+        mChildKeys = new HashSet<>();
+      }
+      isDuplicateKey = !mChildKeys.add(key);
+    }
+
     /** If the key is already unique, return it. */
     if (!keyHandler.hasKey(childKey)) {
       return childKey;
     }
 
+    /** The global key of another path has the same hash, which isn't a duplicate key. */
+    if (!isDuplicateKey) {
+      long hash = childKeyHash;
+      String uniqueKey;
+      do {
+        hash = GlobalKeys.rehash(hash);
+        uniqueKey = GlobalKeys.toKey(hash);
+      } while (keyHandler.hasKey(uniqueKey));
+
+      component.mGlobalKeyHash = hash;
+      return uniqueKey;
+    }
+
     /** The component has a manual key set on it but that key is a duplicate * */
     if (component.mHasManualKey) {
       final ComponentsLogger logger = mScopedContext.getLogger();
@@ -229,9 +275,9 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
      * end up being used in the valid layout output. We'll need to try increasing the index until we
      * hit a unique key.
      */
-    String uniqueKey = childKey + childIndex;
+    String uniqueKey = getIndexedKey(component, childKey, childKeyHash, childIndex);
     while (keyHandler.hasKey(uniqueKey)) {
-      uniqueKey = childKey + (childIndex++);
+      uniqueKey = getIndexedKey(component, childKey, childKeyHash, childIndex++);
     }
 
     mChildCounters.put(childType, childIndex + 1);
@@ -239,6 +285,20 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
     return uniqueKey;
   }
 
+  /**
+   * @return the global key of the given child with the given index among its siblings with the
+   *     same key. When using compact global keys, its hash is recorded on the child.
+   */
+  private static String getIndexedKey(
+      Component component, String childKey, long childKeyHash, int index) {
+    if (!ComponentsConfiguration.useCompactGlobalKeys) {
+      return childKey + index;
+    }
+
+    component.mGlobalKeyHash = GlobalKeys.combine(childKeyHash, index);
+    return GlobalKeys.toKey(component.mGlobalKeyHash);
+  }
+
   Component<L> makeCopyWithNullContext() {
     try {
       final Component<L> component = (Component<L>) super.clone();
@@ -254,6 +314,7 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
       final Component<L> component = (Component<L>) super.clone();
       component.mIsLayoutStarted = false;
       component.mChildCounters = new HashMap<>();
+      component.mChildKeys = null;
       component.mHasManualKey = false;
 
       return component;
@@ -393,9 +454,23 @@ public abstract class Component<L extends Component> extends ComponentLifecycle
     final Component<?> parentScope = c.getComponentScope();
     final String key = getKey();
 
+    if (parentScope == null && ComponentsConfiguration.useCompactGlobalKeys) {
+      mGlobalKeyHash = GlobalKeys.hash(key);
+    }
+
     setGlobalKey(
         parentScope == null ? key : parentScope.generateUniqueGlobalKeyForChild(this, key));
 
+    applyStateUpdatesWithGlobalKey(c);
+  }
+
+  /**
+   * Same as {@link #applyStateUpdates(ComponentContext)}, but keeps the global key this component
+   * already has. This is used to create again the layout of a copy of a component at the same
+   * position of the tree.
+   * @param c component context
+   */
+  void applyStateUpdatesWithGlobalKey(ComponentContext c) {
     setScopedContext(ComponentContext.withComponentScope(c, this));
 
     getLifecycle().populateTreeProps(this, getScopedContext().getTreeProps());
@@ -17,6 +17,9 @@ import android.support.annotation.Nullable;
 import android.support.annotation.StyleRes;
 import android.support.annotation.VisibleForTesting;
 import com.facebook.infer.annotation.ThreadConfined;
+import com.facebook.litho.ParallelChildResolver.PendingChild;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A Context subclass for use within the Components framework. Contains extra bookkeeping
@@ -55,6 +58,16 @@ public class ComponentContext extends ContextWrapper {
   @ThreadConfined(ThreadConfined.ANY)
   private int mDefStyleAttr = 0;
 
+  // Children added to the containers created with this context whose layouts have not been
+  // resolved yet, see ComponentsConfiguration#parallelChildResolution.
+  @ThreadConfined(ThreadConfined.ANY)
+  private @Nullable List<PendingChild> mPendingChildren;
+
+  // Whether an onCreateLayout using this context is running. Its pending children are then all
+  // resolved once it returns, rather than whenever one of their containers is built.
+  @ThreadConfined(ThreadConfined.ANY)
+  private boolean mIsCreatingLayout;
+
   public ComponentContext(Context context) {
     this(context, null, null, null, null);
   }
@@ -307,6 +320,59 @@ public class ComponentContext extends ContextWrapper {
     return node;
   }
 
+  /**
+   * Applies the state updates of the given child and defers the creation of its layout until
+   * {@link #resolvePendingChildren()} is called.
+   */
+  void addPendingChild(InternalNode parent, Component<?> child) {
+    if (mPendingChildren == null) {
+      mPendingChildren = new ArrayList<>();
+    } else {
+      // The same component can't be pending twice as its scoped context and global key are
+      // overridden when its state updates are applied.
+      for (int i = 0, size = mPendingChildren.size(); i < size; i++) {
+        if (mPendingChildren.get(i).getComponent() == child) {
+          resolvePendingChildren();
+          mPendingChildren = new ArrayList<>();
+          break;
+        }
+      }
+    }
+
+    child.applyStateUpdates(this);
+    mPendingChildren.add(new PendingChild(parent, parent.reservePendingChildIndex(), child));
+  }
+
+  /**
+   * Creates the layouts of the children added to the containers created with this context and adds
+   * them to their parents.
+   */
+  void resolvePendingChildren() {
+    if (mPendingChildren == null) {
+      return;
+    }
+
+    final List<PendingChild> pendingChildren = mPendingChildren;
+    mPendingChildren = null;
+    ParallelChildResolver.resolve(pendingChildren);
+  }
+
+  /**
+   * Drops the children whose layouts have not been resolved, when the layout they were added to
+   * failed to be created.
+   */
+  void clearPendingChildren() {
+    mPendingChildren = null;
+  }
+
+  boolean isCreatingLayout() {
+    return mIsCreatingLayout;
+  }
+
+  void setCreatingLayout(boolean isCreatingLayout) {
+    mIsCreatingLayout = isCreatingLayout;
+  }
+
   int getWidthSpec() {
     return mWidthSpec;
   }
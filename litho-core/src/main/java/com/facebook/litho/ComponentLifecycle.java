@@ -90,6 +90,17 @@ public abstract class ComponentLifecycle implements EventDispatcher, EventTrigge
           mSizePool.release(size);
         }
 
+        @Nullable
+        private MeasureCache.Entry getCachedMeasure(
+            InternalNode node, Component<?> component, int widthSpec, int heightSpec) {
+          if (!ComponentsConfiguration.useMeasureCache) {
+            return null;
+          }
+
+          return MeasureCache.getInstance()
+              .get(component, widthSpec, heightSpec, node.getContext());
+        }
+
         @Override
         @SuppressLint("WrongCall")
         @SuppressWarnings("unchecked")
@@ -131,29 +142,49 @@ public abstract class ComponentLifecycle implements EventDispatcher, EventTrigge
             outputWidth = (int) diffNode.getLastMeasuredWidth();
             outputHeight = (int) diffNode.getLastMeasuredHeight();
           } else {
-            final Size size = acquireSize(Integer.MIN_VALUE /* initialValue */);
-
-            try {
-              component
-                  .getLifecycle()
-                  .onMeasure(node.getContext(), node, widthSpec, heightSpec, size, component);
-
-              if (size.width < 0 || size.height < 0) {
-                throw new IllegalStateException(
-                    "MeasureOutput not set, ComponentLifecycle is: " + component.getLifecycle());
+            final MeasureCache.Entry cachedMeasure =
+                getCachedMeasure(node, component, widthSpec, heightSpec);
+
+            if (cachedMeasure != null) {
+              cachedMeasure.copyInterStageInto(component);
+              outputWidth = cachedMeasure.getWidth();
+              outputHeight = cachedMeasure.getHeight();
+            } else {
+              final Size size = acquireSize(Integer.MIN_VALUE /* initialValue */);
+
+              try {
+                component
+                    .getLifecycle()
+                    .onMeasure(node.getContext(), node, widthSpec, heightSpec, size, component);
+
+                if (size.width < 0 || size.height < 0) {
+                  throw new IllegalStateException(
+                      "MeasureOutput not set, ComponentLifecycle is: " + component.getLifecycle());
+                }
+
+                outputWidth = size.width;
+                outputHeight = size.height;
+              } finally {
+                releaseSize(size);
               }
 
-              outputWidth = size.width;
-              outputHeight = size.height;
-
-              if (node.getDiffNode() != null) {
-                node.getDiffNode().setLastWidthSpec(widthSpec);
-                node.getDiffNode().setLastHeightSpec(heightSpec);
-                node.getDiffNode().setLastMeasuredWidth(outputWidth);
-                node.getDiffNode().setLastMeasuredHeight(outputHeight);
+              if (ComponentsConfiguration.useMeasureCache) {
+                MeasureCache.getInstance()
+                    .put(
+                        node.getContext(),
+                        component,
+                        widthSpec,
+                        heightSpec,
+                        outputWidth,
+                        outputHeight);
               }
-            } finally {
-              releaseSize(size);
+            }
+
+            if (node.getDiffNode() != null) {
+              node.getDiffNode().setLastWidthSpec(widthSpec);
+              node.getDiffNode().setLastHeightSpec(heightSpec);
+              node.getDiffNode().setLastMeasuredWidth(outputWidth);
+              node.getDiffNode().setLastMeasuredHeight(outputHeight);
             }
           }
 
@@ -247,24 +278,36 @@ public abstract class ComponentLifecycle implements EventDispatcher, EventTrigge
       ComponentsSystrace.beginSection("createLayout:" + component.getSimpleName());
     }
 
+    final boolean wasCreatingLayout = context.isCreatingLayout();
+    context.setCreatingLayout(true);
+
     final InternalNode node;
-    if (deferNestedTreeResolution) {
-      node = ComponentsPools.acquireInternalNode(context);
-      node.markIsNestedTreeHolder(context.getTreeProps());
-    } else if (Component.isLayoutSpecWithSizeSpec(component)) {
-      node = (InternalNode) onCreateLayoutWithSizeSpec(
-          context,
-          context.getWidthSpec(),
-          context.getHeightSpec(),
-          component);
-    } else if (Component.isLayoutSpecWithExperimentalOnCreateLayout(component)) {
-      Component<?> layoutComponent = onCreateLayoutExperimental(context, component);
-      node =
-          layoutComponent == null
-              ? null
-              : (InternalNode) layoutComponent.getLifecycle().resolve(context, layoutComponent);
-    } else {
-      node = (InternalNode) onCreateLayout(context, component);
+    try {
+      if (deferNestedTreeResolution) {
+        node = ComponentsPools.acquireInternalNode(context);
+        node.markIsNestedTreeHolder(context.getTreeProps());
+      } else if (Component.isLayoutSpecWithSizeSpec(component)) {
+        node = (InternalNode) onCreateLayoutWithSizeSpec(
+            context,
+            context.getWidthSpec(),
+            context.getHeightSpec(),
+            component);
+      } else if (Component.isLayoutSpecWithExperimentalOnCreateLayout(component)) {
+        Component<?> layoutComponent = onCreateLayoutExperimental(context, component);
+        node =
+            layoutComponent == null
+                ? null
+                : (InternalNode) layoutComponent.getLifecycle().resolve(context, layoutComponent);
+      } else {
+        node = (InternalNode) onCreateLayout(context, component);
+      }
+
+      context.resolvePendingChildren();
+    } finally {
+      // The context may still be used if the exception is caught, it must not resolve the children
+      // of the failed layout then.
+      context.clearPendingChildren();
+      context.setCreatingLayout(wasCreatingLayout);
     }
 
     if (isTracing) {
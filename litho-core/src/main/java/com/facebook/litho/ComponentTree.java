@@ -40,6 +40,8 @@ import com.facebook.infer.annotation.ReturnsOwnership;
 import com.facebook.infer.annotation.ThreadConfined;
 import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.dataflow.ChoreographerCompat;
+import com.facebook.litho.dataflow.ChoreographerCompatImpl;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
@@ -123,12 +125,35 @@ public class ComponentTree {
     }
   };
 
+  private final ChoreographerCompat.FrameCallback mStateUpdateFrameCallback =
+      new ChoreographerCompat.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          onStateUpdateFrame();
+        }
+      };
+
+  private final Runnable mPostStateUpdateFrameCallbackRunnable = new Runnable() {
+    @Override
+    public void run() {
+      ChoreographerCompatImpl.getInstance().postFrameCallback(mStateUpdateFrameCallback);
+    }
+  };
+
+  private final Runnable mRemoveStateUpdateFrameCallbackRunnable = new Runnable() {
+    @Override
+    public void run() {
+      ChoreographerCompatImpl.getInstance().removeFrameCallback(mStateUpdateFrameCallback);
+    }
+  };
+
   private final ComponentContext mContext;
   private final boolean mCanPrefetchDisplayLists;
   private final boolean mCanCacheDrawingDisplayLists;
   private final boolean mShouldClipChildren;
 
   @Nullable private LayoutHandler mPreAllocateMountContentHandler;
+  @Nullable private final MountContentPreallocationScheduler mPreallocationScheduler;
 
   // These variables are only accessed from the main thread.
   @ThreadConfined(ThreadConfined.UI)
@@ -186,6 +211,28 @@ public class ComponentTree {
 
   protected final int mId;
 
+  // Async state updates queued since the last frame, see
+  // ComponentsConfiguration#coalesceAsyncStateUpdates.
+  @GuardedBy("this")
+  private int mPendingCoalescedStateUpdateCount;
+
+  @GuardedBy("this")
+  private boolean mIsStateUpdateFrameCallbackPosted;
+
+  @GuardedBy("this")
+  private int mMergedStateUpdateCount;
+
+  @GuardedBy("this")
+  private int mCoalescedStateUpdateLayoutCount;
+
+  // The id of the last root copied to apply state updates and the id of the root it was copied
+  // from, see ComponentsConfiguration#partialRelayoutOnStateUpdate.
+  @GuardedBy("this")
+  private int mStateUpdateRootId = -1;
+
+  @GuardedBy("this")
+  private int mStateUpdateSourceRootId = -1;
+
   @GuardedBy("this")
   private boolean mIsMeasuring;
   @PendingLayoutCalculation
@@ -213,6 +260,7 @@ public class ComponentTree {
     mIsLayoutDiffingEnabled = builder.isLayoutDiffingEnabled;
     mLayoutThreadHandler = builder.layoutThreadHandler;
     mPreAllocateMountContentHandler = builder.preAllocateMountContentHandler;
+    mPreallocationScheduler = builder.preallocationScheduler;
     mLayoutLock = builder.layoutLock;
     mIsAsyncUpdateStateEnabled = builder.asyncStateUpdates;
     mCanPrefetchDisplayLists = builder.canPrefetchDisplayLists;
@@ -225,6 +273,7 @@ public class ComponentTree {
     }
 
     if (mPreAllocateMountContentHandler == null
+        && mPreallocationScheduler == null
         && ComponentsConfiguration.getDefaultPreallocateMountContentHandler()) {
       mPreAllocateMountContentHandler =
           new DefaultPreallocateMountContentHandler(
@@ -312,6 +361,17 @@ public class ComponentTree {
     }
   }
 
+  /**
+   * Releases a LayoutState that is no longer the main thread or the background layout of this tree.
+   * Its layout tree is released right away even if the LayoutState is still referenced elsewhere,
+   * since it is only kept for the partial relayouts starting from the current layout, see {@link
+   * ComponentsConfiguration#partialRelayoutOnStateUpdate}.
+   */
+  private static void releaseReplacedLayoutState(LayoutState layoutState) {
+    layoutState.releaseLayoutRoot();
+    layoutState.releaseRef();
+  }
+
   private void backgroundLayoutStateUpdated() {
     assertMainThread();
 
@@ -337,7 +397,7 @@ public class ComponentTree {
     }
 
     if (toRelease != null) {
-      toRelease.releaseRef();
+      releaseReplacedLayoutState(toRelease);
       toRelease = null;
     }
 
@@ -390,7 +450,7 @@ public class ComponentTree {
     }
 
     if (toRelease != null) {
-      toRelease.releaseRef();
+      releaseReplacedLayoutState(toRelease);
       toRelease = null;
     }
 
@@ -642,7 +702,7 @@ public class ComponentTree {
     }
 
     if (toRelease != null) {
-      toRelease.releaseRef();
+      releaseReplacedLayoutState(toRelease);
       toRelease = null;
     }
 
@@ -656,7 +716,7 @@ public class ComponentTree {
           localLayoutState = mMainThreadLayoutState;
           mMainThreadLayoutState = null;
         }
-        localLayoutState.releaseRef();
+        releaseReplacedLayoutState(localLayoutState);
       }
 
       // We have no layout that matches the given spec, so we need to compute it on the main thread.
@@ -754,25 +814,31 @@ public class ComponentTree {
         null /* output */);
   }
 
+  /**
+   * @return the most recent LayoutState of this tree with a reference acquired on it, or null if
+   *     no layout was calculated yet. The caller is responsible for releasing the reference.
+   */
+  @Nullable
+  synchronized LayoutState acquireLayoutStateForPreallocation() {
+    final LayoutState layoutState =
+        mMainThreadLayoutState != null ? mMainThreadLayoutState : mBackgroundLayoutState;
+    if (layoutState != null) {
+      layoutState.acquireRef();
+    }
+
+    return layoutState;
+  }
+
   /**
    * Pre-allocate the mount content of all MountSpec in this tree. Must be called after layout is
    * created.
    */
   @ThreadSafe(enableChecks = false)
   private void preAllocateMountContent() {
-    final LayoutState toPrePopulate;
-
-    synchronized (this) {
-      if (mMainThreadLayoutState != null) {
-        toPrePopulate = mMainThreadLayoutState;
-      } else {
-        toPrePopulate = mBackgroundLayoutState;
-      }
-    }
+    final LayoutState toPrePopulate = acquireLayoutStateForPreallocation();
     if (toPrePopulate == null) {
       return;
     }
-    toPrePopulate.acquireRef();
 
     final ComponentsLogger logger = mContext.getLogger();
     LogEvent event = null;
@@ -863,9 +929,69 @@ public class ComponentTree {
       mStateHandler.queueStateUpdate(componentKey, stateUpdate);
     }
 
+    if (ComponentsConfiguration.coalesceAsyncStateUpdates) {
+      scheduleCoalescedStateUpdate();
+    } else {
+      updateStateInternal(true);
+    }
+  }
+
+  /**
+   * Schedules a single background layout on the next frame for all the async state updates queued
+   * until then.
+   */
+  private void scheduleCoalescedStateUpdate() {
+    synchronized (this) {
+      mPendingCoalescedStateUpdateCount++;
+
+      if (mIsStateUpdateFrameCallbackPosted) {
+        return;
+      }
+
+      mIsStateUpdateFrameCallbackPosted = true;
+    }
+
+    // The Choreographer needs to be accessed from the main thread.
+    if (isMainThread()) {
+      mPostStateUpdateFrameCallbackRunnable.run();
+    } else {
+      sMainThreadHandler.post(mPostStateUpdateFrameCallbackRunnable);
+    }
+  }
+
+  private void onStateUpdateFrame() {
+    synchronized (this) {
+      mIsStateUpdateFrameCallbackPosted = false;
+
+      if (mPendingCoalescedStateUpdateCount == 0) {
+        return;
+      }
+
+      mMergedStateUpdateCount += mPendingCoalescedStateUpdateCount - 1;
+      mCoalescedStateUpdateLayoutCount++;
+      mPendingCoalescedStateUpdateCount = 0;
+    }
+
     updateStateInternal(true);
   }
 
+  /**
+   * @return the number of async state updates that were applied by the layout of another state
+   *     update queued during the same frame, see {@link
+   *     ComponentsConfiguration#coalesceAsyncStateUpdates}.
+   */
+  public synchronized int getMergedStateUpdateCount() {
+    return mMergedStateUpdateCount;
+  }
+
+  /**
+   * @return the number of layouts scheduled to apply the async state updates queued during a frame,
+   *     see {@link ComponentsConfiguration#coalesceAsyncStateUpdates}.
+   */
+  public synchronized int getCoalescedStateUpdateLayoutCount() {
+    return mCoalescedStateUpdateLayoutCount;
+  }
+
   void updateStateInternal(boolean isAsync) {
 
     final Component<?> root;
@@ -1042,6 +1168,13 @@ public class ComponentTree {
     return mLithoView;
   }
 
+  /**
+   * @return the {@link LayoutHandler} the background layouts of this ComponentTree are posted to.
+   */
+  LayoutHandler getLayoutThreadHandler() {
+    return mLayoutThreadHandler;
+  }
+
   /**
    * Provides a new instance from the StateHandler pool that is initialized with the information
    * from the StateHandler currently held by the ComponentTree. Once the state updates have been
@@ -1107,7 +1240,13 @@ public class ComponentTree {
       final Map<String, List<StateUpdate>> pendingStateUpdates =
           mStateHandler.getPendingStateUpdates();
       if (pendingStateUpdates != null && pendingStateUpdates.size() > 0 && root != null) {
+        final int sourceRootId = root.getId();
         root = root.makeShallowCopyWithNewId();
+
+        if (mRoot != null && sourceRootId == mRoot.getId()) {
+          mStateUpdateRootId = root.getId();
+          mStateUpdateSourceRootId = sourceRootId;
+        }
       }
       final boolean rootInitialized = root != null;
       final boolean widthSpecInitialized = widthSpec != SIZE_UNINITIALIZED;
@@ -1193,6 +1332,7 @@ public class ComponentTree {
     int heightSpec;
     Component<?> root;
     LayoutState previousLayoutState = null;
+    String updatedComponentKey = null;
 
     // Cancel any scheduled layout requests we might have in the background queue
     // since we are starting a new layout computation.
@@ -1221,6 +1361,7 @@ public class ComponentTree {
 
       if (mMainThreadLayoutState != null) {
         previousLayoutState = mMainThreadLayoutState.acquireRef();
+        updatedComponentKey = getUpdatedComponentKey(previousLayoutState);
       }
     }
 
@@ -1233,14 +1374,23 @@ public class ComponentTree {
       layoutEvent.addParam(PARAM_IS_BACKGROUND_LAYOUT, String.valueOf(!ThreadUtils.isMainThread()));
     }
 
-    LayoutState localLayoutState = calculateLayoutState(
-        mLayoutLock,
-        mContext,
-        root,
-        widthSpec,
-        heightSpec,
-        mIsLayoutDiffingEnabled,
-        previousLayoutState != null ? previousLayoutState.getDiffTree() : null);
+    LayoutState localLayoutState = null;
+    if (updatedComponentKey != null) {
+      localLayoutState =
+          calculateLayoutStateForStateUpdate(
+              root, widthSpec, heightSpec, updatedComponentKey, previousLayoutState);
+    }
+
+    if (localLayoutState == null) {
+      localLayoutState = calculateLayoutState(
+          mLayoutLock,
+          mContext,
+          root,
+          widthSpec,
+          heightSpec,
+          mIsLayoutDiffingEnabled,
+          previousLayoutState != null ? previousLayoutState.getDiffTree() : null);
+    }
 
     if (output != null) {
       output.width = localLayoutState.getWidth();
@@ -1283,7 +1433,7 @@ public class ComponentTree {
     }
 
     if (localLayoutState != null) {
-      localLayoutState.releaseRef();
+      releaseReplacedLayoutState(localLayoutState);
       localLayoutState = null;
     }
 
@@ -1291,7 +1441,9 @@ public class ComponentTree {
       postBackgroundLayoutStateUpdated();
     }
 
-    if (mPreAllocateMountContentHandler != null) {
+    if (mPreallocationScheduler != null) {
+      mPreallocationScheduler.schedule(this);
+    } else if (mPreAllocateMountContentHandler != null) {
       mPreAllocateMountContentHandler.removeCallbacks(mPreAllocateMountContentRunnable);
       mPreAllocateMountContentHandler.post(mPreAllocateMountContentRunnable);
     }
@@ -1332,9 +1484,14 @@ public class ComponentTree {
 
     LayoutState mainThreadLayoutState;
     LayoutState backgroundLayoutState;
+    final boolean isStateUpdateFrameCallbackPosted;
     synchronized (this) {
       sMainThreadHandler.removeMessages(MESSAGE_WHAT_BACKGROUND_LAYOUT_STATE_UPDATED, this);
 
+      isStateUpdateFrameCallbackPosted = mIsStateUpdateFrameCallbackPosted;
+      mIsStateUpdateFrameCallbackPosted = false;
+      mPendingCoalescedStateUpdateCount = 0;
+
       mLayoutThreadHandler.removeCallbacks(mCalculateLayoutRunnable);
       mLayoutThreadHandler.removeCallbacks(mUpdateStateSyncRunnable);
 
@@ -1342,6 +1499,10 @@ public class ComponentTree {
         mPreAllocateMountContentHandler.removeCallbacks(mPreAllocateMountContentRunnable);
       }
 
+      if (mPreallocationScheduler != null) {
+        mPreallocationScheduler.cancel(this);
+      }
+
       mReleased = true;
       mReleasedComponent = mRoot.getSimpleName();
       if (mLithoView != null) {
@@ -1365,13 +1526,24 @@ public class ComponentTree {
       mPreviousRenderStateSetFromBuilder = false;
     }
 
+    if (isStateUpdateFrameCallbackPosted) {
+      sMainThreadHandler.removeCallbacks(mPostStateUpdateFrameCallbackRunnable);
+
+      // The Choreographer needs to be accessed from the main thread.
+      if (isMainThread()) {
+        mRemoveStateUpdateFrameCallbackRunnable.run();
+      } else {
+        sMainThreadHandler.post(mRemoveStateUpdateFrameCallbackRunnable);
+      }
+    }
+
     if (mainThreadLayoutState != null) {
-      mainThreadLayoutState.releaseRef();
+      releaseReplacedLayoutState(mainThreadLayoutState);
       mainThreadLayoutState = null;
     }
 
     if (backgroundLayoutState != null) {
-      backgroundLayoutState.releaseRef();
+      releaseReplacedLayoutState(backgroundLayoutState);
       backgroundLayoutState = null;
     }
   }
@@ -1409,7 +1581,7 @@ public class ComponentTree {
     return sDefaultLayoutThreadLooper;
   }
 
-  private static synchronized Looper getDefaultPreallocateMountContentThreadLooper() {
+  static synchronized Looper getDefaultPreallocateMountContentThreadLooper() {
     if (sDefaultPreallocateMountContentThreadLooper == null) {
       HandlerThread defaultThread = new HandlerThread(DEFAULT_PMC_THREAD_NAME);
       defaultThread.start();
@@ -1472,6 +1644,102 @@ public class ComponentTree {
     }
   }
 
+  /**
+   * @return the global key of the component whose state updates are the only difference between
+   *     the current root and the root of the given previous layout, or null if the layout of the
+   *     current root can't reuse the layout tree of the previous layout.
+   */
+  @GuardedBy("this")
+  @Nullable
+  private String getUpdatedComponentKey(LayoutState previousLayoutState) {
+    if (!ComponentsConfiguration.partialRelayoutOnStateUpdate
+        || mRoot.getId() != mStateUpdateRootId
+        || !previousLayoutState.isComponentId(mStateUpdateSourceRootId)) {
+      return null;
+    }
+
+    final Map<String, List<StateUpdate>> pendingStateUpdates =
+        mStateHandler.getPendingStateUpdates();
+    if (pendingStateUpdates == null || pendingStateUpdates.size() != 1) {
+      return null;
+    }
+
+    return pendingStateUpdates.keySet().iterator().next();
+  }
+
+  /**
+   * Calculates the layout for the state updates of a single component by reusing the layout tree
+   * of the previous layout, see {@link ComponentsConfiguration#partialRelayoutOnStateUpdate}.
+   *
+   * @return the new LayoutState, or null if the layout needs to be calculated from scratch.
+   */
+  @Nullable
+  private LayoutState calculateLayoutStateForStateUpdate(
+      Component<?> root,
+      int widthSpec,
+      int heightSpec,
+      String updatedComponentKey,
+      LayoutState previousLayoutState) {
+    final StateHandler stateHandler;
+    synchronized (this) {
+      stateHandler = StateHandler.acquireNewInstance(mStateHandler);
+    }
+
+    // Other state updates may have been queued since the key was read.
+    final Map<String, List<StateUpdate>> pendingStateUpdates =
+        stateHandler.getPendingStateUpdates();
+    if (pendingStateUpdates == null
+        || pendingStateUpdates.size() != 1
+        || !pendingStateUpdates.containsKey(updatedComponentKey)) {
+      ComponentsPools.release(stateHandler);
+      return null;
+    }
+
+    final ComponentContext contextWithStateHandler =
+        new ComponentContext(mContext, stateHandler, new KeyHandler(mContext.getLogger()));
+
+    final LayoutState layoutState;
+    if (mLayoutLock != null) {
+      synchronized (mLayoutLock) {
+        layoutState =
+            LayoutState.calculateForStateUpdate(
+                contextWithStateHandler,
+                root,
+                mId,
+                widthSpec,
+                heightSpec,
+                updatedComponentKey,
+                previousLayoutState,
+                mIsLayoutDiffingEnabled,
+                previousLayoutState.getDiffTree(),
+                mCanPrefetchDisplayLists,
+                mCanCacheDrawingDisplayLists,
+                mShouldClipChildren);
+      }
+    } else {
+      layoutState =
+          LayoutState.calculateForStateUpdate(
+              contextWithStateHandler,
+              root,
+              mId,
+              widthSpec,
+              heightSpec,
+              updatedComponentKey,
+              previousLayoutState,
+              mIsLayoutDiffingEnabled,
+              previousLayoutState.getDiffTree(),
+              mCanPrefetchDisplayLists,
+              mCanCacheDrawingDisplayLists,
+              mShouldClipChildren);
+    }
+
+    if (layoutState == null) {
+      ComponentsPools.release(stateHandler);
+    }
+
+    return layoutState;
+  }
+
   protected LayoutState calculateLayoutState(
       @Nullable Object lock,
       ComponentContext context,
@@ -1528,9 +1796,9 @@ public class ComponentTree {
     }
   }
 
-  private static class DefaultPreallocateMountContentHandler extends Handler
+  static class DefaultPreallocateMountContentHandler extends Handler
       implements LayoutHandler {
-    private DefaultPreallocateMountContentHandler(Looper threadLooper) {
+    DefaultPreallocateMountContentHandler(Looper threadLooper) {
       super(threadLooper);
     }
   }
@@ -1553,6 +1821,7 @@ public class ComponentTree {
     private boolean isLayoutDiffingEnabled = true;
     private LayoutHandler layoutThreadHandler;
     private LayoutHandler preAllocateMountContentHandler;
+    private MountContentPreallocationScheduler preallocationScheduler;
     private Object layoutLock;
     private StateHandler stateHandler;
     private RenderState previousRenderState;
@@ -1592,6 +1861,7 @@ public class ComponentTree {
       shouldClipChildren = true;
       hasMounted = false;
       preAllocateMountContentHandler = null;
+      preallocationScheduler = null;
     }
 
     /**
@@ -1638,6 +1908,16 @@ public class ComponentTree {
       return this;
     }
 
+    /**
+     * Specify a scheduler to preallocate the mount content of this tree after each layout, within
+     * the budget of the scheduler. Takes precedence over the preAllocateMountContentHandler.
+     */
+    public Builder mountContentPreallocationScheduler(
+        @Nullable MountContentPreallocationScheduler scheduler) {
+      preallocationScheduler = scheduler;
+      return this;
+    }
+
     /**
      * Specify the looper to use for running layouts on. Note that in rare cases layout must run on
      * the UI thread. For example, if you rotate the screen, we must measure on the UI thread. If
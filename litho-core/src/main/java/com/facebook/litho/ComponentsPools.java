@@ -10,17 +10,30 @@
 package com.facebook.litho;
 
 import static android.support.v4.view.ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO;
+import static com.facebook.litho.FrameworkLogEvents.EVENT_POOL_STATS;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_ACQUIRE_COUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_CURRENT_SIZE;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_DROPPED_RELEASE_COUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_HIGH_WATER_MARK;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_HIT_COUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_MAX_SIZE;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_MISS_COUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_NAME;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_RELEASE_COUNT;
 
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.ContextWrapper;
+import android.content.res.Configuration;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.v4.util.SparseArrayCompat;
 import android.util.SparseArray;
 import com.facebook.infer.annotation.ThreadSafe;
@@ -32,8 +45,11 @@ import com.facebook.yoga.YogaNode;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Pools of recycled resources.
@@ -45,7 +61,8 @@ public class ComponentsPools {
 
   private static final int SCRAP_ARRAY_INITIAL_SIZE = 4;
 
-  private static YogaConfig sYogaConfig;
+  // Only written while holding the ComponentsPools class lock.
+  private static volatile YogaConfig sYogaConfig;
 
   private ComponentsPools() {
   }
@@ -55,19 +72,19 @@ public class ComponentsPools {
   private static final Object mountContentLock = new Object();
 
   static final RecyclePool<LayoutState> sLayoutStatePool =
-      new RecyclePool<>("LayoutState", 64, true);
+      createLayoutPool("LayoutState", 64);
 
   static final RecyclePool<InternalNode> sInternalNodePool =
-      new RecyclePool<>("InternalNode", 256, true);
+      createLayoutPool("InternalNode", 256);
 
   static final RecyclePool<NodeInfo> sNodeInfoPool =
-      new RecyclePool<>("NodeInfo", 256, true);
+      createLayoutPool("NodeInfo", 256);
 
   static final RecyclePool<ViewNodeInfo> sViewNodeInfoPool =
-      new RecyclePool<>("ViewNodeInfo", 64, true);
+      createLayoutPool("ViewNodeInfo", 64);
 
   static final RecyclePool<YogaNode> sYogaNodePool =
-      new RecyclePool<>("YogaNode", 256, true);
+      createLayoutPool("YogaNode", 256);
 
   static final RecyclePool<MountItem> sMountItemPool =
       new RecyclePool<>("MountItem", 256, true);
@@ -76,13 +93,13 @@ public class ComponentsPools {
       new ConcurrentHashMap<>(4);
 
   static final RecyclePool<LayoutOutput> sLayoutOutputPool =
-      new RecyclePool<>("LayoutOutput", 256, true);
+      createLayoutPool("LayoutOutput", 256);
 
   static final RecyclePool<DisplayListContainer> sDisplayListContainerPool =
       new RecyclePool<>("DisplayListContainer", 64, true);
 
   static final RecyclePool<VisibilityOutput> sVisibilityOutputPool =
-      new RecyclePool<>("VisibilityOutput", 64, true);
+      createLayoutPool("VisibilityOutput", 64);
 
   // These are lazily initialized as they are only needed when we're in a test environment.
   static RecyclePool<TestOutput> sTestOutputPool = null;
@@ -92,19 +109,19 @@ public class ComponentsPools {
       new RecyclePool<>("VisibilityItem", 64, true);
 
   static final RecyclePool<Output<?>> sOutputPool =
-      new RecyclePool<>("Output", 20, true);
+      createLayoutPool("Output", 20);
 
   static final RecyclePool<DiffNode> sDiffNodePool =
-      new RecyclePool<>("DiffNode", 256, true);
+      createLayoutPool("DiffNode", 256);
 
   static final RecyclePool<Diff<?>> sDiffPool =
-      new RecyclePool<>("Diff", 20, true);
+      createLayoutPool("Diff", 20);
 
   static final RecyclePool<ComponentTree.Builder> sComponentTreeBuilderPool =
       new RecyclePool<>("ComponentTree.Builder", 2, true);
 
   static final RecyclePool<StateHandler> sStateHandlerPool =
-      new RecyclePool<>("StateHandler", 10, true);
+      createLayoutPool("StateHandler", 10);
 
   static final RecyclePool<SparseArrayCompat<MountItem>> sMountItemScrapArrayPool =
       new RecyclePool<>("MountItemScrapArray", 8, false);
@@ -119,7 +136,7 @@ public class ComponentsPools {
       new RecyclePool<>("Rect", 30, true);
 
   static final RecyclePool<Edges> sEdgesPool =
-      new RecyclePool<>("Edges", 30, true);
+      createLayoutPool("Edges", 30);
 
   static final RecyclePool<TransitionContext> sTransitionContextPool =
       new RecyclePool<>("TransitionContext", 2, true);
@@ -128,13 +145,13 @@ public class ComponentsPools {
       new RecyclePool<>("DisplayListDrawable", 10, false);
 
   static final RecyclePool<TreeProps> sTreePropsMapPool =
-      new RecyclePool<>("TreeProps", 10, true);
+      createLayoutPool("TreeProps", 10);
 
   static final RecyclePool<ArraySet> sArraySetPool =
-      new RecyclePool<>("ArraySet", 10, true);
+      createLayoutPool("ArraySet", 10);
 
   static final RecyclePool<ArrayDeque> sArrayDequePool =
-      new RecyclePool<>("ArrayDeque", 10, true);
+      createLayoutPool("ArrayDeque", 10);
 
   static final RecyclePool<LogEvent> sLogEventPool =
       new RecyclePool<>("LogEvent", 10, true);
@@ -150,6 +167,16 @@ public class ComponentsPools {
 
   private static PoolsActivityCallback sActivityCallbacks;
 
+  private static final List<ClearableCache> sClearableCaches = new CopyOnWriteArrayList<>();
+
+  // Guarded by mountContentLock.
+  private static long sLastMountContentPoolsDecayMs;
+
+  private static final AtomicInteger sPreallocatedCount = new AtomicInteger();
+  private static final AtomicInteger sAcquiredPreallocatedCount = new AtomicInteger();
+  private static final AtomicInteger sAcquiredRecycledCount = new AtomicInteger();
+  private static final AtomicInteger sAcquireMissCount = new AtomicInteger();
+
   /**
    * To support Gingerbread (where the registerActivityLifecycleCallbacks API
    * doesn't exist), we allow apps to explicitly invoke activity callbacks. If
@@ -158,6 +185,18 @@ public class ComponentsPools {
    */
   static boolean sIsManualCallbacks;
 
+  /**
+   * Creates a pool for objects that are acquired and released during layout calculation. Those
+   * pools use thread local magazines instead of a lock if {@link
+   * ComponentsConfiguration#useThreadLocalPools} is enabled, so that layout threads don't contend
+   * with each other.
+   */
+  private static <T> RecyclePool<T> createLayoutPool(String name, int maxSize) {
+    return ComponentsConfiguration.useThreadLocalPools
+        ? new ThreadLocalRecyclePool<T>(name, maxSize)
+        : new RecyclePool<T>(name, maxSize, true);
+  }
+
   static LayoutState acquireLayoutState(ComponentContext context) {
     LayoutState state = ComponentsConfiguration.usePooling ? sLayoutStatePool.acquire() : null;
     if (state == null) {
@@ -168,7 +207,7 @@ public class ComponentsPools {
     return state;
   }
 
-  static synchronized YogaNode acquireYogaNode(ComponentContext c, YogaConfig yogaConfig) {
+  static YogaNode acquireYogaNode(ComponentContext c, YogaConfig yogaConfig) {
     YogaNode node = ComponentsConfiguration.usePooling ? sYogaNodePool.acquire() : null;
     if (node == null) {
       node = new YogaNode(yogaConfig);
@@ -177,7 +216,7 @@ public class ComponentsPools {
     return node;
   }
 
-  static synchronized InternalNode acquireInternalNode(
+  static InternalNode acquireInternalNode(
       ComponentContext componentContext,
       YogaConfig yogaConfig) {
     InternalNode node = ComponentsConfiguration.usePooling ? sInternalNodePool.acquire() : null;
@@ -189,21 +228,33 @@ public class ComponentsPools {
     return node;
   }
 
-  static synchronized InternalNode acquireInternalNode(ComponentContext componentContext) {
-    if (sYogaConfig == null) {
-      sYogaConfig = new YogaConfig();
-      sYogaConfig.setUseWebDefaults(true);
-      sYogaConfig.setUseLegacyStretchBehaviour(true);
-    }
+  static InternalNode acquireInternalNode(ComponentContext componentContext) {
+    return acquireInternalNode(componentContext, getYogaConfig());
+  }
 
-    if (sYogaConfig.getLogger() != ComponentsConfiguration.YOGA_LOGGER) {
-      sYogaConfig.setLogger(ComponentsConfiguration.YOGA_LOGGER);
+  private static YogaConfig getYogaConfig() {
+    YogaConfig yogaConfig = sYogaConfig;
+    if (yogaConfig != null && yogaConfig.getLogger() == ComponentsConfiguration.YOGA_LOGGER) {
+      return yogaConfig;
     }
 
-    return acquireInternalNode(componentContext, sYogaConfig);
+    synchronized (ComponentsPools.class) {
+      if (sYogaConfig == null) {
+        yogaConfig = new YogaConfig();
+        yogaConfig.setUseWebDefaults(true);
+        yogaConfig.setUseLegacyStretchBehaviour(true);
+        sYogaConfig = yogaConfig;
+      }
+
+      if (sYogaConfig.getLogger() != ComponentsConfiguration.YOGA_LOGGER) {
+        sYogaConfig.setLogger(ComponentsConfiguration.YOGA_LOGGER);
+      }
+
+      return sYogaConfig;
+    }
   }
 
-  static synchronized NodeInfo acquireNodeInfo() {
+  static NodeInfo acquireNodeInfo() {
     NodeInfo nodeInfo = ComponentsConfiguration.usePooling ? sNodeInfoPool.acquire() : null;
     if (nodeInfo == null) {
       nodeInfo = new NodeInfo();
@@ -212,7 +263,7 @@ public class ComponentsPools {
     return nodeInfo;
   }
 
-  static synchronized ViewNodeInfo acquireViewNodeInfo() {
+  static ViewNodeInfo acquireViewNodeInfo() {
     ViewNodeInfo viewNodeInfo =
         ComponentsConfiguration.usePooling ? sViewNodeInfoPool.acquire() : null;
     if (viewNodeInfo == null) {
@@ -275,15 +326,7 @@ public class ComponentsPools {
     synchronized (mountContentLock) {
 
       if (allocatePool) {
-        if (sActivityCallbacks == null && !sIsManualCallbacks) {
-          if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            throw new RuntimeException(
-                "Activity callbacks must be invoked manually below ICS (API level 14)");
-          }
-          sActivityCallbacks = new PoolsActivityCallback();
-          ((Application) context.getApplicationContext())
-              .registerActivityLifecycleCallbacks(sActivityCallbacks);
-        }
+        ensureActivityCallbacks(context);
       }
 
       SparseArray<RecyclePool> poolsArray =
@@ -295,22 +338,46 @@ public class ComponentsPools {
           // contrast of the release call where the Activity might by gone.
           sMountContentPoolsByContext.put(context, new SparseArray<RecyclePool>());
         }
+        sAcquireMissCount.incrementAndGet();
         return null;
       }
 
       pool = poolsArray.get(componentId);
       if (pool == null) {
+        sAcquireMissCount.incrementAndGet();
         return null;
       }
     }
 
-    return pool.acquire();
+    final Object mountContent = pool.acquire();
+    if (mountContent == null) {
+      sAcquireMissCount.incrementAndGet();
+    } else if (pool.consumePreallocated(mountContent)) {
+      sAcquiredPreallocatedCount.incrementAndGet();
+    } else {
+      sAcquiredRecycledCount.incrementAndGet();
+    }
+
+    return mountContent;
   }
 
   static Object acquireMountContent(Context context, int componentId) {
     return acquireMountContent(context, componentId, true);
   }
 
+  private static void ensureActivityCallbacks(Context context) {
+    if (sActivityCallbacks == null && !sIsManualCallbacks) {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+        throw new RuntimeException(
+            "Activity callbacks must be invoked manually below ICS (API level 14)");
+      }
+      sActivityCallbacks = new PoolsActivityCallback();
+      ((Application) context.getApplicationContext())
+          .registerActivityLifecycleCallbacks(sActivityCallbacks);
+      context.getApplicationContext().registerComponentCallbacks(sActivityCallbacks);
+    }
+  }
+
   static LayoutOutput acquireLayoutOutput() {
     LayoutOutput output = ComponentsConfiguration.usePooling ? sLayoutOutputPool.acquire() : null;
     if (output == null) {
@@ -651,10 +718,7 @@ public class ComponentsPools {
       if (poolsArray != null) {
         pool = poolsArray.get(lifecycle.getTypeId());
         if (pool == null) {
-          pool = new RecyclePool(
-              "MountContent - " + lifecycle.getClass().getSimpleName(),
-              lifecycle.poolSize(),
-              true);
+          pool = createMountContentPool(lifecycle);
           poolsArray.put(lifecycle.getTypeId(), pool);
         }
       }
@@ -662,9 +726,201 @@ public class ComponentsPools {
       if (pool != null) {
         pool.release(mountContent);
       }
+
+      if (ComponentsConfiguration.useAdaptiveMountContentPools) {
+        decayMountContentPoolsIfNeeded(SystemClock.uptimeMillis());
+      }
+    }
+  }
+
+  /**
+   * Allocates the mount content pools of the given Context if it is backed by an Activity that is
+   * still alive, so that mount content can be preallocated for it before anything is mounted.
+   *
+   * @return whether the Context has mount content pools, i.e. whether the mount content
+   *     preallocated for it would be kept.
+   */
+  static boolean ensureMountContentPools(Context context) {
+    context = getRootContext(context);
+
+    synchronized (mountContentLock) {
+      if (sMountContentPoolsByContext.get(context) != null) {
+        return true;
+      }
+
+      if (ContextUtils.getValidActivityForContext(context) == null) {
+        return false;
+      }
+
+      ensureActivityCallbacks(context);
+      sMountContentPoolsByContext.put(context, new SparseArray<RecyclePool>());
+      return true;
+    }
+  }
+
+  /**
+   * Releases mount content created ahead of time by a {@link MountContentPreallocationScheduler},
+   * so that it counts against the preallocation budget of the Context until it is used or dropped
+   * from its pool. The content is dropped if the pools of the Context were not allocated, since
+   * the Context may already be destroyed.
+   */
+  static void releasePreallocatedMountContent(
+      Context context,
+      ComponentLifecycle lifecycle,
+      Object mountContent) {
+    context = getRootContext(context);
+
+    synchronized (mountContentLock) {
+      final SparseArray<RecyclePool> poolsArray = sMountContentPoolsByContext.get(context);
+      if (poolsArray == null) {
+        return;
+      }
+
+      RecyclePool pool = poolsArray.get(lifecycle.getTypeId());
+      if (pool == null) {
+        pool = createMountContentPool(lifecycle);
+        poolsArray.put(lifecycle.getTypeId(), pool);
+      }
+
+      if (pool.releasePreallocated(mountContent)) {
+        sPreallocatedCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * @return the number of items of mount content preallocated for the given Context that were not
+   *     used yet.
+   */
+  static int getPreallocatedMountContentCount(Context context) {
+    context = getRootContext(context);
+
+    synchronized (mountContentLock) {
+      final SparseArray<RecyclePool> poolsArray = sMountContentPoolsByContext.get(context);
+      if (poolsArray == null) {
+        return 0;
+      }
+
+      int count = 0;
+      for (int i = 0, size = poolsArray.size(); i < size; i++) {
+        count += poolsArray.valueAt(i).getPreallocatedCount();
+      }
+
+      return count;
+    }
+  }
+
+  /**
+   * @return how many requests for mount content were served with preallocated content, with
+   *     recycled content or had to create new content, since the application started.
+   */
+  public static PreallocationStats getPreallocationStats() {
+    return new PreallocationStats(
+        sPreallocatedCount.get(),
+        sAcquiredPreallocatedCount.get(),
+        sAcquiredRecycledCount.get(),
+        sAcquireMissCount.get());
+  }
+
+  private static Context getRootContext(Context context) {
+    if (context instanceof ComponentContext) {
+      context = ((ComponentContext) context).getBaseContext();
+
+      if (context instanceof ComponentContext) {
+        throw new IllegalStateException("Double wrapped ComponentContext.");
+      }
+    }
+
+    return context;
+  }
+
+  private static RecyclePool createMountContentPool(ComponentLifecycle lifecycle) {
+    final String name = "MountContent - " + lifecycle.getClass().getSimpleName();
+    return ComponentsConfiguration.useAdaptiveMountContentPools
+        ? new AdaptiveMountContentPool(name, lifecycle.poolSize())
+        : new RecyclePool(name, lifecycle.poolSize(), true);
+  }
+
+  /**
+   * Lets the adaptive mount content pools that are not being used shrink once their decay window
+   * is over. Only visits the pools once per decay window.
+   */
+  private static void decayMountContentPoolsIfNeeded(long nowMs) {
+    if (nowMs - sLastMountContentPoolsDecayMs < AdaptiveMountContentPool.DECAY_WINDOW_MS) {
+      return;
+    }
+
+    sLastMountContentPoolsDecayMs = nowMs;
+    for (SparseArray<RecyclePool> poolsArray : sMountContentPoolsByContext.values()) {
+      for (int i = 0, size = poolsArray.size(); i < size; i++) {
+        final RecyclePool pool = poolsArray.valueAt(i);
+        if (pool instanceof AdaptiveMountContentPool) {
+          ((AdaptiveMountContentPool) pool).decayIfNeeded(nowMs);
+        }
+      }
+    }
+  }
+
+  /**
+   * A cache shared by all the trees, that is cleared along with the pools when the system asks the
+   * application to trim its memory or when the configuration changes.
+   */
+  public interface ClearableCache {
+
+    void clear();
+  }
+
+  /**
+   * Registers a cache kept outside of this package, such as the ones of the widgets, to be cleared
+   * by {@link #onTrimMemory(int)} and {@link #onConfigurationChanged(Configuration)}.
+   */
+  public static void registerClearableCache(ClearableCache cache) {
+    sClearableCaches.add(cache);
+  }
+
+  private static void clearClearableCaches() {
+    for (ClearableCache cache : sClearableCaches) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Drops the content of all the adaptive mount content pools and resets their capacity, and clears
+   * the registered caches. This is called automatically when the system asks the application to
+   * trim its memory, unless the activity callbacks are invoked manually.
+   */
+  public static void onTrimMemory(int level) {
+    if (ComponentsConfiguration.useMeasureCache) {
+      MeasureCache.getInstance().clear();
+    }
+
+    clearClearableCaches();
+
+    if (!ComponentsConfiguration.useAdaptiveMountContentPools) {
+      return;
+    }
+
+    synchronized (mountContentLock) {
+      for (SparseArray<RecyclePool> poolsArray : sMountContentPoolsByContext.values()) {
+        for (int i = 0, size = poolsArray.size(); i < size; i++) {
+          final RecyclePool pool = poolsArray.valueAt(i);
+          if (pool instanceof AdaptiveMountContentPool) {
+            ((AdaptiveMountContentPool) pool).trim();
+          }
+        }
+      }
     }
   }
 
+  /**
+   * Clears the registered caches, whose content may depend on the previous configuration. This is
+   * called automatically when the configuration changes, unless the activity callbacks are invoked
+   * manually.
+   */
+  public static void onConfigurationChanged(Configuration newConfig) {
+    clearClearableCaches();
+  }
+
   @ThreadSafe(enableChecks = false)
   static boolean canAddMountContentToPool(Context context, ComponentLifecycle lifecycle) {
     if (context instanceof ComponentContext) {
@@ -786,7 +1042,7 @@ public class ComponentsPools {
    */
   @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
   private static class PoolsActivityCallback
-      implements Application.ActivityLifecycleCallbacks {
+      implements Application.ActivityLifecycleCallbacks, ComponentCallbacks2 {
 
     @Override
     public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
@@ -822,6 +1078,21 @@ public class ComponentsPools {
     public void onActivityDestroyed(Activity activity) {
       ComponentsPools.onContextDestroyed(activity);
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+      ComponentsPools.onTrimMemory(level);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+      ComponentsPools.onConfigurationChanged(newConfig);
+    }
+
+    @Override
+    public void onLowMemory() {
+      ComponentsPools.onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
   }
 
   static void onContextCreated(Context context) {
@@ -834,6 +1105,10 @@ public class ComponentsPools {
   static void onContextDestroyed(Context context) {
     sMountContentPoolsByContext.remove(context);
 
+    if (ComponentsConfiguration.useMeasureCache) {
+      MeasureCache.getInstance().removeEntriesOf(context);
+    }
+
     // Clear any context wrappers holding a reference to this activity.
     final Iterator<Map.Entry<Context, SparseArray<RecyclePool>>> it =
         sMountContentPoolsByContext.entrySet().iterator();
@@ -895,10 +1170,50 @@ public class ComponentsPools {
     sLithoViewArrayListPool.clear();
   }
 
+  /**
+   * @return a snapshot of the usage statistics of all the pools, including the mount content pools
+   *     of each mount spec.
+   */
+  public static List<PoolStats> getPoolStats() {
+    final List<RecyclePool> pools;
+    synchronized (mountContentLock) {
+      pools = LithoDebugInfo.getPools();
+    }
+
+    final List<PoolStats> poolStats = new ArrayList<>(pools.size());
+    for (int i = 0, size = pools.size(); i < size; i++) {
+      poolStats.add(pools.get(i).getStats());
+    }
+
+    return poolStats;
+  }
+
+  /**
+   * Logs the usage statistics of all the pools to the given logger, as one {@link
+   * FrameworkLogEvents#EVENT_POOL_STATS} event per pool.
+   */
+  public static void logPoolStats(ComponentsLogger logger) {
+    final List<PoolStats> poolStats = getPoolStats();
+    for (int i = 0, size = poolStats.size(); i < size; i++) {
+      final PoolStats stats = poolStats.get(i);
+      final LogEvent event = logger.newEvent(EVENT_POOL_STATS);
+      event.addParam(PARAM_POOL_NAME, stats.getName());
+      event.addParam(PARAM_POOL_MAX_SIZE, stats.getMaxSize());
+      event.addParam(PARAM_POOL_CURRENT_SIZE, stats.getCurrentSize());
+      event.addParam(PARAM_POOL_ACQUIRE_COUNT, stats.getAcquireCount());
+      event.addParam(PARAM_POOL_HIT_COUNT, stats.getHitCount());
+      event.addParam(PARAM_POOL_MISS_COUNT, stats.getMissCount());
+      event.addParam(PARAM_POOL_RELEASE_COUNT, stats.getReleaseCount());
+      event.addParam(PARAM_POOL_DROPPED_RELEASE_COUNT, stats.getDroppedReleaseCount());
+      event.addParam(PARAM_POOL_HIGH_WATER_MARK, stats.getHighWaterMark());
+      logger.log(event);
+    }
+  }
+
   /**
    * Check whether contextWrapper is a wrapper of baseContext
    */
-  private static boolean isContextWrapper(Context contextWrapper, Context baseContext) {
+  static boolean isContextWrapper(Context contextWrapper, Context baseContext) {
     Context currentContext = contextWrapper;
     while (currentContext instanceof ContextWrapper) {
       currentContext = ((ContextWrapper) currentContext).getBaseContext();
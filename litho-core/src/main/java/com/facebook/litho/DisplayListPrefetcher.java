@@ -11,18 +11,32 @@ package com.facebook.litho;
 
 import android.annotation.TargetApi;
 import android.os.Build;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.view.Display;
 import android.view.View;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
  * {@link Runnable} that is used to prefetch display lists of components for which layout has been
  * already calculated but not yet appeared on screen. This will allow for faster drawing time when
  * these components come to screen.
+ *
+ * <p>The layouts whose trees are closest to the viewport, as reported by the {@link
+ * ViewportDistanceProvider} layout handler of their {@link ComponentTree}, are prefetched first.
+ * The average time it takes to create the display list of each component type is learned to only
+ * start the prefetches that fit before the next frame. It can be exported with {@link
+ * #exportPrefetchDurations()} and persisted by the app, to be seeded with {@link
+ * #seedPrefetchDurations(Map)} after a restart so that the first prefetches are already scheduled
+ * with it. An output that isn't expected to fit is put off to a later frame while the other
+ * layouts keep being prefetched, and given up on after {@link #MAX_DEFERRED_RUNS} frames so that
+ * it doesn't hold back the outputs queued behind it.
  */
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
 public final class DisplayListPrefetcher implements Runnable {
@@ -36,14 +50,32 @@ public final class DisplayListPrefetcher implements Runnable {
 
   private static final DisplayListPrefetcher sDisplayListPrefetcher = new DisplayListPrefetcher();
 
-  private final Queue<WeakReference<LayoutState>> mLayoutStates;
+  /**
+   * The number of consecutive runs the next output of a layout can be put off for before it is
+   * dropped from the queue.
+   */
+  @VisibleForTesting static final int MAX_DEFERRED_RUNS = 3;
+
+  private static final Comparator<PrefetchItem> sDistanceComparator =
+      new Comparator<PrefetchItem>() {
+        @Override
+        public int compare(PrefetchItem lhs, PrefetchItem rhs) {
+          return lhs.distance < rhs.distance ? -1 : (lhs.distance == rhs.distance ? 0 : 1);
+        }
+      };
+
+  private final ArrayList<PrefetchItem> mPrefetchItems = new ArrayList<>();
+  // The items of the current run sorted by distance, only accessed by the prefetcher runs.
+  private final ArrayList<PrefetchItem> mSortedItems = new ArrayList<>();
 
   private long mFrameIntervalNs;
   private WeakReference<View> mHostingView;
+  private int mHitCount;
+  private int mMissCount;
+  private int mAbortCount;
 
-  private DisplayListPrefetcher() {
-    mLayoutStates = new LinkedList<>();
-  }
+  @VisibleForTesting
+  DisplayListPrefetcher() {}
 
   public static DisplayListPrefetcher getInstance() {
     return sDisplayListPrefetcher;
@@ -73,8 +105,67 @@ public final class DisplayListPrefetcher implements Runnable {
     mFrameIntervalNs = (long) (1000000000 / refreshRate);
   }
 
-  synchronized void addLayoutState(LayoutState layoutState) {
-    mLayoutStates.add(new WeakReference<>(layoutState));
+  /**
+   * Implemented by the {@link LayoutHandler}s that know where the {@link ComponentTree} whose
+   * layouts they calculate is relative to the viewport, so that the display lists of the trees
+   * closest to it are prefetched first.
+   */
+  public interface ViewportDistanceProvider {
+
+    /**
+     * @return the distance of the tree to the viewport, 0 if it is visible. Trees whose distance is
+     *     unknown should return {@link Integer#MAX_VALUE}.
+     */
+    int getDistanceToViewport();
+  }
+
+  synchronized void addLayoutState(
+      LayoutState layoutState, @Nullable ViewportDistanceProvider distanceProvider) {
+    mPrefetchItems.add(new PrefetchItem(layoutState, distanceProvider));
+  }
+
+  /**
+   * Seeds the average display list creation durations of the given component types, typically
+   * with the ones returned by {@link #exportPrefetchDurations()} before the process was restarted.
+   * The durations already learned by this process are kept.
+   *
+   * @param durationsNs the durations in nanoseconds, keyed by component simple name.
+   */
+  public void seedPrefetchDurations(Map<String, Long> durationsNs) {
+    for (Map.Entry<String, Long> entry : durationsNs.entrySet()) {
+      sAverageDLPrefetchDurationNs.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * @return the average display list creation durations in nanoseconds learned so far, keyed by
+   *     component simple name, to be persisted and passed to {@link #seedPrefetchDurations(Map)}.
+   */
+  public Map<String, Long> exportPrefetchDurations() {
+    return sAverageDLPrefetchDurationNs.toMap();
+  }
+
+  /**
+   * @return the number of display lists created by this prefetcher.
+   */
+  public synchronized int getHitCount() {
+    return mHitCount;
+  }
+
+  /**
+   * @return the number of display lists that were queued for prefetch but had already been
+   *     created, by drawing their content, when the prefetcher got to them.
+   */
+  public synchronized int getMissCount() {
+    return mMissCount;
+  }
+
+  /**
+   * @return the number of times the prefetcher put off or gave up on a display list, or skipped a
+   *     whole run, because it wasn't expected to be created before the next frame.
+   */
+  public synchronized int getAbortCount() {
+    return mAbortCount;
   }
 
   @Override
@@ -94,44 +185,119 @@ public final class DisplayListPrefetcher implements Runnable {
 
     if (System.nanoTime() > nextVsyncNs) {
       // We are over the frame, bail.
+      synchronized (this) {
+        if (!mPrefetchItems.isEmpty()) {
+          mAbortCount++;
+        }
+      }
       return;
     }
 
+    prefetchUntil(nextVsyncNs);
+  }
+
+  /**
+   * Creates the queued display lists, those of the layouts closest to the viewport first, until
+   * none of the layouts left has a next output that is expected to be created before the given
+   * deadline. The layouts are sorted once at the start of the run, and the layouts queued during
+   * the run are left to the next one.
+   */
+  @VisibleForTesting
+  void prefetchUntil(long nextVsyncNs) {
     ComponentsSystrace.beginSection("DisplayListPrefetcher");
 
+    synchronized (this) {
+      mSortedItems.addAll(mPrefetchItems);
+    }
+
+    // The distance providers are only called once per item and run, outside of the lock. The sort
+    // is stable, so the layouts at the same distance are prefetched in the order they were queued.
+    for (int i = 0, size = mSortedItems.size(); i < size; i++) {
+      final PrefetchItem item = mSortedItems.get(i);
+      item.distance = item.getDistanceToViewport();
+    }
+    Collections.sort(mSortedItems, sDistanceComparator);
+
+    boolean hasDoneItems = false;
+    for (int i = 0, size = mSortedItems.size(); i < size; i++) {
+      final PrefetchItem item = mSortedItems.get(i);
+      if (prefetchItemUntil(item, nextVsyncNs)) {
+        item.isDone = true;
+        hasDoneItems = true;
+      }
+    }
+    mSortedItems.clear();
+
+    if (hasDoneItems) {
+      removeDoneItems();
+    }
+
+    ComponentsSystrace.endSection();
+  }
+
+  /**
+   * Creates the queued display lists of the given item until its next output is not expected to be
+   * created before the given deadline. Its queue is only trimmed of the outputs whose display list
+   * was already created when it is picked.
+   *
+   * @return whether the item has no display list left to create, so that it can be dropped.
+   */
+  private boolean prefetchItemUntil(PrefetchItem item, long nextVsyncNs) {
+    final LayoutState layoutState = item.layoutState.get();
+
+    // There might be the case when LayoutState was posted when app was in foreground, but by the
+    // time this runnable is executed we no longer can create displaylist, i.e. GLContext has been
+    // killed, for example, if activity has finished.
+    if (layoutState == null || !layoutState.isActivityValid()) {
+      return true;
+    }
+
     while (true) {
-      final LayoutState currentLayoutState = getValidLayoutStateFromQueue();
-      if (currentLayoutState == null) {
-        break;
+      final int missCount = layoutState.trimDisplayListItemsQueue();
+      if (missCount > 0) {
+        synchronized (this) {
+          mMissCount += missCount;
+        }
       }
 
-      if (!currentLayoutState.isActivityValid()) {
-        // There might be the case when LayoutState was posted when app was in foreground, but by
-        // the time this runnable is executed we no longer can create displaylist, i.e. GLContext
-        // has been killed, for example, if activity has finished.
-        mLayoutStates.remove();
-        continue;
+      if (!layoutState.hasItemsForDLPrefetch()) {
+        return true;
       }
 
-      final LayoutOutput currentLayoutOutput =
-          currentLayoutState.getNextLayoutOutputForDLPrefetch();
-      final String currentComponentType = currentLayoutOutput.getComponent().getSimpleName();
+      final LayoutOutput layoutOutput = layoutState.peekNextLayoutOutputForDLPrefetch();
+      final String componentType = layoutOutput.getComponent().getSimpleName();
       final long startPrefetchNs = System.nanoTime();
 
-      if (!canPrefetchOnTime(currentComponentType, startPrefetchNs, nextVsyncNs)) {
-        break;
+      if (!canPrefetchOnTime(componentType, startPrefetchNs, nextVsyncNs)) {
+        synchronized (this) {
+          mAbortCount++;
+        }
+
+        if (++item.deferredRunCount < MAX_DEFERRED_RUNS) {
+          // The output stays queued for a later frame, the other layouts may still fit in this one.
+          return false;
+        }
+
+        // The output is too expensive to ever fit, drop it so that it doesn't starve the ones
+        // queued behind it. It will get its display list when it is drawn.
+        layoutState.getNextLayoutOutputForDLPrefetch();
+        item.deferredRunCount = 0;
+        continue;
       }
 
-      currentLayoutState.createDisplayList(currentLayoutOutput);
-      if (currentLayoutOutput.hasDisplayListContainer() // container might have been recycled.
-          && currentLayoutOutput.hasValidDisplayList()) {
+      item.deferredRunCount = 0;
+      layoutState.getNextLayoutOutputForDLPrefetch();
+      layoutState.createDisplayList(layoutOutput);
+      if (layoutOutput.hasDisplayListContainer() // container might have been recycled.
+          && layoutOutput.hasValidDisplayList()) {
         // successfully created DL
         final long actualElapsedNs = System.nanoTime() - startPrefetchNs;
-        updateAveragePrefetchDuration(currentComponentType, actualElapsedNs);
+        updateAveragePrefetchDuration(componentType, actualElapsedNs);
+        synchronized (this) {
+          mHitCount++;
+        }
       }
     }
-
-    ComponentsSystrace.endSection();
   }
 
   private boolean canPrefetchOnTime(String componentType, long startTimeNs, long deadlineNs) {
@@ -140,31 +306,17 @@ public final class DisplayListPrefetcher implements Runnable {
         || (startTimeNs + expectedPrefetchDurationNs < deadlineNs);
   }
 
-  /**
-   * @return the next {@link LayoutState} from the queue that has non-zero elements to process.
-   */
-  private LayoutState getValidLayoutStateFromQueue() {
-    WeakReference<LayoutState> currentLayoutState = mLayoutStates.peek();
-    while (currentLayoutState != null) {
-      final LayoutState layoutState = currentLayoutState.get();
-      if (layoutState != null) {
-        layoutState.trimDisplayListItemsQueue();
-      }
-
-      if (layoutState == null || !layoutState.hasItemsForDLPrefetch()) {
-        mLayoutStates.remove();
-        currentLayoutState = mLayoutStates.peek();
-      } else {
-        break;
+  private synchronized void removeDoneItems() {
+    final int count = mPrefetchItems.size();
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      final PrefetchItem item = mPrefetchItems.get(i);
+      if (!item.isDone) {
+        mPrefetchItems.set(size++, item);
       }
     }
 
-    if (currentLayoutState == null) {
-      // Queue is empty.
-      return null;
-    }
-
-    return currentLayoutState.get();
+    mPrefetchItems.subList(size, count).clear();
   }
 
   private void updateAveragePrefetchDuration(String componentType, long actualElapsedNs) {
@@ -180,7 +332,29 @@ public final class DisplayListPrefetcher implements Runnable {
   }
 
   public synchronized boolean hasPrefetchItems() {
-    return !mLayoutStates.isEmpty();
+    return !mPrefetchItems.isEmpty();
+  }
+
+  private static final class PrefetchItem {
+
+    private final WeakReference<LayoutState> layoutState;
+    private final @Nullable ViewportDistanceProvider distanceProvider;
+    // Only accessed from the main thread, by the prefetcher runs.
+    private int deferredRunCount;
+    private int distance;
+    private boolean isDone;
+
+    private PrefetchItem(
+        LayoutState layoutState, @Nullable ViewportDistanceProvider distanceProvider) {
+      this.layoutState = new WeakReference<>(layoutState);
+      this.distanceProvider = distanceProvider;
+    }
+
+    private int getDistanceToViewport() {
+      return distanceProvider != null
+          ? distanceProvider.getDistanceToViewport()
+          : Integer.MAX_VALUE;
+    }
   }
 
   /**
@@ -196,7 +370,7 @@ public final class DisplayListPrefetcher implements Runnable {
     private long[] durationsNs = new long[INITIAL_SIZE];
     private final ArrayList<String> componentTypes = new ArrayList<>();
 
-    long get(String componentType) {
+    synchronized long get(String componentType) {
       final int indexOf = componentTypes.indexOf(componentType);
       if (indexOf < 0) {
         return -1L;
@@ -205,7 +379,7 @@ public final class DisplayListPrefetcher implements Runnable {
       return durationsNs[indexOf];
     }
 
-    void put(String componentType, long durationNs) {
+    synchronized void put(String componentType, long durationNs) {
       final int indexOfKey = componentTypes.indexOf(componentType);
       if (indexOfKey == -1) {
         if (componentTypes.size() >= durationsNs.length) {
@@ -220,5 +394,20 @@ public final class DisplayListPrefetcher implements Runnable {
         durationsNs[indexOfKey] = durationNs;
       }
     }
+
+    synchronized void putIfAbsent(String componentType, long durationNs) {
+      if (!componentTypes.contains(componentType)) {
+        put(componentType, durationNs);
+      }
+    }
+
+    synchronized Map<String, Long> toMap() {
+      final Map<String, Long> map = new HashMap<>(componentTypes.size());
+      for (int i = 0, size = componentTypes.size(); i < size; i++) {
+        map.put(componentTypes.get(i), durationsNs[i]);
+      }
+
+      return map;
+    }
   }
 }
@@ -27,6 +27,7 @@ public interface FrameworkLogEvents {
   int EVENT_STETHO_INSPECT_COMPONENT = 10;
   int EVENT_ERROR = 11;
   int EVENT_WARNING = 12;
+  int EVENT_POOL_STATS = 13;
 
   String PARAM_COMPONENT = "component";
   String PARAM_LOG_TAG = "log_tag";
@@ -42,4 +43,13 @@ public interface FrameworkLogEvents {
   String PARAM_NO_OP_COUNT = "no_op_count";
   String PARAM_IS_DIRTY = "is_dirty";
   String PARAM_MESSAGE = "message";
+  String PARAM_POOL_NAME = "pool_name";
+  String PARAM_POOL_MAX_SIZE = "pool_max_size";
+  String PARAM_POOL_CURRENT_SIZE = "pool_current_size";
+  String PARAM_POOL_ACQUIRE_COUNT = "pool_acquire_count";
+  String PARAM_POOL_HIT_COUNT = "pool_hit_count";
+  String PARAM_POOL_MISS_COUNT = "pool_miss_count";
+  String PARAM_POOL_RELEASE_COUNT = "pool_release_count";
+  String PARAM_POOL_DROPPED_RELEASE_COUNT = "pool_dropped_release_count";
+  String PARAM_POOL_HIGH_WATER_MARK = "pool_high_water_mark";
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+/**
+ * Builds the compact global keys of {@link Component}s, see {@link
+ * com.facebook.litho.config.ComponentsConfiguration#useCompactGlobalKeys}.
+ *
+ * <p>A compact global key is a 64-bit hash of the path of keys from the root of the tree to the
+ * component, computed from the hash of the parent's global key and the key of the component, so
+ * its length doesn't depend on the depth of the component. When two different paths hash to the
+ * same value, the component whose key is generated last gets its hash rehashed until its global key
+ * is unique. Unlike duplicate sibling keys, which are always generated by their parent in the same
+ * order, this depends on the order in which the layouts of different subtrees are created.
+ */
+final class GlobalKeys {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** The length of every compact global key. */
+  static final int KEY_LENGTH = 16;
+
+  private GlobalKeys() {}
+
+  /**
+   * @return the hash of the global key of a root component with the given key.
+   */
+  static long hash(String key) {
+    return mix(FNV_OFFSET_BASIS, key);
+  }
+
+  /**
+   * @return the hash of the global key of a child with the given key whose parent global key has
+   *     the given hash.
+   */
+  static long combine(long parentHash, String key) {
+    return finalizeHash(mix(parentHash * FNV_PRIME, key));
+  }
+
+  /**
+   * @return the hash of the global key of the child with the given index among the siblings whose
+   *     global key has the given hash.
+   */
+  static long combine(long hash, int index) {
+    return finalizeHash((hash ^ index) * FNV_PRIME + index);
+  }
+
+  /**
+   * @return a new hash derived from the given one, to resolve a collision between the global keys
+   *     of two different paths.
+   */
+  static long rehash(long hash) {
+    return finalizeHash(~hash * FNV_PRIME);
+  }
+
+  /**
+   * @return the global key with the given hash, made of {@link #KEY_LENGTH} hexadecimal digits.
+   */
+  static String toKey(long hash) {
+    final char[] chars = new char[KEY_LENGTH];
+    for (int i = KEY_LENGTH - 1; i >= 0; i--) {
+      chars[i] = HEX_DIGITS[(int) (hash & 0xf)];
+      hash >>>= 4;
+    }
+
+    return new String(chars);
+  }
+
+  private static long mix(long hash, String key) {
+    for (int i = 0, length = key.length(); i < length; i++) {
+      hash ^= key.charAt(i);
+      hash *= FNV_PRIME;
+    }
+
+    return hash;
+  }
+
+  private static long finalizeHash(long hash) {
+    // Spread the bits, so that parents with close hashes don't produce close child hashes.
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
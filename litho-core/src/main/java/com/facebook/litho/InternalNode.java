@@ -161,6 +161,16 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
   private TreeProps mPendingTreeProps;
   private int mGeneration;
 
+  // Children added with child(Component) whose layouts have not been resolved yet, and how many of
+  // them resolved to no layout, see ComponentsConfiguration#parallelChildResolution.
+  private int mPendingChildCount;
+  private int mSkippedPendingChildCount;
+
+  // Whether this is the layout of a component added with child(Component) by a parent that had no
+  // tree props, so that it can be created again on its own, see
+  // ComponentsConfiguration#partialRelayoutOnStateUpdate.
+  private boolean mIsRecreatableChildLayout;
+
   void init(YogaNode yogaNode, ComponentContext componentContext) {
     mGeneration++;
     yogaNode.setData(this);
@@ -969,7 +979,14 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
   @Override
   public InternalNode child(Component<?> child) {
     if (child != null) {
-      child(Layout.create(mComponentContext, child));
+      if (ComponentsConfiguration.parallelChildResolution) {
+        mComponentContext.addPendingChild(this, child);
+      } else {
+        final ComponentLayout layout = Layout.create(mComponentContext, child).build();
+        if (layout != NULL_LAYOUT) {
+          addChildComponentLayoutAt((InternalNode) layout, mYogaNode.getChildCount());
+        }
+      }
     }
     return this;
   }
@@ -1416,6 +1433,8 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
   }
 
   void calculateLayout(float width, float height) {
+    resolvePendingChildren();
+
     if (ComponentsConfiguration.isDebugModeEnabled) {
       applyOverridesRecursive(this);
     }
@@ -1437,6 +1456,17 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     calculateLayout(YogaConstants.UNDEFINED, YogaConstants.UNDEFINED);
   }
 
+  /**
+   * Clears the position and size read from the last layout calculation, so that they are read
+   * again after the tree is laid out again.
+   */
+  void clearResolvedLayout() {
+    mResolvedX = YogaConstants.UNDEFINED;
+    mResolvedY = YogaConstants.UNDEFINED;
+    mResolvedWidth = YogaConstants.UNDEFINED;
+    mResolvedHeight = YogaConstants.UNDEFINED;
+  }
+
   int getChildCount() {
     return mYogaNode.getChildCount();
   }
@@ -1472,12 +1502,97 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     mYogaNode.addChildAt(child.mYogaNode, index);
   }
 
+  /**
+   * @return the position, among the children of this node, of a child whose layout will be added
+   *     later with {@link #addPendingChildAt(ComponentLayout, int)}.
+   */
+  int reservePendingChildIndex() {
+    return mYogaNode.getChildCount() + mPendingChildCount++;
+  }
+
+  /**
+   * Resolves the layouts of the children added to this node that are still pending, if any. This
+   * also resolves the other children pending on the context of this node.
+   */
+  void resolvePendingChildren() {
+    if (mPendingChildCount > 0) {
+      mComponentContext.resolvePendingChildren();
+    }
+  }
+
+  /**
+   * Adds the resolved layout of a pending child. The pending children of a node must be added in
+   * the order in which their positions were reserved.
+   */
+  void addPendingChildAt(ComponentLayout child, int reservedIndex) {
+    if (child == null || child == NULL_LAYOUT) {
+      mSkippedPendingChildCount++;
+    } else {
+      addChildComponentLayoutAt((InternalNode) child, reservedIndex - mSkippedPendingChildCount);
+    }
+
+    if (--mPendingChildCount == 0) {
+      mSkippedPendingChildCount = 0;
+    }
+  }
+
+  private void addChildComponentLayoutAt(InternalNode child, int index) {
+    child.mIsRecreatableChildLayout = mComponentContext.getTreeProps() == null;
+    addChildAt(child, index);
+  }
+
+  /**
+   * @return whether this node is the layout of a component added with {@link #child(Component)}
+   *     whose parent had no tree props, so that nothing outside of the layout of the component
+   *     contributed to this node and it can be replaced by a new layout of the same component.
+   */
+  boolean isRecreatableChildLayout() {
+    return mIsRecreatableChildLayout;
+  }
+
+  /**
+   * Replaces the components of this node by shallow copies, so that laying out this node again
+   * doesn't modify the components of the layout it was created for.
+   */
+  void copyComponents() {
+    for (int i = 0, size = mComponents.size(); i < size; i++) {
+      final Component component = mComponents.get(i);
+      final Component copy = component.makeShallowCopy();
+      mComponents.set(i, copy);
+
+      if (mComponentsNeedingPreviousRenderData != null) {
+        final int index = mComponentsNeedingPreviousRenderData.indexOf(component);
+        if (index >= 0) {
+          mComponentsNeedingPreviousRenderData.set(index, copy);
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces the recreatable child at the given index by a new layout of its outermost component,
+   * see {@link #isRecreatableChildLayout()}.
+   */
+  void replaceRecreatableChildAt(int index, ComponentLayout layout) {
+    removeChildAt(index);
+
+    if (layout != null && layout != NULL_LAYOUT) {
+      final InternalNode child = (InternalNode) layout;
+      child.mIsRecreatableChildLayout = true;
+      addChildAt(child, index);
+    }
+  }
+
   InternalNode removeChildAt(int index) {
     return (InternalNode) mYogaNode.removeChildAt(index).getData();
   }
 
   @Override
   public ComponentLayout build() {
+    if (!mComponentContext.isCreatingLayout()) {
+      resolvePendingChildren();
+    }
+
     return this;
   }
 
@@ -1898,6 +2013,7 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     mResolvedY = YogaConstants.UNDEFINED;
     mResolvedWidth = YogaConstants.UNDEFINED;
     mResolvedHeight = YogaConstants.UNDEFINED;
+    mIsRecreatableChildLayout = false;
 
     mComponentContext = null;
     mResources = null;
@@ -1946,6 +2062,8 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     mDiffNode = null;
     mCachedMeasuresValid = false;
     mIsNestedTreeHolder = false;
+    mPendingChildCount = 0;
+    mSkippedPendingChildCount = 0;
     mTestKey = null;
 
     if (mPendingTreeProps != null) {
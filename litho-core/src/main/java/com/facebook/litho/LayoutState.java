@@ -119,6 +119,26 @@ class LayoutState {
         }
       };
 
+  static final Comparator<VisibilityOutput> sVisibilityOutputTopsComparator =
+      new Comparator<VisibilityOutput>() {
+        @Override
+        public int compare(VisibilityOutput lhs, VisibilityOutput rhs) {
+          final int lhsTop = lhs.getBounds().top;
+          final int rhsTop = rhs.getBounds().top;
+          return lhsTop < rhsTop ? -1 : lhsTop > rhsTop ? 1 : 0;
+        }
+      };
+
+  static final Comparator<VisibilityOutput> sVisibilityOutputBottomsComparator =
+      new Comparator<VisibilityOutput>() {
+        @Override
+        public int compare(VisibilityOutput lhs, VisibilityOutput rhs) {
+          final int lhsBottom = lhs.getBounds().bottom;
+          final int rhsBottom = rhs.getBounds().bottom;
+          return lhsBottom < rhsBottom ? -1 : lhsBottom > rhsBottom ? 1 : 0;
+        }
+      };
+
   private final Map<String, Rect> mComponentKeyToBounds = new HashMap<>();
   private final List<Component> mComponents = new ArrayList<>();
 
@@ -145,6 +165,8 @@ class LayoutState {
   private final LayoutStateOutputIdCalculator mLayoutStateOutputIdCalculator;
   private final ArrayList<LayoutOutput> mMountableOutputTops = new ArrayList<>();
   private final ArrayList<LayoutOutput> mMountableOutputBottoms = new ArrayList<>();
+  private final ArrayList<VisibilityOutput> mVisibilityOutputTops = new ArrayList<>();
+  private final ArrayList<VisibilityOutput> mVisibilityOutputBottoms = new ArrayList<>();
   private final Queue<Integer> mDisplayListsToPrefetch = new LinkedList<>();
 
   private List<TestOutput> mTestOutputs;
@@ -170,8 +192,11 @@ class LayoutState {
   private boolean mIsTransitionKeySet = false;
   private @NodeInfo.EnabledState int mParentEnabledState = ENABLED_UNSET;
 
+  private static final AtomicInteger sIdGenerator = new AtomicInteger(1);
+
   private boolean mShouldGenerateDiffTree = false;
   private int mComponentTreeId = -1;
+  private int mId;
 
   private AccessibilityManager mAccessibilityManager;
   private boolean mAccessibilityEnabled = false;
@@ -183,6 +208,7 @@ class LayoutState {
   private ArrayList<Component> mComponentsNeedingPreviousRenderData;
   private SimpleArrayMap<String, LayoutOutput> mTransitionKeyMapping;
   private boolean mHasLithoViewBoundsAnimation = false;
+  private boolean mHasStatefulComponents;
 
   LayoutState() {
     mLayoutStateOutputIdCalculator = new LayoutStateOutputIdCalculator();
@@ -192,6 +218,7 @@ class LayoutState {
     mContext = context;
     mStateHandler = mContext.getStateHandler();
     mReferenceCount.set(1);
+    mId = sIdGenerator.getAndIncrement();
     mTestOutputs = ComponentsConfiguration.isEndToEndTestRun ? new ArrayList<TestOutput>(8) : null;
   }
 
@@ -790,6 +817,10 @@ class LayoutState {
         final Rect copyRect = ComponentsPools.acquireRect();
         copyRect.set(rect);
         layoutState.mComponentKeyToBounds.put(delegate.getGlobalKey(), copyRect);
+
+        if (delegate.getLifecycle().hasState()) {
+          layoutState.mHasStatefulComponents = true;
+        }
       }
       ComponentsPools.release(rect);
     }
@@ -1049,7 +1080,134 @@ class LayoutState {
     // Detect errors internal to components
     component.markLayoutStarted();
 
-    LayoutState layoutState = ComponentsPools.acquireLayoutState(c);
+    final LayoutState layoutState =
+        acquireLayoutState(
+            c,
+            component,
+            componentTreeId,
+            widthSpec,
+            heightSpec,
+            shouldGenerateDiffTree,
+            canPrefetchDisplayLists,
+            canCacheDrawingDisplayLists,
+            clipChildren);
+
+    final InternalNode root = createAndMeasureTreeForComponent(
+        c,
+        component,
+        null, // nestedTreeHolder is null because this is measuring the root component tree.
+        widthSpec,
+        heightSpec,
+        previousDiffTreeRoot);
+
+    setSizeAndCollectResults(c, layoutState, root);
+
+    return layoutState;
+  }
+
+  /**
+   * Calculates the layout of a copy of the root component of the given previous LayoutState which
+   * only differs from it by the state updates queued for the component with the given global key,
+   * by reusing the InternalNode tree of the previous LayoutState, see {@link
+   * ComponentsConfiguration#partialRelayoutOnStateUpdate}.
+   *
+   * @return the new LayoutState, or null if the tree of the previous LayoutState can't be reused.
+   *     The layout then needs to be calculated from scratch with {@link #calculate}.
+   */
+  @Nullable
+  static <T extends Component> LayoutState calculateForStateUpdate(
+      ComponentContext c,
+      Component<T> component,
+      int componentTreeId,
+      int widthSpec,
+      int heightSpec,
+      String updatedComponentKey,
+      LayoutState previousLayoutState,
+      boolean shouldGenerateDiffTree,
+      DiffNode previousDiffTreeRoot,
+      boolean canPrefetchDisplayLists,
+      boolean canCacheDrawingDisplayLists,
+      boolean clipChildren) {
+    // The debugging and testing tools read the layout tree of the mounted LayoutState, which is the
+    // previous one until the new one replaces it, so the tree can't be taken from it.
+    if (ComponentsConfiguration.isDebugModeEnabled
+        || ComponentsConfiguration.persistInternalNodeTree
+        || previousLayoutState.mWidthSpec != widthSpec
+        || previousLayoutState.mHeightSpec != heightSpec
+        || c.getTreeProps() != null) {
+      return null;
+    }
+
+    // The tree is only taken once it is known to be reusable, so that it stays available to the
+    // later state updates of the previous LayoutState if this one falls back to a full layout.
+    final InternalNode root;
+    final InternalNode node;
+    synchronized (previousLayoutState) {
+      final InternalNode previousRoot = previousLayoutState.mLayoutRoot;
+      node =
+          previousRoot == null ? null : findRecreatableLayout(previousRoot, updatedComponentKey);
+      if (node == null) {
+        return null;
+      }
+
+      root = previousLayoutState.takeLayoutRoot();
+    }
+
+    // Detect errors internal to components
+    component.markLayoutStarted();
+
+    final LayoutState layoutState =
+        acquireLayoutState(
+            c,
+            component,
+            componentTreeId,
+            widthSpec,
+            heightSpec,
+            shouldGenerateDiffTree,
+            canPrefetchDisplayLists,
+            canCacheDrawingDisplayLists,
+            clipChildren);
+
+    // The outermost component of the node is the one that was added to its parent.
+    final List<Component> components = node.getComponents();
+    final Component<?> recreatedComponent =
+        components.get(components.size() - 1).makeShallowCopy();
+    recreatedComponent.applyStateUpdatesWithGlobalKey(c);
+
+    final ComponentLayout layout =
+        recreatedComponent
+            .getLifecycle()
+            .createLayout(recreatedComponent.getScopedContext(), recreatedComponent, false);
+
+    // The previous LayoutState is still mounted, so the components of the nodes that are kept must
+    // not be shared with it as laying them out again updates their inter stage outputs.
+    copyComponents(root, node);
+
+    final InternalNode parent = node.getParent();
+    parent.replaceRecreatableChildAt(parent.getChildIndex(node), layout);
+    releaseNodeTree(node, false /* isNestedTree */);
+
+    // Yoga only lays out again the nodes that were marked as dirty by the replacement, but all the
+    // nodes need to read their new positions and the diff nodes of the previous layout.
+    clearLayoutResults(root);
+    measureTree(root, widthSpec, heightSpec, previousDiffTreeRoot);
+
+    setSizeAndCollectResults(c, layoutState, root);
+
+    return layoutState;
+  }
+
+  private static LayoutState acquireLayoutState(
+      ComponentContext c,
+      Component<?> component,
+      int componentTreeId,
+      int widthSpec,
+      int heightSpec,
+      boolean shouldGenerateDiffTree,
+      boolean canPrefetchDisplayLists,
+      boolean canCacheDrawingDisplayLists,
+      boolean clipChildren) {
+    final LayoutState layoutState = ComponentsPools.acquireLayoutState(c);
     layoutState.clearComponents();
     layoutState.mShouldGenerateDiffTree = shouldGenerateDiffTree;
     layoutState.mComponentTreeId = componentTreeId;
@@ -1063,13 +1221,19 @@ class LayoutState {
     layoutState.mCanCacheDrawingDisplayLists = canCacheDrawingDisplayLists;
     layoutState.mClipChildren = clipChildren;
 
-    final InternalNode root = createAndMeasureTreeForComponent(
-        c,
-        component,
-        null, // nestedTreeHolder is null because this is measuring the root component tree.
-        widthSpec,
-        heightSpec,
-        previousDiffTreeRoot);
+    return layoutState;
+  }
+
+  /**
+   * Sets the size of the given LayoutState from its measured layout tree and collects its outputs.
+   */
+  private static void setSizeAndCollectResults(
+      ComponentContext c,
+      LayoutState layoutState,
+      InternalNode root) {
+    final Component<?> component = layoutState.mComponent;
+    final int widthSpec = layoutState.mWidthSpec;
+    final int heightSpec = layoutState.mHeightSpec;
 
     switch (SizeSpec.getMode(widthSpec)) {
       case SizeSpec.EXACTLY:
@@ -1103,7 +1267,7 @@ class LayoutState {
     final ComponentsLogger logger = c.getLogger();
 
     if (root == NULL_LAYOUT) {
-      return layoutState;
+      return;
     }
 
     layoutState.mLayoutRoot = root;
@@ -1124,6 +1288,13 @@ class LayoutState {
     Collections.sort(layoutState.mMountableOutputTops, sTopsComparator);
     Collections.sort(layoutState.mMountableOutputBottoms, sBottomsComparator);
 
+    if (!layoutState.mVisibilityOutputs.isEmpty()) {
+      layoutState.mVisibilityOutputTops.addAll(layoutState.mVisibilityOutputs);
+      layoutState.mVisibilityOutputBottoms.addAll(layoutState.mVisibilityOutputs);
+      Collections.sort(layoutState.mVisibilityOutputTops, sVisibilityOutputTopsComparator);
+      Collections.sort(layoutState.mVisibilityOutputBottoms, sVisibilityOutputBottomsComparator);
+    }
+
     if (logger != null) {
       logger.log(collectResultsEvent);
     }
@@ -1132,11 +1303,11 @@ class LayoutState {
       ComponentsSystrace.endSection();
     }
 
-    if (!ComponentsConfiguration.isDebugModeEnabled
-        && !ComponentsConfiguration.persistInternalNodeTree
-        && layoutState.mLayoutRoot != null) {
-      releaseNodeTree(layoutState.mLayoutRoot, false /* isNestedTree */);
-      layoutState.mLayoutRoot = null;
+    // Only the layouts of trees with stateful components can be the starting point of a partial
+    // relayout, the ComponentTree releases the tree of the others once they are replaced.
+    if (!ComponentsConfiguration.partialRelayoutOnStateUpdate
+        || !layoutState.mHasStatefulComponents) {
+      layoutState.releaseLayoutRoot();
     }
 
     final Activity activity = getValidActivityForContext(c);
@@ -1149,8 +1320,77 @@ class LayoutState {
         queueDisplayListsForPrefetch(layoutState);
       }
     }
+  }
 
-    return layoutState;
+  /**
+   * @return the closest node enclosing the layout of the component with the given global key that
+   *     can be replaced by a new layout of its outermost component, or null if there is none. The
+   *     nested trees are not searched.
+   */
+  @Nullable
+  private static InternalNode findRecreatableLayout(InternalNode root, String globalKey) {
+    InternalNode node = findLayoutOfComponent(root, globalKey);
+    while (node != null && !node.isRecreatableChildLayout()) {
+      node = node.getParent();
+    }
+
+    return node;
+  }
+
+  @Nullable
+  private static InternalNode findLayoutOfComponent(InternalNode node, String globalKey) {
+    final List<Component> components = node.getComponents();
+    for (int i = 0, size = components.size(); i < size; i++) {
+      if (globalKey.equals(components.get(i).getGlobalKey())) {
+        return node;
+      }
+    }
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      final InternalNode layout = findLayoutOfComponent(node.getChildAt(i), globalKey);
+      if (layout != null) {
+        return layout;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Replaces the components of all the nodes of the given tree but the excluded subtree by copies.
+   */
+  private static void copyComponents(InternalNode node, InternalNode excludedNode) {
+    if (node == excludedNode) {
+      return;
+    }
+
+    node.copyComponents();
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      copyComponents(node.getChildAt(i), excludedNode);
+    }
+
+    if (node.hasNestedTree() && node.getNestedTree() != NULL_LAYOUT) {
+      copyComponents(node.getNestedTree(), excludedNode);
+    }
+  }
+
+  /**
+   * Clears the positions, sizes and diff nodes computed by the previous layout of a tree which is
+   * being laid out again.
+   */
+  private static void clearLayoutResults(InternalNode node) {
+    node.clearResolvedLayout();
+    node.setDiffNode(null);
+    node.setCachedMeasuresValid(false);
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      clearLayoutResults(node.getChildAt(i));
+    }
+
+    if (node.hasNestedTree() && node.getNestedTree() != NULL_LAYOUT) {
+      clearLayoutResults(node.getNestedTree());
+    }
   }
 
   @ThreadSafe(enableChecks = false)
@@ -1347,7 +1587,15 @@ class LayoutState {
     }
 
     if (!layoutState.mDisplayListsToPrefetch.isEmpty()) {
-      DisplayListPrefetcher.getInstance().addLayoutState(layoutState);
+      final ComponentTree componentTree = layoutState.mContext.getComponentTree();
+      final LayoutHandler layoutHandler =
+          componentTree != null ? componentTree.getLayoutThreadHandler() : null;
+      DisplayListPrefetcher.getInstance()
+          .addLayoutState(
+              layoutState,
+              layoutHandler instanceof DisplayListPrefetcher.ViewportDistanceProvider
+                  ? (DisplayListPrefetcher.ViewportDistanceProvider) layoutHandler
+                  : null);
     }
   }
 
@@ -1789,6 +2037,14 @@ class LayoutState {
     return mVisibilityOutputs.get(index);
   }
 
+  ArrayList<VisibilityOutput> getVisibilityOutputTops() {
+    return mVisibilityOutputTops;
+  }
+
+  ArrayList<VisibilityOutput> getVisibilityOutputBottoms() {
+    return mVisibilityOutputBottoms;
+  }
+
   int getTestOutputCount() {
     return mTestOutputs == null ? 0 : mTestOutputs.size();
   }
@@ -1816,6 +2072,14 @@ class LayoutState {
     return mComponentTreeId;
   }
 
+  /**
+   * @return An id that is unique to this calculation, and changes whenever the pooled instance is
+   *     reused for another one.
+   */
+  int getId() {
+    return mId;
+  }
+
   /**
    * See {@link LayoutState#acquireRef} Call this when you are done using the reference to the
    * LayoutState.
@@ -1861,6 +2125,8 @@ class LayoutState {
         ComponentsPools.release(mVisibilityOutputs.get(i));
       }
       mVisibilityOutputs.clear();
+      mVisibilityOutputTops.clear();
+      mVisibilityOutputBottoms.clear();
 
       if (mTestOutputs != null) {
         for (int i = 0, size = mTestOutputs.size(); i < size; i++) {
@@ -1898,6 +2164,7 @@ class LayoutState {
 
       mTransitionKeyMapping = null;
       mHasLithoViewBoundsAnimation = false;
+      mHasStatefulComponents = false;
 
       ComponentsPools.release(this);
     }
@@ -1938,6 +2205,37 @@ class LayoutState {
     return mLayoutRoot;
   }
 
+  /**
+   * Releases the InternalNode tree kept by this LayoutState, unless it may be read by the debugging
+   * and testing tools, see {@link #getLayoutRoot()}. The ComponentTree calls this when the
+   * LayoutState is replaced, since the tree is only reused by the partial relayouts starting from
+   * its current layout, see {@link ComponentsConfiguration#partialRelayoutOnStateUpdate}.
+   */
+  synchronized void releaseLayoutRoot() {
+    if (ComponentsConfiguration.isDebugModeEnabled
+        || ComponentsConfiguration.persistInternalNodeTree
+        || mLayoutRoot == null) {
+      return;
+    }
+
+    releaseNodeTree(mLayoutRoot, false /* isNestedTree */);
+    mLayoutRoot = null;
+  }
+
+  /**
+   * Transfers the ownership of the InternalNode tree kept by this LayoutState to the caller. This
+   * must not be used when the tree may be read by the debugging and testing tools, see {@link
+   * #getLayoutRoot()}.
+   *
+   * @return the tree, or null if it was released or already taken.
+   */
+  @Nullable
+  synchronized InternalNode takeLayoutRoot() {
+    final InternalNode layoutRoot = mLayoutRoot;
+    mLayoutRoot = null;
+    return layoutRoot;
+  }
+
   // If the layout root is a nested tree holder node, it gets skipped immediately while
   // collecting the LayoutOutputs. The nested tree itself effectively becomes the layout
   // root in this case.
@@ -2072,25 +2370,41 @@ class LayoutState {
   /**
    * Remove items that have already valid displaylist. This item might have been already drawn on
    * the screen in which case we will have valid displaylist so we can skip them.
+   *
+   * @return the number of removed items that already had a valid displaylist.
    */
-  void trimDisplayListItemsQueue() {
+  int trimDisplayListItemsQueue() {
     if (mMountableOutputs.isEmpty()) {
       // Item has been released, remove all pending items for displaylist prefetch.
       mDisplayListsToPrefetch.clear();
-      return;
+      return 0;
     }
+    int validDisplayListCount = 0;
     Integer currentIndex = mDisplayListsToPrefetch.peek();
     while (currentIndex != null) {
       final LayoutOutput layoutOutput = mMountableOutputs.get(currentIndex);
       if (!layoutOutput.hasDisplayListContainer() || layoutOutput.hasValidDisplayList()) {
         // Either this item has been released or we have already computed displaylist for this item.
         // In either case remove it from the queue.
+        if (layoutOutput.hasDisplayListContainer()) {
+          validDisplayListCount++;
+        }
         mDisplayListsToPrefetch.remove();
         currentIndex = mDisplayListsToPrefetch.peek();
       } else {
         break;
       }
     }
+
+    return validDisplayListCount;
+  }
+
+  /**
+   * Returns next {@link LayoutOutput} from the queue for Display Lists, without removing it.
+   * Note that it is callers responsibility to make sure queue is not empty.
+   */
+  LayoutOutput peekNextLayoutOutputForDLPrefetch() {
+    return getMountableOutputAt(mDisplayListsToPrefetch.peek());
   }
 
   /**
@@ -10,32 +10,83 @@
 package com.facebook.litho;
 
 import android.content.res.Configuration;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.LruCache;
 import javax.annotation.Nullable;
 
 class LruResourceCache extends ResourceCache {
-  private final LruCache<Integer, Object> mCache = new LruCache<Integer, Object>(500) {
-    @Override
-    protected int sizeOf(Integer key, Object value) {
-      if (value instanceof String) {
-        return ((String) value).length();
-      }
-      return 1;
-    }
-  };
+  @VisibleForTesting static final int DEFAULT_MAX_SIZE_BYTES = 32 * 1024;
+
+  // Rough estimates of the memory used by the cached objects: the header of an object, the header
+  // of an array and the size of a reference.
+  private static final int OBJECT_OVERHEAD_BYTES = 16;
+  private static final int ARRAY_OVERHEAD_BYTES = 16;
+  private static final int REFERENCE_BYTES = 4;
+  private static final int STRING_OVERHEAD_BYTES = OBJECT_OVERHEAD_BYTES + ARRAY_OVERHEAD_BYTES;
+
+  private final LruCache<Integer, Object> mCache;
 
   LruResourceCache(Configuration configuration) {
+    this(configuration, DEFAULT_MAX_SIZE_BYTES);
+  }
+
+  @VisibleForTesting
+  LruResourceCache(Configuration configuration, int maxSizeBytes) {
     super(configuration);
+
+    mCache = new LruCache<Integer, Object>(maxSizeBytes) {
+      @Override
+      protected int sizeOf(Integer key, Object value) {
+        return estimateEntrySizeBytes(value);
+      }
+
+      @Override
+      protected void entryRemoved(
+          boolean evicted, Integer key, Object oldValue, @Nullable Object newValue) {
+        onEntryRemoved(estimateEntrySizeBytes(oldValue), evicted);
+      }
+    };
   }
 
   @Override
   @Nullable
-  <T> T get(int key) {
+  <T> T getCached(int key) {
     return (T) mCache.get(key);
   }
 
   @Override
   void put(int key, Object object) {
+    // Reported before the put, which reports the entries it replaces or evicts.
+    onEntryAdded(estimateEntrySizeBytes(object));
     mCache.put(key, object);
   }
+
+  private static int estimateEntrySizeBytes(Object value) {
+    // The key is boxed too.
+    return OBJECT_OVERHEAD_BYTES + estimateSizeBytes(value);
+  }
+
+  @VisibleForTesting
+  static int estimateSizeBytes(Object value) {
+    if (value instanceof String) {
+      return STRING_OVERHEAD_BYTES + ((String) value).length() * 2;
+    }
+
+    if (value instanceof String[]) {
+      final String[] strings = (String[]) value;
+      int size = ARRAY_OVERHEAD_BYTES + strings.length * REFERENCE_BYTES;
+      for (String string : strings) {
+        if (string != null) {
+          size += estimateSizeBytes(string);
+        }
+      }
+      return size;
+    }
+
+    if (value instanceof int[]) {
+      return ARRAY_OVERHEAD_BYTES + ((int[]) value).length * 4;
+    }
+
+    return OBJECT_OVERHEAD_BYTES;
+  }
 }
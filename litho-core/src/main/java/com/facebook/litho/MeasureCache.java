@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A bounded cache of the measurements of the components that can measure themselves, shared by all
+ * the {@link ComponentTree}s. A measurement is reused for a component that is equivalent (see
+ * {@link Component#isEquivalentTo(Component)}) to a component previously measured with the same
+ * size specs, resource configuration and theme, even if it is in a different tree or in a
+ * different position of the same tree. The least recently used measurements are evicted first.
+ *
+ * <p>The cache keeps a copy of each measured component taken right after it was measured, so that
+ * the {@link com.facebook.litho.annotations.FromMeasure} outputs of a hit can be copied into the
+ * component being measured. Since those copies may reference the Context they were created with,
+ * the measurements are dropped when that Context is destroyed, see {@link
+ * ComponentsPools#onContextDestroyed(Context)}.
+ *
+ * <p>The measurements are looked up by component type, {@link Component#getPropsHash()}, size
+ * specs, configuration and theme. The configuration is the one of the {@link ResourceCache} of the
+ * context, whose hash code is only computed once. Only one measurement is kept for each of these
+ * keys, so a component that is not equivalent to the one measured for its key misses and replaces
+ * it. The tree props are left out of the key, since {@link Component#isEquivalentTo(Component)}
+ * already compares the tree props the components read.
+ *
+ * <p>The measurements are split into segments by key, each with its own lock and its own share of
+ * the maximum size, so that the layouts calculated in parallel rarely wait for each other. The
+ * least recently used order is kept by each segment.
+ */
+@ThreadSafe(enableChecks = false)
+final class MeasureCache {
+
+  @VisibleForTesting static final int DEFAULT_MAX_SIZE = 256;
+  @VisibleForTesting static final int DEFAULT_SEGMENT_COUNT = 8;
+
+  @GuardedBy("MeasureCache.class")
+  private static MeasureCache sInstance;
+
+  private final Segment[] mSegments;
+  private final AtomicInteger mHitCount = new AtomicInteger();
+  private final AtomicInteger mMissCount = new AtomicInteger();
+  private final AtomicInteger mEvictionCount = new AtomicInteger();
+
+  static synchronized MeasureCache getInstance() {
+    if (sInstance == null) {
+      sInstance = new MeasureCache(DEFAULT_MAX_SIZE, DEFAULT_SEGMENT_COUNT);
+    }
+
+    return sInstance;
+  }
+
+  @VisibleForTesting
+  MeasureCache(int maxSize, int segmentCount) {
+    final int segmentMaxSize = Math.max(1, maxSize / segmentCount);
+    mSegments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      mSegments[i] = new Segment(segmentMaxSize);
+    }
+  }
+
+  /**
+   * @return the measurement of a component equivalent to the given one with the same size specs,
+   *     configuration and theme as the given context, or null if there is none.
+   */
+  @Nullable
+  Entry get(Component<?> component, int widthSpec, int heightSpec, ComponentContext context) {
+    final Key key = new Key(component, widthSpec, heightSpec, context);
+    final Segment segment = getSegment(key);
+
+    final Entry entry;
+    synchronized (segment) {
+      entry = segment.mEntries.get(key);
+    }
+
+    // The measured copy of an entry is never modified, so it can be compared outside of the lock.
+    if (entry == null || !entry.mComponent.isEquivalentTo(component)) {
+      mMissCount.incrementAndGet();
+      return null;
+    }
+
+    mHitCount.incrementAndGet();
+    return entry;
+  }
+
+  /**
+   * Records the measurement of the given component. This needs to be called right after the
+   * component was measured, as a copy of its current {@link
+   * com.facebook.litho.annotations.FromMeasure} outputs is kept.
+   */
+  void put(
+      ComponentContext context,
+      Component<?> component,
+      int widthSpec,
+      int heightSpec,
+      int width,
+      int height) {
+    final Component<?> copy = component.makeShallowCopy();
+    copy.setScopedContext(null);
+    copy.clearCachedLayout();
+
+    final Key key = new Key(copy, widthSpec, heightSpec, context);
+    final Entry entry = new Entry(context.getBaseContext(), copy, width, height);
+    final Segment segment = getSegment(key);
+
+    synchronized (segment) {
+      segment.mEntries.put(key, entry);
+    }
+  }
+
+  void clear() {
+    for (Segment segment : mSegments) {
+      synchronized (segment) {
+        segment.mEntries.clear();
+      }
+    }
+  }
+
+  /** Drops the measurements of the components created with the given Context or its wrappers. */
+  void removeEntriesOf(Context context) {
+    for (Segment segment : mSegments) {
+      synchronized (segment) {
+        final Iterator<Entry> it = segment.mEntries.values().iterator();
+        while (it.hasNext()) {
+          final Context entryContext = it.next().mContext;
+          if (entryContext == context || ComponentsPools.isContextWrapper(entryContext, context)) {
+            it.remove();
+          }
+        }
+      }
+    }
+  }
+
+  int size() {
+    int size = 0;
+    for (Segment segment : mSegments) {
+      synchronized (segment) {
+        size += segment.mEntries.size();
+      }
+    }
+
+    return size;
+  }
+
+  int getHitCount() {
+    return mHitCount.get();
+  }
+
+  int getMissCount() {
+    return mMissCount.get();
+  }
+
+  int getEvictionCount() {
+    return mEvictionCount.get();
+  }
+
+  private Segment getSegment(Key key) {
+    final int hashCode = key.hashCode();
+    return mSegments[((hashCode ^ (hashCode >>> 16)) & Integer.MAX_VALUE) % mSegments.length];
+  }
+
+  /**
+   * A measurement of a component.
+   */
+  static final class Entry {
+
+    private final Context mContext;
+    private final Component<?> mComponent;
+    private final int mWidth;
+    private final int mHeight;
+
+    private Entry(Context context, Component<?> component, int width, int height) {
+      mContext = context;
+      mComponent = component;
+      mWidth = width;
+      mHeight = height;
+    }
+
+    int getWidth() {
+      return mWidth;
+    }
+
+    int getHeight() {
+      return mHeight;
+    }
+
+    /**
+     * Copies the {@link com.facebook.litho.annotations.FromMeasure} outputs of the measured
+     * component into the given equivalent component.
+     */
+    @SuppressWarnings("unchecked")
+    void copyInterStageInto(Component component) {
+      component.copyInterStageImpl(mComponent);
+    }
+  }
+
+  private final class Segment {
+
+    @GuardedBy("this")
+    private final LinkedHashMap<Key, Entry> mEntries;
+
+    private Segment(final int maxSize) {
+      mEntries =
+          new LinkedHashMap<Key, Entry>(16, 0.75f, true /* accessOrder */) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+              if (size() > maxSize) {
+                mEvictionCount.incrementAndGet();
+                return true;
+              }
+
+              return false;
+            }
+          };
+    }
+  }
+
+  private static final class Key {
+
+    private final int mTypeId;
+    private final long mPropsHash;
+    private final int mWidthSpec;
+    private final int mHeightSpec;
+    private final Configuration mConfiguration;
+    private final Resources.Theme mTheme;
+    private final int mHashCode;
+
+    private Key(Component<?> component, int widthSpec, int heightSpec, ComponentContext context) {
+      final ResourceCache resourceCache = context.getResourceCache();
+
+      mTypeId = component.getTypeId();
+      mPropsHash = component.getPropsHash();
+      mWidthSpec = widthSpec;
+      mHeightSpec = heightSpec;
+      mConfiguration = resourceCache.getConfiguration();
+      mTheme = context.getTheme();
+
+      int hashCode = mTypeId;
+      hashCode = 31 * hashCode + (int) (mPropsHash ^ (mPropsHash >>> 32));
+      hashCode = 31 * hashCode + widthSpec;
+      hashCode = 31 * hashCode + heightSpec;
+      hashCode = 31 * hashCode + resourceCache.getConfigurationHashCode();
+      hashCode = 31 * hashCode + System.identityHashCode(mTheme);
+      mHashCode = hashCode;
+    }
+
+    @Override
+    public int hashCode() {
+      return mHashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key other = (Key) o;
+      return mHashCode == other.mHashCode
+          && mWidthSpec == other.mWidthSpec
+          && mHeightSpec == other.mHeightSpec
+          && mTypeId == other.mTypeId
+          && mPropsHash == other.mPropsHash
+          && mTheme == other.mTheme
+          && (mConfiguration == other.mConfiguration
+              || mConfiguration.equals(other.mConfiguration));
+    }
+  }
+}
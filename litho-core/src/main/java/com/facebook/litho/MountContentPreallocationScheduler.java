@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import com.facebook.litho.config.ComponentsConfiguration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Preallocates the mount content of {@link ComponentTree}s in the background, one tree at a time
+ * in the order in which they were scheduled, so that mounting them later does not need to create
+ * views on the main thread.
+ *
+ * <p>Unlike a preallocation handler set with {@link
+ * ComponentTree.Builder#preAllocateMountContentHandler(LayoutHandler)}, the scheduler keeps at
+ * most a given number of preallocated items per Context waiting to be used, and skips the mount
+ * specs whose pool is already full. A {@link com.facebook.litho.widget.RecyclerBinder} can use it
+ * to preallocate the content of the items that are about to become visible.
+ */
+@ThreadSafe
+public class MountContentPreallocationScheduler {
+
+  private final LayoutHandler mHandler;
+  private final int mBudgetPerContext;
+
+  @GuardedBy("this")
+  private final Set<ComponentTree> mPendingTrees = new LinkedHashSet<>();
+
+  private final Runnable mPreallocateNextRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          if (preallocateNext()) {
+            mHandler.post(this);
+          }
+        }
+      };
+
+  /**
+   * @param budgetPerContext the maximum number of preallocated items of mount content that can be
+   *     waiting to be used in the pools of a Context.
+   */
+  public MountContentPreallocationScheduler(int budgetPerContext) {
+    this(
+        new ComponentTree.DefaultPreallocateMountContentHandler(
+            ComponentTree.getDefaultPreallocateMountContentThreadLooper()),
+        budgetPerContext);
+  }
+
+  public MountContentPreallocationScheduler(LayoutHandler handler, int budgetPerContext) {
+    mHandler = handler;
+    mBudgetPerContext = budgetPerContext;
+  }
+
+  /**
+   * Schedules the preallocation of the mount content of the current layout of the given tree. This
+   * is a no-op if the tree is already waiting to be preallocated.
+   */
+  public void schedule(ComponentTree componentTree) {
+    final boolean wasEmpty;
+    synchronized (this) {
+      wasEmpty = mPendingTrees.isEmpty();
+      if (!mPendingTrees.add(componentTree) || !wasEmpty) {
+        return;
+      }
+    }
+
+    mHandler.post(mPreallocateNextRunnable);
+  }
+
+  /** Removes the given tree from the trees waiting to be preallocated. */
+  public void cancel(ComponentTree componentTree) {
+    final boolean isEmpty;
+    synchronized (this) {
+      if (!mPendingTrees.remove(componentTree)) {
+        return;
+      }
+
+      isEmpty = mPendingTrees.isEmpty();
+    }
+
+    if (isEmpty) {
+      mHandler.removeCallbacks(mPreallocateNextRunnable);
+    }
+  }
+
+  /**
+   * Preallocates the mount content of the next pending tree.
+   *
+   * @return whether there are more trees waiting to be preallocated.
+   */
+  @VisibleForTesting
+  boolean preallocateNext() {
+    final ComponentTree componentTree;
+    synchronized (this) {
+      final Iterator<ComponentTree> it = mPendingTrees.iterator();
+      if (!it.hasNext()) {
+        return false;
+      }
+
+      componentTree = it.next();
+      it.remove();
+    }
+
+    final LayoutState layoutState = componentTree.acquireLayoutStateForPreallocation();
+    if (layoutState != null) {
+      preallocate(componentTree.getContext(), layoutState);
+      layoutState.releaseRef();
+    }
+
+    synchronized (this) {
+      return !mPendingTrees.isEmpty();
+    }
+  }
+
+  private void preallocate(ComponentContext context, LayoutState layoutState) {
+    if (!ComponentsPools.ensureMountContentPools(context)) {
+      return;
+    }
+
+    final boolean isTracing = ComponentsSystrace.isTracing();
+    if (isTracing) {
+      ComponentsSystrace.beginSection("MountContentPreallocationScheduler.preallocate");
+    }
+
+    for (int i = 0, size = layoutState.getMountableOutputCount(); i < size; i++) {
+      if (ComponentsPools.getPreallocatedMountContentCount(context) >= mBudgetPerContext) {
+        break;
+      }
+
+      final Component<?> component = layoutState.getMountableOutputAt(i).getComponent();
+      if (!Component.isMountViewSpec(component)) {
+        continue;
+      }
+
+      final ComponentLifecycle lifecycle = component.getLifecycle();
+      if ((ComponentsConfiguration.preallocatePerMountSpec && !lifecycle.canPreallocate())
+          || !ComponentsPools.canAddMountContentToPool(context, lifecycle)) {
+        continue;
+      }
+
+      ComponentsPools.releasePreallocatedMountContent(
+          context,
+          lifecycle,
+          lifecycle.createMountContent(context));
+    }
+
+    if (isTracing) {
+      ComponentsSystrace.endSection();
+    }
+  }
+}
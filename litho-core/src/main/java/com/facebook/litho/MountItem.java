@@ -42,6 +42,7 @@ class MountItem {
   private int mImportantForAccessibility;
   private DisplayListContainer mDisplayListContainer;
   private DisplayListDrawable mDisplayListDrawable;
+  private long mLayoutOutputId = -1;
 
   // ComponentHost flags defined in the LayoutOutput specifying
   // the behaviour of this item when mounted.
@@ -238,6 +239,7 @@ class MountItem {
     mContent = null;
     mFlags = 0;
     mIsBound = false;
+    mLayoutOutputId = -1;
     mImportantForAccessibility = IMPORTANT_FOR_ACCESSIBILITY_AUTO;
   }
 
@@ -292,6 +294,18 @@ class MountItem {
     mIsBound = bound;
   }
 
+  /**
+   * @return the id of the {@link LayoutOutput} this item was mounted for, or -1 if it wasn't
+   *     mounted by a {@link MountState}.
+   */
+  long getLayoutOutputId() {
+    return mLayoutOutputId;
+  }
+
+  void setLayoutOutputId(long layoutOutputId) {
+    mLayoutOutputId = layoutOutputId;
+  }
+
   DisplayListDrawable getDisplayListDrawable() {
     return mDisplayListDrawable;
   }
@@ -43,6 +43,7 @@ import android.view.ViewGroup;
 import android.view.ViewOutlineProvider;
 import com.facebook.infer.annotation.ThreadConfined;
 import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.internal.LongIntHashMap;
 import com.facebook.litho.reference.Reference;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -65,6 +66,7 @@ import java.util.Map;
 class MountState implements TransitionManager.OnAnimationCompleteListener {
 
   static final int ROOT_HOST_ID = 0;
+  private static final int INVALID_LAYOUT_STATE_ID = 0;
 
   // Holds the current list of mounted items.
   // Should always be used within a draw lock.
@@ -76,6 +78,18 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
   // map.
   private final LongSparseArray<VisibilityItem> mVisibilityIdToItemMap;
 
+  // Holds the VisibilityOutputs whose bounds vertically intersect the visible rect of the last
+  // visibility pass. Only these, and the ones entering the new visible rect, can change their
+  // visibility state on the next pass.
+  private final LongSparseArray<VisibilityOutput> mIntersectingVisibilityOutputs;
+  private final ArrayList<VisibilityOutput> mVisibilityOutputsToProcess = new ArrayList<>();
+  private final Rect mPreviousVisibilityRect = new Rect();
+  private int mPreviousVisibilityTopsIndex;
+  private int mPreviousVisibilityBottomsIndex;
+  // The id of the LayoutState the indices above refer to, or INVALID_LAYOUT_STATE_ID if they are
+  // not valid anymore because a mount skipped the visibility processing.
+  private int mPreviousVisibilityLayoutStateId = INVALID_LAYOUT_STATE_ID;
+
   // Holds a list of MountItems that are currently mounted which can mount incrementally.
   private final LongSparseArray<MountItem> mCanMountIncrementallyMountItems;
 
@@ -85,6 +99,10 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
 
   private @Nullable long[] mLayoutOutputsIds;
 
+  // Maps the ids in mLayoutOutputsIds to their index, to find hosts and host children in constant
+  // time while mounting and unmounting.
+  private final LongIntHashMap mLayoutOutputIdToIndex = new LongIntHashMap();
+
   // True if we are receiving a new LayoutState and we need to completely
   // refresh the content of the HostComponent. Always set from the main thread.
   private boolean mIsDirty;
@@ -115,6 +133,7 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
   public MountState(LithoView view) {
     mIndexToItemMap = new LongSparseArray<>();
     mVisibilityIdToItemMap = new LongSparseArray<>();
+    mIntersectingVisibilityOutputs = new LongSparseArray<>();
     mCanMountIncrementallyMountItems = new LongSparseArray<>();
     mContext = (ComponentContext) view.getContext();
     mLithoView = view;
@@ -142,6 +161,7 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
 
     mIsDirty = true;
     mPreviousLocalVisibleRect.setEmpty();
+    mPreviousVisibilityRect.setEmpty();
   }
 
   boolean isDirty() {
@@ -195,6 +215,7 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       mountEvent = logger.newPerformanceEvent(EVENT_MOUNT);
     }
 
+    final boolean wasDirty = mIsDirty;
     if (mIsDirty) {
       updateTransitions(layoutState);
 
@@ -289,7 +310,11 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     mLastMountedLayoutState = layoutState.acquireRef();
 
     if (processVisibilityOutputs) {
-      processVisibilityOutputs(layoutState, localVisibleRect);
+      processVisibilityOutputs(layoutState, localVisibleRect, wasDirty);
+    } else {
+      // The indices and intersecting outputs of the previous pass may refer to VisibilityOutputs
+      // that are released along with their LayoutState, so the next pass starts from scratch.
+      resetPreviousVisibilityOutputData();
     }
 
     processTestOutputs(layoutState);
@@ -309,110 +334,243 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     ComponentsSystrace.endSection();
   }
 
-  private void processVisibilityOutputs(LayoutState layoutState, Rect localVisibleRect) {
+  private void processVisibilityOutputs(
+      LayoutState layoutState, Rect localVisibleRect, boolean isDirty) {
     if (localVisibleRect == null) {
       return;
     }
 
-    for (int j = 0, size = layoutState.getVisibilityOutputCount(); j < size; j++) {
-      final VisibilityOutput visibilityOutput = layoutState.getVisibilityOutputAt(j);
+    if (isDirty
+        || layoutState.getId() != mPreviousVisibilityLayoutStateId
+        || mPreviousVisibilityRect.isEmpty()
+        || localVisibleRect.isEmpty()) {
+      for (int j = 0, size = layoutState.getVisibilityOutputCount(); j < size; j++) {
+        processVisibilityOutput(layoutState.getVisibilityOutputAt(j), localVisibleRect);
+      }
 
-      final EventHandler<VisibleEvent> visibleHandler = visibilityOutput.getVisibleEventHandler();
-      final EventHandler<FocusedVisibleEvent> focusedHandler =
-          visibilityOutput.getFocusedEventHandler();
-      final EventHandler<UnfocusedVisibleEvent> unfocusedHandler =
-          visibilityOutput.getUnfocusedEventHandler();
-      final EventHandler<FullImpressionVisibleEvent> fullImpressionHandler =
-          visibilityOutput.getFullImpressionEventHandler();
-      final EventHandler<InvisibleEvent> invisibleHandler =
-          visibilityOutput.getInvisibleEventHandler();
-      final long visibilityOutputId = visibilityOutput.getId();
-      final Rect visibilityOutputBounds = visibilityOutput.getBounds();
-
-      sTempRect.set(visibilityOutputBounds);
-      final boolean isCurrentlyVisible = sTempRect.intersect(localVisibleRect)
-          && isInVisibleRange(visibilityOutput, visibilityOutputBounds, localVisibleRect);
-
-      VisibilityItem visibilityItem = mVisibilityIdToItemMap.get(visibilityOutputId);
-      if (visibilityItem != null) {
-        final String previousGlobalKey = visibilityItem.getGlobalKey();
-        final String currentGlobalKey =
-            visibilityOutput.getComponent() != null
-                ? visibilityOutput.getComponent().getGlobalKey()
-                : null;
-        final boolean hasGlobalKeyChanged =
-            previousGlobalKey != null && !previousGlobalKey.equals(currentGlobalKey);
-
-        if (!hasGlobalKeyChanged) {
-          // If we did a relayout due to e.g. a state update then the handlers will have changed,
-          // so we should keep them up to date.
-          visibilityItem.setUnfocusedHandler(unfocusedHandler);
-          visibilityItem.setInvisibleHandler(invisibleHandler);
-        }
+      setupPreviousVisibilityOutputData(layoutState, localVisibleRect);
+    } else {
+      processVisibilityOutputsIncrementally(layoutState, localVisibleRect);
+    }
 
-        if (!isCurrentlyVisible || hasGlobalKeyChanged) {
-          // Either the component is invisible now, but used to be visible, or the key on the
-          // component has changed so we should generate new visibility events for the new
-          // component.
-          if (visibilityItem.getInvisibleHandler() != null) {
-            EventDispatcherUtils.dispatchOnInvisible(visibilityItem.getInvisibleHandler());
-          }
+    mPreviousVisibilityRect.set(localVisibleRect);
+  }
 
-          if (visibilityItem.isInFocusedRange()) {
-            visibilityItem.setFocusedRange(false);
-            if (visibilityItem.getUnfocusedHandler() != null) {
-              EventDispatcherUtils.dispatchOnUnfocused(visibilityItem.getUnfocusedHandler());
-            }
-          }
+  /**
+   * Only the {@link VisibilityOutput}s whose bounds vertically intersected the previous visible
+   * rect or intersect the current one can change their visibility state. Walk the sorted tops and
+   * bottoms from the indices of the previous pass to update the intersecting outputs, the same way
+   * incremental mount does for mountable outputs, and process those plus the ones that stopped
+   * intersecting.
+   */
+  private void processVisibilityOutputsIncrementally(
+      LayoutState layoutState, Rect localVisibleRect) {
+    final ArrayList<VisibilityOutput> visibilityOutputTops = layoutState.getVisibilityOutputTops();
+    final ArrayList<VisibilityOutput> visibilityOutputBottoms =
+        layoutState.getVisibilityOutputBottoms();
+    final int count = visibilityOutputTops.size();
 
-          mVisibilityIdToItemMap.remove(visibilityOutputId);
-          ComponentsPools.release(visibilityItem);
-          visibilityItem = null;
-        }
+    while (mPreviousVisibilityBottomsIndex < count
+        && localVisibleRect.top
+            >= visibilityOutputBottoms.get(mPreviousVisibilityBottomsIndex).getBounds().bottom) {
+      updateIntersectingVisibilityOutput(
+          visibilityOutputBottoms.get(mPreviousVisibilityBottomsIndex), localVisibleRect);
+      mPreviousVisibilityBottomsIndex++;
+    }
+
+    while (mPreviousVisibilityBottomsIndex > 0
+        && localVisibleRect.top
+            < visibilityOutputBottoms.get(mPreviousVisibilityBottomsIndex - 1).getBounds().bottom) {
+      mPreviousVisibilityBottomsIndex--;
+      updateIntersectingVisibilityOutput(
+          visibilityOutputBottoms.get(mPreviousVisibilityBottomsIndex), localVisibleRect);
+    }
+
+    while (mPreviousVisibilityTopsIndex < count
+        && localVisibleRect.bottom
+            > visibilityOutputTops.get(mPreviousVisibilityTopsIndex).getBounds().top) {
+      updateIntersectingVisibilityOutput(
+          visibilityOutputTops.get(mPreviousVisibilityTopsIndex), localVisibleRect);
+      mPreviousVisibilityTopsIndex++;
+    }
+
+    while (mPreviousVisibilityTopsIndex > 0
+        && localVisibleRect.bottom
+            <= visibilityOutputTops.get(mPreviousVisibilityTopsIndex - 1).getBounds().top) {
+      mPreviousVisibilityTopsIndex--;
+      updateIntersectingVisibilityOutput(
+          visibilityOutputTops.get(mPreviousVisibilityTopsIndex), localVisibleRect);
+    }
+
+    for (int i = 0, size = mIntersectingVisibilityOutputs.size(); i < size; i++) {
+      mVisibilityOutputsToProcess.add(mIntersectingVisibilityOutputs.valueAt(i));
+    }
+
+    // Dispatching the events may end up mutating the intersecting outputs, so process a copy.
+    for (int i = 0, size = mVisibilityOutputsToProcess.size(); i < size; i++) {
+      processVisibilityOutput(mVisibilityOutputsToProcess.get(i), localVisibleRect);
+    }
+
+    mVisibilityOutputsToProcess.clear();
+  }
+
+  /**
+   * Adds the given {@link VisibilityOutput} to the intersecting outputs if it vertically
+   * intersects the visible rect. Otherwise removes it and, if it was intersecting before, schedules
+   * it to be processed so that it can become invisible.
+   */
+  private void updateIntersectingVisibilityOutput(
+      VisibilityOutput visibilityOutput, Rect localVisibleRect) {
+    final Rect bounds = visibilityOutput.getBounds();
+    final long id = visibilityOutput.getId();
+
+    if (bounds.top < localVisibleRect.bottom && bounds.bottom > localVisibleRect.top) {
+      mIntersectingVisibilityOutputs.put(id, visibilityOutput);
+    } else if (mIntersectingVisibilityOutputs.get(id) != null) {
+      mIntersectingVisibilityOutputs.remove(id);
+      mVisibilityOutputsToProcess.add(visibilityOutput);
+    }
+  }
+
+  private void resetPreviousVisibilityOutputData() {
+    mIntersectingVisibilityOutputs.clear();
+    mPreviousVisibilityRect.setEmpty();
+    mPreviousVisibilityLayoutStateId = INVALID_LAYOUT_STATE_ID;
+  }
+
+  private void setupPreviousVisibilityOutputData(LayoutState layoutState, Rect localVisibleRect) {
+    mIntersectingVisibilityOutputs.clear();
+    mPreviousVisibilityLayoutStateId = layoutState.getId();
+
+    if (localVisibleRect.isEmpty()) {
+      return;
+    }
+
+    final ArrayList<VisibilityOutput> visibilityOutputTops = layoutState.getVisibilityOutputTops();
+    final ArrayList<VisibilityOutput> visibilityOutputBottoms =
+        layoutState.getVisibilityOutputBottoms();
+    final int count = visibilityOutputTops.size();
+
+    mPreviousVisibilityTopsIndex = count;
+    for (int i = 0; i < count; i++) {
+      if (localVisibleRect.bottom <= visibilityOutputTops.get(i).getBounds().top) {
+        mPreviousVisibilityTopsIndex = i;
+        break;
       }
+    }
 
-      if (isCurrentlyVisible) {
-        // The component is visible now, but used to be outside the viewport.
-        if (visibilityItem == null) {
-          final String globalKey =
-              visibilityOutput.getComponent() != null
-                  ? visibilityOutput.getComponent().getGlobalKey()
-                  : null;
-          visibilityItem =
-              ComponentsPools.acquireVisibilityItem(globalKey, invisibleHandler, unfocusedHandler);
-          mVisibilityIdToItemMap.put(visibilityOutputId, visibilityItem);
+    mPreviousVisibilityBottomsIndex = count;
+    for (int i = 0; i < count; i++) {
+      if (localVisibleRect.top < visibilityOutputBottoms.get(i).getBounds().bottom) {
+        mPreviousVisibilityBottomsIndex = i;
+        break;
+      }
+    }
 
-          if (visibleHandler != null) {
-            EventDispatcherUtils.dispatchOnVisible(visibleHandler);
+    for (int i = mPreviousVisibilityBottomsIndex; i < count; i++) {
+      final VisibilityOutput visibilityOutput = visibilityOutputBottoms.get(i);
+      if (visibilityOutput.getBounds().top < localVisibleRect.bottom) {
+        mIntersectingVisibilityOutputs.put(visibilityOutput.getId(), visibilityOutput);
+      }
+    }
+  }
+
+  private void processVisibilityOutput(VisibilityOutput visibilityOutput, Rect localVisibleRect) {
+    final EventHandler<VisibleEvent> visibleHandler = visibilityOutput.getVisibleEventHandler();
+    final EventHandler<FocusedVisibleEvent> focusedHandler =
+        visibilityOutput.getFocusedEventHandler();
+    final EventHandler<UnfocusedVisibleEvent> unfocusedHandler =
+        visibilityOutput.getUnfocusedEventHandler();
+    final EventHandler<FullImpressionVisibleEvent> fullImpressionHandler =
+        visibilityOutput.getFullImpressionEventHandler();
+    final EventHandler<InvisibleEvent> invisibleHandler =
+        visibilityOutput.getInvisibleEventHandler();
+    final long visibilityOutputId = visibilityOutput.getId();
+    final Rect visibilityOutputBounds = visibilityOutput.getBounds();
+
+    sTempRect.set(visibilityOutputBounds);
+    final boolean isCurrentlyVisible = sTempRect.intersect(localVisibleRect)
+        && isInVisibleRange(visibilityOutput, visibilityOutputBounds, localVisibleRect);
+
+    VisibilityItem visibilityItem = mVisibilityIdToItemMap.get(visibilityOutputId);
+    if (visibilityItem != null) {
+      final String previousGlobalKey = visibilityItem.getGlobalKey();
+      final String currentGlobalKey =
+          visibilityOutput.getComponent() != null
+              ? visibilityOutput.getComponent().getGlobalKey()
+              : null;
+      final boolean hasGlobalKeyChanged =
+          previousGlobalKey != null && !previousGlobalKey.equals(currentGlobalKey);
+
+      if (!hasGlobalKeyChanged) {
+        // If we did a relayout due to e.g. a state update then the handlers will have changed,
+        // so we should keep them up to date.
+        visibilityItem.setUnfocusedHandler(unfocusedHandler);
+        visibilityItem.setInvisibleHandler(invisibleHandler);
+      }
+
+      if (!isCurrentlyVisible || hasGlobalKeyChanged) {
+        // Either the component is invisible now, but used to be visible, or the key on the
+        // component has changed so we should generate new visibility events for the new
+        // component.
+        if (visibilityItem.getInvisibleHandler() != null) {
+          EventDispatcherUtils.dispatchOnInvisible(visibilityItem.getInvisibleHandler());
+        }
+
+        if (visibilityItem.isInFocusedRange()) {
+          visibilityItem.setFocusedRange(false);
+          if (visibilityItem.getUnfocusedHandler() != null) {
+            EventDispatcherUtils.dispatchOnUnfocused(visibilityItem.getUnfocusedHandler());
           }
         }
 
-        // Check if the component has entered or exited the focused range.
-        if (focusedHandler != null || unfocusedHandler != null) {
-          if (isInFocusedRange(visibilityOutputBounds, sTempRect)) {
-            if (!visibilityItem.isInFocusedRange()) {
-              visibilityItem.setFocusedRange(true);
-              if (focusedHandler != null) {
-                EventDispatcherUtils.dispatchOnFocused(focusedHandler);
-              }
+        mVisibilityIdToItemMap.remove(visibilityOutputId);
+        ComponentsPools.release(visibilityItem);
+        visibilityItem = null;
+      }
+    }
+
+    if (isCurrentlyVisible) {
+      // The component is visible now, but used to be outside the viewport.
+      if (visibilityItem == null) {
+        final String globalKey =
+            visibilityOutput.getComponent() != null
+                ? visibilityOutput.getComponent().getGlobalKey()
+                : null;
+        visibilityItem =
+            ComponentsPools.acquireVisibilityItem(globalKey, invisibleHandler, unfocusedHandler);
+        mVisibilityIdToItemMap.put(visibilityOutputId, visibilityItem);
+
+        if (visibleHandler != null) {
+          EventDispatcherUtils.dispatchOnVisible(visibleHandler);
+        }
+      }
+
+      // Check if the component has entered or exited the focused range.
+      if (focusedHandler != null || unfocusedHandler != null) {
+        if (isInFocusedRange(visibilityOutputBounds, sTempRect)) {
+          if (!visibilityItem.isInFocusedRange()) {
+            visibilityItem.setFocusedRange(true);
+            if (focusedHandler != null) {
+              EventDispatcherUtils.dispatchOnFocused(focusedHandler);
             }
-          } else {
-            if (visibilityItem.isInFocusedRange()) {
-              visibilityItem.setFocusedRange(false);
-              if (unfocusedHandler != null) {
-                EventDispatcherUtils.dispatchOnUnfocused(unfocusedHandler);
-              }
+          }
+        } else {
+          if (visibilityItem.isInFocusedRange()) {
+            visibilityItem.setFocusedRange(false);
+            if (unfocusedHandler != null) {
+              EventDispatcherUtils.dispatchOnUnfocused(unfocusedHandler);
             }
           }
         }
-        // If the component has not entered the full impression range yet, make sure to update the
-        // information about the visible edges.
-        if (fullImpressionHandler != null && !visibilityItem.isInFullImpressionRange()) {
-          visibilityItem.setVisibleEdges(visibilityOutputBounds, sTempRect);
+      }
+      // If the component has not entered the full impression range yet, make sure to update the
+      // information about the visible edges.
+      if (fullImpressionHandler != null && !visibilityItem.isInFullImpressionRange()) {
+        visibilityItem.setVisibleEdges(visibilityOutputBounds, sTempRect);
 
-          if (visibilityItem.isInFullImpressionRange()) {
-            EventDispatcherUtils.dispatchOnFullImpression(fullImpressionHandler);
-          }
+        if (visibilityItem.isInFullImpressionRange()) {
+          EventDispatcherUtils.dispatchOnFullImpression(fullImpressionHandler);
         }
       }
     }
@@ -514,6 +672,9 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       mVisibilityIdToItemMap.removeAt(i);
       ComponentsPools.release(visibilityItem);
     }
+
+    mIntersectingVisibilityOutputs.clear();
+    mPreviousVisibilityRect.setEmpty();
   }
 
   private void registerHost(long id, ComponentHost host) {
@@ -837,8 +998,12 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       mLayoutOutputsIds = new long[layoutState.getMountableOutputCount()];
     }
 
+    mLayoutOutputIdToIndex.clear();
+    mLayoutOutputIdToIndex.ensureCapacity(outputCount);
     for (int i = 0; i < outputCount; i++) {
-      mLayoutOutputsIds[i] = layoutState.getMountableOutputAt(i).getId();
+      final long layoutOutputId = layoutState.getMountableOutputAt(i).getId();
+      mLayoutOutputsIds[i] = layoutOutputId;
+      mLayoutOutputIdToIndex.put(layoutOutputId, i);
     }
 
     if (logger != null) {
@@ -988,14 +1153,10 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
 
     if (host == null) {
       // Host has not yet been mounted - mount it now.
-      for (int hostMountIndex = 0, size = mLayoutOutputsIds.length;
-           hostMountIndex < size;
-           hostMountIndex++) {
-        if (mLayoutOutputsIds[hostMountIndex] == layoutOutput.getHostMarker()) {
-          final LayoutOutput hostLayoutOutput = layoutState.getMountableOutputAt(hostMountIndex);
-          mountLayoutOutput(hostMountIndex, hostLayoutOutput, layoutState);
-          break;
-        }
+      final int hostMountIndex = mLayoutOutputIdToIndex.get(layoutOutput.getHostMarker(), -1);
+      if (hostMountIndex >= 0) {
+        final LayoutOutput hostLayoutOutput = layoutState.getMountableOutputAt(hostMountIndex);
+        mountLayoutOutput(hostMountIndex, hostLayoutOutput, layoutState);
       }
 
       host = resolveComponentHost(layoutOutput, mHostsByMarker);
@@ -1067,6 +1228,7 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     // Create and keep a MountItem even for the layoutSpec with null content
     // that sets the root host interactions.
     mIndexToItemMap.put(mLayoutOutputsIds[index], item);
+    item.setLayoutOutputId(mLayoutOutputsIds[index]);
 
     if (component.getLifecycle().canMountIncrementally()) {
       mCanMountIncrementallyMountItems.put(mLayoutOutputsIds[index], item);
@@ -1888,13 +2050,9 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       // Concurrently remove items therefore traverse backwards.
       for (int i = host.getMountItemCount() - 1; i >= 0; i--) {
         final MountItem mountItem = host.getMountItemAt(i);
-        final long layoutOutputId = mIndexToItemMap.keyAt(mIndexToItemMap.indexOfValue(mountItem));
-
-        for (int mountIndex = mLayoutOutputsIds.length - 1; mountIndex >= 0; mountIndex--) {
-          if (mLayoutOutputsIds[mountIndex] == layoutOutputId) {
-            unmountItem(context, mountIndex, hostsByMarker);
-            break;
-          }
+        final int mountIndex = mLayoutOutputIdToIndex.get(mountItem.getLayoutOutputId(), -1);
+        if (mountIndex >= 0) {
+          unmountItem(context, mountIndex, hostsByMarker);
         }
       }
 
@@ -1929,7 +2087,10 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
 
     if (isHostSpec(component)) {
       final ComponentHost componentHost = (ComponentHost) content;
-      hostsByMarker.removeAt(hostsByMarker.indexOfValue(componentHost));
+      // Hosts are registered with the id of their LayoutOutput when they are mounted.
+      if (hostsByMarker.get(item.getLayoutOutputId()) == componentHost) {
+        hostsByMarker.remove(item.getLayoutOutputId());
+      }
       removeDisappearingMountContentFromComponentHost(componentHost);
     }
 
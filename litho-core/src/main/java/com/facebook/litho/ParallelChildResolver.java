@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.ComponentContext.NULL_LAYOUT;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import java.util.List;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Resolves the layouts of the children added to the containers created by an onCreateLayout, see
+ * {@link ComponentsConfiguration#parallelChildResolution}.
+ *
+ * <p>The state updates and the global keys of the children are applied on the calling thread when
+ * they are added to their parent, in declaration order, so that key generation and duplicate key
+ * detection behave as if the children were resolved sequentially. Only the creation of their
+ * layouts is deferred and, when there are enough of them, shared between the calling thread and a
+ * pool of background threads. The calling thread keeps resolving children until none are left, so
+ * nested parallel resolutions always make progress even when all the threads of the pool are busy.
+ */
+@ThreadSafe
+final class ParallelChildResolver {
+
+  private ParallelChildResolver() {}
+
+  /**
+   * Resolves the layouts of the given children and adds them to their parents at the positions
+   * they were declared at.
+   */
+  static void resolve(final List<PendingChild> children) {
+    final int size = children.size();
+
+    if (size < ComponentsConfiguration.parallelChildResolutionThreshold) {
+      for (int i = 0; i < size; i++) {
+        children.get(i).resolve();
+      }
+    } else {
+      ParallelTaskRunner.run(
+          size,
+          new ParallelTaskRunner.Task() {
+            @Override
+            public void run(int index) {
+              children.get(index).resolve();
+            }
+          });
+    }
+
+    for (int i = 0; i < size; i++) {
+      final PendingChild child = children.get(i);
+      child.parent.addPendingChildAt(child.node, child.index);
+    }
+  }
+
+  /**
+   * A child added to a container whose layout hasn't been created yet.
+   */
+  static final class PendingChild {
+
+    private final InternalNode parent;
+    private final int index;
+    private final Component<?> component;
+    private ComponentLayout node;
+
+    PendingChild(InternalNode parent, int index, Component<?> component) {
+      this.parent = parent;
+      this.index = index;
+      this.component = component;
+    }
+
+    Component<?> getComponent() {
+      return component;
+    }
+
+    private void resolve() {
+      final ComponentContext scopedContext = component.getScopedContext();
+      node = component.getLifecycle().createLayout(scopedContext, component, false);
+      scopedContext.setTreeProps(null);
+
+      if (node == null) {
+        node = NULL_LAYOUT;
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import android.os.Process;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Runs a number of independent tasks on the calling thread and on a pool of background threads,
+ * and returns once they are all done.
+ *
+ * <p>The pool is shared by all the parallel work of Litho, see {@link #getExecutor()}. The calling
+ * thread keeps running tasks until none are left, so nested parallel runs always make progress
+ * even when all the threads of the pool are busy.
+ */
+@ThreadSafe
+public final class ParallelTaskRunner {
+
+  private static final String THREAD_NAME = "LithoParallelTaskThread";
+  private static final int THREAD_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND;
+  private static final int MAX_THREAD_COUNT = 4;
+  private static final long KEEP_ALIVE_SECONDS = 10;
+
+  @GuardedBy("ParallelTaskRunner.class")
+  private static @Nullable Executor sExecutor;
+
+  /**
+   * One of the tasks of a parallel run. It may be called from several threads at once, with
+   * distinct indexes.
+   */
+  public interface Task {
+
+    void run(int index);
+  }
+
+  private ParallelTaskRunner() {}
+
+  /**
+   * @return the pool of background threads shared by the parallel runs of this class and by the
+   *     other parallel work of Litho, such as the layouts of the items of a RecyclerBinder. It uses
+   *     one thread per available core, leaving one core to the calling thread, up to {@link
+   *     #MAX_THREAD_COUNT} threads. Its threads are only started when tasks are run, and they are
+   *     stopped when they have been idle for a while.
+   */
+  public static synchronized Executor getExecutor() {
+    if (sExecutor == null) {
+      sExecutor = createExecutor();
+    }
+
+    return sExecutor;
+  }
+
+  private static Executor createExecutor() {
+    final int threadCount =
+        Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, MAX_THREAD_COUNT));
+    final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threadCount,
+            threadCount,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+              private final AtomicInteger mThreadCount = new AtomicInteger();
+
+              @Override
+              public Thread newThread(final Runnable runnable) {
+                final Thread thread =
+                    new Thread(
+                        new Runnable() {
+                          @Override
+                          public void run() {
+                            Process.setThreadPriority(THREAD_PRIORITY);
+                            runnable.run();
+                          }
+                        },
+                        THREAD_NAME + mThreadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Runs the given task for each index from 0 to taskCount - 1, on the calling thread and on the
+   * threads of the shared pool. The writes of the tasks are visible to the calling thread when this
+   * returns. The first exception thrown by a task is rethrown once all the tasks are done.
+   */
+  public static void run(final int taskCount, final Task task) {
+    final Executor executor = getExecutor();
+    final AtomicInteger nextIndex = new AtomicInteger();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final CountDownLatch latch = new CountDownLatch(taskCount);
+
+    final Runnable worker =
+        new Runnable() {
+          @Override
+          public void run() {
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < taskCount) {
+              try {
+                task.run(index);
+              } catch (Throwable t) {
+                error.compareAndSet(null, t);
+              } finally {
+                latch.countDown();
+              }
+            }
+          }
+        };
+
+    final int helperCount = Math.min(MAX_THREAD_COUNT, taskCount - 1);
+    for (int i = 0; i < helperCount; i++) {
+      executor.execute(worker);
+    }
+
+    worker.run();
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    final Throwable t = error.get();
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new RuntimeException(t);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An immutable snapshot of the usage of a {@link RecyclePool}, used to size the pools from the
+ * data collected in production. See {@link ComponentsPools#getPoolStats()}.
+ */
+@Immutable
+public final class PoolStats {
+
+  private final String mName;
+  private final int mMaxSize;
+  private final int mCurrentSize;
+  private final int mAcquireCount;
+  private final int mHitCount;
+  private final int mReleaseCount;
+  private final int mDroppedReleaseCount;
+  private final int mHighWaterMark;
+
+  PoolStats(
+      String name,
+      int maxSize,
+      int currentSize,
+      int acquireCount,
+      int hitCount,
+      int releaseCount,
+      int droppedReleaseCount,
+      int highWaterMark) {
+    mName = name;
+    mMaxSize = maxSize;
+    mCurrentSize = currentSize;
+    mAcquireCount = acquireCount;
+    mHitCount = hitCount;
+    mReleaseCount = releaseCount;
+    mDroppedReleaseCount = droppedReleaseCount;
+    mHighWaterMark = highWaterMark;
+  }
+
+  public String getName() {
+    return mName;
+  }
+
+  public int getMaxSize() {
+    return mMaxSize;
+  }
+
+  public int getCurrentSize() {
+    return mCurrentSize;
+  }
+
+  /** @return the number of times an item was requested from the pool. */
+  public int getAcquireCount() {
+    return mAcquireCount;
+  }
+
+  /** @return the number of requests that were served with a recycled item. */
+  public int getHitCount() {
+    return mHitCount;
+  }
+
+  /** @return the number of requests for which the pool was empty. */
+  public int getMissCount() {
+    return mAcquireCount - mHitCount;
+  }
+
+  /** @return the ratio of requests served with a recycled item, or 0 if there was none. */
+  public float getHitRate() {
+    return mAcquireCount == 0 ? 0 : (float) mHitCount / mAcquireCount;
+  }
+
+  /** @return the number of times an item was given back to the pool. */
+  public int getReleaseCount() {
+    return mReleaseCount;
+  }
+
+  /** @return the number of released items that were dropped because the pool was full. */
+  public int getDroppedReleaseCount() {
+    return mDroppedReleaseCount;
+  }
+
+  /** @return the largest number of items the pool has held at once. */
+  public int getHighWaterMark() {
+    return mHighWaterMark;
+  }
+
+  @Override
+  public String toString() {
+    return mName
+        + " {size=" + mCurrentSize + "/" + mMaxSize
+        + ", acquired=" + mAcquireCount
+        + ", hits=" + mHitCount
+        + ", released=" + mReleaseCount
+        + ", dropped=" + mDroppedReleaseCount
+        + ", highWaterMark=" + mHighWaterMark
+        + "}";
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An immutable snapshot of how the requests for mount content were served, used to measure the
+ * impact of preallocating mount content. See {@link ComponentsPools#getPreallocationStats()}.
+ */
+@Immutable
+public final class PreallocationStats {
+
+  private final int mPreallocatedCount;
+  private final int mAcquiredPreallocatedCount;
+  private final int mAcquiredRecycledCount;
+  private final int mAcquireMissCount;
+
+  PreallocationStats(
+      int preallocatedCount,
+      int acquiredPreallocatedCount,
+      int acquiredRecycledCount,
+      int acquireMissCount) {
+    mPreallocatedCount = preallocatedCount;
+    mAcquiredPreallocatedCount = acquiredPreallocatedCount;
+    mAcquiredRecycledCount = acquiredRecycledCount;
+    mAcquireMissCount = acquireMissCount;
+  }
+
+  /** @return the number of items of mount content that were preallocated. */
+  public int getPreallocatedCount() {
+    return mPreallocatedCount;
+  }
+
+  /** @return the number of requests that were served with preallocated content. */
+  public int getAcquiredPreallocatedCount() {
+    return mAcquiredPreallocatedCount;
+  }
+
+  /** @return the number of requests that were served with content recycled after an unmount. */
+  public int getAcquiredRecycledCount() {
+    return mAcquiredRecycledCount;
+  }
+
+  /** @return the number of requests for which new content had to be created. */
+  public int getAcquireMissCount() {
+    return mAcquireMissCount;
+  }
+
+  @Override
+  public String toString() {
+    return "PreallocationStats {preallocated=" + mPreallocatedCount
+        + ", acquiredPreallocated=" + mAcquiredPreallocatedCount
+        + ", acquiredRecycled=" + mAcquiredRecycledCount
+        + ", missed=" + mAcquireMissCount
+        + "}";
+  }
+}
@@ -11,18 +11,33 @@ package com.facebook.litho;
 
 import android.support.v4.util.Pools;
 import com.facebook.infer.annotation.ThreadSafe;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Used to recycle objects in Litho. Can be configured to be either syncronized or not. A {@link
- * RecyclePool} will keep track of its own size so that it can be queried to debug pool sizes.
+ * RecyclePool} will keep track of its own size so that it can be queried to debug pool sizes, as
+ * well as of how often it is hit, see {@link #getStats()}.
  */
 @ThreadSafe(enableChecks = false)
 public class RecyclePool<T> {
   private final String mName;
   private final int mMaxSize;
   private final boolean mIsSync;
-  private final Pools.Pool<T> mPool;
+  private final @Nullable Pools.Pool<T> mPool;
   private int mCurrentSize = 0;
+  private int mAcquireCount = 0;
+  private int mHitCount = 0;
+  private int mReleaseCount = 0;
+  private int mDroppedReleaseCount = 0;
+  private int mHighWaterMark = 0;
+
+  // The items released with releasePreallocated that were neither acquired nor dropped yet.
+  @GuardedBy("this")
+  private @Nullable Set<T> mPreallocatedItems;
 
   public RecyclePool(String name, int maxSize, boolean sync) {
     mIsSync = sync;
@@ -31,30 +46,106 @@ public class RecyclePool<T> {
     mPool = sync ? new Pools.SynchronizedPool<T>(maxSize) : new Pools.SimplePool<T>(maxSize);
   }
 
+  /**
+   * Used by subclasses that store the recycled items themselves and override all the methods
+   * accessing them.
+   */
+  RecyclePool(String name, int maxSize) {
+    mIsSync = false;
+    mName = name;
+    mMaxSize = maxSize;
+    mPool = null;
+  }
+
   public T acquire() {
-    T item;
     if (mIsSync) {
       synchronized (this) {
-        item = mPool.acquire();
-        mCurrentSize = Math.max(0, mCurrentSize - 1);
+        return acquireInternal();
       }
     } else {
-      item = mPool.acquire();
-      mCurrentSize = Math.max(0, mCurrentSize - 1);
+      return acquireInternal();
     }
-    return item;
   }
 
   public void release(T item) {
     if (mIsSync) {
       synchronized (this) {
-        mPool.release(item);
-        mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+        releaseInternal(item);
       }
     } else {
-      mPool.release(item);
-      mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+      releaseInternal(item);
+    }
+  }
+
+  private T acquireInternal() {
+    final T item = mPool.acquire();
+    mCurrentSize = Math.max(0, mCurrentSize - 1);
+    mAcquireCount++;
+    if (item != null) {
+      mHitCount++;
+    }
+
+    return item;
+  }
+
+  private boolean releaseInternal(T item) {
+    mReleaseCount++;
+    final boolean isPooled = mPool.release(item);
+    if (!isPooled) {
+      mDroppedReleaseCount++;
+    }
+
+    mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+    mHighWaterMark = Math.max(mHighWaterMark, mCurrentSize);
+    return isPooled;
+  }
+
+  /**
+   * Releases an item that was created ahead of time rather than recycled. The item is tracked
+   * until it is acquired again or dropped from the pool, see {@link #getPreallocatedCount()}.
+   *
+   * @return whether the item was added to the pool.
+   */
+  synchronized boolean releasePreallocated(T item) {
+    if (isFull() || !releaseInternal(item)) {
+      return false;
+    }
+
+    trackPreallocated(item);
+    return true;
+  }
+
+  /**
+   * @return whether the given item, just acquired from this pool, had been released with {@link
+   *     #releasePreallocated}. The item is not tracked anymore afterwards.
+   */
+  synchronized boolean consumePreallocated(T item) {
+    return untrackPreallocated(item);
+  }
+
+  /** @return the number of preallocated items that are still waiting in this pool. */
+  synchronized int getPreallocatedCount() {
+    return mPreallocatedItems == null ? 0 : mPreallocatedItems.size();
+  }
+
+  @GuardedBy("this")
+  void trackPreallocated(T item) {
+    if (mPreallocatedItems == null) {
+      mPreallocatedItems = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
     }
+
+    mPreallocatedItems.add(item);
+  }
+
+  /** Must be called by subclasses for every item they drop from the pool. */
+  @GuardedBy("this")
+  boolean untrackPreallocated(T item) {
+    return mPreallocatedItems != null && mPreallocatedItems.remove(item);
+  }
+
+  @GuardedBy("this")
+  void clearPreallocated() {
+    mPreallocatedItems = null;
   }
 
   public String getName() {
@@ -73,17 +164,49 @@ public class RecyclePool<T> {
     return mCurrentSize >= mMaxSize;
   }
 
-  public void clear() {
+  /**
+   * @return a snapshot of the usage statistics of this pool since it was created.
+   */
+  public PoolStats getStats() {
     if (mIsSync) {
       synchronized (this) {
-        while (acquire() != null) {
-          // no-op.
-        }
+        return createStats();
       }
     } else {
-      while (acquire() != null) {
-        // no-op.
+      return createStats();
+    }
+  }
+
+  private PoolStats createStats() {
+    return new PoolStats(
+        mName,
+        mMaxSize,
+        mCurrentSize,
+        mAcquireCount,
+        mHitCount,
+        mReleaseCount,
+        mDroppedReleaseCount,
+        mHighWaterMark);
+  }
+
+  public void clear() {
+    if (mIsSync) {
+      synchronized (this) {
+        clearInternal();
       }
+    } else {
+      clearInternal();
+    }
+  }
+
+  private void clearInternal() {
+    while (mPool.acquire() != null) {
+      // no-op.
+    }
+
+    mCurrentSize = 0;
+    synchronized (this) {
+      clearPreallocated();
     }
   }
 }
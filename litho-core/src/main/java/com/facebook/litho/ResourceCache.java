@@ -10,26 +10,185 @@
 package com.facebook.litho;
 
 import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.support.annotation.VisibleForTesting;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
+/**
+ * Caches the resources resolved by {@link ResourceResolver}. There is one cache per {@link
+ * Configuration}, and the caches of the last {@link #MAX_CONFIGURATIONS} configurations are kept so
+ * that going back and forth between configurations, as rotations and multi-window do, doesn't
+ * resolve all the resources again.
+ *
+ * <p>The implementations only store the entries, the sizes and counters are kept by this class:
+ * they report the estimated size of the entries they add and remove through {@link
+ * #onEntryAdded(int)} and {@link #onEntryRemoved(int, boolean)}.
+ */
 public abstract class ResourceCache {
+  @VisibleForTesting static final int MAX_CONFIGURATIONS = 3;
+
   private static ResourceCache latest;
 
+  private static final LinkedHashMap<Configuration, ResourceCache> sCaches =
+      new LinkedHashMap<Configuration, ResourceCache>(
+          MAX_CONFIGURATIONS + 1, 1f, true /* accessOrder */) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Configuration, ResourceCache> eldest) {
+          return size() > MAX_CONFIGURATIONS;
+        }
+      };
+
   static synchronized ResourceCache getLatest(Configuration configuration) {
     if (latest == null || !latest.mConfiguration.equals(configuration)) {
-      latest = new LruResourceCache(configuration);
+      latest = sCaches.get(configuration);
+      if (latest == null) {
+        // The configuration may be mutated after this, so the cache is keyed on a copy of it.
+        final Configuration configurationCopy = new Configuration(configuration);
+        latest = new LruResourceCache(configurationCopy);
+        sCaches.put(configurationCopy, latest);
+      }
     }
     return latest;
   }
 
+  /**
+   * Resolves the given resources into the cache of the configuration of the given context, so that
+   * they're already cached when components resolve them. Only the strings, integers, booleans and
+   * colors are resolved, since those are always resolved to the same type; any other resource id is
+   * ignored. This may be called from any thread.
+   */
+  public static void prewarm(ComponentContext c, int... resIds) {
+    final Resources resources = c.getResources();
+    final ResourceResolver resolver = new ResourceResolver();
+    resolver.init(c, c.getResourceCache());
+
+    for (int resId : resIds) {
+      try {
+        switch (resources.getResourceTypeName(resId)) {
+          case "string":
+            resolver.resolveStringRes(resId);
+            break;
+          case "integer":
+            resolver.resolveIntRes(resId);
+            break;
+          case "bool":
+            resolver.resolveBoolRes(resId);
+            break;
+          case "color":
+            resolver.resolveColorRes(resId);
+            break;
+          default:
+            break;
+        }
+      } catch (Resources.NotFoundException e) {
+        // Prewarming is a best effort, the resource will be resolved again when it's used.
+      }
+    }
+
+    resolver.release();
+  }
+
+  /**
+   * Same as {@link #prewarm(ComponentContext, int...)}, on a background thread.
+   */
+  public static void prewarmAsync(final ComponentContext c, final int... resIds) {
+    new Handler(ComponentTree.getDefaultPreallocateMountContentThreadLooper())
+        .post(
+            new Runnable() {
+              @Override
+              public void run() {
+                prewarm(c, resIds);
+              }
+            });
+  }
+
+  @VisibleForTesting
+  static synchronized void clear() {
+    latest = null;
+    sCaches.clear();
+  }
+
   private final Configuration mConfiguration;
+  private final int mConfigurationHashCode;
+  private final AtomicInteger mSizeBytes = new AtomicInteger();
+  private final AtomicInteger mHitCount = new AtomicInteger();
+  private final AtomicInteger mMissCount = new AtomicInteger();
+  private final AtomicInteger mEvictionCount = new AtomicInteger();
 
   protected ResourceCache(Configuration configuration) {
     mConfiguration = configuration;
+    mConfigurationHashCode = configuration.hashCode();
+  }
+
+  /**
+   * @return the configuration of the resources cached by this cache, which must not be mutated.
+   */
+  final Configuration getConfiguration() {
+    return mConfiguration;
+  }
+
+  /** @return the hash code of {@link #getConfiguration()}, computed once. */
+  final int getConfigurationHashCode() {
+    return mConfigurationHashCode;
   }
 
   @Nullable
-  abstract <T> T get(int key);
+  final <T> T get(int key) {
+    final T value = getCached(key);
+    if (value != null) {
+      mHitCount.incrementAndGet();
+    } else {
+      mMissCount.incrementAndGet();
+    }
+    return value;
+  }
 
   abstract void put(int key, Object object);
+
+  /**
+   * @return the cached resource for the given key, or null if there is none.
+   */
+  @Nullable
+  abstract <T> T getCached(int key);
+
+  /**
+   * To be called by the implementations when they add an entry of the given estimated size.
+   */
+  final void onEntryAdded(int sizeBytes) {
+    mSizeBytes.addAndGet(sizeBytes);
+  }
+
+  /**
+   * To be called by the implementations when they remove an entry of the given estimated size,
+   * because it was replaced or evicted.
+   */
+  final void onEntryRemoved(int sizeBytes, boolean evicted) {
+    mSizeBytes.addAndGet(-sizeBytes);
+    if (evicted) {
+      mEvictionCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return the estimated size in bytes of the resources held by this cache.
+   */
+  public int getSizeBytes() {
+    return mSizeBytes.get();
+  }
+
+  public int getHitCount() {
+    return mHitCount.get();
+  }
+
+  public int getMissCount() {
+    return mMissCount.get();
+  }
+
+  public int getEvictionCount() {
+    return mEvictionCount.get();
+  }
 }
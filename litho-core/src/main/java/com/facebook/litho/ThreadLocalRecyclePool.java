@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link RecyclePool} that can be used from several threads without taking any lock. Each thread
+ * acquires and releases items from its own small stack (a magazine). When a magazine overflows, its
+ * items are moved as a single batch to a lock-free shared stack (the depot), from which the
+ * magazine of any thread can be refilled once it runs empty.
+ *
+ * <p>Only moving a batch to or from the depot touches state shared between the threads. The size
+ * of the pool, as seen from a thread, is the number of items in the depot plus the ones in its own
+ * magazine, so each thread may hold up to a magazine of items more than the maximum size. The items
+ * in the magazine of a thread that terminates are not counted anywhere and are garbage collected
+ * along with it.
+ *
+ * <p>Each thread counts its acquires and releases in its magazine and publishes them to the {@link
+ * PoolStats} of the pool when it moves a batch, or when it reads the stats itself.
+ */
+@ThreadSafe(enableChecks = false)
+class ThreadLocalRecyclePool<T> extends RecyclePool<T> {
+
+  private static final int MAX_MAGAZINE_SIZE = 16;
+
+  private final int mMagazineSize;
+  private final AtomicInteger mDepotSize = new AtomicInteger();
+  private final AtomicInteger mGeneration = new AtomicInteger();
+  private final AtomicInteger mAcquireCount = new AtomicInteger();
+  private final AtomicInteger mHitCount = new AtomicInteger();
+  private final AtomicInteger mReleaseCount = new AtomicInteger();
+  private final AtomicInteger mDroppedReleaseCount = new AtomicInteger();
+  private final AtomicInteger mHighWaterMark = new AtomicInteger();
+  private final AtomicReference<Batch> mDepot = new AtomicReference<>();
+  private final ThreadLocal<Magazine> mMagazines =
+      new ThreadLocal<Magazine>() {
+        @Override
+        protected Magazine initialValue() {
+          return new Magazine(mMagazineSize, mGeneration.get());
+        }
+      };
+
+  ThreadLocalRecyclePool(String name, int maxSize) {
+    this(name, maxSize, Math.max(1, Math.min(MAX_MAGAZINE_SIZE, maxSize / 4)));
+  }
+
+  @VisibleForTesting
+  ThreadLocalRecyclePool(String name, int maxSize, int magazineSize) {
+    super(name, maxSize);
+    mMagazineSize = magazineSize;
+  }
+
+  @Override
+  @Nullable
+  public T acquire() {
+    final Magazine magazine = getMagazine();
+    magazine.acquireCount++;
+
+    if (magazine.count == 0 && !refill(magazine)) {
+      return null;
+    }
+
+    final int index = --magazine.count;
+    final T item = (T) magazine.items[index];
+    magazine.items[index] = null;
+    magazine.hitCount++;
+
+    return item;
+  }
+
+  @Override
+  public void release(T item) {
+    final Magazine magazine = getMagazine();
+    magazine.releaseCount++;
+
+    final int currentSize = mDepotSize.get() + magazine.count;
+    if (currentSize >= getMaxSize()) {
+      magazine.droppedReleaseCount++;
+      return;
+    }
+
+    updateHighWaterMark(currentSize + 1);
+
+    if (magazine.count == magazine.items.length) {
+      flush(magazine);
+    }
+
+    magazine.items[magazine.count++] = item;
+  }
+
+  /**
+   * @return the number of items in the depot and in the magazine of the calling thread.
+   */
+  @Override
+  public int getCurrentSize() {
+    return Math.max(0, mDepotSize.get()) + getMagazine().count;
+  }
+
+  @Override
+  public boolean isFull() {
+    return getCurrentSize() >= getMaxSize();
+  }
+
+  @Override
+  public PoolStats getStats() {
+    publishStats(getMagazine());
+
+    return new PoolStats(
+        getName(),
+        getMaxSize(),
+        getCurrentSize(),
+        mAcquireCount.get(),
+        mHitCount.get(),
+        mReleaseCount.get(),
+        mDroppedReleaseCount.get(),
+        mHighWaterMark.get());
+  }
+
+  /**
+   * Empties the depot and the magazine of the calling thread. The magazines of the other threads
+   * are emptied the next time they use the pool.
+   */
+  @Override
+  public void clear() {
+    mGeneration.incrementAndGet();
+    mDepot.set(null);
+    mDepotSize.set(0);
+    getMagazine();
+  }
+
+  private void updateHighWaterMark(int size) {
+    int highWaterMark;
+    do {
+      highWaterMark = mHighWaterMark.get();
+      if (size <= highWaterMark) {
+        return;
+      }
+    } while (!mHighWaterMark.compareAndSet(highWaterMark, size));
+  }
+
+  /** Adds the stats counted by the given magazine since it last published them to the pool's. */
+  private void publishStats(Magazine magazine) {
+    if (magazine.acquireCount > 0) {
+      mAcquireCount.addAndGet(magazine.acquireCount);
+      mHitCount.addAndGet(magazine.hitCount);
+      magazine.acquireCount = 0;
+      magazine.hitCount = 0;
+    }
+
+    if (magazine.releaseCount > 0) {
+      mReleaseCount.addAndGet(magazine.releaseCount);
+      mDroppedReleaseCount.addAndGet(magazine.droppedReleaseCount);
+      magazine.releaseCount = 0;
+      magazine.droppedReleaseCount = 0;
+    }
+  }
+
+  private Magazine getMagazine() {
+    final Magazine magazine = mMagazines.get();
+    final int generation = mGeneration.get();
+
+    if (magazine.generation != generation) {
+      Arrays.fill(magazine.items, 0, magazine.count, null);
+      magazine.count = 0;
+      magazine.generation = generation;
+    }
+
+    return magazine;
+  }
+
+  /** Moves all the items of the given full magazine to the depot. */
+  private void flush(Magazine magazine) {
+    final Batch batch = new Batch(Arrays.copyOf(magazine.items, magazine.count));
+    Arrays.fill(magazine.items, null);
+    magazine.count = 0;
+
+    Batch top;
+    do {
+      top = mDepot.get();
+      batch.next = top;
+    } while (!mDepot.compareAndSet(top, batch));
+
+    mDepotSize.addAndGet(batch.items.length);
+    publishStats(magazine);
+  }
+
+  /**
+   * Moves a batch of items from the depot to the given empty magazine.
+   *
+   * @return whether the depot had any item.
+   */
+  private boolean refill(Magazine magazine) {
+    Batch top;
+    do {
+      top = mDepot.get();
+      if (top == null) {
+        return false;
+      }
+    } while (!mDepot.compareAndSet(top, top.next));
+
+    mDepotSize.addAndGet(-top.items.length);
+    System.arraycopy(top.items, 0, magazine.items, 0, top.items.length);
+    magazine.count = top.items.length;
+    publishStats(magazine);
+    return true;
+  }
+
+  private static class Magazine {
+
+    private final Object[] items;
+    private int count;
+    private int generation;
+
+    // Not yet published to the stats of the pool.
+    private int acquireCount;
+    private int hitCount;
+    private int releaseCount;
+    private int droppedReleaseCount;
+
+    private Magazine(int size, int generation) {
+      this.items = new Object[size];
+      this.generation = generation;
+    }
+  }
+
+  private static class Batch {
+
+    private final Object[] items;
+    private Batch next;
+
+    private Batch(Object[] items) {
+      this.items = items;
+    }
+  }
+}
@@ -31,6 +31,7 @@ import com.facebook.litho.internal.ArraySet;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Handles animating transitions defined by ComponentSpec's onCreateTransition code.
@@ -125,12 +126,22 @@ public class TransitionManager {
     /**
      * If there's an {@link #animation}, the target value it's animating to.
      */
-    public Float targetValue;
+    public float targetValue;
+
+    /**
+     * Whether {@link #targetValue} is set.
+     */
+    public boolean hasTargetValue;
 
     /**
      * The last mounted value of this property.
      */
-    public Float lastMountedValue;
+    public float lastMountedValue;
+
+    /**
+     * Whether {@link #lastMountedValue} is set, it isn't if the content isn't mounted anymore.
+     */
+    public boolean hasLastMountedValue;
 
     /**
      * How many animations are waiting to finish for this property.
@@ -184,8 +195,10 @@ public class TransitionManager {
   private final SimpleArrayMap<AnimationBinding, ArraySet<PropertyHandle>> mAnimationsToPropertyHandles =
       new SimpleArrayMap<>();
   private final SimpleArrayMap<String, AnimationState> mAnimationStates = new SimpleArrayMap<>();
-  private final SimpleArrayMap<PropertyHandle, Float> mInitialStatesToRestore =
-      new SimpleArrayMap<>();
+  // The properties to restore to their initial values before the animations start, with those
+  // values stored unboxed at the same index in mInitialValuesToRestore.
+  private final ArrayList<PropertyHandle> mInitialStatesToRestore = new ArrayList<>();
+  private float[] mInitialValuesToRestore = new float[4];
   private final ArraySet<AnimationBinding> mRunningRootAnimations = new ArraySet<>();
   private final TransitionsAnimationBindingListener mAnimationBindingListener =
       new TransitionsAnimationBindingListener();
@@ -387,10 +400,11 @@ public class TransitionManager {
     for (int i = 0, size = animationState.propertyStates.size(); i < size; i++) {
       final PropertyState propertyState = animationState.propertyStates.valueAt(i);
       if (animationState.nextLayoutOutput == null) {
-        propertyState.lastMountedValue = null;
+        propertyState.hasLastMountedValue = false;
       } else {
         final AnimatedProperty property = animationState.propertyStates.keyAt(i);
         propertyState.lastMountedValue = property.get(animationState.nextLayoutOutput);
+        propertyState.hasLastMountedValue = true;
       }
     }
   }
@@ -595,7 +609,7 @@ public class TransitionManager {
 
     // Don't replace new animations in two cases: 1) we're already animating that property to
     // the same end value or 2) the start and end values are already the same
-    if (existingState != null && existingState.targetValue != null) {
+    if (existingState != null && existingState.hasTargetValue) {
       if (endValue == existingState.targetValue) {
         if (AnimationsDebug.ENABLED) {
           Log.d(
@@ -637,15 +651,28 @@ public class TransitionManager {
     animatedPropertyHandles.add(propertyHandle);
     mAnimationsToPropertyHandles.put(animation, animatedPropertyHandles);
 
-    mInitialStatesToRestore.put(propertyHandle, startValue);
+    addInitialStateToRestore(propertyHandle, startValue);
 
     return animation;
   }
 
+  private void addInitialStateToRestore(PropertyHandle propertyHandle, float value) {
+    int index = mInitialStatesToRestore.indexOf(propertyHandle);
+    if (index < 0) {
+      index = mInitialStatesToRestore.size();
+      mInitialStatesToRestore.add(propertyHandle);
+      if (index == mInitialValuesToRestore.length) {
+        mInitialValuesToRestore = Arrays.copyOf(mInitialValuesToRestore, index * 2);
+      }
+    }
+
+    mInitialValuesToRestore[index] = value;
+  }
+
   private void restoreInitialStates() {
     for (int i = 0, size = mInitialStatesToRestore.size(); i < size; i++) {
-      final PropertyHandle propertyHandle = mInitialStatesToRestore.keyAt(i);
-      final float value = mInitialStatesToRestore.valueAt(i);
+      final PropertyHandle propertyHandle = mInitialStatesToRestore.get(i);
+      final float value = mInitialValuesToRestore[i];
       final AnimationState animationState = mAnimationStates.get(propertyHandle.getTransitionKey());
       final AnimatedProperty property = propertyHandle.getProperty();
       property.set(animationState.mountContent, value);
@@ -776,6 +803,7 @@ public class TransitionManager {
             animationState.propertyStates.get(propertyAnimation.getProperty());
 
         propertyState.targetValue = propertyAnimation.getTargetValue();
+        propertyState.hasTargetValue = true;
         propertyState.animation = binding;
       }
 
@@ -814,7 +842,7 @@ public class TransitionManager {
                   propertyAnimation.getTargetValue() + ":");
         }
 
-        if (propertyState.lastMountedValue != null &&
+        if (propertyState.hasLastMountedValue &&
             propertyState.lastMountedValue != propertyAnimation.getTargetValue()) {
           if (AnimationsDebug.ENABLED) {
             Log.d(
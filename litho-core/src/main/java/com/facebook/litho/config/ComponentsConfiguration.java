@@ -77,6 +77,60 @@ public class ComponentsConfiguration {
    */
   public static volatile boolean usePooling = true;
 
+  /**
+   * Whether the pools of {@link com.facebook.litho.ComponentsPools} used during layout calculation
+   * keep a small cache of objects per thread backed by a lock-free shared stack, instead of being
+   * synchronized. This is read when the pools are created, so it needs to be set before any
+   * component is used.
+   */
+  public static boolean useThreadLocalPools = false;
+
+  /**
+   * Whether the mount content pools grow with the peak demand for each component type, shrink
+   * back when that demand drops and are emptied when the system asks to trim memory, instead of
+   * having the fixed size given by {@link com.facebook.litho.ComponentLifecycle#poolSize()}.
+   */
+  public static boolean useAdaptiveMountContentPools = false;
+
+  /**
+   * Whether the measurements of the components that can measure themselves are cached across
+   * layouts and {@link com.facebook.litho.ComponentTree}s, so that a component equivalent to one
+   * that was already measured with the same size specs is not measured again.
+   */
+  public static boolean useMeasureCache = false;
+
+  /**
+   * Whether the global keys of components are fixed length hashes of the path of keys leading to
+   * them, instead of the concatenation of those keys, whose length grows with the depth of the
+   * tree. This needs to be set before any layout is calculated, as global keys computed in the two
+   * modes can't be compared.
+   */
+  public static boolean useCompactGlobalKeys = false;
+
+  /**
+   * Whether the text layouts created by the Text component are cached and shared by all the {@link
+   * com.facebook.litho.ComponentTree}s, so that a text with the same style and width spec as one
+   * already laid out reuses its layout. Only the plain texts with a fixed text color are cached.
+   */
+  public static boolean useTextLayoutCache = false;
+
+  /**
+   * Whether the async state updates of a {@link com.facebook.litho.ComponentTree} are batched until
+   * the next frame, so that all the updates queued during a frame are applied by a single
+   * background layout instead of one layout per update.
+   */
+  public static boolean coalesceAsyncStateUpdates = false;
+
+  /**
+   * Whether the layout computed for the state updates of a single component reuses the layout tree
+   * of the previous layout, only creating again the layout of the closest enclosing component that
+   * was added as a child with child(Component), and only laying out again the nodes that changed.
+   * The layout trees are kept alive by the LayoutStates when this is enabled. This has no effect
+   * when {@link #isDebugModeEnabled} or {@link #persistInternalNodeTree} are enabled, since the
+   * tree of the mounted layout must then be left intact.
+   */
+  public static boolean partialRelayoutOnStateUpdate = false;
+
   /**
    * Whether we unmount children of the views implementing {@link
    * com.facebook.litho.HasLithoViewChildren} when unmounting those views themselves. This is for
@@ -145,4 +199,17 @@ public class ComponentsConfiguration {
    * be posted to the next frame.
    */
   public static boolean insertPostAsyncLayout = false;
+
+  /**
+   * If true, the layouts of the components added as children of a Column or Row are resolved once
+   * the onCreateLayout of their parent returns, in parallel on a background thread pool when there
+   * are at least {@link #parallelChildResolutionThreshold} of them.
+   */
+  public static boolean parallelChildResolution = false;
+
+  /**
+   * Minimum number of children created by a single onCreateLayout for their layouts to be resolved
+   * in parallel when {@link #parallelChildResolution} is enabled.
+   */
+  public static int parallelChildResolutionThreshold = 8;
 }
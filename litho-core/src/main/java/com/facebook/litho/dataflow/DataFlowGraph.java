@@ -10,12 +10,11 @@
 package com.facebook.litho.dataflow;
 
 import android.support.annotation.VisibleForTesting;
-import android.support.v4.util.Pools;
-import android.support.v4.util.SimpleArrayMap;
 import com.facebook.litho.ComponentsPools;
 import com.facebook.litho.internal.ArraySet;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import javax.annotation.concurrent.GuardedBy;
 
@@ -26,6 +25,9 @@ import javax.annotation.concurrent.GuardedBy;
  * deactivated.
  *
  * Data flows through the graph on each frame, from input nodes to output nodes.
+ *
+ * The state of the nodes is kept in primitive arrays indexed by the id each node is given when it's
+ * added to the graph, so that a frame doesn't allocate memory nor look nodes up in maps.
  */
 public class DataFlowGraph {
 
@@ -40,19 +42,9 @@ public class DataFlowGraph {
     return sInstance;
   }
 
-  private static final Pools.SynchronizedPool<NodeState> sNodeStatePool =
-      new Pools.SynchronizedPool<>(20);
-
-  private static class NodeState {
-
-    private boolean isFinished = false;
-    private int refCount = 0;
+  static final int NO_NODE_ID = -1;
 
-    void reset() {
-      isFinished = false;
-      refCount = 0;
-    }
-  }
+  private static final int INITIAL_NODE_CAPACITY = 16;
 
   /**
    * For tests, let's the testing environment explicitly provide a specific DataFlowGraph instance
@@ -79,11 +71,47 @@ public class DataFlowGraph {
   @GuardedBy("this")
   private final ArrayList<ValueNode> mSortedNodes = new ArrayList<>();
 
+  // The state of the nodes in the graph, indexed by node id.
+  @GuardedBy("this")
+  private int[] mNodeRefCounts = new int[INITIAL_NODE_CAPACITY];
+
+  @GuardedBy("this")
+  private boolean[] mNodeIsFinished = new boolean[INITIAL_NODE_CAPACITY];
+
+  @GuardedBy("this")
+  private boolean[] mNodeHasFinalValue = new boolean[INITIAL_NODE_CAPACITY];
+
   @GuardedBy("this")
-  private final SimpleArrayMap<ValueNode, NodeState> mNodeStates = new SimpleArrayMap<>();
+  private boolean[] mNodeIsSorted = new boolean[INITIAL_NODE_CAPACITY];
 
+  // Scratch space used while sorting nodes, indexed by node id.
+  @GuardedBy("this")
+  private int[] mNodeOutputsLeft = new int[INITIAL_NODE_CAPACITY];
+
+  // The ids of removed nodes, which are given to the next added nodes.
+  @GuardedBy("this")
+  private int[] mFreeNodeIds = new int[INITIAL_NODE_CAPACITY];
+
+  private int mFreeNodeIdCount = 0;
+
+  // The number of ids given out so far, including the free ones.
+  private int mNodeIdCount = 0;
+
+  // Bindings registered since the last frame whose nodes weren't part of the graph yet. Their nodes
+  // are sorted on their own and appended to the sorted nodes, as they aren't connected to any of
+  // the nodes already sorted.
+  @GuardedBy("this")
+  private final ArrayList<GraphBinding> mBindingsToSort = new ArrayList<>();
+
+  // Whether the whole graph needs to be sorted again, because a binding shared nodes with the
+  // bindings already registered when it was registered.
   private boolean mIsDirty = false;
 
+  // Whether nodes were removed from the graph since the last frame. Removing nodes doesn't change
+  // the relative order of the remaining ones, so they only need to be dropped from the sorted
+  // nodes.
+  private boolean mHasRemovedNodes = false;
+
   private DataFlowGraph(TimingSource timingSource) {
     mTimingSource = timingSource;
   }
@@ -97,11 +125,14 @@ public class DataFlowGraph {
       throw new RuntimeException("Expected added GraphBinding to be active: " + binding);
     }
     mBindings.add(binding);
-    registerNodes(binding);
+    if (registerNodes(binding)) {
+      mIsDirty = true;
+    } else {
+      mBindingsToSort.add(binding);
+    }
     if (mBindings.size() == 1) {
       mTimingSource.start();
     }
-    mIsDirty = true;
   }
 
   /**
@@ -112,22 +143,21 @@ public class DataFlowGraph {
     if (!mBindings.remove(binding)) {
       throw new RuntimeException("Tried to unregister non-existent binding");
     }
-    unregisterNodes(binding);
+    mBindingsToSort.remove(binding);
+    mHasRemovedNodes |= unregisterNodes(binding);
     if (mBindings.isEmpty()) {
       mTimingSource.stop();
       mSortedNodes.clear();
-      if (!mNodeStates.isEmpty()) {
+      mIsDirty = false;
+      mHasRemovedNodes = false;
+      if (mFreeNodeIdCount != mNodeIdCount) {
         throw new RuntimeException("Failed to clean up all nodes");
       }
     }
-    mIsDirty = true;
   }
 
   synchronized void doFrame(long frameTimeNanos) {
-    if (mIsDirty) {
-      regenerateSortedNodes();
-    }
-
+    updateSortedNodes();
     propagate(frameTimeNanos);
     updateFinishedStates();
   }
@@ -136,34 +166,76 @@ public class DataFlowGraph {
     final int size = mSortedNodes.size();
     for (int i = 0; i < size; i++) {
       final ValueNode node = mSortedNodes.get(i);
-      node.doCalculateValue(frameTimeNanos);
+      // A node whose value can't change anymore doesn't need to be calculated again, which skips
+      // the subgraphs of the finished animations that are still part of the graph.
+      if (!mNodeHasFinalValue[node.getGraphId()]) {
+        node.doCalculateValue(frameTimeNanos);
+      }
     }
   }
 
+  private void updateSortedNodes() {
+    if (mIsDirty) {
+      regenerateSortedNodes();
+      return;
+    }
+
+    if (mHasRemovedNodes) {
+      removeUnregisteredSortedNodes();
+    }
+
+    for (int i = 0, size = mBindingsToSort.size(); i < size; i++) {
+      addSortedNodes(mBindingsToSort.get(i).getAllNodes());
+    }
+    mBindingsToSort.clear();
+  }
+
   private void regenerateSortedNodes() {
     mSortedNodes.clear();
+    mBindingsToSort.clear();
+    mHasRemovedNodes = false;
 
     if (mBindings.size() == 0) {
+      mIsDirty = false;
       return;
     }
 
-    final ArraySet<ValueNode> leafNodes = ComponentsPools.acquireArraySet();
-    final SimpleArrayMap<ValueNode, Integer> nodesToOutputsLeft = new SimpleArrayMap<>();
+    // The nodes of the new binding may have received new inputs, so the final values of the nodes
+    // need to be determined again.
+    Arrays.fill(mNodeHasFinalValue, false);
 
+    final ArraySet<ValueNode> nodes = ComponentsPools.acquireArraySet();
     for (int i = 0, bindingsSize = mBindings.size(); i < bindingsSize; i++) {
-      final ArraySet<ValueNode> nodes = mBindings.get(i).getAllNodes();
-      for (int j = 0, nodesSize = nodes.size(); j < nodesSize; j++) {
-        final ValueNode node = nodes.valueAt(j);
-        final int outputCount = node.getOutputCount();
-        if (outputCount == 0) {
-          leafNodes.add(node);
-        } else {
-          nodesToOutputsLeft.put(node, outputCount);
-        }
+      nodes.addAll(mBindings.get(i).getAllNodes());
+    }
+
+    addSortedNodes(nodes);
+    mIsDirty = false;
+
+    ComponentsPools.release(nodes);
+  }
+
+  /**
+   * Sorts the given nodes, which must not be connected to any node outside of them, and appends
+   * them to the sorted nodes.
+   */
+  private void addSortedNodes(ArraySet<ValueNode> nodes) {
+    final int firstIndex = mSortedNodes.size();
+    final ArraySet<ValueNode> leafNodes = ComponentsPools.acquireArraySet();
+    int nonLeafNodeCount = 0;
+
+    for (int i = 0, nodesSize = nodes.size(); i < nodesSize; i++) {
+      final ValueNode node = nodes.valueAt(i);
+      final int outputCount = node.getOutputCount();
+      mNodeOutputsLeft[node.getGraphId()] = outputCount;
+      if (outputCount == 0) {
+        leafNodes.add(node);
+      } else {
+        nonLeafNodeCount++;
       }
     }
 
-    if (!nodesToOutputsLeft.isEmpty() && leafNodes.isEmpty()) {
+    if (nonLeafNodeCount != 0 && leafNodes.isEmpty()) {
       throw new DetectedCycleException(
           "Graph has nodes, but they represent a cycle with no leaf nodes!");
     }
@@ -176,8 +248,7 @@ public class DataFlowGraph {
       mSortedNodes.add(next);
       for (int i = 0, count = next.getInputCount(); i < count; i++) {
         final ValueNode input = next.getInputAt(i);
-        final int outputsLeft = nodesToOutputsLeft.get(input) - 1;
-        nodesToOutputsLeft.put(input, outputsLeft);
+        final int outputsLeft = --mNodeOutputsLeft[input.getGraphId()];
         if (outputsLeft == 0) {
           nodesToProcess.addLast(input);
         } else if (outputsLeft < 0) {
@@ -186,19 +257,42 @@ public class DataFlowGraph {
       }
     }
 
-    int expectedTotalNodes = nodesToOutputsLeft.size() + leafNodes.size();
-    if (mSortedNodes.size() != expectedTotalNodes) {
+    int expectedTotalNodes = nonLeafNodeCount + leafNodes.size();
+    if (mSortedNodes.size() - firstIndex != expectedTotalNodes) {
       throw new DetectedCycleException(
           "Had unreachable nodes in graph -- this likely means there was a cycle");
     }
 
-    Collections.reverse(mSortedNodes);
-    mIsDirty = false;
+    Collections.reverse(mSortedNodes.subList(firstIndex, mSortedNodes.size()));
+    for (int i = firstIndex, size = mSortedNodes.size(); i < size; i++) {
+      mNodeIsSorted[mSortedNodes.get(i).getGraphId()] = true;
+    }
 
     ComponentsPools.release(nodesToProcess);
     ComponentsPools.release(leafNodes);
   }
 
+  /**
+   * Drops the nodes that were removed from the graph from the sorted nodes. A node that was removed
+   * and then added back by a new binding has a new id which isn't sorted yet, so its previous
+   * position is dropped as well.
+   */
+  private void removeUnregisteredSortedNodes() {
+    int count = 0;
+    for (int i = 0, size = mSortedNodes.size(); i < size; i++) {
+      final ValueNode node = mSortedNodes.get(i);
+      final int id = node.getGraphId();
+      if (id != NO_NODE_ID && mNodeIsSorted[id]) {
+        mSortedNodes.set(count++, node);
+      }
+    }
+
+    for (int i = mSortedNodes.size() - 1; i >= count; i--) {
+      mSortedNodes.remove(i);
+    }
+    mHasRemovedNodes = false;
+  }
+
   private void updateFinishedStates() {
     updateFinishedNodes();
     notifyFinishedBindings();
@@ -207,8 +301,15 @@ public class DataFlowGraph {
   private void updateFinishedNodes() {
     for (int i = 0, size = mSortedNodes.size(); i < size; i++) {
       final ValueNode node = mSortedNodes.get(i);
-      final NodeState nodeState = mNodeStates.get(node);
-      if (nodeState.isFinished || !areInputsFinished(node)) {
+      final int id = node.getGraphId();
+      if (mNodeIsFinished[id]) {
+        if (!mNodeHasFinalValue[id]) {
+          mNodeHasFinalValue[id] = hasFinalValue(node);
+        }
+        continue;
+      }
+
+      if (!areInputsFinished(node)) {
         continue;
       }
 
@@ -216,15 +317,35 @@ public class DataFlowGraph {
           !(node instanceof NodeCanFinish) ||
               ((NodeCanFinish) node).isFinished();
       if (nodeIsNowFinished) {
-        nodeState.isFinished = true;
+        mNodeIsFinished[id] = true;
+        mNodeHasFinalValue[id] = hasFinalValue(node);
       }
     }
   }
 
+  /**
+   * @return whether the value of the given finished node can't change anymore. The value of a node
+   *     without inputs may be read from outside of the graph on each frame, like the current value
+   *     of a view property, unless the node decides by itself when it's finished or is constant.
+   */
+  private boolean hasFinalValue(ValueNode node) {
+    final int inputCount = node.getInputCount();
+    if (inputCount == 0) {
+      return node instanceof NodeCanFinish || node instanceof ConstantNode;
+    }
+
+    for (int i = 0; i < inputCount; i++) {
+      if (!mNodeHasFinalValue[node.getInputAt(i).getGraphId()]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   private boolean areInputsFinished(ValueNode node) {
     for (int i = 0, inputCount = node.getInputCount(); i < inputCount; i++) {
-      final NodeState nodeState = mNodeStates.get(node.getInputAt(i));
-      if (!nodeState.isFinished) {
+      if (!mNodeIsFinished[node.getInputAt(i).getGraphId()]) {
         return false;
       }
     }
@@ -239,8 +360,7 @@ public class DataFlowGraph {
       boolean allAreFinished = true;
       final ArraySet<ValueNode> nodesToCheck = binding.getAllNodes();
       for (int j = 0, nodesSize = nodesToCheck.size(); j < nodesSize; j++) {
-        final NodeState nodeState = mNodeStates.get(nodesToCheck.valueAt(j));
-        if (!nodeState.isFinished) {
+        if (!mNodeIsFinished[nodesToCheck.valueAt(j).getGraphId()]) {
           allAreFinished = false;
           break;
         }
@@ -251,48 +371,76 @@ public class DataFlowGraph {
     }
   }
 
-  private void registerNodes(GraphBinding binding) {
+  /**
+   * @return whether some of the nodes of the given binding were already part of the graph.
+   */
+  private boolean registerNodes(GraphBinding binding) {
+    boolean hasSharedNodes = false;
     final ArraySet<ValueNode> nodes = binding.getAllNodes();
     for (int i = 0, size = nodes.size(); i < size; i++) {
       final ValueNode node = nodes.valueAt(i);
-      final NodeState nodeState = mNodeStates.get(node);
-      if (nodeState != null) {
-        nodeState.refCount++;
+      final int id = node.getGraphId();
+      if (id != NO_NODE_ID) {
+        mNodeRefCounts[id]++;
+        hasSharedNodes = true;
       } else {
-        final NodeState newState = acquireNodeState();
-        newState.refCount = 1;
-        mNodeStates.put(node, newState);
+        final int newId = acquireNodeId();
+        mNodeRefCounts[newId] = 1;
+        node.setGraphId(newId);
       }
     }
+
+    return hasSharedNodes;
   }
 
-  private void unregisterNodes(GraphBinding binding) {
+  /**
+   * @return whether some of the nodes of the given binding were removed from the graph.
+   */
+  private boolean unregisterNodes(GraphBinding binding) {
+    boolean hasRemovedNodes = false;
     final ArraySet<ValueNode> nodes = binding.getAllNodes();
     for (int i = 0, size = nodes.size(); i < size; i++) {
       final ValueNode node = nodes.valueAt(i);
-      final NodeState nodeState = mNodeStates.get(node);
-      nodeState.refCount--;
-      if (nodeState.refCount == 0) {
-        release(mNodeStates.remove(node));
+      final int id = node.getGraphId();
+      mNodeRefCounts[id]--;
+      if (mNodeRefCounts[id] == 0) {
+        releaseNodeId(id);
+        node.setGraphId(NO_NODE_ID);
+        hasRemovedNodes = true;
       }
     }
+
+    return hasRemovedNodes;
   }
 
-  private static NodeState acquireNodeState() {
-    final NodeState fromPool = sNodeStatePool.acquire();
-    if (fromPool != null) {
-      return fromPool;
+  private int acquireNodeId() {
+    if (mFreeNodeIdCount > 0) {
+      return mFreeNodeIds[--mFreeNodeIdCount];
     }
-    return new NodeState();
+
+    if (mNodeIdCount == mNodeRefCounts.length) {
+      final int capacity = mNodeIdCount * 2;
+      mNodeRefCounts = Arrays.copyOf(mNodeRefCounts, capacity);
+      mNodeIsFinished = Arrays.copyOf(mNodeIsFinished, capacity);
+      mNodeHasFinalValue = Arrays.copyOf(mNodeHasFinalValue, capacity);
+      mNodeIsSorted = Arrays.copyOf(mNodeIsSorted, capacity);
+      mNodeOutputsLeft = Arrays.copyOf(mNodeOutputsLeft, capacity);
+      mFreeNodeIds = Arrays.copyOf(mFreeNodeIds, capacity);
+    }
+
+    return mNodeIdCount++;
   }
 
-  private static void release(NodeState nodeState) {
-    nodeState.reset();
-    sNodeStatePool.release(nodeState);
+  private void releaseNodeId(int id) {
+    mNodeRefCounts[id] = 0;
+    mNodeIsFinished[id] = false;
+    mNodeHasFinalValue[id] = false;
+    mNodeIsSorted[id] = false;
+    mFreeNodeIds[mFreeNodeIdCount++] = id;
   }
 
   @VisibleForTesting
   boolean hasReferencesToNodes() {
-    return !mBindings.isEmpty() || !mSortedNodes.isEmpty() || !mNodeStates.isEmpty();
+    return !mBindings.isEmpty() || !mSortedNodes.isEmpty() || mFreeNodeIdCount != mNodeIdCount;
   }
 }
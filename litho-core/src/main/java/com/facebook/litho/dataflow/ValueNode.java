@@ -34,6 +34,7 @@ public abstract class ValueNode {
   private ArrayList<ValueNode> mOutputs = null;
   private float mValue;
   private long mTimeNs = 0;
+  private int mGraphId = DataFlowGraph.NO_NODE_ID;
 
   /**
    * @return the most recently calculated value from {@link #calculateValue}.
@@ -178,6 +179,18 @@ public abstract class ValueNode {
     return mInputs.valueAt(i);
   }
 
+  /**
+   * @return the id of this node in the {@link DataFlowGraph} it was added to, or {@link
+   *     DataFlowGraph#NO_NODE_ID} if it isn't part of a graph.
+   */
+  int getGraphId() {
+    return mGraphId;
+  }
+
+  void setGraphId(int graphId) {
+    mGraphId = graphId;
+  }
+
   void setInput(String name, ValueNode input) {
     if (mInputs == null) {
       mInputs = new SimpleArrayMap<>();
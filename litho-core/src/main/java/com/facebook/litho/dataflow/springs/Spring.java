@@ -175,6 +175,9 @@ public class Spring {
     }
     mStartValue = getCurrentValue();
     mEndValue = endValue;
+    if (mListeners.isEmpty()) {
+      return this;
+    }
     for (SpringListener listener : mListeners) {
       listener.onSpringEndStateChange(this);
     }
@@ -423,6 +426,10 @@ public class Spring {
       mWasAtRest = true;
       notifyAtRest = true;
     }
+    // Iterating over the listeners allocates an iterator, which would happen on each frame.
+    if (mListeners.isEmpty()) {
+      return;
+    }
     for (SpringListener listener : mListeners) {
       // starting to move
       if (notifyActivate) {
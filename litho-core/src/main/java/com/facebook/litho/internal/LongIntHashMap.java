@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.internal;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive long keys to primitive int values using open addressing with linear
+ * probing. Unlike {@link android.support.v4.util.LongSparseArray}, lookups and insertions are
+ * constant time on average regardless of the order of the keys, and values are not boxed.
+ */
+public class LongIntHashMap {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private long[] mKeys;
+  private int[] mValues;
+  private boolean[] mUsed;
+  private int mSize;
+
+  public LongIntHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public LongIntHashMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Associates the given value to the given key, replacing the previous value if any.
+   */
+  public void put(long key, int value) {
+    if (mSize + 1 > mKeys.length * LOAD_FACTOR) {
+      rehash(mKeys.length * 2);
+    }
+
+    final int index = indexOf(key);
+    if (!mUsed[index]) {
+      mUsed[index] = true;
+      mKeys[index] = key;
+      mSize++;
+    }
+
+    mValues[index] = value;
+  }
+
+  /**
+   * @return the value associated to the given key or valueIfAbsent if there is none.
+   */
+  public int get(long key, int valueIfAbsent) {
+    final int index = indexOf(key);
+    return mUsed[index] ? mValues[index] : valueIfAbsent;
+  }
+
+  public boolean containsKey(long key) {
+    return mUsed[indexOf(key)];
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Removes all the entries, keeping the allocated capacity.
+   */
+  public void clear() {
+    if (mSize == 0) {
+      return;
+    }
+
+    Arrays.fill(mUsed, false);
+    mSize = 0;
+  }
+
+  /**
+   * Makes sure the map can hold the given number of entries without rehashing.
+   */
+  public void ensureCapacity(int expectedSize) {
+    final int capacity = capacityFor(expectedSize);
+    if (capacity > mKeys.length) {
+      rehash(capacity);
+    }
+  }
+
+  /**
+   * @return the index of the slot holding the given key, or of the free slot where it should be
+   *     inserted.
+   */
+  private int indexOf(long key) {
+    final int mask = mKeys.length - 1;
+    int index = hash(key) & mask;
+
+    while (mUsed[index] && mKeys[index] != key) {
+      index = (index + 1) & mask;
+    }
+
+    return index;
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldKeys = mKeys;
+    final int[] oldValues = mValues;
+    final boolean[] oldUsed = mUsed;
+
+    allocate(capacity);
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        final int index = indexOf(oldKeys[i]);
+        mUsed[index] = true;
+        mKeys[index] = oldKeys[i];
+        mValues[index] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    mKeys = new long[capacity];
+    mValues = new int[capacity];
+    mUsed = new boolean[capacity];
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      capacity <<= 1;
+    }
+
+    return capacity;
+  }
+
+  private static int hash(long key) {
+    // Spread the bits of the key, as LayoutOutput ids only differ in a few of them.
+    long h = key * 0x9E3779B97F4A7C15L;
+    h ^= (h >>> 32);
+    return (int) (h ^ (h >>> 16));
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import com.facebook.litho.annotations.Prop;
+import com.facebook.litho.sections.Children;
+import com.facebook.litho.sections.SectionContext;
+import com.facebook.litho.sections.annotations.GroupSectionSpec;
+import com.facebook.litho.sections.annotations.OnCreateChildren;
+import com.facebook.litho.widget.Text;
+
+/**
+ * Dummy {@link GroupSectionSpec} creating a tree of two levels of group sections: numberOfGroups
+ * nested groups keyed "group0", "group1"..., each with numberOfDummy single components.
+ */
+@GroupSectionSpec
+public class NestedGroupSectionSpec {
+
+  @OnCreateChildren
+  protected static Children onCreateChildren(
+      SectionContext c, @Prop int numberOfGroups, @Prop int numberOfDummy) {
+    Children.Builder builder = Children.create();
+
+    if (numberOfGroups == 0) {
+      for (int i = 0; i < numberOfDummy; i++) {
+        builder.child(SingleComponentSection.create(c)
+            .component(Text.create(c).text("Lol hi " + i).build())
+            .key("key" + i)
+            .build());
+      }
+      return builder.build();
+    }
+
+    for (int i = 0; i < numberOfGroups; i++) {
+      builder.child(NestedGroupSection.create(c)
+          .numberOfGroups(0)
+          .numberOfDummy(numberOfDummy)
+          .key("group" + i)
+          .build());
+    }
+    return builder.build();
+  }
+}
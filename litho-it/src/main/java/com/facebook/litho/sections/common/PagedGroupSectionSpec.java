@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import com.facebook.litho.annotations.FromEvent;
+import com.facebook.litho.annotations.OnEvent;
+import com.facebook.litho.annotations.Prop;
+import com.facebook.litho.sections.Children;
+import com.facebook.litho.sections.SectionContext;
+import com.facebook.litho.sections.annotations.GroupSectionSpec;
+import com.facebook.litho.sections.annotations.OnCreateChildren;
+import com.facebook.litho.widget.ComponentRenderInfo;
+import com.facebook.litho.widget.RenderInfo;
+import com.facebook.litho.widget.Text;
+
+/**
+ * Dummy {@link GroupSectionSpec} rendering the items of a {@link PagedDataSource} with a {@link
+ * PagedDataSectionSpec}.
+ */
+@GroupSectionSpec
+public class PagedGroupSectionSpec {
+
+  @OnCreateChildren
+  protected static Children onCreateChildren(
+      SectionContext c, @Prop PagedDataSource<String> dataSource) {
+    return Children.create()
+        .child(PagedDataSection.<String>create(c)
+            .dataSource(dataSource)
+            .renderEventHandler(PagedGroupSection.onRender(c))
+            .renderPlaceholderEventHandler(PagedGroupSection.onRenderPlaceholder(c)))
+        .build();
+  }
+
+  @OnEvent(RenderEvent.class)
+  static RenderInfo onRender(SectionContext c, @FromEvent Object model) {
+    return ComponentRenderInfo.create()
+        .component(Text.create(c).text(model.toString()).build())
+        .build();
+  }
+
+  @OnEvent(RenderPlaceholderEvent.class)
+  static RenderInfo onRenderPlaceholder(SectionContext c, @FromEvent int index) {
+    return ComponentRenderInfo.create()
+        .component(Text.create(c).text("Loading " + index).build())
+        .build();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.AdaptiveMountContentPool.DECAY_WINDOW_MS;
+import static com.facebook.litho.AdaptiveMountContentPool.MAX_ADAPTIVE_SIZE;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class AdaptiveMountContentPoolTest {
+
+  private static final int BASE_SIZE = 3;
+
+  private AdaptiveMountContentPool mPool;
+  private long mNowMs;
+
+  @Before
+  public void setup() {
+    mNowMs = 0;
+    mPool = new AdaptiveMountContentPool("test", BASE_SIZE, mNowMs);
+  }
+
+  @Test
+  public void testGrowsToPeakDemand() {
+    acquire(10);
+    release(10);
+
+    assertThat(mPool.getMaxSize()).isEqualTo(10);
+    assertThat(mPool.getCurrentSize()).isEqualTo(10);
+
+    final PoolStats stats = mPool.getStats();
+    assertThat(stats.getDroppedReleaseCount()).isEqualTo(0);
+    assertThat(stats.getHighWaterMark()).isEqualTo(10);
+
+    acquire(10);
+    assertThat(mPool.getStats().getHitCount()).isEqualTo(10);
+  }
+
+  @Test
+  public void testDoesNotGrowPastMaxAdaptiveSize() {
+    acquire(MAX_ADAPTIVE_SIZE + 10);
+    release(MAX_ADAPTIVE_SIZE + 10);
+
+    assertThat(mPool.getMaxSize()).isEqualTo(MAX_ADAPTIVE_SIZE);
+    assertThat(mPool.getCurrentSize()).isEqualTo(MAX_ADAPTIVE_SIZE);
+    assertThat(mPool.getStats().getDroppedReleaseCount()).isEqualTo(10);
+  }
+
+  @Test
+  public void testDoesNotGrowIfPoolingIsDisabled() {
+    mPool = new AdaptiveMountContentPool("test", 0, mNowMs);
+
+    acquire(5);
+    release(5);
+
+    assertThat(mPool.getMaxSize()).isEqualTo(0);
+    assertThat(mPool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testShrinksAfterDecayWindowWithLowerDemand() {
+    acquire(10);
+    release(10);
+
+    // The peak of the current window is still 10.
+    mNowMs += DECAY_WINDOW_MS;
+    mPool.decayIfNeeded(mNowMs);
+    assertThat(mPool.getMaxSize()).isEqualTo(10);
+
+    // Nothing was in use during the last window.
+    mNowMs += DECAY_WINDOW_MS;
+    mPool.decayIfNeeded(mNowMs);
+    assertThat(mPool.getMaxSize()).isEqualTo(BASE_SIZE);
+    assertThat(mPool.getCurrentSize()).isEqualTo(BASE_SIZE);
+  }
+
+  @Test
+  public void testKeepsCapacityWhileDemandIsSustained() {
+    for (int i = 0; i < 5; i++) {
+      acquire(8);
+      release(8);
+      mNowMs += DECAY_WINDOW_MS;
+      mPool.decayIfNeeded(mNowMs);
+    }
+
+    assertThat(mPool.getMaxSize()).isEqualTo(8);
+  }
+
+  @Test
+  public void testItemsThatAreNeverReleasedDoNotKeepCapacity() {
+    acquire(10);
+
+    mNowMs += DECAY_WINDOW_MS;
+    mPool.decayIfNeeded(mNowMs);
+    assertThat(mPool.getMaxSize()).isEqualTo(10);
+
+    mNowMs += DECAY_WINDOW_MS;
+    mPool.decayIfNeeded(mNowMs);
+    assertThat(mPool.getMaxSize()).isEqualTo(BASE_SIZE);
+
+    acquire(2);
+    release(2);
+    assertThat(mPool.getMaxSize()).isEqualTo(BASE_SIZE);
+  }
+
+  @Test
+  public void testTrim() {
+    acquire(10);
+    release(10);
+
+    mPool.trim();
+
+    assertThat(mPool.getCurrentSize()).isEqualTo(0);
+    assertThat(mPool.getMaxSize()).isEqualTo(BASE_SIZE);
+  }
+
+  @Test
+  public void testDroppedItemsAreNotTrackedAsPreallocated() {
+    acquire(10);
+    release(10);
+    mPool.acquire(mNowMs);
+    assertThat(mPool.releasePreallocated(new Object(), mNowMs)).isTrue();
+    assertThat(mPool.getPreallocatedCount()).isEqualTo(1);
+
+    // The preallocated item is the last one and goes away when the pool shrinks.
+    mNowMs += 2 * DECAY_WINDOW_MS;
+    mPool.decayIfNeeded(mNowMs);
+    mNowMs += DECAY_WINDOW_MS;
+    mPool.decayIfNeeded(mNowMs);
+
+    assertThat(mPool.getMaxSize()).isEqualTo(BASE_SIZE);
+    assertThat(mPool.getPreallocatedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTrimDropsPreallocatedItems() {
+    mPool.releasePreallocated(new Object(), mNowMs);
+    mPool.releasePreallocated(new Object(), mNowMs);
+
+    mPool.trim();
+
+    assertThat(mPool.getPreallocatedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testAcquiringPreallocatedItemStopsTrackingIt() {
+    final Object item = new Object();
+    mPool.releasePreallocated(item, mNowMs);
+
+    assertThat(mPool.acquire(mNowMs)).isSameAs(item);
+    assertThat(mPool.consumePreallocated(item)).isTrue();
+    assertThat(mPool.getPreallocatedCount()).isEqualTo(0);
+    assertThat(mPool.consumePreallocated(item)).isFalse();
+  }
+
+  private void acquire(int count) {
+    for (int i = 0; i < count; i++) {
+      mPool.acquire(mNowMs);
+    }
+  }
+
+  private void release(int count) {
+    for (int i = 0; i < count; i++) {
+      mPool.release(new Object(), mNowMs);
+    }
+  }
+}
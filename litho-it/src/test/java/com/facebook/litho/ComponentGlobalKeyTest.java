@@ -14,21 +14,27 @@ import static com.facebook.litho.FrameworkLogEvents.PARAM_MESSAGE;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.view.View;
 import com.facebook.litho.annotations.OnCreateLayout;
+import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.testing.TestDrawableComponent;
 import com.facebook.litho.testing.TestViewComponent;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import com.facebook.litho.testing.util.InlineLayoutSpec;
 import com.facebook.litho.widget.CardClip;
 import com.facebook.litho.widget.Text;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
 import org.robolectric.RuntimeEnvironment;
 
 @RunWith(ComponentsTestRunner.class)
@@ -38,6 +44,7 @@ public class ComponentGlobalKeyTest {
 
   private ComponentContext mContext;
   private ComponentsLogger mComponentsLogger;
+  private boolean mDefaultUseCompactGlobalKeys;
 
   @Before
   public void setup() {
@@ -47,6 +54,12 @@ public class ComponentGlobalKeyTest {
     when(mComponentsLogger.getKeyCollisionStackTraceBlacklist()).thenCallRealMethod();
     when(mComponentsLogger.getKeyCollisionStackTraceKeywords()).thenCallRealMethod();
     mContext = new ComponentContext(RuntimeEnvironment.application, mLogTag, mComponentsLogger);
+    mDefaultUseCompactGlobalKeys = ComponentsConfiguration.useCompactGlobalKeys;
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.useCompactGlobalKeys = mDefaultUseCompactGlobalKeys;
   }
 
   @Test
@@ -244,6 +257,119 @@ public class ComponentGlobalKeyTest {
         layoutSpecId + "" + textSpecId + "0", getComponentAt(lithoView, 3).getGlobalKey());
   }
 
+  @Test
+  public void testCompactGlobalKeysHaveFixedLengthAndAreUnique() {
+    ComponentsConfiguration.useCompactGlobalKeys = true;
+
+    final Component root = getNestedSiblingsComponent();
+    final ComponentTree componentTree =
+        ComponentTree.create(mContext, root).incrementalMount(false).layoutDiffing(false).build();
+    final LithoView lithoView = getLithoView(componentTree);
+
+    final Set<String> globalKeys = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      final String globalKey = getComponentAt(lithoView, i).getGlobalKey();
+      Assert.assertEquals(GlobalKeys.KEY_LENGTH, globalKey.length());
+      globalKeys.add(globalKey);
+    }
+
+    Assert.assertEquals(4, globalKeys.size());
+  }
+
+  @Test
+  public void testCompactGlobalKeysAreStableAcrossLayouts() {
+    ComponentsConfiguration.useCompactGlobalKeys = true;
+
+    final LithoView firstLithoView =
+        getLithoView(
+            ComponentTree.create(mContext, getNestedSiblingsComponent())
+                .incrementalMount(false)
+                .layoutDiffing(false)
+                .build());
+    final LithoView secondLithoView =
+        getLithoView(
+            ComponentTree.create(mContext, getNestedSiblingsComponent())
+                .incrementalMount(false)
+                .layoutDiffing(false)
+                .build());
+
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(
+          getComponentAt(firstLithoView, i).getGlobalKey(),
+          getComponentAt(secondLithoView, i).getGlobalKey());
+    }
+  }
+
+  @Test
+  public void testCompactGlobalKeyCollisionIsNotHandledAsDuplicateKey() {
+    ComponentsConfiguration.useCompactGlobalKeys = true;
+
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          @OnCreateLayout
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            // Simulate a component of another subtree whose global key has the same hash.
+            final long childHash =
+                GlobalKeys.combine(GlobalKeys.hash(c.getComponentScope().getGlobalKey()), "key");
+            final Component collidingComponent = TestDrawableComponent.create(c).build();
+            Whitebox.setInternalState(
+                collidingComponent, "mGlobalKey", GlobalKeys.toKey(childHash));
+            c.getKeyHandler().registerKey(collidingComponent);
+
+            return Column.create(c).child(Text.create(c).text("").key("key")).build();
+          }
+        };
+
+    final ComponentTree componentTree =
+        ComponentTree.create(mContext, component)
+            .incrementalMount(false)
+            .layoutDiffing(false)
+            .build();
+    final LithoView lithoView = getLithoView(componentTree);
+
+    final long childHash = GlobalKeys.combine(GlobalKeys.hash(component.getKey()), "key");
+    final String childKey = GlobalKeys.toKey(childHash);
+    Assert.assertEquals(
+        GlobalKeys.toKey(GlobalKeys.rehash(childHash)),
+        getComponentAt(lithoView, 0).getGlobalKey());
+
+    final LogEvent event = mComponentsLogger.newEvent(EVENT_WARNING);
+    event.addParam(
+        PARAM_MESSAGE,
+        "The manual key "
+            + childKey
+            + " you are setting on this Text is a duplicate and will be changed into a unique "
+            + "one. This will result in unexpected behavior if you don't change it.");
+    verify(mComponentsLogger, never()).log(eq(event));
+  }
+
+  private Component getNestedSiblingsComponent() {
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          @OnCreateLayout
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            return Column.create(c)
+                .child(Text.create(mContext).text(""))
+                .child(Text.create(mContext).text(""))
+                .build();
+          }
+        };
+
+    return new InlineLayoutSpec() {
+      @Override
+      @OnCreateLayout
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        return Column.create(c)
+            .child(component)
+            .child(Text.create(mContext).text(""))
+            .child(Text.create(mContext).text(""))
+            .build();
+      }
+    };
+  }
+
   private static Component getComponentAt(LithoView lithoView, int index) {
     return lithoView.getMountItemAt(index).getComponent();
   }
@@ -19,6 +19,8 @@ import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.view.View;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -99,4 +101,44 @@ public class ComponentsPoolsTest {
     // This has a different underlying Context, so it should not be preallocated for this Context
     assertThat(canAddMountContentToPool(mContext3, mLifecycle)).isTrue();
   }
+
+  @Test
+  public void testGetPoolStatsIncludesMountContentPools() {
+    ComponentsPools.acquireMountContent(mContext1, mLifecycle.getTypeId());
+    release(mContext1, mLifecycle, mMountContent);
+    acquireMountContent(mContext1, mLifecycle.getTypeId());
+
+    PoolStats mountContentStats = null;
+    for (PoolStats stats : ComponentsPools.getPoolStats()) {
+      if (stats.getName().startsWith("MountContent")) {
+        mountContentStats = stats;
+      }
+    }
+
+    assertThat(mountContentStats).isNotNull();
+    assertThat(mountContentStats.getReleaseCount()).isEqualTo(1);
+    assertThat(mountContentStats.getHitCount()).isEqualTo(1);
+    assertThat(mountContentStats.getHighWaterMark()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLogPoolStats() {
+    final List<LogEvent> events = new ArrayList<>();
+    final ComponentsLogger logger =
+        new TestComponentsLogger() {
+          @Override
+          public void onEvent(LogEvent event) {
+            events.add(event);
+          }
+        };
+
+    ComponentsPools.logPoolStats(logger);
+
+    assertThat(events).hasSize(ComponentsPools.getPoolStats().size());
+    for (LogEvent event : events) {
+      assertThat(event.getEventId()).isEqualTo(FrameworkLogEvents.EVENT_POOL_STATS);
+      assertThat((String) event.getParam(FrameworkLogEvents.PARAM_POOL_NAME)).isNotNull();
+    }
+  }
 }
+
@@ -10,22 +10,135 @@
 package com.facebook.litho;
 
 import static com.facebook.litho.DisplayListPrefetcher.AverageDLPrefetchDuration.INITIAL_SIZE;
+import static com.facebook.litho.DisplayListPrefetcher.MAX_DEFERRED_RUNS;
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.facebook.litho.DisplayListPrefetcher.AverageDLPrefetchDuration;
+import com.facebook.litho.displaylist.DisplayList;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 
 /**
  * Test for {@link DisplayListPrefetcher}
  */
+@RunWith(ComponentsTestRunner.class)
 public class DisplayListPrefetcherTest {
 
+  private static final String FAST_COMPONENT = "DisplayListPrefetcherTestFast";
+  private static final String SLOW_COMPONENT = "DisplayListPrefetcherTestSlow";
+
   AverageDLPrefetchDuration mAverageDLPrefetchDuration;
+  private DisplayListPrefetcher mPrefetcher;
+  private List<LayoutOutput> mCreatedOutputs;
 
   @Before
   public void setup() {
     mAverageDLPrefetchDuration = new AverageDLPrefetchDuration();
+    mPrefetcher = new DisplayListPrefetcher();
+    mCreatedOutputs = new ArrayList<>();
+
+    // Slow outputs never fit before the next frame, fast ones always do.
+    mPrefetcher.seedPrefetchDurations(
+        Collections.singletonMap(SLOW_COMPONENT, TimeUnit.SECONDS.toNanos(100)));
+  }
+
+  @Test
+  public void testPrefetchesLayoutsClosestToViewportFirst() {
+    final LayoutOutput unknown = createOutput(FAST_COMPONENT);
+    final LayoutOutput far = createOutput(FAST_COMPONENT);
+    final LayoutOutput firstClose = createOutput(FAST_COMPONENT);
+    final LayoutOutput secondClose = createOutput(FAST_COMPONENT);
+    final LayoutOutput visible = createOutput(FAST_COMPONENT);
+
+    mPrefetcher.addLayoutState(new FakeLayoutState(unknown), null);
+    mPrefetcher.addLayoutState(new FakeLayoutState(far), distance(10));
+    mPrefetcher.addLayoutState(new FakeLayoutState(firstClose), distance(2));
+    mPrefetcher.addLayoutState(new FakeLayoutState(secondClose), distance(2));
+    mPrefetcher.addLayoutState(new FakeLayoutState(visible), distance(0));
+
+    prefetch();
+
+    assertThat(mCreatedOutputs).containsExactly(visible, firstClose, secondClose, far, unknown);
+    assertThat(mPrefetcher.hasPrefetchItems()).isFalse();
+  }
+
+  @Test
+  public void testCountsHitsAndMisses() {
+    final LayoutOutput drawn = createOutput(FAST_COMPONENT);
+    final LayoutOutput first = createOutput(FAST_COMPONENT);
+    final LayoutOutput second = createOutput(FAST_COMPONENT);
+    drawn.setDisplayList(createValidDisplayList());
+
+    mPrefetcher.addLayoutState(new FakeLayoutState(drawn, first, second), distance(0));
+    prefetch();
+
+    assertThat(mCreatedOutputs).containsExactly(first, second);
+    assertThat(mPrefetcher.getHitCount()).isEqualTo(2);
+    assertThat(mPrefetcher.getMissCount()).isEqualTo(1);
+    assertThat(mPrefetcher.getAbortCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOutputThatDoesNotFitDoesNotStarveOtherLayouts() {
+    final LayoutOutput slow = createOutput(SLOW_COMPONENT);
+    final LayoutOutput behindSlow = createOutput(FAST_COMPONENT);
+    final LayoutOutput other = createOutput(FAST_COMPONENT);
+
+    mPrefetcher.addLayoutState(new FakeLayoutState(slow, behindSlow), distance(0));
+    mPrefetcher.addLayoutState(new FakeLayoutState(other), distance(1));
+    prefetch();
+
+    assertThat(mCreatedOutputs).containsExactly(other);
+    assertThat(mPrefetcher.getAbortCount()).isEqualTo(1);
+    assertThat(mPrefetcher.hasPrefetchItems()).isTrue();
+  }
+
+  @Test
+  public void testOutputThatDoesNotFitIsDroppedAfterMaxDeferredRuns() {
+    final LayoutOutput slow = createOutput(SLOW_COMPONENT);
+    final LayoutOutput behindSlow = createOutput(FAST_COMPONENT);
+    mPrefetcher.addLayoutState(new FakeLayoutState(slow, behindSlow), distance(0));
+
+    for (int i = 0; i < MAX_DEFERRED_RUNS - 1; i++) {
+      prefetch();
+      assertThat(mCreatedOutputs).isEmpty();
+    }
+
+    prefetch();
+
+    assertThat(mCreatedOutputs).containsExactly(behindSlow);
+    assertThat(mPrefetcher.getHitCount()).isEqualTo(1);
+    assertThat(mPrefetcher.getAbortCount()).isEqualTo(MAX_DEFERRED_RUNS);
+    assertThat(mPrefetcher.hasPrefetchItems()).isFalse();
+  }
+
+  @Test
+  public void testReadsDistanceOncePerLayoutAndRun() {
+    final AtomicInteger closeDistanceCount = new AtomicInteger();
+    final AtomicInteger farDistanceCount = new AtomicInteger();
+    final LayoutOutput firstClose = createOutput(FAST_COMPONENT);
+    final LayoutOutput secondClose = createOutput(FAST_COMPONENT);
+    final LayoutOutput far = createOutput(FAST_COMPONENT);
+
+    mPrefetcher.addLayoutState(new FakeLayoutState(far), distance(10, farDistanceCount));
+    mPrefetcher.addLayoutState(
+        new FakeLayoutState(firstClose, secondClose), distance(0, closeDistanceCount));
+    prefetch();
+
+    assertThat(mCreatedOutputs).containsExactly(firstClose, secondClose, far);
+    assertThat(closeDistanceCount.get()).isEqualTo(1);
+    assertThat(farDistanceCount.get()).isEqualTo(1);
   }
 
   @Test
@@ -57,4 +170,110 @@ public class DisplayListPrefetcherTest {
     mAverageDLPrefetchDuration.put("Image" + initialSize, 111L);
     assertThat(111L).isEqualTo(mAverageDLPrefetchDuration.get("Image" + initialSize));
   }
+
+  @Test
+  public void testAverageDLPrefetchDurationPutIfAbsentKeepsLearnedItems() {
+    mAverageDLPrefetchDuration.put("Image", 100L);
+    mAverageDLPrefetchDuration.putIfAbsent("Image", 300L);
+    mAverageDLPrefetchDuration.putIfAbsent("Text", 50L);
+    assertThat(mAverageDLPrefetchDuration.get("Image")).isEqualTo(100L);
+    assertThat(mAverageDLPrefetchDuration.get("Text")).isEqualTo(50L);
+  }
+
+  @Test
+  public void testAverageDLPrefetchDurationExportedItemsSeedNewInstance() {
+    mAverageDLPrefetchDuration.put("Image", 100L);
+    mAverageDLPrefetchDuration.put("Text", 50L);
+    final Map<String, Long> exported = mAverageDLPrefetchDuration.toMap();
+
+    final AverageDLPrefetchDuration seeded = new AverageDLPrefetchDuration();
+    for (Map.Entry<String, Long> entry : exported.entrySet()) {
+      seeded.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+
+    assertThat(exported).hasSize(2);
+    assertThat(seeded.get("Image")).isEqualTo(100L);
+    assertThat(seeded.get("Text")).isEqualTo(50L);
+  }
+
+  private void prefetch() {
+    mPrefetcher.prefetchUntil(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+  }
+
+  private static LayoutOutput createOutput(String componentType) {
+    final Component component = mock(Component.class);
+    when(component.getSimpleName()).thenReturn(componentType);
+
+    final LayoutOutput output = new LayoutOutput();
+    output.setComponent(component);
+    output.setDisplayListContainer(new DisplayListContainer());
+    return output;
+  }
+
+  private static DisplayList createValidDisplayList() {
+    final DisplayList displayList = mock(DisplayList.class);
+    when(displayList.isValid()).thenReturn(true);
+    return displayList;
+  }
+
+  private static DisplayListPrefetcher.ViewportDistanceProvider distance(final int distance) {
+    return distance(distance, new AtomicInteger());
+  }
+
+  private static DisplayListPrefetcher.ViewportDistanceProvider distance(
+      final int distance, final AtomicInteger callCount) {
+    return new DisplayListPrefetcher.ViewportDistanceProvider() {
+      @Override
+      public int getDistanceToViewport() {
+        callCount.incrementAndGet();
+        return distance;
+      }
+    };
+  }
+
+  /** A {@link LayoutState} whose queue for display lists prefetching holds the given outputs. */
+  private class FakeLayoutState extends LayoutState {
+
+    private final LinkedList<LayoutOutput> mOutputs = new LinkedList<>();
+
+    private FakeLayoutState(LayoutOutput... outputs) {
+      Collections.addAll(mOutputs, outputs);
+    }
+
+    @Override
+    boolean isActivityValid() {
+      return true;
+    }
+
+    @Override
+    void createDisplayList(LayoutOutput output) {
+      mCreatedOutputs.add(output);
+      output.setDisplayList(createValidDisplayList());
+    }
+
+    @Override
+    boolean hasItemsForDLPrefetch() {
+      return !mOutputs.isEmpty();
+    }
+
+    @Override
+    int trimDisplayListItemsQueue() {
+      int validDisplayListCount = 0;
+      while (!mOutputs.isEmpty() && mOutputs.peek().hasValidDisplayList()) {
+        mOutputs.remove();
+        validDisplayListCount++;
+      }
+      return validDisplayListCount;
+    }
+
+    @Override
+    LayoutOutput peekNextLayoutOutputForDLPrefetch() {
+      return mOutputs.peek();
+    }
+
+    @Override
+    LayoutOutput getNextLayoutOutputForDLPrefetch() {
+      return mOutputs.remove();
+    }
+  }
 }
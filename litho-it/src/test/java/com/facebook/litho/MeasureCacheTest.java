@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.UNSPECIFIED;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.graphics.drawable.ColorDrawable;
+import android.view.ContextThemeWrapper;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tests {@link MeasureCache}
+ */
+@RunWith(ComponentsTestRunner.class)
+public class MeasureCacheTest {
+
+  private static final int WIDTH_SPEC = makeSizeSpec(100, EXACTLY);
+  private static final int HEIGHT_SPEC = makeSizeSpec(0, UNSPECIFIED);
+
+  private boolean mDefaultUseMeasureCache;
+  private MeasureCache mMeasureCache;
+  private Configuration mConfiguration;
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mDefaultUseMeasureCache = ComponentsConfiguration.useMeasureCache;
+    // A single segment, so that the least recently used order is global.
+    mMeasureCache = new MeasureCache(2, 1);
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mConfiguration = mContext.getResources().getConfiguration();
+    MeasureCache.getInstance().clear();
+    MeasuredComponent.sMeasureCount = 0;
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.useMeasureCache = mDefaultUseMeasureCache;
+    MeasureCache.getInstance().clear();
+  }
+
+  @Test
+  public void testGetReturnsMeasureOfEquivalentComponent() {
+    final MeasuredComponent measured = new MeasuredComponent("text");
+    measured.measuredLineCount = 3;
+    mMeasureCache.put(mContext, measured, WIDTH_SPEC, HEIGHT_SPEC, 40, 30);
+
+    final MeasuredComponent equivalent = new MeasuredComponent("text");
+    final MeasureCache.Entry entry =
+        mMeasureCache.get(equivalent, WIDTH_SPEC, HEIGHT_SPEC, mContext);
+
+    assertThat(entry).isNotNull();
+    assertThat(entry.getWidth()).isEqualTo(40);
+    assertThat(entry.getHeight()).isEqualTo(30);
+
+    entry.copyInterStageInto(equivalent);
+    assertThat(equivalent.measuredLineCount).isEqualTo(3);
+
+    assertThat(mMeasureCache.getHitCount()).isEqualTo(1);
+    assertThat(mMeasureCache.getMissCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCachedInterStageIsNotAffectedByLaterMeasures() {
+    final MeasuredComponent measured = new MeasuredComponent("text");
+    measured.measuredLineCount = 3;
+    mMeasureCache.put(mContext, measured, WIDTH_SPEC, HEIGHT_SPEC, 40, 30);
+
+    measured.measuredLineCount = 5;
+
+    final MeasuredComponent equivalent = new MeasuredComponent("text");
+    mMeasureCache
+        .get(equivalent, WIDTH_SPEC, HEIGHT_SPEC, mContext)
+        .copyInterStageInto(equivalent);
+
+    assertThat(equivalent.measuredLineCount).isEqualTo(3);
+  }
+
+  @Test
+  public void testGetMissesForDifferentPropsSpecsConfigurationOrTheme() {
+    put(mContext, "text", 1);
+
+    final Configuration otherConfiguration = new Configuration(mConfiguration);
+    otherConfiguration.fontScale = mConfiguration.fontScale * 2;
+    final ComponentContext otherConfigurationContext =
+        new ComponentContext(RuntimeEnvironment.application);
+    Whitebox.setInternalState(
+        otherConfigurationContext,
+        "mResourceCache",
+        ResourceCache.getLatest(otherConfiguration));
+    final ComponentContext otherThemeContext =
+        new ComponentContext(
+            new ContextThemeWrapper(RuntimeEnvironment.application, android.R.style.Theme_Black));
+
+    assertThat(
+            mMeasureCache.get(new MeasuredComponent("other"), WIDTH_SPEC, HEIGHT_SPEC, mContext))
+        .isNull();
+    assertThat(
+            mMeasureCache.get(
+                new MeasuredComponent("text"), makeSizeSpec(200, EXACTLY), HEIGHT_SPEC, mContext))
+        .isNull();
+    assertThat(
+            mMeasureCache.get(
+                new MeasuredComponent("text"),
+                WIDTH_SPEC,
+                HEIGHT_SPEC,
+                otherConfigurationContext))
+        .isNull();
+    assertThat(
+            mMeasureCache.get(
+                new MeasuredComponent("text"), WIDTH_SPEC, HEIGHT_SPEC, otherThemeContext))
+        .isNull();
+
+    assertThat(mMeasureCache.getMissCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void testSegmentsShareMaxSize() {
+    final MeasureCache measureCache = new MeasureCache(8, 4);
+    for (int i = 0; i < 100; i++) {
+      measureCache.put(
+          mContext, new MeasuredComponent("text" + i), WIDTH_SPEC, HEIGHT_SPEC, i, i);
+    }
+
+    assertThat(measureCache.size()).isLessThanOrEqualTo(8);
+    assertThat(measureCache.getEvictionCount()).isEqualTo(100 - measureCache.size());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedMeasure() {
+    put(mContext, "a", 1);
+    put(mContext, "b", 2);
+    lookUp("a");
+    put(mContext, "c", 3);
+
+    assertThat(mMeasureCache.size()).isEqualTo(2);
+    assertThat(mMeasureCache.getEvictionCount()).isEqualTo(1);
+    assertThat(lookUp("a")).isNotNull();
+    assertThat(lookUp("b")).isNull();
+    assertThat(lookUp("c")).isNotNull();
+  }
+
+  @Test
+  public void testGetMissesForNonEquivalentComponentWithSamePropsHash() {
+    // "Aa" and "BB" have the same hash code.
+    put(mContext, "Aa", 1);
+
+    assertThat(lookUp("BB")).isNull();
+    assertThat(lookUp("Aa")).isNotNull();
+  }
+
+  @Test
+  public void testRemoveEntriesOfDropsMeasuresOfContextAndItsWrappers() {
+    final ComponentContext otherContext =
+        new ComponentContext(new ContextWrapper(RuntimeEnvironment.application));
+    put(mContext, "a", 1);
+    put(otherContext, "b", 2);
+
+    mMeasureCache.removeEntriesOf(RuntimeEnvironment.application);
+
+    assertThat(mMeasureCache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEquivalentComponentsAreMeasuredOnceAcrossLayouts() {
+    ComponentsConfiguration.useMeasureCache = true;
+
+    final MeasuredComponent first = new MeasuredComponent("text");
+    final MeasuredComponent second = new MeasuredComponent("text");
+    LayoutState.calculate(mContext, createColumn(first, second), -1, WIDTH_SPEC, HEIGHT_SPEC);
+
+    final MeasuredComponent third = new MeasuredComponent("text");
+    LayoutState.calculate(mContext, createColumn(third), -1, WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertThat(MeasuredComponent.sMeasureCount).isEqualTo(1);
+  }
+
+  @Test
+  public void testEquivalentComponentsAreMeasuredAgainWhenCacheIsDisabled() {
+    ComponentsConfiguration.useMeasureCache = false;
+
+    final MeasuredComponent first = new MeasuredComponent("text");
+    final MeasuredComponent second = new MeasuredComponent("text");
+    LayoutState.calculate(mContext, createColumn(first, second), -1, WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertThat(MeasuredComponent.sMeasureCount).isEqualTo(2);
+    assertThat(MeasureCache.getInstance().size()).isEqualTo(0);
+  }
+
+  private void put(ComponentContext context, String text, int size) {
+    mMeasureCache.put(
+        context, new MeasuredComponent(text), WIDTH_SPEC, HEIGHT_SPEC, size, size);
+  }
+
+  private MeasureCache.Entry lookUp(String text) {
+    return mMeasureCache.get(new MeasuredComponent(text), WIDTH_SPEC, HEIGHT_SPEC, mContext);
+  }
+
+  private static Component createColumn(final Component... children) {
+    return new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        final ComponentLayout.ContainerBuilder column = Column.create(c);
+        for (Component child : children) {
+          column.child(child);
+        }
+
+        return column.build();
+      }
+    };
+  }
+
+  /**
+   * A component whose measure depends on its text prop and which has an inter stage output set
+   * when it is measured.
+   */
+  private static class MeasuredComponent extends Component<MeasuredComponent> {
+
+    private final String mText;
+    private int measuredLineCount;
+    private static int sMeasureCount;
+
+    MeasuredComponent(String text) {
+      mText = text;
+    }
+
+    @Override
+    public String getSimpleName() {
+      return "MeasuredComponent";
+    }
+
+    @Override
+    public boolean isEquivalentTo(Component<?> other) {
+      return other instanceof MeasuredComponent && mText.equals(((MeasuredComponent) other).mText);
+    }
+
+    @Override
+    public long getPropsHash() {
+      return mText.hashCode();
+    }
+
+    @Override
+    protected void copyInterStageImpl(Component<MeasuredComponent> component) {
+      measuredLineCount = ((MeasuredComponent) component).measuredLineCount;
+    }
+
+    @Override
+    public MountType getMountType() {
+      return MountType.DRAWABLE;
+    }
+
+    @Override
+    protected Object onCreateMountContent(ComponentContext c) {
+      return new ColorDrawable();
+    }
+
+    @Override
+    protected boolean canMeasure() {
+      return true;
+    }
+
+    @Override
+    protected void onMeasure(
+        ComponentContext c,
+        ComponentLayout layout,
+        int widthSpec,
+        int heightSpec,
+        Size size,
+        Component<?> component) {
+      final MeasuredComponent measuredComponent = (MeasuredComponent) component;
+      sMeasureCount++;
+      measuredComponent.measuredLineCount = 4;
+
+      size.width = SizeSpec.getSize(widthSpec);
+      size.height = measuredComponent.mText.length() * 10;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.content.ContextWrapper;
+import com.facebook.litho.testing.TestViewComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(ComponentsTestRunner.class)
+public class MountContentPreallocationSchedulerTest {
+
+  private ComponentContext mContext;
+  private List<Runnable> mPostedRunnables;
+  private LayoutHandler mLayoutHandler;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mPostedRunnables = new ArrayList<>();
+    mLayoutHandler =
+        new LayoutHandler() {
+          @Override
+          public boolean post(Runnable runnable) {
+            mPostedRunnables.add(runnable);
+            return true;
+          }
+
+          @Override
+          public void removeCallbacks(Runnable runnable) {
+            mPostedRunnables.remove(runnable);
+          }
+
+          @Override
+          public void removeCallbacksAndMessages(Object token) {
+            mPostedRunnables.clear();
+          }
+        };
+
+    // Allocates the mount content pools of the context.
+    ComponentsPools.acquireMountContent(mContext, 0);
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsPools.clearMountContentPools();
+  }
+
+  @Test
+  public void testPreallocatesAfterLayout() {
+    final MountContentPreallocationScheduler scheduler =
+        new MountContentPreallocationScheduler(mLayoutHandler, 100);
+    createTreeWithViews(scheduler, 4);
+
+    assertThat(mPostedRunnables).hasSize(1);
+    runPostedRunnables();
+
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(mContext)).isEqualTo(4);
+  }
+
+  @Test
+  public void testPreallocatesWithinBudget() {
+    final MountContentPreallocationScheduler scheduler =
+        new MountContentPreallocationScheduler(mLayoutHandler, 2);
+    createTreeWithViews(scheduler, 4);
+    createTreeWithViews(scheduler, 4);
+
+    runPostedRunnables();
+
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(mContext)).isEqualTo(2);
+  }
+
+  @Test
+  public void testSkipsSpecsWhosePoolIsFull() {
+    final MountContentPreallocationScheduler scheduler =
+        new MountContentPreallocationScheduler(mLayoutHandler, 100);
+    final int poolSize = TestViewComponent.create(mContext).build().poolSize();
+    createTreeWithViews(scheduler, poolSize + 5);
+
+    runPostedRunnables();
+
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(mContext)).isEqualTo(poolSize);
+  }
+
+  @Test
+  public void testCancelRemovesPendingTree() {
+    final MountContentPreallocationScheduler scheduler =
+        new MountContentPreallocationScheduler(mLayoutHandler, 100);
+    final ComponentTree componentTree = createTreeWithViews(scheduler, 4);
+
+    scheduler.cancel(componentTree);
+
+    assertThat(mPostedRunnables).isEmpty();
+    assertThat(scheduler.preallocateNext()).isFalse();
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(mContext)).isEqualTo(0);
+  }
+
+  @Test
+  public void testAcquiringPreallocatedContentFreesBudget() {
+    final MountContentPreallocationScheduler scheduler =
+        new MountContentPreallocationScheduler(mLayoutHandler, 2);
+    final ComponentTree componentTree = createTreeWithViews(scheduler, 4);
+    runPostedRunnables();
+
+    final PreallocationStats statsBefore = ComponentsPools.getPreallocationStats();
+    final int typeId = TestViewComponent.create(mContext).build().getTypeId();
+    assertThat(ComponentsPools.acquireMountContent(mContext, typeId)).isNotNull();
+
+    final PreallocationStats statsAfter = ComponentsPools.getPreallocationStats();
+    assertThat(statsAfter.getAcquiredPreallocatedCount())
+        .isEqualTo(statsBefore.getAcquiredPreallocatedCount() + 1);
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(mContext)).isEqualTo(1);
+
+    scheduler.schedule(componentTree);
+    runPostedRunnables();
+
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(mContext)).isEqualTo(2);
+  }
+
+  @Test
+  public void testSkipsContextWithoutPools() {
+    final ComponentContext context =
+        new ComponentContext(new ContextWrapper(RuntimeEnvironment.application));
+    final MountContentPreallocationScheduler scheduler =
+        new MountContentPreallocationScheduler(mLayoutHandler, 100);
+    final PreallocationStats statsBefore = ComponentsPools.getPreallocationStats();
+    createTreeWithViews(context, scheduler, 4);
+
+    runPostedRunnables();
+
+    final PreallocationStats statsAfter = ComponentsPools.getPreallocationStats();
+    assertThat(statsAfter.getPreallocatedCount()).isEqualTo(statsBefore.getPreallocatedCount());
+    assertThat(ComponentsPools.getPreallocatedMountContentCount(context)).isEqualTo(0);
+  }
+
+  @Test
+  public void testAcquiringWithoutPoolCountsMiss() {
+    final int typeId = TestViewComponent.create(mContext).build().getTypeId();
+    final PreallocationStats statsBefore = ComponentsPools.getPreallocationStats();
+
+    assertThat(ComponentsPools.acquireMountContent(mContext, typeId)).isNull();
+
+    final PreallocationStats statsAfter = ComponentsPools.getPreallocationStats();
+    assertThat(statsAfter.getAcquireMissCount())
+        .isEqualTo(statsBefore.getAcquireMissCount() + 1);
+  }
+
+  private ComponentTree createTreeWithViews(
+      MountContentPreallocationScheduler scheduler,
+      int viewCount) {
+    return createTreeWithViews(mContext, scheduler, viewCount);
+  }
+
+  private static ComponentTree createTreeWithViews(
+      ComponentContext context,
+      MountContentPreallocationScheduler scheduler,
+      final int viewCount) {
+    final ComponentTree componentTree =
+        ComponentTree.create(
+                context,
+                new InlineLayoutSpec() {
+                  @Override
+                  protected ComponentLayout onCreateLayout(ComponentContext c) {
+                    final ComponentLayout.ContainerBuilder column = Column.create(c);
+                    for (int i = 0; i < viewCount; i++) {
+                      column.child(TestViewComponent.create(c));
+                    }
+
+                    return column.build();
+                  }
+                })
+            .mountContentPreallocationScheduler(scheduler)
+            .build();
+
+    componentTree.setSizeSpec(makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY));
+    return componentTree;
+  }
+
+  private void runPostedRunnables() {
+    while (!mPostedRunnables.isEmpty()) {
+      mPostedRunnables.remove(0).run();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.testing.helper.ComponentTestHelper.mountComponent;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.TestComponent;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tests mounting, remounting and unmounting trees with a large number of nested hosts, which
+ * exercises the lookups of hosts and of their children in {@link MountState}. These tests only
+ * check that the right items are mounted and unmounted, they don't measure how the lookups scale.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class MountStateLargeTreeTest {
+
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+  }
+
+  @Test
+  public void testMountAndUnmount100Outputs() {
+    testMountAndUnmount(50);
+  }
+
+  @Test
+  public void testMountAndUnmount1000Outputs() {
+    testMountAndUnmount(500);
+  }
+
+  @Test
+  public void testMountAndUnmount5000Outputs() {
+    testMountAndUnmount(2500);
+  }
+
+  /**
+   * Mounts a tree of hostCount hosts each holding one drawable, then replaces it with a tree whose
+   * hosts have different ids so that every previous host is unmounted together with its mounted
+   * child, and finally unmounts everything.
+   */
+  private void testMountAndUnmount(int hostCount) {
+    final List<TestComponent> columnChildren = createChildren(hostCount);
+    final LithoView lithoView = mountComponent(mContext, createTree(columnChildren, false));
+
+    assertThat(lithoView.getChildCount()).isEqualTo(hostCount);
+    assertAllMounted(columnChildren, true);
+    for (int i = 0; i < lithoView.getMountItemCount(); i++) {
+      assertThat(lithoView.getMountItemAt(i).getLayoutOutputId()).isNotEqualTo(-1);
+    }
+
+    final List<TestComponent> rowChildren = createChildren(hostCount);
+    mountComponent(mContext, lithoView, createTree(rowChildren, true));
+
+    assertThat(lithoView.getChildCount()).isEqualTo(hostCount);
+    assertAllMounted(columnChildren, false);
+    assertAllMounted(rowChildren, true);
+
+    lithoView.unmountAllItems();
+
+    assertThat(lithoView.getChildCount()).isEqualTo(0);
+    assertAllMounted(rowChildren, false);
+  }
+
+  private List<TestComponent> createChildren(int count) {
+    final List<TestComponent> children = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      children.add(TestDrawableComponent.create(mContext).build());
+    }
+
+    return children;
+  }
+
+  private static InlineLayoutSpec createTree(
+      final List<TestComponent> children,
+      final boolean useRowHosts) {
+    return new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        final ComponentLayout.ContainerBuilder root = Column.create(c);
+        for (TestComponent child : children) {
+          final ComponentLayout.ContainerBuilder host =
+              useRowHosts ? Row.create(c) : Column.create(c);
+          root.child(host.wrapInView().child(child));
+        }
+
+        return root.build();
+      }
+    };
+  }
+
+  private static void assertAllMounted(List<TestComponent> components, boolean mounted) {
+    for (TestComponent component : components) {
+      assertThat(component.isMounted()).isEqualTo(mounted);
+    }
+  }
+}
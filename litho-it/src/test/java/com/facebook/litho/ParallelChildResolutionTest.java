@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tests that resolving the children of a layout with {@link
+ * ComponentsConfiguration#parallelChildResolution} creates the same tree as resolving them
+ * sequentially.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class ParallelChildResolutionTest {
+
+  private static final int WIDE_CHILDREN_COUNT = 40;
+
+  private boolean mDefaultParallelChildResolution;
+  private int mDefaultParallelChildResolutionThreshold;
+
+  @Before
+  public void setup() {
+    mDefaultParallelChildResolution = ComponentsConfiguration.parallelChildResolution;
+    mDefaultParallelChildResolutionThreshold =
+        ComponentsConfiguration.parallelChildResolutionThreshold;
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.parallelChildResolution = mDefaultParallelChildResolution;
+    ComponentsConfiguration.parallelChildResolutionThreshold =
+        mDefaultParallelChildResolutionThreshold;
+  }
+
+  @Test
+  public void testParallelResolutionCreatesSameTreeAsSequentialResolution() {
+    ComponentsConfiguration.parallelChildResolution = false;
+    final String sequentialTree = describe(createWideTree());
+
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = 2;
+    final String parallelTree = describe(createWideTree());
+
+    assertThat(parallelTree).isEqualTo(sequentialTree);
+  }
+
+  @Test
+  public void testDeferredResolutionBelowThresholdCreatesSameTreeAsSequentialResolution() {
+    ComponentsConfiguration.parallelChildResolution = false;
+    final String sequentialTree = describe(createWideTree());
+
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = Integer.MAX_VALUE;
+    final String deferredTree = describe(createWideTree());
+
+    assertThat(deferredTree).isEqualTo(sequentialTree);
+  }
+
+  @Test
+  public void testChildrenResolvingToNoLayoutAreSkipped() {
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = 2;
+
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            return Column.create(c)
+                .child(new EmptyComponent())
+                .child(TestDrawableComponent.create(c).key("first"))
+                .child(new EmptyComponent())
+                .child(Row.create(c))
+                .child(TestDrawableComponent.create(c).key("second"))
+                .child(new EmptyComponent())
+                .build();
+          }
+        };
+
+    final InternalNode root = LayoutState.createTree(component, createContext());
+
+    assertThat(root.getChildCount()).isEqualTo(3);
+    assertThat(root.getChildAt(0).getRootComponent().getKey()).isEqualTo("first");
+    assertThat(root.getChildAt(1).getRootComponent()).isNull();
+    assertThat(root.getChildAt(2).getRootComponent().getKey()).isEqualTo("second");
+  }
+
+  @Test
+  public void testContainersCreatedOutsideOfLayoutCreationResolveTheirChildren() {
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = 2;
+    final ComponentContext c = createContext();
+
+    final InternalNode built =
+        (InternalNode)
+            Column.create(c).child(new RowComponent(0)).child(new RowComponent(0)).build();
+    assertThat(built.getChildCount()).isEqualTo(2);
+
+    final InternalNode measured =
+        (InternalNode) Column.create(c).child(new RowComponent(0)).child(new RowComponent(0));
+    measured.calculateLayout();
+    assertThat(measured.getChildCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testSameComponentAddedTwiceIsResolvedTwice() {
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = 2;
+
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            final Component<TestDrawableComponent> child = TestDrawableComponent.create(c).build();
+            return Column.create(c).child(child).child(child).build();
+          }
+        };
+
+    final InternalNode root = LayoutState.createTree(component, createContext());
+
+    assertThat(root.getChildCount()).isEqualTo(2);
+    assertThat(root.getChildAt(0).getRootComponent().getLifecycle())
+        .isInstanceOf(TestDrawableComponent.class);
+    assertThat(root.getChildAt(1).getRootComponent().getLifecycle())
+        .isInstanceOf(TestDrawableComponent.class);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testExceptionsThrownByChildrenArePropagated() {
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = 2;
+
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            final ComponentLayout.ContainerBuilder column = Column.create(c);
+            for (int i = 0; i < WIDE_CHILDREN_COUNT; i++) {
+              column.child(TestDrawableComponent.create(c));
+            }
+
+            return column
+                .child(
+                    new InlineLayoutSpec() {
+                      @Override
+                      protected ComponentLayout onCreateLayout(ComponentContext c) {
+                        throw new IllegalStateException();
+                      }
+                    })
+                .build();
+          }
+        };
+
+    LayoutState.createTree(component, createContext());
+  }
+
+  @Test
+  public void testFailedLayoutClearsPendingChildren() {
+    ComponentsConfiguration.parallelChildResolution = true;
+    ComponentsConfiguration.parallelChildResolutionThreshold = 2;
+    final ComponentContext[] scopedContext = new ComponentContext[1];
+
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            scopedContext[0] = c;
+            Column.create(c)
+                .child(TestDrawableComponent.create(c))
+                .child(TestDrawableComponent.create(c));
+            throw new IllegalStateException();
+          }
+        };
+
+    try {
+      LayoutState.createTree(component, createContext());
+    } catch (IllegalStateException expected) {
+      // The layout failed as expected.
+    }
+
+    assertThat(scopedContext[0].isCreatingLayout()).isFalse();
+    assertThat((Object) Whitebox.getInternalState(scopedContext[0], "mPendingChildren")).isNull();
+  }
+
+  private static ComponentContext createContext() {
+    return new ComponentContext(
+        RuntimeEnvironment.application,
+        ComponentsPools.acquireStateHandler(),
+        new KeyHandler(null));
+  }
+
+  private static InternalNode createWideTree() {
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            final ComponentLayout.ContainerBuilder column = Column.create(c);
+
+            for (int i = 0; i < WIDE_CHILDREN_COUNT; i++) {
+              switch (i % 4) {
+                case 0:
+                  column.child(TestDrawableComponent.create(c));
+                  break;
+                case 1:
+                  column.child(new RowComponent(i % 3 + 1));
+                  break;
+                case 2:
+                  column.child(Row.create(c).child(TestDrawableComponent.create(c)));
+                  break;
+                default:
+                  column.child(new EmptyComponent());
+                  break;
+              }
+            }
+
+            return column.build();
+          }
+        };
+
+    return LayoutState.createTree(component, createContext());
+  }
+
+  private static String describe(InternalNode root) {
+    final StringBuilder builder = new StringBuilder();
+    describe(root, 0, builder);
+    return builder.toString();
+  }
+
+  private static void describe(InternalNode node, int depth, StringBuilder builder) {
+    for (int i = 0; i < depth; i++) {
+      builder.append("  ");
+    }
+
+    final Component<?> component = node.getRootComponent();
+    builder
+        .append(component == null ? "container" : component.getGlobalKey())
+        .append('\n');
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      describe(node.getChildAt(i), depth + 1, builder);
+    }
+  }
+
+  private static class RowComponent extends InlineLayoutSpec {
+
+    private final int mChildrenCount;
+
+    RowComponent(int childrenCount) {
+      mChildrenCount = childrenCount;
+    }
+
+    @Override
+    protected ComponentLayout onCreateLayout(ComponentContext c) {
+      final ComponentLayout.ContainerBuilder row = Row.create(c);
+      for (int i = 0; i < mChildrenCount; i++) {
+        row.child(TestDrawableComponent.create(c));
+      }
+
+      return row.build();
+    }
+  }
+
+  private static class EmptyComponent extends InlineLayoutSpec {
+
+    @Override
+    protected ComponentLayout onCreateLayout(ComponentContext c) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.ComponentLifecycle.StateUpdate;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.os.Looper;
+import com.facebook.litho.ComponentLifecycle.StateContainer;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.helper.ComponentTestHelper;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Tests the layouts calculated for state updates with {@link
+ * ComponentsConfiguration#partialRelayoutOnStateUpdate}.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class PartialRelayoutTest {
+
+  private static final int SIBLING_COUNT = 3;
+
+  private boolean mDefaultPartialRelayoutOnStateUpdate;
+  private boolean mDefaultPersistInternalNodeTree;
+  private boolean mDefaultIsDebugModeEnabled;
+  private ShadowLooper mLayoutThreadShadowLooper;
+  private ComponentContext mContext;
+  private AtomicInteger mRootLayoutCount;
+  private AtomicInteger mSiblingLayoutCount;
+
+  @Before
+  public void setup() throws Exception {
+    mDefaultPartialRelayoutOnStateUpdate = ComponentsConfiguration.partialRelayoutOnStateUpdate;
+    mDefaultPersistInternalNodeTree = ComponentsConfiguration.persistInternalNodeTree;
+    mDefaultIsDebugModeEnabled = ComponentsConfiguration.isDebugModeEnabled;
+    // The layout tree of the mounted layout is never taken in debug mode.
+    ComponentsConfiguration.isDebugModeEnabled = false;
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mLayoutThreadShadowLooper =
+        Shadows.shadowOf(
+            (Looper) Whitebox.invokeMethod(ComponentTree.class, "getDefaultLayoutThreadLooper"));
+    mRootLayoutCount = new AtomicInteger();
+    mSiblingLayoutCount = new AtomicInteger();
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = mDefaultPartialRelayoutOnStateUpdate;
+    ComponentsConfiguration.persistInternalNodeTree = mDefaultPersistInternalNodeTree;
+    ComponentsConfiguration.isDebugModeEnabled = mDefaultIsDebugModeEnabled;
+  }
+
+  @Test
+  public void testStateUpdateOnlyCreatesLayoutOfUpdatedComponent() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle);
+    resetLayoutCounts(toggle);
+
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(toggle.mLayoutCount.get()).isEqualTo(1);
+    assertThat(mRootLayoutCount.get()).isEqualTo(0);
+    assertThat(mSiblingLayoutCount.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPartialRelayoutCreatesSameOutputsAsFullLayout() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = false;
+    final ToggleComponent fullToggle = new ToggleComponent();
+    final ComponentTree fullTree = createAndMountTree(fullToggle);
+    final String outputsBeforeUpdate = describe(fullTree.getMainThreadLayoutState());
+    fullTree.updateStateAsync(fullToggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+    final String fullOutputs = describe(fullTree.getMainThreadLayoutState());
+
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent partialToggle = new ToggleComponent();
+    final ComponentTree partialTree = createAndMountTree(partialToggle);
+    partialTree.updateStateAsync(partialToggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+    final String partialOutputs = describe(partialTree.getMainThreadLayoutState());
+
+    assertThat(fullOutputs).isNotEqualTo(outputsBeforeUpdate);
+    assertThat(partialOutputs).isEqualTo(fullOutputs);
+  }
+
+  @Test
+  public void testConsecutiveStateUpdatesKeepTheirState() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle);
+    final String outputsBeforeUpdates = describe(componentTree.getMainThreadLayoutState());
+    resetLayoutCounts(toggle);
+
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(toggle.mLayoutCount.get()).isEqualTo(2);
+    assertThat(mRootLayoutCount.get()).isEqualTo(0);
+    assertThat(describe(componentTree.getMainThreadLayoutState()))
+        .isEqualTo(outputsBeforeUpdates);
+  }
+
+  @Test
+  public void testPartialRelayoutDoesNotShareComponentsWithPreviousLayout() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle);
+    final List<Component> previousComponents =
+        getOutputComponents(componentTree.getMainThreadLayoutState());
+
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    final List<Component> components =
+        getOutputComponents(componentTree.getMainThreadLayoutState());
+    assertThat(components).hasSameSizeAs(previousComponents);
+    for (Component component : components) {
+      for (Component previousComponent : previousComponents) {
+        assertThat(component).isNotSameAs(previousComponent);
+      }
+    }
+  }
+
+  @Test
+  public void testLayoutTreeIsNotTakenFromMountedLayoutWhenPersisted() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    ComponentsConfiguration.persistInternalNodeTree = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle);
+    final LayoutState previousLayoutState = componentTree.getMainThreadLayoutState();
+    resetLayoutCounts(toggle);
+
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(mRootLayoutCount.get()).isEqualTo(1);
+    assertThat(componentTree.getMainThreadLayoutState()).isNotSameAs(previousLayoutState);
+    assertThat(componentTree.getMainThreadLayoutState().getLayoutRoot()).isNotNull();
+  }
+
+  @Test
+  public void testStateUpdatesOfSeveralComponentsCreateWholeLayout() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ToggleComponent otherToggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle, otherToggle);
+    resetLayoutCounts(toggle);
+
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    componentTree.updateStateAsync(otherToggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(mRootLayoutCount.get()).isEqualTo(1);
+    assertThat(mSiblingLayoutCount.get()).isEqualTo(SIBLING_COUNT + 1);
+  }
+
+  @Test
+  public void testLayoutTreeIsKeptWhenItCannotBeReused() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle);
+    final LayoutState layoutState = componentTree.getMainThreadLayoutState();
+    final InternalNode layoutRoot = layoutState.getLayoutRoot();
+    resetLayoutCounts(toggle);
+
+    // No component of the tree has this key, so the partial relayout falls back to a full one.
+    final LayoutState partialLayoutState =
+        LayoutState.calculateForStateUpdate(
+            mContext,
+            toggle,
+            componentTree.mId,
+            (int) Whitebox.getInternalState(componentTree, "mWidthSpec"),
+            (int) Whitebox.getInternalState(componentTree, "mHeightSpec"),
+            "unknownKey",
+            layoutState,
+            false,
+            null,
+            false,
+            false,
+            true);
+
+    assertThat(partialLayoutState).isNull();
+    assertThat(layoutState.getLayoutRoot()).isSameAs(layoutRoot);
+
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(toggle.mLayoutCount.get()).isEqualTo(1);
+    assertThat(mRootLayoutCount.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLayoutTreeIsReleasedWhenLayoutIsReplaced() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ToggleComponent toggle = new ToggleComponent();
+    final ToggleComponent otherToggle = new ToggleComponent();
+    final ComponentTree componentTree = createAndMountTree(toggle, otherToggle);
+    final LayoutState previousLayoutState = componentTree.getMainThreadLayoutState().acquireRef();
+    assertThat(previousLayoutState.getLayoutRoot()).isNotNull();
+
+    // The state updates of several components are laid out from scratch.
+    componentTree.updateStateAsync(toggle.getGlobalKey(), new ToggleStateUpdate());
+    componentTree.updateStateAsync(otherToggle.getGlobalKey(), new ToggleStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(componentTree.getMainThreadLayoutState()).isNotSameAs(previousLayoutState);
+    assertThat(componentTree.getMainThreadLayoutState().getLayoutRoot()).isNotNull();
+    assertThat(previousLayoutState.getLayoutRoot()).isNull();
+
+    previousLayoutState.releaseRef();
+  }
+
+  @Test
+  public void testLayoutTreeIsNotKeptWithoutStatefulComponents() {
+    ComponentsConfiguration.partialRelayoutOnStateUpdate = true;
+    final ComponentTree componentTree = createAndMountTree();
+
+    assertThat(componentTree.getMainThreadLayoutState().getLayoutRoot()).isNull();
+  }
+
+  private void resetLayoutCounts(ToggleComponent toggle) {
+    mRootLayoutCount.set(0);
+    mSiblingLayoutCount.set(0);
+    toggle.mLayoutCount.set(0);
+  }
+
+  private ComponentTree createAndMountTree(final ToggleComponent... toggles) {
+    final Component root =
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            mRootLayoutCount.incrementAndGet();
+
+            final ComponentLayout.ContainerBuilder column = Column.create(c);
+            for (int i = 0; i < SIBLING_COUNT; i++) {
+              column.child(new SiblingComponent(mSiblingLayoutCount));
+            }
+            for (ToggleComponent toggle : toggles) {
+              column.child(toggle);
+            }
+            column.child(new SiblingComponent(mSiblingLayoutCount));
+
+            return column.build();
+          }
+        };
+
+    final ComponentTree componentTree = ComponentTree.create(mContext, root)
+        .incrementalMount(false)
+        .build();
+    final LithoView lithoView = new LithoView(mContext);
+    lithoView.setComponentTree(componentTree);
+    lithoView.onAttachedToWindow();
+    ComponentTestHelper.measureAndLayout(lithoView);
+
+    return componentTree;
+  }
+
+  private static List<Component> getOutputComponents(LayoutState layoutState) {
+    final List<Component> components = new ArrayList<>();
+    for (int i = 0, count = layoutState.getMountableOutputCount(); i < count; i++) {
+      components.add(layoutState.getMountableOutputAt(i).getComponent());
+    }
+
+    return components;
+  }
+
+  private static String describe(LayoutState layoutState) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0, count = layoutState.getMountableOutputCount(); i < count; i++) {
+      final LayoutOutput output = layoutState.getMountableOutputAt(i);
+      builder
+          .append(output.getComponent().getSimpleName())
+          .append(' ')
+          .append(output.getBounds())
+          .append('\n');
+    }
+
+    return builder.toString();
+  }
+
+  private static class SiblingComponent extends InlineLayoutSpec {
+
+    private final AtomicInteger mLayoutCount;
+
+    SiblingComponent(AtomicInteger layoutCount) {
+      mLayoutCount = layoutCount;
+    }
+
+    @Override
+    protected ComponentLayout onCreateLayout(ComponentContext c) {
+      mLayoutCount.incrementAndGet();
+      return Column.create(c).child(TestDrawableComponent.create(c).heightPx(10)).build();
+    }
+  }
+
+  private static class ToggleStateContainer implements StateContainer {
+    private boolean mExpanded;
+  }
+
+  private static class ToggleStateUpdate implements StateUpdate {
+
+    @Override
+    public void updateState(StateContainer stateContainer, Component component) {
+      ((ToggleComponent) component).mStateContainer.mExpanded =
+          !((ToggleStateContainer) stateContainer).mExpanded;
+    }
+  }
+
+  /**
+   * A component whose height depends on its state.
+   */
+  private static class ToggleComponent extends InlineLayoutSpec {
+
+    private final AtomicInteger mLayoutCount = new AtomicInteger();
+    private ToggleStateContainer mStateContainer = new ToggleStateContainer();
+
+    @Override
+    public String getSimpleName() {
+      return "ToggleComponent";
+    }
+
+    @Override
+    protected boolean hasState() {
+      return true;
+    }
+
+    @Override
+    protected void createInitialState(ComponentContext c, Component component) {
+      ((ToggleComponent) component).mStateContainer.mExpanded = false;
+    }
+
+    @Override
+    protected void transferState(
+        ComponentContext c, StateContainer stateContainer, Component component) {
+      ((ToggleComponent) component).mStateContainer.mExpanded =
+          ((ToggleStateContainer) stateContainer).mExpanded;
+    }
+
+    @Override
+    protected StateContainer getStateContainer() {
+      return mStateContainer;
+    }
+
+    @Override
+    public Component<InlineLayoutSpec> makeShallowCopy() {
+      final ToggleComponent component = (ToggleComponent) super.makeShallowCopy();
+      component.mStateContainer = new ToggleStateContainer();
+      return component;
+    }
+
+    @Override
+    protected ComponentLayout onCreateLayout(ComponentContext c) {
+      mLayoutCount.incrementAndGet();
+      return Column.create(c)
+          .child(TestDrawableComponent.create(c).heightPx(mStateContainer.mExpanded ? 40 : 10))
+          .build();
+    }
+  }
+}
@@ -33,4 +33,51 @@ public class RecyclePoolTest {
 
     assertEquals(0, pool.getCurrentSize());
   }
+
+  @Test
+  public void testClearDropsPreallocatedItems() {
+    final RecyclePool<Object> pool = new RecyclePool<>("test", 10, true);
+    pool.releasePreallocated(new Object());
+    pool.releasePreallocated(new Object());
+
+    assertEquals(2, pool.getPreallocatedCount());
+
+    pool.clear();
+
+    assertEquals(0, pool.getPreallocatedCount());
+  }
+
+  @Test
+  public void testStats() {
+    final RecyclePool<Object> pool = new RecyclePool<>("test", 2, false);
+
+    assertEquals(null, pool.acquire());
+    pool.release(new Object());
+    pool.release(new Object());
+    pool.release(new Object());
+    pool.acquire();
+
+    final PoolStats stats = pool.getStats();
+    assertEquals("test", stats.getName());
+    assertEquals(2, stats.getMaxSize());
+    assertEquals(1, stats.getCurrentSize());
+    assertEquals(2, stats.getAcquireCount());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(0.5f, stats.getHitRate(), 0f);
+    assertEquals(3, stats.getReleaseCount());
+    assertEquals(1, stats.getDroppedReleaseCount());
+    assertEquals(2, stats.getHighWaterMark());
+  }
+
+  @Test
+  public void testClearDoesNotCountAsAcquires() {
+    final RecyclePool<Object> pool = new RecyclePool<>("test", 10, true);
+    pool.release(new Object());
+
+    pool.clear();
+
+    assertEquals(0, pool.getStats().getAcquireCount());
+    assertEquals(1, pool.getStats().getHighWaterMark());
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.content.res.Configuration;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tests {@link ResourceCache}
+ */
+@RunWith(ComponentsTestRunner.class)
+public class ResourceCacheTest {
+
+  @Before
+  public void setup() {
+    ResourceCache.clear();
+  }
+
+  @After
+  public void tearDown() {
+    ResourceCache.clear();
+  }
+
+  @Test
+  public void testKeepsCachesOfRecentConfigurations() {
+    final Configuration portrait = createConfiguration(Configuration.ORIENTATION_PORTRAIT);
+    final Configuration landscape = createConfiguration(Configuration.ORIENTATION_LANDSCAPE);
+
+    final ResourceCache portraitCache = ResourceCache.getLatest(portrait);
+    portraitCache.put(1, "portrait");
+    final ResourceCache landscapeCache = ResourceCache.getLatest(landscape);
+    landscapeCache.put(1, "landscape");
+
+    assertThat(landscapeCache).isNotSameAs(portraitCache);
+    assertThat(ResourceCache.getLatest(portrait)).isSameAs(portraitCache);
+    assertThat((String) ResourceCache.getLatest(portrait).get(1)).isEqualTo("portrait");
+    assertThat(ResourceCache.getLatest(landscape)).isSameAs(landscapeCache);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedConfigurations() {
+    final Configuration first = createConfiguration(Configuration.ORIENTATION_PORTRAIT);
+    final ResourceCache firstCache = ResourceCache.getLatest(first);
+
+    for (int i = 0; i < ResourceCache.MAX_CONFIGURATIONS; i++) {
+      final Configuration configuration = createConfiguration(Configuration.ORIENTATION_PORTRAIT);
+      configuration.fontScale = 2 + i;
+      ResourceCache.getLatest(configuration);
+    }
+
+    assertThat(ResourceCache.getLatest(first)).isNotSameAs(firstCache);
+  }
+
+  @Test
+  public void testCacheIsKeyedOnCopyOfConfiguration() {
+    final Configuration configuration = createConfiguration(Configuration.ORIENTATION_PORTRAIT);
+    final ResourceCache cache = ResourceCache.getLatest(configuration);
+
+    configuration.orientation = Configuration.ORIENTATION_LANDSCAPE;
+
+    assertThat(ResourceCache.getLatest(configuration)).isNotSameAs(cache);
+    assertThat(ResourceCache.getLatest(createConfiguration(Configuration.ORIENTATION_PORTRAIT)))
+        .isSameAs(cache);
+  }
+
+  @Test
+  public void testSizesEntriesByEstimatedBytes() {
+    assertThat(LruResourceCache.estimateSizeBytes(new int[100]))
+        .isGreaterThan(LruResourceCache.estimateSizeBytes(new int[1]));
+    assertThat(LruResourceCache.estimateSizeBytes(new String[] {"a", "b", "c"}))
+        .isGreaterThan(LruResourceCache.estimateSizeBytes("a"));
+
+    final int[] array = new int[100];
+    final LruResourceCache probe = new LruResourceCache(new Configuration(), Integer.MAX_VALUE);
+    probe.put(1, array);
+    final int arraySizeBytes = probe.getSizeBytes();
+
+    final LruResourceCache cache = new LruResourceCache(new Configuration(), arraySizeBytes * 2);
+    cache.put(1, array);
+    cache.put(2, array);
+    cache.put(3, array);
+
+    assertThat(cache.getSizeBytes()).isLessThanOrEqualTo(arraySizeBytes * 2);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat((int[]) cache.get(1)).isNull();
+    assertThat((int[]) cache.get(3)).isSameAs(array);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPrewarmResolvesResourcesIntoCache() {
+    final ComponentContext c = new ComponentContext(RuntimeEnvironment.application);
+
+    ResourceCache.prewarm(
+        c, android.R.string.ok, android.R.color.black, android.R.dimen.app_icon_size);
+
+    final ResourceCache cache = c.getResourceCache();
+    assertThat((String) cache.get(android.R.string.ok))
+        .isEqualTo(c.getResources().getString(android.R.string.ok));
+    assertThat((Integer) cache.get(android.R.color.black))
+        .isEqualTo(c.getResources().getColor(android.R.color.black));
+    assertThat((Object) cache.get(android.R.dimen.app_icon_size)).isNull();
+  }
+
+  private static Configuration createConfiguration(int orientation) {
+    final Configuration configuration = new Configuration();
+    configuration.setToDefaults();
+    configuration.orientation = orientation;
+    return configuration;
+  }
+}
@@ -15,19 +15,27 @@ import static com.facebook.litho.SizeSpec.makeSizeSpec;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.os.Looper;
 import com.facebook.litho.ComponentLifecycle.StateContainer;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.dataflow.ChoreographerCompat;
+import com.facebook.litho.dataflow.ChoreographerCompatImpl;
 import com.facebook.litho.testing.helper.ComponentTestHelper;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import com.facebook.litho.testing.util.InlineLayoutSpec;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.powermock.reflect.Whitebox;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
@@ -166,6 +174,12 @@ public class StateUpdatesTest {
     ComponentTestHelper.measureAndLayout(lithoView);
   }
 
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.coalesceAsyncStateUpdates = false;
+    ChoreographerCompatImpl.setInstance(null);
+  }
+
   @Test
   public void testNoCrashOnSameComponentKey() {
     final Component child1 = new TestComponent();
@@ -283,6 +297,83 @@ public class StateUpdatesTest {
     assertThat(mTestComponent.getComponentForStateUpdate().getCount()).isEqualTo(INITIAL_COUNT_STATE_VALUE + 2);
   }
 
+  @Test
+  public void testCoalescedStateUpdatesRunOneLayoutPerFrame() {
+    ComponentsConfiguration.coalesceAsyncStateUpdates = true;
+    final ChoreographerCompat choreographer = mock(ChoreographerCompat.class);
+    ChoreographerCompatImpl.setInstance(choreographer);
+
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+
+    final ArgumentCaptor<ChoreographerCompat.FrameCallback> frameCallback =
+        ArgumentCaptor.forClass(ChoreographerCompat.FrameCallback.class);
+    verify(choreographer, times(1)).postFrameCallback(frameCallback.capture());
+    assertThat(getPendingStateUpdatesForComponent(mTestComponent)).hasSize(3);
+
+    frameCallback.getValue().doFrame(0);
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(mTestComponent.getComponentForStateUpdate().getCount())
+        .isEqualTo(INITIAL_COUNT_STATE_VALUE + 3);
+    assertThat(mComponentTree.getMergedStateUpdateCount()).isEqualTo(2);
+    assertThat(mComponentTree.getCoalescedStateUpdateLayoutCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCoalescedStateUpdatesInDifferentFramesRunOneLayoutEach() {
+    ComponentsConfiguration.coalesceAsyncStateUpdates = true;
+    final ChoreographerCompat choreographer = mock(ChoreographerCompat.class);
+    ChoreographerCompatImpl.setInstance(choreographer);
+    final ArgumentCaptor<ChoreographerCompat.FrameCallback> frameCallback =
+        ArgumentCaptor.forClass(ChoreographerCompat.FrameCallback.class);
+
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    verify(choreographer, times(1)).postFrameCallback(frameCallback.capture());
+    frameCallback.getValue().doFrame(0);
+    mLayoutThreadShadowLooper.runOneTask();
+
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    verify(choreographer, times(2)).postFrameCallback(frameCallback.capture());
+    frameCallback.getValue().doFrame(0);
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(mTestComponent.getComponentForStateUpdate().getCount())
+        .isEqualTo(INITIAL_COUNT_STATE_VALUE + 2);
+    assertThat(mComponentTree.getMergedStateUpdateCount()).isEqualTo(0);
+    assertThat(mComponentTree.getCoalescedStateUpdateLayoutCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testReleaseRemovesPostedFrameCallback() {
+    ComponentsConfiguration.coalesceAsyncStateUpdates = true;
+    final ChoreographerCompat choreographer = mock(ChoreographerCompat.class);
+    ChoreographerCompatImpl.setInstance(choreographer);
+    final ArgumentCaptor<ChoreographerCompat.FrameCallback> frameCallback =
+        ArgumentCaptor.forClass(ChoreographerCompat.FrameCallback.class);
+
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    verify(choreographer).postFrameCallback(frameCallback.capture());
+
+    mComponentTree.release();
+
+    verify(choreographer).removeFrameCallback(frameCallback.getValue());
+  }
+
+  @Test
+  public void testStateUpdatesAreNotCoalescedByDefault() {
+    final ChoreographerCompat choreographer = mock(ChoreographerCompat.class);
+    ChoreographerCompatImpl.setInstance(choreographer);
+
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    mLayoutThreadShadowLooper.runOneTask();
+
+    verify(choreographer, never()).postFrameCallback(any(ChoreographerCompat.FrameCallback.class));
+    assertThat(mTestComponent.getComponentForStateUpdate().getCount())
+        .isEqualTo(INITIAL_COUNT_STATE_VALUE + 1);
+  }
+
   private StateHandler getStateHandler() {
     return Whitebox.getInternalState(mComponentTree, "mStateHandler");
   }
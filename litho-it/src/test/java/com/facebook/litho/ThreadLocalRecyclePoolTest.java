@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class ThreadLocalRecyclePoolTest {
+
+  private static final int MAX_SIZE = 10;
+  private static final int MAGAZINE_SIZE = 4;
+
+  private ThreadLocalRecyclePool<Object> mPool;
+
+  @Before
+  public void setup() {
+    mPool = new ThreadLocalRecyclePool<>("test", MAX_SIZE, MAGAZINE_SIZE);
+  }
+
+  @Test
+  public void testAcquireReturnsReleasedItemsOnSameThread() {
+    final Object first = new Object();
+    final Object second = new Object();
+
+    mPool.release(first);
+    mPool.release(second);
+
+    assertThat(mPool.getCurrentSize()).isEqualTo(2);
+    assertThat(mPool.acquire()).isSameAs(second);
+    assertThat(mPool.acquire()).isSameAs(first);
+    assertThat(mPool.acquire()).isNull();
+    assertThat(mPool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReleaseDropsItemsWhenFull() {
+    for (int i = 0; i < MAX_SIZE + 5; i++) {
+      mPool.release(new Object());
+    }
+
+    assertThat(mPool.getCurrentSize()).isEqualTo(MAX_SIZE);
+    assertThat(mPool.isFull()).isTrue();
+    assertThat(acquireAll()).hasSize(MAX_SIZE);
+    assertThat(mPool.isFull()).isFalse();
+  }
+
+  @Test
+  public void testOverflowingItemsAreSharedWithOtherThreads() throws InterruptedException {
+    for (int i = 0; i < MAX_SIZE; i++) {
+      mPool.release(new Object());
+    }
+
+    final List<Object> acquiredOnOtherThread = new ArrayList<>();
+    final Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                acquiredOnOtherThread.addAll(acquireAll());
+              }
+            });
+    thread.start();
+    thread.join();
+
+    // Two full magazines were moved to the shared depot, the rest stays with this thread.
+    assertThat(acquiredOnOtherThread).hasSize(2 * MAGAZINE_SIZE);
+    assertThat(mPool.getCurrentSize()).isEqualTo(MAX_SIZE - 2 * MAGAZINE_SIZE);
+    assertThat(acquireAll()).hasSize(MAX_SIZE - 2 * MAGAZINE_SIZE);
+  }
+
+  @Test
+  public void testItemsLeftInMagazineOfTerminatedThreadAreNotCounted()
+      throws InterruptedException {
+    final Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                for (int i = 0; i < MAGAZINE_SIZE; i++) {
+                  mPool.release(new Object());
+                }
+              }
+            });
+    thread.start();
+    thread.join();
+
+    assertThat(mPool.getCurrentSize()).isEqualTo(0);
+
+    for (int i = 0; i < MAX_SIZE; i++) {
+      mPool.release(new Object());
+    }
+
+    assertThat(mPool.getCurrentSize()).isEqualTo(MAX_SIZE);
+    assertThat(mPool.getStats().getDroppedReleaseCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testClear() {
+    for (int i = 0; i < 7; i++) {
+      mPool.release(new Object());
+    }
+
+    mPool.clear();
+
+    assertThat(mPool.getCurrentSize()).isEqualTo(0);
+    assertThat(mPool.acquire()).isNull();
+  }
+
+  @Test
+  public void testStats() {
+    mPool.acquire();
+    for (int i = 0; i < MAX_SIZE + 1; i++) {
+      mPool.release(new Object());
+    }
+    mPool.acquire();
+
+    final PoolStats stats = mPool.getStats();
+    assertThat(stats.getCurrentSize()).isEqualTo(MAX_SIZE - 1);
+    assertThat(stats.getAcquireCount()).isEqualTo(2);
+    assertThat(stats.getHitCount()).isEqualTo(1);
+    assertThat(stats.getMissCount()).isEqualTo(1);
+    assertThat(stats.getReleaseCount()).isEqualTo(MAX_SIZE + 1);
+    assertThat(stats.getDroppedReleaseCount()).isEqualTo(1);
+    assertThat(stats.getHighWaterMark()).isEqualTo(MAX_SIZE);
+  }
+
+  private List<Object> acquireAll() {
+    final List<Object> items = new ArrayList<>();
+    Object item;
+    while ((item = mPool.acquire()) != null) {
+      items.add(item);
+    }
+
+    return items;
+  }
+}
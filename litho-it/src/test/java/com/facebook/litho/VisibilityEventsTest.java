@@ -508,4 +508,127 @@ public class VisibilityEventsTest {
     lithoView.setHasTransientState(false);
     assertThat(content.getDispatchedEventHandlers()).contains(visibleEventHandler);
   }
+
+  @Test
+  public void testVisibleAndInvisibleEventsWhileScrollingThroughManyComponents() {
+    final int count = 10;
+    final TestComponent<?>[] contents = new TestComponent<?>[count];
+    final EventHandler<VisibleEvent>[] visibleEventHandlers = new EventHandler[count];
+    final EventHandler<InvisibleEvent>[] invisibleEventHandlers = new EventHandler[count];
+    for (int i = 0; i < count; i++) {
+      contents[i] = create(mContext).build();
+      visibleEventHandlers[i] = new EventHandler<>(contents[i], 1);
+      invisibleEventHandlers[i] = new EventHandler<>(contents[i], 2);
+    }
+
+    final LithoView lithoView =
+        mountComponent(
+            mContext,
+            mLithoView,
+            new InlineLayoutSpec() {
+              @Override
+              protected ComponentLayout onCreateLayout(ComponentContext c) {
+                final ComponentLayout.ContainerBuilder column = Column.create(c);
+                for (int i = 0; i < count; i++) {
+                  column.child(
+                      Layout.create(c, contents[i])
+                          .visibleHandler(visibleEventHandlers[i])
+                          .invisibleHandler(invisibleEventHandlers[i])
+                          .widthPx(10)
+                          .heightPx(10));
+                }
+                return column.build();
+              }
+            },
+            true,
+            10,
+            10 * count);
+
+    lithoView.performIncrementalMount(new Rect(LEFT, 0, RIGHT, 10), true);
+
+    for (int step = 1; step < count; step++) {
+      for (int i = 0; i < count; i++) {
+        contents[i].getDispatchedEventHandlers().clear();
+      }
+
+      lithoView.performIncrementalMount(new Rect(LEFT, step * 10, RIGHT, step * 10 + 10), true);
+
+      for (int i = 0; i < count; i++) {
+        if (i == step) {
+          assertThat(contents[i].getDispatchedEventHandlers())
+              .containsExactly(visibleEventHandlers[i]);
+        } else if (i == step - 1) {
+          assertThat(contents[i].getDispatchedEventHandlers())
+              .containsExactly(invisibleEventHandlers[i]);
+        } else {
+          assertThat(contents[i].getDispatchedEventHandlers()).isEmpty();
+        }
+      }
+    }
+
+    for (int i = 0; i < count; i++) {
+      contents[i].getDispatchedEventHandlers().clear();
+    }
+
+    // Jump back to the top, further than the previously visible range.
+    lithoView.performIncrementalMount(new Rect(LEFT, 0, RIGHT, 10), true);
+
+    assertThat(contents[0].getDispatchedEventHandlers()).containsExactly(visibleEventHandlers[0]);
+    assertThat(contents[count - 1].getDispatchedEventHandlers())
+        .containsExactly(invisibleEventHandlers[count - 1]);
+  }
+
+  @Test
+  public void testIncrementalMountAfterMountWithoutVisibilityProcessing() {
+    final int count = 10;
+    final TestComponent<?>[] contents = new TestComponent<?>[count];
+    final EventHandler<VisibleEvent>[] visibleEventHandlers = new EventHandler[count];
+    final EventHandler<InvisibleEvent>[] invisibleEventHandlers = new EventHandler[count];
+    for (int i = 0; i < count; i++) {
+      contents[i] = create(mContext).build();
+      visibleEventHandlers[i] = new EventHandler<>(contents[i], 1);
+      invisibleEventHandlers[i] = new EventHandler<>(contents[i], 2);
+    }
+
+    final LithoView lithoView =
+        mountComponent(
+            mContext,
+            mLithoView,
+            new InlineLayoutSpec() {
+              @Override
+              protected ComponentLayout onCreateLayout(ComponentContext c) {
+                final ComponentLayout.ContainerBuilder column = Column.create(c);
+                for (int i = 0; i < count; i++) {
+                  column.child(
+                      Layout.create(c, contents[i])
+                          .visibleHandler(visibleEventHandlers[i])
+                          .invisibleHandler(invisibleEventHandlers[i])
+                          .widthPx(10)
+                          .heightPx(10));
+                }
+                return column.build();
+              }
+            },
+            true,
+            10,
+            10 * count);
+
+    lithoView.performIncrementalMount(new Rect(LEFT, 0, RIGHT, 10), true);
+    for (int i = 0; i < count; i++) {
+      contents[i].getDispatchedEventHandlers().clear();
+    }
+
+    // Mounting without processing the visibility outputs invalidates the previous pass.
+    lithoView.performIncrementalMount(new Rect(LEFT, 90, RIGHT, 100), false);
+    for (int i = 0; i < count; i++) {
+      assertThat(contents[i].getDispatchedEventHandlers()).isEmpty();
+    }
+
+    lithoView.performIncrementalMount(new Rect(LEFT, 50, RIGHT, 60), true);
+
+    assertThat(contents[0].getDispatchedEventHandlers())
+        .containsExactly(invisibleEventHandlers[0]);
+    assertThat(contents[5].getDispatchedEventHandlers()).containsExactly(visibleEventHandlers[5]);
+    assertThat(contents[count - 1].getDispatchedEventHandlers()).isEmpty();
+  }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.dataflow;
+
+import static com.facebook.litho.dataflow.GraphBinding.create;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.animation.AnimatedProperties;
+import com.facebook.litho.animation.AnimatedPropertyNode;
+import com.facebook.litho.testing.AllocatedBytesCounter;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks that the frames of a running {@link DataFlowGraph} don't allocate memory.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class DataFlowGraphAllocationTest {
+
+  private static final int WARM_UP_FRAMES = 5;
+  private static final int MEASURED_FRAMES = 30;
+
+  private MockTimingSource mTestTimingSource;
+  private DataFlowGraph mDataFlowGraph;
+  private AllocatedBytesCounter mAllocatedBytesCounter;
+
+  @Before
+  public void setUp() throws Exception {
+    mAllocatedBytesCounter = AllocatedBytesCounter.assumeSupported();
+
+    mTestTimingSource = new MockTimingSource();
+    mDataFlowGraph = DataFlowGraph.create(mTestTimingSource);
+  }
+
+  @Test
+  public void testSteadyStateFramesDoNotAllocate() {
+    TimingNode timingNode = new TimingNode(10000);
+    SimpleNode middle = new SimpleNode();
+    AnimatedPropertyNode animatedPropertyNode =
+        new AnimatedPropertyNode(null, AnimatedProperties.ALPHA);
+    GraphBinding timingBinding = create(mDataFlowGraph);
+    timingBinding.addBinding(timingNode, middle);
+    timingBinding.addBinding(middle, animatedPropertyNode);
+    timingBinding.activate();
+
+    SpringNode springNode = new SpringNode();
+    OutputOnlyNode springDest = new OutputOnlyNode();
+    NumFramesNode numFramesNode = new NumFramesNode();
+    OutputOnlyNode numFramesDest = new OutputOnlyNode();
+    GraphBinding springBinding = create(mDataFlowGraph);
+    springBinding.addBinding(new ConstantNode(0), springNode, SpringNode.INITIAL_INPUT);
+    springBinding.addBinding(new ConstantNode(100), springNode, SpringNode.END_INPUT);
+    springBinding.addBinding(springNode, springDest);
+    springBinding.addBinding(numFramesNode, numFramesDest);
+    springBinding.activate();
+
+    mTestTimingSource.step(WARM_UP_FRAMES);
+
+    // Reading the allocated memory may allocate memory itself.
+    final long start = mAllocatedBytesCounter.getAllocatedBytes();
+    final long overhead = mAllocatedBytesCounter.getAllocatedBytes() - start;
+
+    final long before = mAllocatedBytesCounter.getAllocatedBytes();
+    mTestTimingSource.step(MEASURED_FRAMES);
+    final long allocated = mAllocatedBytesCounter.getAllocatedBytes() - before;
+
+    assertThat(allocated).isLessThanOrEqualTo(overhead);
+    assertThat(timingBinding.isActive()).isTrue();
+    assertThat(animatedPropertyNode.getValue()).isGreaterThan(0f);
+    assertThat(springDest.getValue()).isGreaterThan(0f);
+    assertThat(numFramesDest.getValue()).isEqualTo(WARM_UP_FRAMES + MEASURED_FRAMES);
+  }
+}
@@ -10,6 +10,7 @@
 package com.facebook.litho.dataflow;
 
 import static com.facebook.litho.dataflow.GraphBinding.create;
+import static com.facebook.litho.dataflow.MockTimingSource.FRAME_TIME_MS;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
@@ -155,6 +156,75 @@ public class DataFlowGraphTest {
     assertThat(dest.getValue()).isEqualTo(3588f);
   }
 
+  @Test
+  public void testAddingAndRemovingIndependentBindings() {
+    SettableNode source1 = new SettableNode();
+    OutputOnlyNode dest1 = new OutputOnlyNode();
+    GraphBinding binding1 = create(mDataFlowGraph);
+    binding1.addBinding(source1, dest1);
+    binding1.activate();
+
+    source1.setValue(1);
+    mTestTimingSource.step(1);
+
+    SettableNode source2 = new SettableNode();
+    SimpleNode middle2 = new SimpleNode();
+    OutputOnlyNode dest2 = new OutputOnlyNode();
+    GraphBinding binding2 = create(mDataFlowGraph);
+    binding2.addBinding(source2, middle2);
+    binding2.addBinding(middle2, dest2);
+    binding2.activate();
+
+    source2.setValue(2);
+    mTestTimingSource.step(1);
+
+    assertThat(dest1.getValue()).isEqualTo(1f);
+    assertThat(dest2.getValue()).isEqualTo(2f);
+
+    binding1.deactivate();
+    OutputOnlyNode dest3 = new OutputOnlyNode();
+    GraphBinding binding3 = create(mDataFlowGraph);
+    binding3.addBinding(source1, dest3);
+    binding3.activate();
+
+    source1.setValue(3);
+    source2.setValue(4);
+    mTestTimingSource.step(1);
+
+    assertThat(dest1.getValue()).isEqualTo(1f);
+    assertThat(dest2.getValue()).isEqualTo(4f);
+    assertThat(dest3.getValue()).isEqualTo(3f);
+  }
+
+  @Test
+  public void testFinishedNodesAreNotRecalculated() {
+    int durationMs = 300;
+    int numExpectedFrames = durationMs / FRAME_TIME_MS + 2;
+
+    TimingNode timingNode = new TimingNode(durationMs);
+    CountingNode middle = new CountingNode();
+    OutputOnlyNode finishingDest = new OutputOnlyNode();
+    NumFramesNode numFramesNode = new NumFramesNode();
+    OutputOnlyNode updatingDest = new OutputOnlyNode();
+
+    GraphBinding binding = create(mDataFlowGraph);
+    binding.addBinding(timingNode, middle);
+    binding.addBinding(middle, finishingDest);
+    binding.addBinding(numFramesNode, updatingDest);
+    binding.activate();
+
+    mTestTimingSource.step(numExpectedFrames);
+
+    assertThat(finishingDest.getValue()).isEqualTo(1f);
+
+    int numCalculations = middle.mNumCalculations;
+    mTestTimingSource.step(10);
+
+    assertThat(middle.mNumCalculations).isEqualTo(numCalculations);
+    assertThat(finishingDest.getValue()).isEqualTo(1f);
+    assertThat(updatingDest.getValue()).isEqualTo(numExpectedFrames + 10f);
+  }
+
   @Test(expected = DetectedCycleException.class)
   public void testSimpleCycle() {
     SimpleNode node1 = new SimpleNode();
@@ -186,4 +256,15 @@ public class DataFlowGraphTest {
 
     mTestTimingSource.step(1);
   }
+
+  private static class CountingNode extends SimpleNode {
+
+    private int mNumCalculations = 0;
+
+    @Override
+    public float calculateValue(long frameTimeNanos) {
+      mNumCalculations++;
+      return super.calculateValue(frameTimeNanos);
+    }
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.internal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+  @Test
+  public void testPutAndGet() {
+    final LongIntHashMap map = new LongIntHashMap();
+
+    map.put(42L, 1);
+    map.put(-7L, 2);
+    map.put(0L, 3);
+
+    assertThat(map.size()).isEqualTo(3);
+    assertThat(map.get(42L, -1)).isEqualTo(1);
+    assertThat(map.get(-7L, -1)).isEqualTo(2);
+    assertThat(map.get(0L, -1)).isEqualTo(3);
+    assertThat(map.get(43L, -1)).isEqualTo(-1);
+    assertThat(map.containsKey(0L)).isTrue();
+    assertThat(map.containsKey(1L)).isFalse();
+  }
+
+  @Test
+  public void testPutReplacesValue() {
+    final LongIntHashMap map = new LongIntHashMap();
+
+    map.put(5L, 1);
+    map.put(5L, 2);
+
+    assertThat(map.size()).isEqualTo(1);
+    assertThat(map.get(5L, -1)).isEqualTo(2);
+  }
+
+  @Test
+  public void testGrowsPastInitialCapacity() {
+    final LongIntHashMap map = new LongIntHashMap(4);
+
+    // Keys shaped like LayoutOutput ids, which only differ in a few bits.
+    for (int i = 0; i < 10000; i++) {
+      map.put(((long) i << 32) | 0x1000, i);
+    }
+
+    assertThat(map.size()).isEqualTo(10000);
+    for (int i = 0; i < 10000; i++) {
+      assertThat(map.get(((long) i << 32) | 0x1000, -1)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testClear() {
+    final LongIntHashMap map = new LongIntHashMap();
+    for (int i = 0; i < 100; i++) {
+      map.put(i, i);
+    }
+
+    map.clear();
+
+    assertThat(map.size()).isEqualTo(0);
+    assertThat(map.get(10L, -1)).isEqualTo(-1);
+
+    map.put(10L, 3);
+    assertThat(map.get(10L, -1)).isEqualTo(3);
+  }
+}
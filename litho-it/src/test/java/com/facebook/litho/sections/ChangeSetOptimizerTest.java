@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections;
+
+import static com.facebook.litho.sections.Change.DELETE;
+import static com.facebook.litho.sections.Change.DELETE_RANGE;
+import static com.facebook.litho.sections.Change.INSERT;
+import static com.facebook.litho.sections.Change.INSERT_RANGE;
+import static com.facebook.litho.sections.Change.MOVE;
+import static com.facebook.litho.sections.Change.UPDATE_RANGE;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.widget.ComponentRenderInfo;
+import com.facebook.litho.widget.RenderInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests {@link ChangeSetOptimizer} */
+@RunWith(ComponentsTestRunner.class)
+public class ChangeSetOptimizerTest {
+
+  @Test
+  public void testCollapsesAdjacentInserts() {
+    final RenderInfo first = ComponentRenderInfo.createEmpty();
+    final RenderInfo second = ComponentRenderInfo.createEmpty();
+    final RenderInfo third = ComponentRenderInfo.createEmpty();
+
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(
+                Change.insert(5, first), Change.insert(6, third), Change.insert(6, second)));
+
+    assertThat(changes.size()).isEqualTo(1);
+    assertChange(changes.get(0), INSERT_RANGE, 5, 3);
+    assertThat(changes.get(0).getRenderInfos()).containsExactly(first, second, third);
+  }
+
+  @Test
+  public void testCollapsesLongRunOfInsertsIntoSingleRange() {
+    final List<RenderInfo> renderInfos = new ArrayList<>();
+    final List<Change> inserts = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      final RenderInfo renderInfo = ComponentRenderInfo.createEmpty();
+      renderInfos.add(renderInfo);
+      inserts.add(Change.insert(i, renderInfo));
+    }
+
+    final List<Change> changes = ChangeSetOptimizer.optimize(inserts);
+
+    assertThat(changes.size()).isEqualTo(1);
+    assertChange(changes.get(0), INSERT_RANGE, 0, 2000);
+    assertThat(changes.get(0).getRenderInfos()).isEqualTo(renderInfos);
+  }
+
+  @Test
+  public void testCollapsesRemovesIntoSingleRange() {
+    final List<Change> removes = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      removes.add(Change.remove(10));
+    }
+    for (int i = 9; i >= 0; i--) {
+      removes.add(Change.remove(i));
+    }
+
+    final List<Change> changes = ChangeSetOptimizer.optimize(removes);
+
+    assertThat(changes.size()).isEqualTo(1);
+    assertChange(changes.get(0), DELETE_RANGE, 0, 2010);
+  }
+
+  @Test
+  public void testCollapsesOverlappingUpdates() {
+    final RenderInfo first = ComponentRenderInfo.createEmpty();
+    final RenderInfo second = ComponentRenderInfo.createEmpty();
+    final RenderInfo third = ComponentRenderInfo.createEmpty();
+    final RenderInfo fourth = ComponentRenderInfo.createEmpty();
+
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(
+                Change.updateRange(2, 2, Arrays.asList(first, second)),
+                Change.updateRange(3, 2, Arrays.asList(third, fourth))));
+
+    assertThat(changes.size()).isEqualTo(1);
+    assertChange(changes.get(0), UPDATE_RANGE, 2, 3);
+    assertThat(changes.get(0).getRenderInfos()).containsExactly(first, third, fourth);
+  }
+
+  @Test
+  public void testCancelsInsertFollowedByRemove() {
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(
+                Change.insert(3, ComponentRenderInfo.createEmpty()), Change.remove(3)));
+
+    assertThat(changes).isEmpty();
+  }
+
+  @Test
+  public void testRemoveOverlappingInsertRemovesOnlyExistingItems() {
+    final RenderInfo first = ComponentRenderInfo.createEmpty();
+    final RenderInfo second = ComponentRenderInfo.createEmpty();
+    final RenderInfo third = ComponentRenderInfo.createEmpty();
+
+    // [a, b, c, d] -> [a, b, 1, 2, 3, c, d] -> [a, 3, c, d]
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(
+                Change.insertRange(2, 3, Arrays.asList(first, second, third)),
+                Change.removeRange(1, 3)));
+
+    assertThat(changes.size()).isEqualTo(2);
+    assertChange(changes.get(0), DELETE, 1, 1);
+    assertChange(changes.get(1), INSERT, 1, 1);
+    assertThat(changes.get(1).getRenderInfo()).isSameAs(third);
+  }
+
+  @Test
+  public void testFoldsUpdateIntoInsert() {
+    final RenderInfo inserted = ComponentRenderInfo.createEmpty();
+    final RenderInfo updated = ComponentRenderInfo.createEmpty();
+
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(
+                Change.insertRange(
+                    0, 2, Arrays.asList(inserted, ComponentRenderInfo.createEmpty())),
+                Change.update(1, updated)));
+
+    assertThat(changes.size()).isEqualTo(1);
+    assertChange(changes.get(0), INSERT_RANGE, 0, 2);
+    assertThat(changes.get(0).getRenderInfos()).containsExactly(inserted, updated);
+  }
+
+  @Test
+  public void testDoesNotCombineAcrossMoves() {
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(Change.remove(1), Change.move(0, 2), Change.remove(1)));
+
+    assertThat(changes.size()).isEqualTo(3);
+    assertThat(changes.get(1).getType()).isEqualTo(MOVE);
+  }
+
+  @Test
+  public void testKeepsNonAdjacentChanges() {
+    final List<Change> changes =
+        ChangeSetOptimizer.optimize(
+            Arrays.asList(
+                Change.insert(10, ComponentRenderInfo.createEmpty()),
+                Change.insert(8, ComponentRenderInfo.createEmpty()),
+                Change.remove(20)));
+
+    assertThat(changes.size()).isEqualTo(3);
+  }
+
+  private static void assertChange(Change change, int type, int index, int count) {
+    assertThat(change.getType()).isEqualTo(type);
+    assertThat(change.getIndex()).isEqualTo(index);
+    if (type < 0) {
+      assertThat(change.getCount()).isEqualTo(count);
+    }
+  }
+}
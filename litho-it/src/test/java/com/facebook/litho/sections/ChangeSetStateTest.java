@@ -13,6 +13,7 @@ import static com.facebook.litho.sections.Change.MOVE;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
+import com.facebook.litho.sections.config.SectionsConfiguration;
 import com.facebook.litho.sections.logger.SectionsDebugLogger;
 import com.facebook.litho.testing.sections.TestSectionCreator;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
@@ -294,7 +295,10 @@ public class ChangeSetStateTest {
 
     final ChangeSet secondChangeSet = secondChangeSetState.getChangeSet();
 
-    assertThat(secondChangeSet.getChangeCount()).isEqualTo(2);
+    assertThat(secondChangeSet.getChangeCount()).isEqualTo(1);
+    assertThat(secondChangeSet.getChangeAt(0).getType()).isEqualTo(Change.DELETE_RANGE);
+    assertThat(secondChangeSet.getChangeAt(0).getIndex()).isEqualTo(3);
+    assertThat(secondChangeSet.getChangeAt(0).getCount()).isEqualTo(2);
     assertThat(secondChangeSet.getCount()).isEqualTo(3);
     assertThat(leaf1.getCount()).isEqualTo(3);
     assertThat(newRoot.getCount()).isEqualTo(3);
@@ -529,7 +533,8 @@ public class ChangeSetStateTest {
 
     final ChangeSet secondChangeSet = secondChangeSetState.getChangeSet();
 
-    assertThat(numChildren1 + numChildren3).isEqualTo(secondChangeSet.getChangeCount());
+    // The children of the removed section are removed in a single range.
+    assertThat(numChildren1 + 1).isEqualTo(secondChangeSet.getChangeCount());
     assertThat(totalNumChildren).isEqualTo(secondChangeSet.getCount());
     assertThat(totalNumChildren).isEqualTo(newRoot.getCount());
 
@@ -591,7 +596,8 @@ public class ChangeSetStateTest {
 
     final ChangeSet secondChangeSet = secondChangeSetState.getChangeSet();
 
-    assertThat(numChildren1 + numChildren3).isEqualTo(secondChangeSet.getChangeCount());
+    // The children of the removed section are removed in a single range.
+    assertThat(numChildren1 + 1).isEqualTo(secondChangeSet.getChangeCount());
     assertThat(totalNumChildren - numChildren3).isEqualTo(secondChangeSet.getCount());
     assertThat(1).isEqualTo(secondChangeSetState.getRemovedComponents().size());
     assertThat(leaf3).isEqualTo(secondChangeSetState.getRemovedComponents().get(0));
@@ -649,7 +655,8 @@ public class ChangeSetStateTest {
 
     final ChangeSet secondChangeSet = secondChangeSetState.getChangeSet();
 
-    assertThat(numChildren1 + numChildren3).isEqualTo(secondChangeSet.getChangeCount());
+    // The children of the removed section are removed in a single range.
+    assertThat(numChildren1 + 1).isEqualTo(secondChangeSet.getChangeCount());
     assertThat(totalNumChildren).isEqualTo(secondChangeSet.getCount());
 
     int changeIndex = 0;
@@ -704,8 +711,7 @@ public class ChangeSetStateTest {
 
     final ChangeSet secondChangeSet = secondChangeSetState.getChangeSet();
 
-    assertThat(numChildren1 + numChildren3 + numChildren4)
-        .isEqualTo(secondChangeSet.getChangeCount());
+    assertThat(numChildren1 + 1 + numChildren4).isEqualTo(secondChangeSet.getChangeCount());
     assertThat(numChildren1 + numChildren2 + numChildren4).isEqualTo(secondChangeSet.getCount());
 
     int changeIndex = 0;
@@ -720,6 +726,105 @@ public class ChangeSetStateTest {
     assertThat(leaf3).isEqualTo(secondChangeSetState.getRemovedComponents().get(0));
   }
 
+  @Test
+  public void testParallelGenerationMatchesSequentialGeneration() {
+    final boolean defaultParallelChangeSetCalculation =
+        SectionsConfiguration.parallelChangeSetCalculation;
+    final int defaultParallelChangeSetCalculationThreshold =
+        SectionsConfiguration.parallelChangeSetCalculationThreshold;
+
+    try {
+      SectionsConfiguration.parallelChangeSetCalculation = false;
+      final String sequentialChanges = describe(generateWideChangeSetState());
+
+      SectionsConfiguration.parallelChangeSetCalculation = true;
+      SectionsConfiguration.parallelChangeSetCalculationThreshold = 2;
+      final String parallelChanges = describe(generateWideChangeSetState());
+
+      assertThat(parallelChanges).isEqualTo(sequentialChanges);
+    } finally {
+      SectionsConfiguration.parallelChangeSetCalculation = defaultParallelChangeSetCalculation;
+      SectionsConfiguration.parallelChangeSetCalculationThreshold =
+          defaultParallelChangeSetCalculationThreshold;
+    }
+  }
+
+  /**
+   * Moves, removes and inserts the children of a tree of two levels of group sections.
+   */
+  private ChangeSetState generateWideChangeSetState() {
+    final Section root =
+        TestSectionCreator.createSectionComponent(
+            "root",
+            true,
+            TestSectionCreator.createSectionComponent(
+                "node1",
+                true,
+                createChangeSetComponent("leaf1", 3),
+                createChangeSetComponent("leaf2", 2),
+                createChangeSetComponent("leaf3", 1)),
+            TestSectionCreator.createSectionComponent(
+                "node2", true, createChangeSetComponent("leaf4", 2)),
+            createChangeSetComponent("leaf5", 4));
+    TestSectionCreator.createTree(root, mSectionContext);
+
+    ChangeSetState.generateChangeSet(
+        mSectionContext,
+        null,
+        root,
+        mSectionsDebugLogger,
+        mSectionTreeTag,
+        mCurrentPrefix,
+        mNextPrefix);
+
+    final Section newRoot =
+        TestSectionCreator.createSectionComponent(
+            "root",
+            true,
+            createChangeSetComponent("leaf6", 2),
+            TestSectionCreator.createSectionComponent(
+                "node1",
+                true,
+                createChangeSetComponent("leaf2", 2),
+                createChangeSetComponent("leaf1", 3),
+                createChangeSetComponent("leaf7", 1)),
+            createChangeSetComponent("leaf5", 4));
+    TestSectionCreator.createTree(newRoot, mSectionContext);
+
+    return ChangeSetState.generateChangeSet(
+        mSectionContext,
+        root,
+        newRoot,
+        mSectionsDebugLogger,
+        mSectionTreeTag,
+        mCurrentPrefix,
+        mNextPrefix);
+  }
+
+  private static String describe(ChangeSetState changeSetState) {
+    final ChangeSet changeSet = changeSetState.getChangeSet();
+    final StringBuilder builder = new StringBuilder().append(changeSet.getCount());
+
+    for (int i = 0, size = changeSet.getChangeCount(); i < size; i++) {
+      final Change change = changeSet.getChangeAt(i);
+      builder
+          .append(' ')
+          .append(change.getType())
+          .append(':')
+          .append(change.getIndex())
+          .append(':')
+          .append(change.getToIndex())
+          .append(':')
+          .append(change.getCount());
+    }
+
+    for (Section removed : changeSetState.getRemovedComponents()) {
+      builder.append(' ').append(removed.getGlobalKey());
+    }
+
+    return builder.toString();
+  }
+
   private static Section createChangeSetComponent(String key, int numChildren) {
     Change[] changes = new Change[numChildren];
     for (int i = 0; i < numChildren; i++) {
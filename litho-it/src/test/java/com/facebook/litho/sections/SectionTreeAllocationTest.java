@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.sections.SectionLifecycle.StateContainer;
+import com.facebook.litho.sections.common.NestedGroupSection;
+import com.facebook.litho.sections.config.SectionsConfiguration;
+import com.facebook.litho.testing.AllocatedBytesCounter;
+import com.facebook.litho.testing.sections.TestTarget;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Compares the memory allocated by the changesets of a {@link SectionTree} with and without {@link
+ * SectionsConfiguration#shareUnchangedSubtrees}.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class SectionTreeAllocationTest {
+
+  private static final int NUMBER_OF_GROUPS = 50;
+  private static final int NUMBER_OF_DUMMY = 10;
+  private static final int WARM_UP_CHANGESETS = 3;
+  private static final int MEASURED_CHANGESETS = 10;
+  private static final String UPDATED_GROUP_KEY = "rootgroup0";
+
+  private boolean mDefaultShareUnchangedSubtrees;
+  private SectionContext mSectionContext;
+  private AllocatedBytesCounter mAllocatedBytesCounter;
+
+  @Before
+  public void setUp() throws Exception {
+    mAllocatedBytesCounter = AllocatedBytesCounter.assumeSupported();
+
+    mDefaultShareUnchangedSubtrees = SectionsConfiguration.shareUnchangedSubtrees;
+    mSectionContext = new SectionContext(RuntimeEnvironment.application);
+  }
+
+  @After
+  public void tearDown() {
+    SectionsConfiguration.shareUnchangedSubtrees = mDefaultShareUnchangedSubtrees;
+  }
+
+  @Test
+  public void testSharingUnchangedSubtreesAllocatesLessPerChangeSet() {
+    final long copyingBytes = measureBytesPerChangeSet(false);
+    final long sharingBytes = measureBytesPerChangeSet(true);
+
+    assertThat(sharingBytes).isLessThan(copyingBytes / 2);
+  }
+
+  @Test
+  public void testUnchangedSubtreesAreShared() {
+    SectionsConfiguration.shareUnchangedSubtrees = true;
+    final SectionTree tree = createTree();
+    final Section previousRoot = getCurrentSection(tree);
+
+    tree.updateState(UPDATED_GROUP_KEY, new StateUpdate());
+    final Section root = getCurrentSection(tree);
+
+    final Section updatedGroup = getChild(root, 0);
+    final Section unchangedGroup = getChild(root, 1);
+    assertThat(root).isNotSameAs(previousRoot);
+    assertThat(updatedGroup.getChildren()).isNotSameAs(getChild(previousRoot, 0).getChildren());
+    assertThat(unchangedGroup).isNotSameAs(getChild(previousRoot, 1));
+    assertThat(unchangedGroup.getChildren()).isSameAs(getChild(previousRoot, 1).getChildren());
+    assertThat(getChild(unchangedGroup, 0).getParent()).isSameAs(unchangedGroup);
+  }
+
+  @Test
+  public void testSharedChildrenAreNoLongerInvalidated() {
+    SectionsConfiguration.shareUnchangedSubtrees = true;
+    final SectionTree tree = createTree();
+    final Section previousChild = getChild(getChild(getCurrentSection(tree), 1), 0);
+    // As left by a state update applied to it by the previous changeset.
+    previousChild.setInvalidated(true);
+
+    tree.updateState(UPDATED_GROUP_KEY, new StateUpdate());
+    final Section child = getChild(getChild(getCurrentSection(tree), 1), 0);
+
+    assertThat(child).isSameAs(previousChild);
+    assertThat(child.isInvalidated()).isFalse();
+  }
+
+  @Test
+  public void testUnchangedSubtreesAreRecreatedWithoutSharing() {
+    SectionsConfiguration.shareUnchangedSubtrees = false;
+    final SectionTree tree = createTree();
+    final Section previousRoot = getCurrentSection(tree);
+
+    tree.updateState(UPDATED_GROUP_KEY, new StateUpdate());
+    final Section root = getCurrentSection(tree);
+
+    assertThat(getChild(getChild(root, 1), 0))
+        .isNotSameAs(getChild(getChild(previousRoot, 1), 0));
+  }
+
+  private long measureBytesPerChangeSet(boolean shareUnchangedSubtrees) {
+    SectionsConfiguration.shareUnchangedSubtrees = shareUnchangedSubtrees;
+    final SectionTree tree = createTree();
+
+    for (int i = 0; i < WARM_UP_CHANGESETS; i++) {
+      tree.updateState(UPDATED_GROUP_KEY, new StateUpdate());
+    }
+
+    final long before = mAllocatedBytesCounter.getAllocatedBytes();
+    for (int i = 0; i < MEASURED_CHANGESETS; i++) {
+      tree.updateState(UPDATED_GROUP_KEY, new StateUpdate());
+    }
+
+    return (mAllocatedBytesCounter.getAllocatedBytes() - before) / MEASURED_CHANGESETS;
+  }
+
+  private SectionTree createTree() {
+    final SectionTree tree = SectionTree.create(mSectionContext, new TestTarget()).build();
+    tree.setRoot(
+        NestedGroupSection.create(mSectionContext)
+            .numberOfGroups(NUMBER_OF_GROUPS)
+            .numberOfDummy(NUMBER_OF_DUMMY)
+            .key("root")
+            .build());
+
+    return tree;
+  }
+
+  private static Section getCurrentSection(SectionTree tree) {
+    return Whitebox.getInternalState(tree, "mCurrentSection");
+  }
+
+  private static Section getChild(Section section, int index) {
+    return (Section) section.getChildren().get(index);
+  }
+
+  private static class StateUpdate implements SectionLifecycle.StateUpdate {
+
+    @Override
+    public void updateState(StateContainer stateContainer, Section section) {}
+  }
+}
@@ -13,7 +13,9 @@ import static com.facebook.litho.testing.sections.TestSectionCreator.TestSection
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
+import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 import com.facebook.litho.Component;
 import com.facebook.litho.sections.SectionLifecycle.StateContainer;
 import com.facebook.litho.testing.sections.TestSectionCreator;
@@ -429,6 +431,34 @@ public class SectionTreeTest {
     assertThat(changeSetHandler.wereChangesHandled()).isFalse();
   }
 
+  @Test
+  public void testTreesWithSameChangeSetThreadPriorityShareThread() throws Exception {
+    final SectionTree defaultTree =
+        SectionTree.create(mSectionContext, new TestTarget()).build();
+    final SectionTree foregroundTree =
+        SectionTree.create(mSectionContext, new TestTarget())
+            .changeSetThreadPriority(Process.THREAD_PRIORITY_FOREGROUND)
+            .build();
+    final SectionTree otherForegroundTree =
+        SectionTree.create(mSectionContext, new TestTarget())
+            .changeSetThreadPriority(Process.THREAD_PRIORITY_FOREGROUND)
+            .build();
+
+    assertThat(getChangeSetThreadLooper(defaultTree))
+        .isSameAs(Whitebox.invokeMethod(SectionTree.class, "getDefaultChangeSetThreadLooper"));
+    assertThat(getChangeSetThreadLooper(foregroundTree))
+        .isNotSameAs(getChangeSetThreadLooper(defaultTree));
+    assertThat(getChangeSetThreadLooper(otherForegroundTree))
+        .isSameAs(getChangeSetThreadLooper(foregroundTree));
+  }
+
+  private static Looper getChangeSetThreadLooper(SectionTree tree) {
+    final Handler handler =
+        Whitebox.getInternalState(
+            Whitebox.getInternalState(tree, "mCalculateChangeSetRunnable"), "mHandler");
+    return handler.getLooper();
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testRequestFocusBeforeDataBound() {
     final Section section = TestSectionCreator.createChangeSetComponent("test");
@@ -18,6 +18,7 @@ import static org.assertj.core.api.Java6Assertions.assertThat;
 import com.facebook.litho.sections.SectionContext;
 import com.facebook.litho.sections.SectionTree;
 import com.facebook.litho.testing.sections.TestGroupSection;
+import com.facebook.litho.testing.sections.TestGroupSectionSpec;
 import com.facebook.litho.testing.sections.TestTarget;
 import com.facebook.litho.testing.sections.TestTarget.Operation;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
@@ -34,6 +35,8 @@ import org.robolectric.RuntimeEnvironment;
 @RunWith(ComponentsTestRunner.class)
 public class DataDiffSectionSpecTest {
 
+  private static final String UPDATED_PREFIX = "updated ";
+
   private SectionContext mSectionContext;
   private SectionTree mSectionTree;
   private TestTarget mTestTarget;
@@ -362,6 +365,175 @@ public class DataDiffSectionSpecTest {
     assertBulkOperations(executedOperations, 0, 0, 20);
   }
 
+  @Test
+  public void testUniqueIdentifierDiffTurnsPreviousDataIntoNextData() {
+    final List<String> previous = new ArrayList<>();
+    final List<String> next = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      previous.add("" + i);
+      next.add("" + i);
+    }
+    next.remove(700);
+    next.add(500, "new item");
+    next.add(0, "first item");
+    Collections.swap(next, 100, 300);
+
+    final Comparator isSameContentComparator =
+        new Comparator() {
+          @Override
+          public int compare(Object lhs, Object rhs) {
+            return ((String) rhs).endsWith("7") ? -1 : 0;
+          }
+        };
+
+    final List<Operation> operations =
+        getOperations(previous, next, isSameContentComparator, true);
+    final List<String> result = applyOperations(previous, operations);
+
+    assertThat(result.size()).isEqualTo(next.size());
+    for (int i = 0; i < next.size(); i++) {
+      final String item = next.get(i);
+      if (!previous.contains(item)) {
+        assertThat(result.get(i)).isNull();
+      } else if (item.endsWith("7")) {
+        assertThat(result.get(i)).isEqualTo(UPDATED_PREFIX + item);
+      } else {
+        assertThat(result.get(i)).isEqualTo(item);
+      }
+    }
+  }
+
+  @Test
+  public void testUniqueIdentifierDiffOnlyUpdatesChangedItems() {
+    final List<String> previous = new ArrayList<>();
+    final List<String> next = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      previous.add("" + i);
+      next.add("" + i);
+    }
+
+    final Comparator isSameContentComparator =
+        new Comparator() {
+          @Override
+          public int compare(Object lhs, Object rhs) {
+            return rhs.equals("10") || rhs.equals("990") ? -1 : 0;
+          }
+        };
+
+    final List<Operation> operations =
+        getOperations(previous, next, isSameContentComparator, true);
+
+    assertThat(operations.size()).isEqualTo(2);
+    assertThat(operations.get(0).mOp).isEqualTo(TestTarget.UPDATE);
+    assertThat(operations.get(0).mIndex).isEqualTo(990);
+    assertThat(operations.get(1).mOp).isEqualTo(TestTarget.UPDATE);
+    assertThat(operations.get(1).mIndex).isEqualTo(10);
+  }
+
+  @Test
+  public void testUniqueIdentifierDiffFallsBackWithDuplicateIdentifiers() {
+    final List<String> previous = new ArrayList<>();
+    previous.add("a");
+    previous.add("a");
+    previous.add("b");
+    final List<String> next = new ArrayList<>();
+    next.add("b");
+    next.add("a");
+    next.add("a");
+    next.add("c");
+
+    assertSameOperations(
+        getOperations(previous, next, null, true), getOperations(previous, next, null, false));
+  }
+
+  @Test
+  public void testUniqueIdentifierDiffFallsBackWithNullIdentifiers() {
+    final List<String> previous = new ArrayList<>();
+    previous.add(TestGroupSectionSpec.NO_UNIQUE_IDENTIFIER);
+    previous.add("a");
+    previous.add("b");
+    final List<String> next = new ArrayList<>();
+    next.add("b");
+    next.add(TestGroupSectionSpec.NO_UNIQUE_IDENTIFIER);
+    next.add("c");
+
+    assertSameOperations(
+        getOperations(previous, next, null, true), getOperations(previous, next, null, false));
+  }
+
+  private List<Operation> getOperations(
+      List<String> previous,
+      List<String> next,
+      Comparator isSameContentComparator,
+      boolean hasUniqueIdentifiers) {
+    final TestTarget testTarget = new TestTarget();
+    final SectionTree sectionTree = SectionTree.create(mSectionContext, testTarget).build();
+
+    sectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(previous)
+            .hasUniqueIdentifiers(hasUniqueIdentifiers)
+            .build());
+    testTarget.clear();
+
+    sectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(next)
+            .isSameContentComparator(isSameContentComparator)
+            .hasUniqueIdentifiers(hasUniqueIdentifiers)
+            .build());
+
+    return new ArrayList<>(testTarget.getOperations());
+  }
+
+  /**
+   * @return the previous data with the operations applied to it, where the inserted items are null
+   *     and the updated items are prefixed with {@link #UPDATED_PREFIX}.
+   */
+  private static List<String> applyOperations(List<String> previous, List<Operation> operations) {
+    final List<String> result = new ArrayList<>(previous);
+    for (Operation operation : operations) {
+      switch (operation.mOp) {
+        case TestTarget.INSERT:
+        case TestTarget.INSERT_RANGE:
+          for (int i = 0; i < operation.mRangeCount; i++) {
+            result.add(operation.mIndex, null);
+          }
+          break;
+        case TestTarget.DELETE:
+        case TestTarget.DELETE_RANGE:
+          for (int i = 0; i < operation.mRangeCount; i++) {
+            result.remove(operation.mIndex);
+          }
+          break;
+        case TestTarget.UPDATE:
+        case TestTarget.UPDATE_RANGE:
+          for (int i = 0; i < operation.mRangeCount; i++) {
+            result.set(operation.mIndex + i, UPDATED_PREFIX + result.get(operation.mIndex + i));
+          }
+          break;
+        case TestTarget.MOVE:
+          result.add(operation.mToIndex, result.remove(operation.mIndex));
+          break;
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameOperations(
+      List<Operation> operations,
+      List<Operation> expectedOperations) {
+    assertThat(operations.size()).isEqualTo(expectedOperations.size());
+    for (int i = 0; i < operations.size(); i++) {
+      final Operation operation = operations.get(i);
+      final Operation expectedOperation = expectedOperations.get(i);
+      assertEquals("operation type", expectedOperation.mOp, operation.mOp);
+      assertEquals("operation index", expectedOperation.mIndex, operation.mIndex);
+      assertEquals("operation to index", expectedOperation.mToIndex, operation.mToIndex);
+      assertEquals("operation range count", expectedOperation.mRangeCount, operation.mRangeCount);
+    }
+  }
+
   private void assertRangeOperation(
       Operation operation,
       int opType,
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import static com.facebook.litho.testing.sections.TestTarget.INSERT_RANGE;
+import static com.facebook.litho.testing.sections.TestTarget.UPDATE_RANGE;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.os.Looper;
+import com.facebook.litho.sections.BaseLoadEventsHandler;
+import com.facebook.litho.sections.LoadingEvent.LoadingState;
+import com.facebook.litho.sections.SectionContext;
+import com.facebook.litho.sections.SectionTree;
+import com.facebook.litho.testing.sections.TestTarget;
+import com.facebook.litho.testing.sections.TestTarget.Operation;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.widget.ViewportInfo;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+
+/** Tests {@link PagedDataSectionSpec} */
+@RunWith(ComponentsTestRunner.class)
+public class PagedDataSectionSpecTest {
+
+  private static final int PAGE_SIZE = 10;
+
+  private SectionContext mSectionContext;
+  private SectionTree mSectionTree;
+  private TestTarget mTestTarget;
+  private TestLoadEventsHandler mLoadEventsHandler;
+  private ShadowLooper mChangeSetThreadShadowLooper;
+  private ShadowLooper mLoaderThreadShadowLooper;
+
+  @Before
+  public void setup() throws Exception {
+    mSectionContext = new SectionContext(RuntimeEnvironment.application);
+    mTestTarget = new TestTarget();
+    mSectionTree = SectionTree.create(mSectionContext, mTestTarget).build();
+    mLoadEventsHandler = new TestLoadEventsHandler();
+    mSectionTree.setLoadEventsHandler(mLoadEventsHandler);
+    mChangeSetThreadShadowLooper = Shadows.shadowOf(
+        (Looper) Whitebox.invokeMethod(
+            SectionTree.class,
+            "getDefaultChangeSetThreadLooper"));
+    mLoaderThreadShadowLooper = Shadows.shadowOf(
+        (Looper) Whitebox.invokeMethod(
+            PagedWindow.class,
+            "getLoaderLooper"));
+  }
+
+  @Test
+  public void testSetRootLoadsFirstPages() {
+    final TestDataSource dataSource = new TestDataSource(100);
+
+    mSectionTree.setRoot(PagedGroupSection.create(mSectionContext).dataSource(dataSource).build());
+    runPendingTasks();
+
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1);
+    final List<Operation> operations = mTestTarget.getOperations();
+    assertThat(operations).hasSize(1);
+    assertOperation(operations.get(0), INSERT_RANGE, 0, 20);
+
+    assertThat(mLoadEventsHandler.mLoadingStates)
+        .containsExactly(
+            LoadingState.INITIAL_LOAD,
+            LoadingState.SUCCEEDED,
+            LoadingState.LOADING,
+            LoadingState.SUCCEEDED);
+  }
+
+  @Test
+  public void testScrollingLoadsNextPagesAndEvictsPreviousOnes() {
+    final TestDataSource dataSource = new TestDataSource(100);
+    mSectionTree.setRoot(PagedGroupSection.create(mSectionContext).dataSource(dataSource).build());
+    runPendingTasks();
+    mTestTarget.clear();
+
+    scrollTo(10, 19);
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1, 2);
+    assertThat(mTestTarget.getOperations()).hasSize(1);
+    assertOperation(mTestTarget.getOperations().get(0), INSERT_RANGE, 20, 10);
+    mTestTarget.clear();
+
+    // The first page is still one page away from the window, so it's kept.
+    scrollTo(20, 29);
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1, 2, 3);
+    assertThat(mTestTarget.getOperations()).hasSize(1);
+    assertOperation(mTestTarget.getOperations().get(0), INSERT_RANGE, 30, 10);
+    mTestTarget.clear();
+
+    // The first page is evicted: its items are replaced by placeholders.
+    scrollTo(30, 39);
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1, 2, 3, 4);
+    assertThat(mTestTarget.getOperations()).hasSize(2);
+    assertOperation(mTestTarget.getOperations().get(0), UPDATE_RANGE, 0, 10);
+    assertOperation(mTestTarget.getOperations().get(1), INSERT_RANGE, 40, 10);
+    mTestTarget.clear();
+
+    // Scrolling back loads the first page again and evicts the last ones.
+    scrollTo(0, 9);
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1, 2, 3, 4, 0);
+    assertThat(mTestTarget.getOperations()).hasSize(2);
+    assertOperation(mTestTarget.getOperations().get(0), UPDATE_RANGE, 0, 10);
+    assertOperation(mTestTarget.getOperations().get(1), UPDATE_RANGE, 30, 20);
+
+    // Only the new pages are reported to the LoadEventsHandler.
+    assertThat(mLoadEventsHandler.mLoadingStates).hasSize(10);
+  }
+
+  @Test
+  public void testScrollingBackAndForthDoesNotLoadPagesAgain() {
+    final TestDataSource dataSource = new TestDataSource(100);
+    mSectionTree.setRoot(PagedGroupSection.create(mSectionContext).dataSource(dataSource).build());
+    runPendingTasks();
+
+    for (int i = 0; i < 3; i++) {
+      scrollTo(10, 19);
+      scrollTo(20, 29);
+    }
+
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1, 2, 3);
+  }
+
+  @Test
+  public void testInvalidPageIsReportedAsFailure() {
+    final TestDataSource dataSource = new TestDataSource(100);
+    dataSource.mInvalidPage = 0;
+
+    mSectionTree.setRoot(PagedGroupSection.create(mSectionContext).dataSource(dataSource).build());
+    runPendingTasks();
+
+    assertThat(dataSource.mRequestedPages).containsExactly(0);
+    assertThat(mTestTarget.getNumChanges()).isEqualTo(0);
+    assertThat(mLoadEventsHandler.mLoadingStates)
+        .containsExactly(LoadingState.INITIAL_LOAD, LoadingState.FAILED);
+  }
+
+  @Test
+  public void testLastPageStopsLoading() {
+    final TestDataSource dataSource = new TestDataSource(2);
+    dataSource.mLastPageSize = 5;
+
+    mSectionTree.setRoot(PagedGroupSection.create(mSectionContext).dataSource(dataSource).build());
+    runPendingTasks();
+    scrollTo(10, 14);
+
+    assertThat(dataSource.mRequestedPages).containsExactly(0, 1);
+    assertThat(mTestTarget.getNumChanges()).isEqualTo(15);
+  }
+
+  @Test
+  public void testResidentPagesStayBoundedWhileScrolling() {
+    final TestDataSource dataSource = new TestDataSource(1000);
+    final PagedWindow window = new PagedWindow(dataSource, 1);
+    final List<PagedWindow.Snapshot> snapshots = new ArrayList<>();
+    window.bind(
+        new PagedWindow.Listener() {
+          @Override
+          public void onSnapshotChanged(PagedWindow.Snapshot snapshot) {
+            snapshots.add(snapshot);
+          }
+
+          @Override
+          public void onLoadingStateChanged(
+              LoadingState loadingState, boolean isEmpty, Throwable t) {}
+        });
+    runLoaderThread();
+
+    // Two visible pages, a prefetched page and a page of slack on each side.
+    for (int first = 0; first < 500 * PAGE_SIZE; first += PAGE_SIZE / 2) {
+      window.setVisibleRange(first, first + PAGE_SIZE - 1);
+      runLoaderThread();
+      assertThat(window.getResidentPageCount()).isLessThanOrEqualTo(6);
+    }
+
+    final PagedWindow.Snapshot lastSnapshot = snapshots.get(snapshots.size() - 1);
+    assertThat(lastSnapshot.getCount()).isEqualTo(502 * PAGE_SIZE);
+    assertThat(lastSnapshot.getResidentPageCount()).isEqualTo(window.getResidentPageCount());
+    assertThat(lastSnapshot.getItem(0)).isNull();
+    assertThat(lastSnapshot.getItem(500 * PAGE_SIZE)).isEqualTo("item " + 500 * PAGE_SIZE);
+  }
+
+  private void scrollTo(int firstVisibleIndex, int lastVisibleIndex) {
+    mSectionTree.viewPortChanged(
+        firstVisibleIndex,
+        lastVisibleIndex,
+        firstVisibleIndex,
+        lastVisibleIndex,
+        ViewportInfo.State.SCROLLING);
+    runPendingTasks();
+  }
+
+  /**
+   * Runs the pages requests and the changeSet calculations of the loaded pages, until both threads
+   * are idle.
+   */
+  private void runPendingTasks() {
+    do {
+      runLoaderThread();
+      mChangeSetThreadShadowLooper.runToEndOfTasks();
+    } while (mLoaderThreadShadowLooper.getScheduler().areAnyRunnable());
+  }
+
+  private void runLoaderThread() {
+    while (mLoaderThreadShadowLooper.getScheduler().areAnyRunnable()) {
+      mLoaderThreadShadowLooper.runToEndOfTasks();
+    }
+  }
+
+  private static void assertOperation(Operation operation, int type, int index, int count) {
+    assertThat(operation.mOp).isEqualTo(type);
+    assertThat(operation.mIndex).isEqualTo(index);
+    assertThat(operation.mRangeCount).isEqualTo(count);
+  }
+
+  /**
+   * Synchronously delivers the pages of a list of pageCount pages of {@link #PAGE_SIZE} items,
+   * but the last one which has mLastPageSize items and mInvalidPage which has one item too many.
+   */
+  private static class TestDataSource implements PagedDataSource<String> {
+
+    private final int mPageCount;
+    private final List<Integer> mRequestedPages = new ArrayList<>();
+    private int mLastPageSize = PAGE_SIZE;
+    private int mInvalidPage = -1;
+
+    private TestDataSource(int pageCount) {
+      mPageCount = pageCount;
+    }
+
+    @Override
+    public int getPageSize() {
+      return PAGE_SIZE;
+    }
+
+    @Override
+    public void loadPage(int page, Callback<? super String> callback) {
+      mRequestedPages.add(page);
+
+      final int size =
+          page == mInvalidPage
+              ? PAGE_SIZE + 1
+              : page == mPageCount - 1 ? mLastPageSize : PAGE_SIZE;
+      final List<String> items = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        items.add("item " + (page * PAGE_SIZE + i));
+      }
+
+      callback.onPageLoaded(page, items, page < mPageCount - 1);
+    }
+  }
+
+  private static class TestLoadEventsHandler extends BaseLoadEventsHandler {
+
+    private final List<LoadingState> mLoadingStates = new ArrayList<>();
+
+    @Override
+    public void onInitialLoad() {
+      mLoadingStates.add(LoadingState.INITIAL_LOAD);
+    }
+
+    @Override
+    public void onLoadStarted(boolean empty) {
+      mLoadingStates.add(LoadingState.LOADING);
+    }
+
+    @Override
+    public void onLoadSucceeded(boolean empty) {
+      mLoadingStates.add(LoadingState.SUCCEEDED);
+    }
+
+    @Override
+    public void onLoadFailed(boolean empty) {
+      mLoadingStates.add(LoadingState.FAILED);
+    }
+  }
+}
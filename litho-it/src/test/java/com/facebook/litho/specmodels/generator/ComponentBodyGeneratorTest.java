@@ -185,6 +185,9 @@ public class ComponentBodyGeneratorTest {
                 + "  if (this.getId() == testRef.getId()) {\n"
                 + "    return true;\n"
                 + "  }\n"
+                + "  if (getPropsHash() != testRef.getPropsHash()) {\n"
+                + "    return false;\n"
+                + "  }\n"
                 + "  if (arg0 != testRef.arg0) {\n"
                 + "    return false;\n"
                 + "  }\n"
@@ -201,6 +204,27 @@ public class ComponentBodyGeneratorTest {
                 + "}\n");
   }
 
+  @Test
+  public void testGeneratePropsHash() {
+    TypeSpecDataHolder dataHolder = ComponentBodyGenerator.generatePropsHash(mSpecModelDI);
+    assertThat(dataHolder.getFieldSpecs()).hasSize(1);
+    assertThat(dataHolder.getFieldSpecs().get(0).toString())
+        .isEqualTo("private volatile long mPropsHash;\n");
+    assertThat(dataHolder.getMethodSpecs()).hasSize(1);
+    assertThat(dataHolder.getMethodSpecs().get(0).toString())
+        .isEqualTo(
+            "@java.lang.Override\n"
+                + "public long getPropsHash() {\n"
+                + "  long propsHash = mPropsHash;\n"
+                + "  if (propsHash == 0) {\n"
+                + "    propsHash = 31 * propsHash + (arg0 ? 1 : 0);\n"
+                + "    propsHash = 31 * propsHash + (arg4 != null ? arg4.getPropsHash() : 0);\n"
+                + "    mPropsHash = propsHash;\n"
+                + "  }\n"
+                + "  return propsHash;\n"
+                + "}\n");
+  }
+
   @Test
   public void testOnUpdateStateMethods() {
     TypeSpecDataHolder dataHolder =
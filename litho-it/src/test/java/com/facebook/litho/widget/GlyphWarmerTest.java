@@ -9,14 +9,20 @@
 
 package com.facebook.litho.widget;
 
+import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
 import android.graphics.Canvas;
 import android.graphics.Picture;
 import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,6 +47,11 @@ public class GlyphWarmerTest {
     mShadowLooper = Shadows.shadowOf(mGlyphWarmer.getWarmerLooper());
   }
 
+  @After
+  public void tearDown() {
+    mShadowLooper.runToEndOfTasks();
+  }
+
   @Test
   public void testWarmGlyph() {
     Layout layout = mock(Layout.class);
@@ -49,6 +60,89 @@ public class GlyphWarmerTest {
     verify(layout).draw(any(Canvas.class));
   }
 
+  @Test
+  public void testLayoutsWithSameTextAndPaintAreWarmedOnce() {
+    final TextPaint paint = new TextPaint();
+    final Layout layout = createLayout("Dedupe", paint);
+    final Layout sameLayout = createLayout("Dedupe", paint);
+    final TextPaint biggerPaint = new TextPaint();
+    biggerPaint.setTextSize(paint.getTextSize() * 2);
+    final Layout biggerLayout = createLayout("Dedupe", biggerPaint);
+
+    mGlyphWarmer.warmLayout(layout);
+    mGlyphWarmer.warmLayout(sameLayout);
+    mGlyphWarmer.warmLayout(biggerLayout);
+    mShadowLooper.runToEndOfTasks();
+
+    verify(layout).draw(any(Canvas.class));
+    verify(sameLayout, never()).draw(any(Canvas.class));
+    verify(biggerLayout).draw(any(Canvas.class));
+
+    final Layout warmedLayout = createLayout("Dedupe", paint);
+    mGlyphWarmer.warmLayout(warmedLayout);
+    mShadowLooper.runToEndOfTasks();
+
+    verify(warmedLayout, never()).draw(any(Canvas.class));
+  }
+
+  @Test
+  public void testLayoutsAreWarmedInBatches() {
+    final Layout[] layouts = new Layout[GlyphWarmer.MAX_LAYOUTS_PER_BATCH + 1];
+    for (int i = 0; i < layouts.length; i++) {
+      layouts[i] = createLayout("Batch " + i, new TextPaint());
+      mGlyphWarmer.warmLayout(layouts[i]);
+    }
+
+    mShadowLooper.runOneTask();
+
+    // The most recently scheduled layouts are warmed first.
+    verify(layouts[0], never()).draw(any(Canvas.class));
+    for (int i = 1; i < layouts.length; i++) {
+      verify(layouts[i]).draw(any(Canvas.class));
+    }
+
+    mShadowLooper.runOneTask();
+
+    verify(layouts[0]).draw(any(Canvas.class));
+  }
+
+  @Test
+  public void testPendingLayoutsAreCapped() {
+    final Layout oldestLayout = createLayout("Cap", new TextPaint());
+    mGlyphWarmer.warmLayout(oldestLayout);
+    for (int i = 0; i < GlyphWarmer.MAX_PENDING_LAYOUTS; i++) {
+      mGlyphWarmer.warmLayout(createLayout("Cap " + i, new TextPaint()));
+    }
+
+    assertThat(mGlyphWarmer.getPendingLayoutCount()).isEqualTo(GlyphWarmer.MAX_PENDING_LAYOUTS);
+
+    mShadowLooper.runToEndOfTasks();
+
+    verify(oldestLayout, never()).draw(any(Canvas.class));
+    assertThat(mGlyphWarmer.getPendingLayoutCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLayoutDrawnOnScreenIsNotWarmed() {
+    final Layout layout = createLayout("Drawn", new TextPaint());
+    mGlyphWarmer.warmLayout(layout);
+
+    GlyphWarmer.onLayoutDrawn(layout);
+    mShadowLooper.runToEndOfTasks();
+
+    verify(layout, never()).draw(any(Canvas.class));
+
+    final Layout sameLayout = createLayout("Drawn", new TextPaint());
+    mGlyphWarmer.warmLayout(sameLayout);
+    mShadowLooper.runToEndOfTasks();
+
+    verify(sameLayout, never()).draw(any(Canvas.class));
+  }
+
+  private static Layout createLayout(String text, TextPaint paint) {
+    return spy(new StaticLayout(text, paint, 100, Layout.Alignment.ALIGN_NORMAL, 1, 0, false));
+  }
+
   @Implements(Picture.class)
   public static class ShadowPicture {
 
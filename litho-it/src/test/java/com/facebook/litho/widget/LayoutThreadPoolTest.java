@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.widget;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.LayoutHandler;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link LayoutThreadPool} and {@link PriorityLayoutHandlerFactory}
+ */
+@RunWith(ComponentsTestRunner.class)
+public class LayoutThreadPoolTest {
+
+  private LayoutThreadPool mLayoutThreadPool;
+  private PriorityLayoutHandlerFactory mLayoutHandlerFactory;
+  private List<Integer> mRunPositions;
+
+  @Before
+  public void setup() {
+    // No executor, tasks are run explicitly by the tests.
+    mLayoutThreadPool = new LayoutThreadPool(null);
+    mLayoutHandlerFactory = new PriorityLayoutHandlerFactory(mLayoutThreadPool);
+    mRunPositions = new ArrayList<>();
+  }
+
+  @Test
+  public void testRunsTasksClosestToViewportFirst() {
+    mLayoutHandlerFactory.setVisibleRange(10, 12);
+
+    postTaskAtPosition(30);
+    postTaskAtPosition(2);
+    postTaskAtPosition(11);
+    postTaskAtPosition(14);
+
+    runAllTasks();
+
+    assertThat(mRunPositions).containsExactly(11, 14, 2, 30);
+  }
+
+  @Test
+  public void testRunsTasksAtSameDistanceInPostOrder() {
+    mLayoutHandlerFactory.setVisibleRange(10, 10);
+
+    postTaskAtPosition(12);
+    postTaskAtPosition(8);
+    postTaskAtPosition(10);
+    postTaskAtPosition(11);
+
+    runAllTasks();
+
+    assertThat(mRunPositions).containsExactly(10, 11, 12, 8);
+  }
+
+  @Test
+  public void testReprioritizesPendingTasksWhenViewportChanges() {
+    mLayoutHandlerFactory.setVisibleRange(0, 2);
+
+    postTaskAtPosition(1);
+    postTaskAtPosition(50);
+    postTaskAtPosition(100);
+
+    mLayoutHandlerFactory.setVisibleRange(95, 98);
+
+    runAllTasks();
+
+    assertThat(mRunPositions).containsExactly(100, 50, 1);
+  }
+
+  @Test
+  public void testRemoveCallbacksCancelsPendingTask() {
+    mLayoutHandlerFactory.setVisibleRange(0, 2);
+
+    final LayoutHandler handler = createHandlerAtPosition(1);
+    final Runnable runnable = createRecordingRunnable(1);
+    handler.post(runnable);
+    postTaskAtPosition(2);
+
+    handler.removeCallbacks(runnable);
+
+    assertThat(mLayoutThreadPool.getPendingTaskCount()).isEqualTo(1);
+    runAllTasks();
+    assertThat(mRunPositions).containsExactly(2);
+  }
+
+  @Test
+  public void testRemoveCallbacksAndMessagesCancelsAllPendingTasksOfHandler() {
+    final LayoutHandler handler = createHandlerAtPosition(1);
+    handler.post(createRecordingRunnable(1));
+    handler.post(createRecordingRunnable(1));
+    postTaskAtPosition(3);
+
+    handler.removeCallbacksAndMessages(null);
+
+    runAllTasks();
+    assertThat(mRunPositions).containsExactly(3);
+  }
+
+  @Test
+  public void testRemoveCallbacksAndMessagesCancelsOnlyPendingTasksWithToken() {
+    final Object token = new Object();
+    final PriorityLayoutHandlerFactory.PriorityLayoutHandler handler =
+        (PriorityLayoutHandlerFactory.PriorityLayoutHandler) createHandlerAtPosition(1);
+    handler.post(createRecordingRunnable(1), token);
+    handler.post(createRecordingRunnable(2));
+    handler.post(createRecordingRunnable(3), new Object());
+
+    handler.removeCallbacksAndMessages(token);
+
+    runAllTasks();
+    assertThat(mRunPositions).containsExactly(2, 3);
+  }
+
+  @Test
+  public void testReprioritizesPendingTasksWhenPositionChanges() {
+    mLayoutHandlerFactory.setVisibleRange(0, 0);
+
+    final LayoutHandler handler = createHandlerAtPosition(100);
+    handler.post(createRecordingRunnable(100));
+    postTaskAtPosition(10);
+
+    mLayoutHandlerFactory.setPosition(handler, 1);
+
+    runAllTasks();
+
+    assertThat(mRunPositions).containsExactly(100, 10);
+  }
+
+  @Test
+  public void testTasksWithoutPositionRunLast() {
+    mLayoutHandlerFactory.setVisibleRange(0, 0);
+
+    final LayoutHandler handler = mLayoutHandlerFactory.createLayoutCalculationHandler(null);
+    handler.post(createRecordingRunnable(-1));
+    postTaskAtPosition(1000);
+
+    runAllTasks();
+
+    assertThat(mRunPositions).containsExactly(1000, -1);
+  }
+
+  @Test
+  public void testSetPositionsReprioritizesShiftedItems() {
+    mLayoutHandlerFactory.setVisibleRange(0, 0);
+
+    final List<ComponentTreeHolder> holders = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final LayoutHandler handler = mLayoutHandlerFactory.createLayoutCalculationHandler(null);
+      holders.add(
+          ComponentTreeHolder.acquire(
+              ComponentRenderInfo.createEmpty(), handler, false, false));
+      handler.post(createRecordingRunnable(i));
+    }
+
+    // As after inserting the third item at the top of the binder.
+    holders.add(0, holders.remove(2));
+    mLayoutHandlerFactory.setPositions(holders, 0, holders.size());
+
+    runAllTasks();
+
+    assertThat(mRunPositions).containsExactly(2, 0, 1);
+  }
+
+  private LayoutHandler createHandlerAtPosition(int position) {
+    final LayoutHandler handler = mLayoutHandlerFactory.createLayoutCalculationHandler(null);
+    mLayoutHandlerFactory.setPosition(handler, position);
+    return handler;
+  }
+
+  private void postTaskAtPosition(int position) {
+    createHandlerAtPosition(position).post(createRecordingRunnable(position));
+  }
+
+  private Runnable createRecordingRunnable(final int position) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        mRunPositions.add(position);
+      }
+    };
+  }
+
+  private void runAllTasks() {
+    while (mLayoutThreadPool.runNextTask()) {
+      // Keep running until the pool is drained.
+    }
+  }
+}
@@ -101,6 +101,7 @@ public class RecyclerBinderTest {
   private LayoutInfo mLayoutInfo;
   private LayoutInfo mCircularLayoutInfo;
   private ComponentContext mComponentContext;
+  private RecyclerBinder.ComponentTreeHolderFactory mComponentTreeHolderFactory;
 
   @Before
   public void setup() throws NoSuchFieldException, IllegalAccessException {
@@ -108,7 +109,7 @@ public class RecyclerBinderTest {
 
     mComponentContext = new ComponentContext(RuntimeEnvironment.application);
 
-    final RecyclerBinder.ComponentTreeHolderFactory componentTreeHolderFactory =
+    mComponentTreeHolderFactory =
         new RecyclerBinder.ComponentTreeHolderFactory() {
           @Override
           public ComponentTreeHolder create(
@@ -134,7 +135,7 @@ public class RecyclerBinderTest {
     mRecyclerBinder = new RecyclerBinder.Builder()
         .rangeRatio(RANGE_RATIO)
         .layoutInfo(mLayoutInfo)
-        .componentTreeHolderFactory(componentTreeHolderFactory)
+        .componentTreeHolderFactory(mComponentTreeHolderFactory)
         .build(mComponentContext);
 
     mRenderInfoViewCreatorController = mRecyclerBinder.mRenderInfoViewCreatorController;
@@ -143,7 +144,7 @@ public class RecyclerBinderTest {
         new RecyclerBinder.Builder()
             .rangeRatio(RANGE_RATIO)
             .layoutInfo(mCircularLayoutInfo)
-            .componentTreeHolderFactory(componentTreeHolderFactory)
+            .componentTreeHolderFactory(mComponentTreeHolderFactory)
             .isCircular(true)
             .build(mComponentContext);
   }
@@ -717,6 +718,88 @@ public class RecyclerBinderTest {
     }
   }
 
+  @Test
+  public void testScrollOnlyVisitsHoldersEnteringOrLeavingRange() {
+    final List<ComponentRenderInfo> components = prepareLoadedBinder(mRecyclerBinder, 1000);
+    final int rangeTotal = (int) (RANGE_SIZE + (RANGE_RATIO * RANGE_SIZE));
+
+    mRecyclerBinder.onNewVisibleRange(40, 40);
+    resetTreeValidChecks();
+
+    mRecyclerBinder.onNewVisibleRange(41, 41);
+
+    assertThat(getTreeValidChecks()).isEqualTo(2);
+
+    final TestComponentTreeHolder leavingHolder =
+        mHoldersForComponents.get(
+            components.get(40 - (int) (RANGE_RATIO * RANGE_SIZE)).getComponent());
+    assertThat(leavingHolder.isTreeValid()).isFalse();
+    assertThat(leavingHolder.mDidAcquireStateHandler).isTrue();
+
+    final TestComponentTreeHolder enteringHolder =
+        mHoldersForComponents.get(components.get(41 + rangeTotal).getComponent());
+    assertThat(enteringHolder.isTreeValid()).isTrue();
+    assertThat(enteringHolder.mLayoutAsyncCalled).isTrue();
+  }
+
+  @Test
+  public void testRangeUpdateCostDoesNotDependOnItemCount() {
+    prepareLoadedBinder(mRecyclerBinder, 500);
+    final int smallBinderChecks = scrollThroughAndCountTreeValidChecks(mRecyclerBinder, 200);
+
+    mHoldersForComponents.clear();
+    final RecyclerBinder largeRecyclerBinder =
+        new RecyclerBinder.Builder()
+            .rangeRatio(RANGE_RATIO)
+            .layoutInfo(mLayoutInfo)
+            .componentTreeHolderFactory(mComponentTreeHolderFactory)
+            .build(mComponentContext);
+    prepareLoadedBinder(largeRecyclerBinder, 5000);
+    final int largeBinderChecks = scrollThroughAndCountTreeValidChecks(largeRecyclerBinder, 200);
+
+    assertThat(smallBinderChecks).isEqualTo(largeBinderChecks);
+    assertThat(largeBinderChecks).isEqualTo(2 * 200);
+  }
+
+  @Test
+  public void testUpdateRecomputesWholeRange() {
+    final List<ComponentRenderInfo> components = prepareLoadedBinder();
+
+    mRecyclerBinder.onNewVisibleRange(40, 40);
+    resetTreeValidChecks();
+
+    mRecyclerBinder.updateItemAt(
+        42, ComponentRenderInfo.create().component(mock(Component.class)).build());
+
+    assertThat(getTreeValidChecks()).isEqualTo(components.size());
+  }
+
+  private int scrollThroughAndCountTreeValidChecks(RecyclerBinder binder, int steps) {
+    binder.onNewVisibleRange(100, 100);
+    resetTreeValidChecks();
+
+    for (int i = 1; i <= steps; i++) {
+      binder.onNewVisibleRange(100 + i, 100 + i);
+    }
+
+    return getTreeValidChecks();
+  }
+
+  private void resetTreeValidChecks() {
+    for (TestComponentTreeHolder holder : mHoldersForComponents.values()) {
+      holder.mTreeValidChecks = 0;
+    }
+  }
+
+  private int getTreeValidChecks() {
+    int checks = 0;
+    for (TestComponentTreeHolder holder : mHoldersForComponents.values()) {
+      checks += holder.mTreeValidChecks;
+    }
+
+    return checks;
+  }
+
   @Test
   public void testMoveItemOutsideFromRange() {
     final List<ComponentRenderInfo> components = prepareLoadedBinder();
@@ -1511,6 +1594,7 @@ public class RecyclerBinderTest {
     private boolean mReleased;
     private int mChildWidth;
     private int mChildHeight;
+    private int mTreeValidChecks;
 
     private TestComponentTreeHolder(RenderInfo renderInfo) {
       mRenderInfo = renderInfo;
@@ -1569,6 +1653,7 @@ public class RecyclerBinderTest {
 
     @Override
     public synchronized boolean isTreeValid() {
+      mTreeValidChecks++;
       return mTreeValid;
     }
 
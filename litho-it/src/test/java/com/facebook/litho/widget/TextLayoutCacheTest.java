@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.widget;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.ComponentsPools;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.helper.ComponentTestHelper;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.yoga.YogaDirection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tests {@link TextLayoutCache}
+ */
+@RunWith(ComponentsTestRunner.class)
+public class TextLayoutCacheTest {
+
+  private static final int WIDTH_SPEC = makeSizeSpec(100, EXACTLY);
+
+  private boolean mDefaultUseTextLayoutCache;
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mDefaultUseTextLayoutCache = ComponentsConfiguration.useTextLayoutCache;
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    TextLayoutCache.getInstance().clear();
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.useTextLayoutCache = mDefaultUseTextLayoutCache;
+    TextLayoutCache.getInstance().clear();
+  }
+
+  @Test
+  public void testGetReturnsLayoutOfEqualKey() {
+    final TextLayoutCache cache = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_SIZE_BYTES);
+    final Layout layout = createLayout("Like");
+    cache.put(createKey("Like", WIDTH_SPEC, 12), layout);
+
+    assertThat(cache.get(createKey("Like", WIDTH_SPEC, 12))).isSameAs(layout);
+    assertThat(cache.get(createKey("Comment", WIDTH_SPEC, 12))).isNull();
+    assertThat(cache.get(createKey("Like", makeSizeSpec(200, EXACTLY), 12))).isNull();
+    assertThat(cache.get(createKey("Like", WIDTH_SPEC, 14))).isNull();
+
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedLayoutsBeyondMaxSize() {
+    final Layout layout = createLayout("a");
+    final TextLayoutCache probe = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_SIZE_BYTES);
+    probe.put(createKey("a", WIDTH_SPEC, 12), layout);
+    final int entrySizeBytes = probe.getSizeBytes();
+
+    final TextLayoutCache cache = new TextLayoutCache(entrySizeBytes * 2);
+    cache.put(createKey("a", WIDTH_SPEC, 12), layout);
+    cache.put(createKey("b", WIDTH_SPEC, 12), createLayout("b"));
+    cache.get(createKey("a", WIDTH_SPEC, 12));
+    cache.put(createKey("c", WIDTH_SPEC, 12), createLayout("c"));
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.getSizeBytes()).isLessThanOrEqualTo(entrySizeBytes * 2);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat(cache.get(createKey("a", WIDTH_SPEC, 12))).isNotNull();
+    assertThat(cache.get(createKey("b", WIDTH_SPEC, 12))).isNull();
+    assertThat(cache.get(createKey("c", WIDTH_SPEC, 12))).isNotNull();
+  }
+
+  @Test
+  public void testEqualTextsShareLayoutAcrossComponents() {
+    ComponentsConfiguration.useTextLayoutCache = true;
+
+    mountText("Like", Color.BLACK);
+    mountText("Like", Color.BLACK);
+
+    assertThat(TextLayoutCache.getInstance().getHitCount()).isGreaterThan(0);
+    assertThat(TextLayoutCache.getInstance().size()).isGreaterThan(0);
+  }
+
+  @Test
+  public void testTextsWithColorStateListAreNotCached() {
+    ComponentsConfiguration.useTextLayoutCache = true;
+
+    mountText("Like", 0);
+    mountText("Like", 0);
+
+    assertThat(TextLayoutCache.getInstance().getHitCount()).isEqualTo(0);
+    assertThat(TextLayoutCache.getInstance().size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTrimMemoryClearsSharedInstance() {
+    TextLayoutCache.getInstance().put(createKey("Like", WIDTH_SPEC, 12), createLayout("Like"));
+
+    ComponentsPools.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(TextLayoutCache.getInstance().size()).isEqualTo(0);
+    assertThat(TextLayoutCache.getInstance().getSizeBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testConfigurationChangeClearsSharedInstance() {
+    TextLayoutCache.getInstance().put(createKey("Like", WIDTH_SPEC, 12), createLayout("Like"));
+
+    ComponentsPools.onConfigurationChanged(new Configuration());
+
+    assertThat(TextLayoutCache.getInstance().size()).isEqualTo(0);
+  }
+
+  private void mountText(String text, int textColor) {
+    final Text.Builder builder = Text.create(mContext).text(text);
+    if (textColor != 0) {
+      builder.textColor(textColor);
+    }
+    ComponentTestHelper.mountComponent(mContext, builder.build());
+  }
+
+  private static Layout createLayout(String text) {
+    return new StaticLayout(text, new TextPaint(), 100, Layout.Alignment.ALIGN_NORMAL, 1, 0, false);
+  }
+
+  private static TextLayoutCache.Key createKey(String text, int widthSpec, int textSize) {
+    return new TextLayoutCache.Key(
+        text,
+        widthSpec,
+        null /* ellipsize */,
+        true /* shouldIncludeFontPadding */,
+        Integer.MAX_VALUE /* maxLines */,
+        0 /* shadowRadius */,
+        0 /* shadowDx */,
+        0 /* shadowDy */,
+        Color.GRAY /* shadowColor */,
+        false /* isSingleLine */,
+        Color.BLACK /* textColor */,
+        0 /* linkColor */,
+        textSize,
+        0 /* extraSpacing */,
+        1 /* spacingMultiplier */,
+        Typeface.NORMAL /* textStyle */,
+        null /* typeface */,
+        Layout.Alignment.ALIGN_NORMAL,
+        YogaDirection.LTR,
+        -1 /* minEms */,
+        -1 /* maxEms */,
+        0 /* minTextWidth */,
+        Integer.MAX_VALUE /* maxTextWidth */,
+        null /* textDirection */);
+  }
+}
@@ -21,6 +21,7 @@ import android.text.style.ClickableSpan;
 import android.util.SparseArray;
 import android.view.MotionEvent;
 import android.view.View;
+import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.EventHandler;
 import com.facebook.litho.LithoView;
@@ -45,6 +46,18 @@ public class TextSpecTest {
     mContext = new ComponentContext(RuntimeEnvironment.application);
   }
 
+  @Test
+  public void testEquivalentTextsHaveSamePropsHash() {
+    final Component<Text> text = Text.create(mContext).text("Some text.").build();
+    final Component<Text> sameText = Text.create(mContext).text("Some text.").build();
+    final Component<Text> otherText = Text.create(mContext).text("Other text.").build();
+
+    assertThat(text.getPropsHash()).isEqualTo(sameText.getPropsHash());
+    assertThat(text.isEquivalentTo(sameText)).isTrue();
+    assertThat(text.getPropsHash()).isNotEqualTo(otherText.getPropsHash());
+    assertThat(text.isEquivalentTo(otherText)).isFalse();
+  }
+
   @Test
   public void testTextWithoutClickableSpans() {
     TextDrawable drawable = getMountedDrawableForText("Some text.");
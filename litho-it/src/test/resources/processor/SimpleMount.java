@@ -38,6 +38,8 @@ public final class SimpleMount extends Component<SimpleMount> {
   )
   Component content;
 
+  private volatile long mPropsHash;
+
   private SimpleMount() {
     super();
   }
@@ -59,6 +61,9 @@ public final class SimpleMount extends Component<SimpleMount> {
     if (this.getId() == simpleMountRef.getId()) {
       return true;
     }
+    if (getPropsHash() != simpleMountRef.getPropsHash()) {
+      return false;
+    }
     if (Double.compare(ratio, simpleMountRef.ratio) != 0) {
       return false;
     }
@@ -70,6 +75,17 @@ public final class SimpleMount extends Component<SimpleMount> {
     return true;
   }
 
+  @Override
+  public long getPropsHash() {
+    long propsHash = mPropsHash;
+    if (propsHash == 0) {
+      propsHash = 31 * propsHash + Double.doubleToLongBits(ratio);
+      propsHash = 31 * propsHash + (content != null ? content.getPropsHash() : 0);
+      mPropsHash = propsHash;
+    }
+    return propsHash;
+  }
+
   @Override
   public SimpleMount makeShallowCopy() {
     SimpleMount component = (SimpleMount) super.makeShallowCopy();
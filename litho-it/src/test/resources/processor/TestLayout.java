@@ -90,6 +90,8 @@ public final class TestLayout<S extends View> extends Component<TestLayout> {
 
   EventHandler testEventHandler;
 
+  private volatile long mPropsHash;
+
   private TestLayout() {
     super();
     mStateContainer = new TestLayoutStateContainer();
@@ -117,6 +119,9 @@ public final class TestLayout<S extends View> extends Component<TestLayout> {
     if (this.getId() == testLayoutRef.getId()) {
       return true;
     }
+    if (getPropsHash() != testLayoutRef.getPropsHash()) {
+      return false;
+    }
     if (prop1 != testLayoutRef.prop1) {
       return false;
     }
@@ -150,6 +155,20 @@ public final class TestLayout<S extends View> extends Component<TestLayout> {
     return true;
   }
 
+  @Override
+  public long getPropsHash() {
+    long propsHash = mPropsHash;
+    if (propsHash == 0) {
+      propsHash = 31 * propsHash + prop1;
+      propsHash = 31 * propsHash + prop6;
+      propsHash = 31 * propsHash + (prop2 ? 1 : 0);
+      propsHash = 31 * propsHash + (prop3 != null ? prop3.hashCode() : 0);
+      propsHash = 31 * propsHash + prop5;
+      mPropsHash = propsHash;
+    }
+    return propsHash;
+  }
+
   private UpdateCurrentStateStateUpdate createUpdateCurrentStateStateUpdate(int someParam) {
     return new UpdateCurrentStateStateUpdate(someParam);
   }
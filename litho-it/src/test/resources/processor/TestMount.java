@@ -109,6 +109,8 @@ public final class TestMount<S extends View> extends Component<TestMount> {
 
   EventHandler testEventHandler;
 
+  private volatile long mPropsHash;
+
   private TestMount() {
     super();
     mStateContainer = new TestMountStateContainer();
@@ -136,6 +138,9 @@ public final class TestMount<S extends View> extends Component<TestMount> {
     if (this.getId() == testMountRef.getId()) {
       return true;
     }
+    if (getPropsHash() != testMountRef.getPropsHash()) {
+      return false;
+    }
     if (prop1 != testMountRef.prop1) {
       return false;
     }
@@ -172,6 +177,22 @@ public final class TestMount<S extends View> extends Component<TestMount> {
     return true;
   }
 
+  @Override
+  public long getPropsHash() {
+    long propsHash = mPropsHash;
+    if (propsHash == 0) {
+      propsHash = 31 * propsHash + prop1;
+      propsHash = 31 * propsHash + prop6;
+      propsHash = 31 * propsHash + (prop3 != null ? prop3.hashCode() : 0);
+      propsHash = 31 * propsHash + (prop2 ? 1 : 0);
+      propsHash = 31 * propsHash + prop8;
+      propsHash = 31 * propsHash + (prop7 != null ? prop7.hashCode() : 0);
+      propsHash = 31 * propsHash + prop5;
+      mPropsHash = propsHash;
+    }
+    return propsHash;
+  }
+
   @Override
   protected void copyInterStageImpl(Component component) {
     TestMount testMountRef = (TestMount) component;
@@ -71,6 +71,8 @@ public final class FullDiffSection<T> extends Section<FullDiffSection> {
 
   EventHandler testEventHandler;
 
+  private volatile long mPropsHash;
+
   private FullDiffSection() {
     super();
     mStateContainer = new FullDiffSectionStateContainer();
@@ -95,6 +97,9 @@ public final class FullDiffSection<T> extends Section<FullDiffSection> {
       return false;
     }
     FullDiffSection fullDiffSectionRef = (FullDiffSection) other;
+    if (getPropsHash() != fullDiffSectionRef.getPropsHash()) {
+      return false;
+    }
     if (prop1 != null ? !prop1.equals(fullDiffSectionRef.prop1) : fullDiffSectionRef.prop1 != null) {
       return false;
     }
@@ -113,6 +118,18 @@ public final class FullDiffSection<T> extends Section<FullDiffSection> {
     return true;
   }
 
+  @Override
+  public long getPropsHash() {
+    long propsHash = mPropsHash;
+    if (propsHash == 0) {
+      propsHash = 31 * propsHash + (prop1 != null ? prop1.hashCode() : 0);
+      propsHash = 31 * propsHash + (prop2 != null ? prop2.hashCode() : 0);
+      propsHash = 31 * propsHash + (prop3 != null ? prop3.getPropsHash() : 0);
+      mPropsHash = propsHash;
+    }
+    return propsHash;
+  }
+
   private UpdateStateStateUpdate createUpdateStateStateUpdate(Object param) {
     return new UpdateStateStateUpdate(param);
   }
@@ -65,6 +65,8 @@ final class FullGroupSection<T> extends Section<FullGroupSection> {
 
   EventHandler testEventHandler;
 
+  private volatile long mPropsHash;
+
   private FullGroupSection() {
     super();
     mStateContainer = new FullGroupSectionStateContainer();
@@ -89,6 +91,9 @@ final class FullGroupSection<T> extends Section<FullGroupSection> {
       return false;
     }
     FullGroupSection fullGroupSectionRef = (FullGroupSection) other;
+    if (getPropsHash() != fullGroupSectionRef.getPropsHash()) {
+      return false;
+    }
     if (prop1 != fullGroupSectionRef.prop1) {
       return false;
     }
@@ -113,6 +118,19 @@ final class FullGroupSection<T> extends Section<FullGroupSection> {
     return true;
   }
 
+  @Override
+  public long getPropsHash() {
+    long propsHash = mPropsHash;
+    if (propsHash == 0) {
+      propsHash = 31 * propsHash + prop1;
+      propsHash = 31 * propsHash + (prop2 != null ? prop2.hashCode() : 0);
+      propsHash = 31 * propsHash + (prop3 != null ? prop3.getPropsHash() : 0);
+      propsHash = 31 * propsHash + (prop4 != null ? prop4.hashCode() : 0);
+      mPropsHash = propsHash;
+    }
+    return propsHash;
+  }
+
   private UpdateStateStateUpdate createUpdateStateStateUpdate(Object param) {
     return new UpdateStateStateUpdate(param);
   }
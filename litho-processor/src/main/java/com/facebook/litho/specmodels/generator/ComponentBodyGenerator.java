@@ -10,6 +10,7 @@
 package com.facebook.litho.specmodels.generator;
 
 import static com.facebook.litho.specmodels.generator.GeneratorConstants.PREVIOUS_RENDER_DATA_FIELD_NAME;
+import static com.facebook.litho.specmodels.generator.GeneratorConstants.PROPS_HASH_FIELD_NAME;
 import static com.facebook.litho.specmodels.generator.GeneratorConstants.STATE_CONTAINER_FIELD_NAME;
 import static com.facebook.litho.specmodels.model.ClassNames.COMPONENT;
 
@@ -54,6 +55,9 @@ import javax.lang.model.element.Modifier;
 /** Class that generates the implementation of a Component. */
 public class ComponentBodyGenerator {
 
+  private static final String[] COLLECTION_SUFFIXES =
+      {"Collection", "List", "Set", "Map", "Queue", "Deque"};
+
   private ComponentBodyGenerator() {}
 
   public static TypeSpecDataHolder generate(
@@ -87,6 +91,7 @@ public class ComponentBodyGenerator {
 
     builder.addMethod(generateGetSimpleName(specModel));
     builder.addMethod(generateIsEquivalentMethod(specModel));
+    builder.addTypeSpecDataHolder(generatePropsHash(specModel));
 
     builder.addTypeSpecDataHolder(generateCopyInterStageImpl(specModel));
     builder.addTypeSpecDataHolder(generateOnUpdateStateMethods(specModel));
@@ -343,6 +348,13 @@ public class ComponentBodyGenerator {
           .endControlFlow();
     }
 
+    if (!getHashedProps(specModel).isEmpty()) {
+      isEquivalentBuilder
+          .beginControlFlow("if (getPropsHash() != $N.getPropsHash())", instanceRefName)
+          .addStatement("return false")
+          .endControlFlow();
+    }
+
     for (PropModel prop : specModel.getProps()) {
       isEquivalentBuilder.addCode(getCompareStatement(specModel, instanceRefName, prop));
     }
@@ -360,6 +372,120 @@ public class ComponentBodyGenerator {
     return isEquivalentBuilder.build();
   }
 
+  /**
+   * Generates a getPropsHash() that lazily computes a hash of the props compared by the generated
+   * isEquivalentTo(), once per instance, so that components and sections with different props can
+   * be told apart without comparing all of them.
+   */
+  static TypeSpecDataHolder generatePropsHash(SpecModel specModel) {
+    final TypeSpecDataHolder.Builder typeSpecDataHolder = TypeSpecDataHolder.newBuilder();
+    final List<PropModel> hashedProps = getHashedProps(specModel);
+
+    if (hashedProps.isEmpty()) {
+      return typeSpecDataHolder.build();
+    }
+
+    typeSpecDataHolder.addField(
+        FieldSpec.builder(
+                TypeName.LONG, PROPS_HASH_FIELD_NAME, Modifier.PRIVATE, Modifier.VOLATILE)
+            .build());
+
+    // A hash of 0 means that it hasn't been computed yet, and is computed again if it really is 0.
+    final MethodSpec.Builder getPropsHashBuilder =
+        MethodSpec.methodBuilder("getPropsHash")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.LONG)
+            .addStatement("long propsHash = $N", PROPS_HASH_FIELD_NAME)
+            .beginControlFlow("if (propsHash == 0)");
+
+    for (PropModel prop : hashedProps) {
+      getPropsHashBuilder.addStatement(
+          "propsHash = 31 * propsHash + $L", getHashExpression(specModel, prop));
+    }
+
+    getPropsHashBuilder
+        .addStatement("$N = propsHash", PROPS_HASH_FIELD_NAME)
+        .endControlFlow()
+        .addStatement("return propsHash");
+
+    return typeSpecDataHolder.addMethod(getPropsHashBuilder.build()).build();
+  }
+
+  /**
+   * @return the props that are part of the props hash: all the props compared by the generated
+   *     isEquivalentTo(), except those holding a state value and {@link ClassNames#REFERENCE}s,
+   *     which aren't compared with equals(). Arrays and collections are left out as well: hashing
+   *     them is linear in their size, while they are usually passed again as the same instance,
+   *     which their equals() recognizes right away.
+   */
+  private static List<PropModel> getHashedProps(SpecModel specModel) {
+    final List<PropModel> hashedProps = new ArrayList<>();
+
+    for (PropModel prop : specModel.getProps()) {
+      if (SpecModelUtils.getStateValueWithName(specModel, prop.getName()) == null
+          && !prop.getType().equals(ClassNames.REFERENCE)
+          && !(prop.getType() instanceof ArrayTypeName)
+          && !isCollection(prop.getType())) {
+        hashedProps.add(prop);
+      }
+    }
+
+    return hashedProps;
+  }
+
+  /**
+   * @return true if the given type is one of the collections or maps of java.util or of Guava,
+   *     whose hashCode() goes through all of their elements.
+   */
+  private static boolean isCollection(TypeName type) {
+    final TypeName rawType =
+        type instanceof ParameterizedTypeName ? ((ParameterizedTypeName) type).rawType : type;
+    if (!(rawType instanceof ClassName)) {
+      return false;
+    }
+
+    final ClassName className = (ClassName) rawType;
+    if (className.packageName().equals("com.google.common.collect")) {
+      return true;
+    }
+
+    if (!className.packageName().equals("java.util")) {
+      return false;
+    }
+
+    for (String suffix : COLLECTION_SUFFIXES) {
+      if (className.simpleName().endsWith(suffix)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return an expression hashing the given prop consistently with {@link
+   *     #getCompareStatement(SpecModel, String, MethodParamModel)}.
+   */
+  private static CodeBlock getHashExpression(SpecModel specModel, PropModel prop) {
+    final String name = prop.getName();
+    final TypeName type = prop.getType();
+
+    if (type == TypeName.BOOLEAN) {
+      return CodeBlock.of("($L ? 1 : 0)", name);
+    } else if (type == TypeName.FLOAT) {
+      return CodeBlock.of("Float.floatToIntBits($L)", name);
+    } else if (type == TypeName.DOUBLE) {
+      return CodeBlock.of("Double.doubleToLongBits($L)", name);
+    } else if (type.isPrimitive()) {
+      return CodeBlock.of("$L", name);
+    } else if (shouldUseIsEquivalentTo(specModel, prop)) {
+      return CodeBlock.of("($L != null ? $L.getPropsHash() : 0)", name, name);
+    }
+
+    return CodeBlock.of("($L != null ? $L.hashCode() : 0)", name, name);
+  }
+
   static TypeSpecDataHolder generateCopyInterStageImpl(SpecModel specModel) {
     final TypeSpecDataHolder.Builder typeSpecDataHolder = TypeSpecDataHolder.newBuilder();
     final ImmutableList<InterStageInputParamModel> interStageInputs =
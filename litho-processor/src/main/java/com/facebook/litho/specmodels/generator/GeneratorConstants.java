@@ -18,6 +18,7 @@ public interface GeneratorConstants {
   String REF_VARIABLE_NAME = "_ref";
   String STATE_CONTAINER_FIELD_NAME = "mStateContainer";
   String PREVIOUS_RENDER_DATA_FIELD_NAME = "mPreviousRenderData";
+  String PROPS_HASH_FIELD_NAME = "mPropsHash";
   String STATE_CONTAINER_NAME_SUFFIX = "StateContainer";
   String STATE_UPDATE_NAME_SUFFIX = "StateUpdate";
 }
@@ -116,6 +116,16 @@ public final class ChangeSet {
     addChange(Change.move(fromIndex, toIndex));
   }
 
+  /**
+   * Replaces the changes of this ChangeSet with fewer equivalent changes, see {@link
+   * ChangeSetOptimizer}.
+   */
+  void optimize() {
+    final List<Change> optimizedChanges = ChangeSetOptimizer.optimize(mChanges);
+    mChanges.clear();
+    mChanges.addAll(optimizedChanges);
+  }
+
   /**
    * @return the total number of items in the {@link Target}
    * after this ChangeSet will be applied.
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections;
+
+import static com.facebook.litho.sections.Change.DELETE;
+import static com.facebook.litho.sections.Change.DELETE_RANGE;
+import static com.facebook.litho.sections.Change.INSERT;
+import static com.facebook.litho.sections.Change.INSERT_RANGE;
+import static com.facebook.litho.sections.Change.UPDATE;
+import static com.facebook.litho.sections.Change.UPDATE_RANGE;
+
+import com.facebook.litho.widget.RenderInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Normalizes the {@link Change}s of a {@link ChangeSet} so that fewer operations reach the {@link
+ * SectionTree.Target}, without changing the result of applying them. Each change is combined with
+ * the one right before it:
+ *
+ * <ul>
+ *   <li>Inserts, removes and updates of adjacent or overlapping items are collapsed into ranges.
+ *   <li>The items that are inserted and then removed are neither inserted nor removed.
+ *   <li>An update of inserted items is folded into the insert.
+ * </ul>
+ *
+ * Moves are never combined, and a change is left as it is when its render infos don't match its
+ * count.
+ */
+final class ChangeSetOptimizer {
+
+  private final List<Change> mChanges;
+
+  /**
+   * The last change, kept in a mutable form while the next changes are combined with it so that a
+   * run of combined changes only creates its {@link Change} once, when it ends.
+   */
+  @Nullable private PendingChange mPending;
+
+  private ChangeSetOptimizer(int capacity) {
+    mChanges = new ArrayList<>(capacity);
+  }
+
+  /**
+   * @return the optimized changes, equivalent to the given ones.
+   */
+  static List<Change> optimize(List<Change> changes) {
+    final ChangeSetOptimizer optimizer = new ChangeSetOptimizer(changes.size());
+    for (int i = 0, size = changes.size(); i < size; i++) {
+      optimizer.append(changes.get(i));
+    }
+    optimizer.flush();
+
+    return optimizer.mChanges;
+  }
+
+  private void append(Change change) {
+    if (!isCombinable(change)) {
+      flush();
+      mChanges.add(change);
+      return;
+    }
+
+    if (mPending == null || !combine(mPending, change)) {
+      flush();
+      mPending = new PendingChange(change);
+    }
+  }
+
+  /**
+   * Combines the given change into the given pending change if possible.
+   *
+   * @return whether the change was combined.
+   */
+  private boolean combine(PendingChange last, Change change) {
+    final int start = last.mIndex;
+    final int count = last.mCount;
+    final int end = start + count;
+    final int nextStart = change.getIndex();
+    final int nextCount = getCount(change);
+    final int nextEnd = nextStart + nextCount;
+
+    if (last.mType == INSERT && isInsert(change) && start <= nextStart && nextStart <= end) {
+      last.mRenderInfos.addAll(nextStart - start, getRenderInfos(change));
+      last.mCount += nextCount;
+    } else if (last.mType == DELETE && isDelete(change) && nextStart <= start && start <= nextEnd) {
+      last.mIndex = nextStart;
+      last.mCount += nextCount;
+    } else if (last.mType == UPDATE && isUpdate(change) && nextStart <= end && start <= nextEnd) {
+      if (nextStart < start) {
+        last.mRenderInfos.addAll(0, Collections.<RenderInfo>nCopies(start - nextStart, null));
+        last.mIndex = nextStart;
+      }
+      if (nextEnd > end) {
+        last.mRenderInfos.addAll(Collections.<RenderInfo>nCopies(nextEnd - end, null));
+      }
+      last.mCount = last.mRenderInfos.size();
+      copyRenderInfos(getRenderInfos(change), last.mRenderInfos, nextStart - last.mIndex);
+    } else if (last.mType == INSERT && isUpdate(change) && start <= nextStart && nextEnd <= end) {
+      copyRenderInfos(getRenderInfos(change), last.mRenderInfos, nextStart - start);
+    } else if (last.mType == INSERT && isDelete(change) && nextStart < end && start < nextEnd) {
+      // The removed items that weren't inserted are the ones right before and right after the
+      // inserted ones, so they can be removed first, in a single range.
+      final int removedBefore = Math.max(0, start - nextStart);
+      final int removedAfter = Math.max(0, nextEnd - end);
+      final int mergedStart = Math.min(start, nextStart);
+
+      last.mRenderInfos
+          .subList(Math.max(0, nextStart - start), Math.min(count, nextEnd - start))
+          .clear();
+
+      // The remaining changes are combined with the change before the insert, if they can be.
+      mPending = null;
+      reopenLastChange();
+      if (removedBefore + removedAfter > 0) {
+        append(createDelete(mergedStart, removedBefore + removedAfter));
+      }
+      if (!last.mRenderInfos.isEmpty()) {
+        append(createChange(INSERT, mergedStart, last.mRenderInfos));
+      }
+    } else {
+      return false;
+    }
+
+    return true;
+  }
+
+  /** Adds the pending change to the optimized changes. */
+  private void flush() {
+    if (mPending == null) {
+      return;
+    }
+
+    mChanges.add(
+        mPending.mType == DELETE
+            ? createDelete(mPending.mIndex, mPending.mCount)
+            : createChange(mPending.mType, mPending.mIndex, mPending.mRenderInfos));
+    mPending = null;
+  }
+
+  /** Makes the last optimized change pending again, so that the next changes may extend it. */
+  private void reopenLastChange() {
+    if (mChanges.isEmpty()) {
+      return;
+    }
+
+    final Change last = mChanges.get(mChanges.size() - 1);
+    if (isCombinable(last)) {
+      mChanges.remove(mChanges.size() - 1);
+      mPending = new PendingChange(last);
+    }
+  }
+
+  private static boolean isCombinable(Change change) {
+    switch (change.getType()) {
+      case INSERT:
+      case UPDATE:
+      case DELETE:
+      case DELETE_RANGE:
+        return true;
+      case INSERT_RANGE:
+      case UPDATE_RANGE:
+        return change.getRenderInfos().size() == change.getCount();
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isInsert(Change change) {
+    return change.getType() == INSERT || change.getType() == INSERT_RANGE;
+  }
+
+  private static boolean isUpdate(Change change) {
+    return change.getType() == UPDATE || change.getType() == UPDATE_RANGE;
+  }
+
+  private static boolean isDelete(Change change) {
+    return change.getType() == DELETE || change.getType() == DELETE_RANGE;
+  }
+
+  private static int getCount(Change change) {
+    switch (change.getType()) {
+      case INSERT_RANGE:
+      case UPDATE_RANGE:
+      case DELETE_RANGE:
+        return change.getCount();
+      default:
+        return 1;
+    }
+  }
+
+  private static List<RenderInfo> getRenderInfos(Change change) {
+    switch (change.getType()) {
+      case INSERT:
+      case UPDATE:
+        return Collections.singletonList(change.getRenderInfo());
+      default:
+        return change.getRenderInfos();
+    }
+  }
+
+  private static void copyRenderInfos(List<RenderInfo> from, List<RenderInfo> to, int offset) {
+    for (int i = 0, size = from.size(); i < size; i++) {
+      to.set(offset + i, from.get(i));
+    }
+  }
+
+  /**
+   * @return an insert or update of the given render infos, singular if there is only one of them.
+   */
+  private static Change createChange(
+      @Change.Type int type, int index, List<RenderInfo> renderInfos) {
+    final int count = renderInfos.size();
+    if (type == INSERT) {
+      return count == 1
+          ? Change.insert(index, renderInfos.get(0))
+          : Change.insertRange(index, count, renderInfos);
+    }
+
+    return count == 1
+        ? Change.update(index, renderInfos.get(0))
+        : Change.updateRange(index, count, renderInfos);
+  }
+
+  private static Change createDelete(int index, int count) {
+    return count == 1 ? Change.remove(index) : Change.removeRange(index, count);
+  }
+
+  /** A combinable change whose index, count and render infos can still be modified. */
+  private static final class PendingChange {
+
+    private final @Change.Type int mType;
+    private final List<RenderInfo> mRenderInfos;
+    private int mIndex;
+    private int mCount;
+
+    private PendingChange(Change change) {
+      mType = isInsert(change) ? INSERT : (isUpdate(change) ? UPDATE : DELETE);
+      mRenderInfos =
+          mType == DELETE
+              ? Collections.<RenderInfo>emptyList()
+              : new ArrayList<>(getRenderInfos(change));
+      mIndex = change.getIndex();
+      mCount = getCount(change);
+    }
+  }
+}
@@ -94,8 +94,10 @@ public class ChangeSetState {
       removedComponents.add(currentRoot);
       final ChangeSet changeSet = ChangeSet.acquireChangeSet(currentRoot.getCount());
 
-      for (int i = 0; i < currentItemsCount; i++) {
+      if (currentItemsCount == 1) {
         changeSet.addChange(Change.remove(0));
+      } else if (currentItemsCount > 1) {
+        changeSet.addChange(Change.removeRange(0, currentItemsCount));
       }
 
       return changeSet;
@@ -263,6 +265,20 @@ public class ChangeSetState {
       }
     }
 
+    final ChangeSet[] parallelChangeSets =
+        ParallelChangeSetGenerator.shouldGenerateInParallel(newChildrenList.size())
+            ? generateChangeSetsInParallel(
+                sectionContext,
+                currentChildren,
+                currentChildrenList,
+                newChildrenList,
+                removedComponents,
+                sectionsDebugLogger,
+                sectionTreeTag,
+                currentPrefix,
+                newPrefix)
+            : null;
+
     int activeChildIndex = 0;
     for (int i = 0; i < newChildrenList.size(); i++) {
       final Section newChild = newChildrenList.get(i);
@@ -273,16 +289,18 @@ public class ChangeSetState {
       if (currentChildIndex < 0) {
         final ChangeSet currentChangeSet = changeSets.get(activeChildIndex);
         final ChangeSet changeSet =
-            generateChangeSetRecursive(
-                sectionContext,
-                null,
-                newChild,
-                removedComponents,
-                sectionsDebugLogger,
-                sectionTreeTag,
-                currentPrefix,
-                newPrefix,
-                thread);
+            parallelChangeSets != null
+                ? parallelChangeSets[i]
+                : generateChangeSetRecursive(
+                    sectionContext,
+                    null,
+                    newChild,
+                    removedComponents,
+                    sectionsDebugLogger,
+                    sectionTreeTag,
+                    currentPrefix,
+                    newPrefix,
+                    thread);
 
         changeSets.put(activeChildIndex, ChangeSet.merge(currentChangeSet, changeSet));
 
@@ -296,16 +314,18 @@ public class ChangeSetState {
 
         final ChangeSet currentChangeSet = changeSets.get(activeChildIndex);
         final ChangeSet changeSet =
-            generateChangeSetRecursive(
-                sectionContext,
-                currentChildrenList.get(currentChildIndex),
-                newChild,
-                removedComponents,
-                sectionsDebugLogger,
-                sectionTreeTag,
-                currentPrefix,
-                newPrefix,
-                thread);
+            parallelChangeSets != null
+                ? parallelChangeSets[i]
+                : generateChangeSetRecursive(
+                    sectionContext,
+                    currentChildrenList.get(currentChildIndex),
+                    newChild,
+                    removedComponents,
+                    sectionsDebugLogger,
+                    sectionTreeTag,
+                    currentPrefix,
+                    newPrefix,
+                    thread);
 
         changeSets.put(activeChildIndex, ChangeSet.merge(currentChangeSet,changeSet));
 
@@ -323,6 +343,103 @@ public class ChangeSetState {
     return changeSets;
   }
 
+  /**
+   * Generates the {@link ChangeSet}s of all the children of newRoot in parallel, see {@link
+   * ParallelChangeSetGenerator}. Each child collects its removed sections on its own, and they are
+   * then added to removedComponents in the order the children are declared in.
+   *
+   * @return the {@link ChangeSet} of each child of newRoot, at the same index.
+   */
+  private static ChangeSet[] generateChangeSetsInParallel(
+      SectionContext sectionContext,
+      Map<String, Pair<Section, Integer>> currentChildren,
+      List<Section> currentChildrenList,
+      List<Section> newChildrenList,
+      List<Section> removedComponents,
+      SectionsDebugLogger sectionsDebugLogger,
+      String sectionTreeTag,
+      String currentPrefix,
+      String newPrefix) {
+    final int size = newChildrenList.size();
+    final List<ChildChangeSetTask> tasks = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      final Section newChild = newChildrenList.get(i);
+      final Pair<Section, Integer> valueAndPosition = currentChildren.get(newChild.getGlobalKey());
+      final Section currentChild =
+          valueAndPosition != null ? currentChildrenList.get(valueAndPosition.second) : null;
+
+      tasks.add(
+          new ChildChangeSetTask(
+              sectionContext,
+              currentChild,
+              newChild,
+              sectionsDebugLogger,
+              sectionTreeTag,
+              currentPrefix,
+              newPrefix));
+    }
+
+    ParallelChangeSetGenerator.generate(tasks);
+
+    final ChangeSet[] changeSets = new ChangeSet[size];
+    for (int i = 0; i < size; i++) {
+      final ChildChangeSetTask task = tasks.get(i);
+      changeSets[i] = task.mChangeSet;
+      removedComponents.addAll(task.mRemovedComponents);
+    }
+
+    return changeSets;
+  }
+
+  /**
+   * Generates the {@link ChangeSet} of a single child, on any thread.
+   */
+  private static final class ChildChangeSetTask implements Runnable {
+
+    private final SectionContext mSectionContext;
+    private final @Nullable Section mCurrentChild;
+    private final Section mNewChild;
+    private final SectionsDebugLogger mSectionsDebugLogger;
+    private final String mSectionTreeTag;
+    private final String mCurrentPrefix;
+    private final String mNewPrefix;
+    private final List<Section> mRemovedComponents = new ArrayList<>();
+    private ChangeSet mChangeSet;
+
+    private ChildChangeSetTask(
+        SectionContext sectionContext,
+        @Nullable Section currentChild,
+        Section newChild,
+        SectionsDebugLogger sectionsDebugLogger,
+        String sectionTreeTag,
+        String currentPrefix,
+        String newPrefix) {
+      mSectionContext = sectionContext;
+      mCurrentChild = currentChild;
+      mNewChild = newChild;
+      mSectionsDebugLogger = sectionsDebugLogger;
+      mSectionTreeTag = sectionTreeTag;
+      mCurrentPrefix = currentPrefix;
+      mNewPrefix = newPrefix;
+    }
+
+    @Override
+    public void run() {
+      mChangeSet =
+          generateChangeSetRecursive(
+              mSectionContext,
+              mCurrentChild,
+              mNewChild,
+              mRemovedComponents,
+              mSectionsDebugLogger,
+              mSectionTreeTag,
+              mCurrentPrefix,
+              mNewPrefix,
+              Thread.currentThread().getName());
+    }
+  }
+
   private static SparseArray<ChangeSet> acquireChangeSetSparseArray() {
     //TODO use pools instead t11953296
     return new SparseArray<>();
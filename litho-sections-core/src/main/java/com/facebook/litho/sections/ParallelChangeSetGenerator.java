@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections;
+
+import com.facebook.litho.ParallelTaskRunner;
+import com.facebook.litho.sections.config.SectionsConfiguration;
+import java.util.List;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Generates the {@link ChangeSet}s of the children of a group section in parallel, see {@link
+ * SectionsConfiguration#parallelChangeSetCalculation}.
+ *
+ * <p>The children of a section have disjoint subtrees, so their {@link ChangeSet}s can be generated
+ * independently and then merged in order by the calling thread. The calling thread keeps generating
+ * {@link ChangeSet}s until none are left, so nested parallel generations always make progress even
+ * when all the threads of the pool are busy.
+ */
+@ThreadSafe
+final class ParallelChangeSetGenerator {
+
+  private ParallelChangeSetGenerator() {}
+
+  /**
+   * @return true if the {@link ChangeSet}s of the given number of children should be generated in
+   *     parallel.
+   */
+  static boolean shouldGenerateInParallel(int childrenCount) {
+    return SectionsConfiguration.parallelChangeSetCalculation
+        && childrenCount >= SectionsConfiguration.parallelChangeSetCalculationThreshold;
+  }
+
+  /**
+   * Runs all the given tasks, on the calling thread and on a pool of background threads, and
+   * returns once they are all done. The first exception thrown by a task is rethrown.
+   */
+  static void generate(final List<? extends Runnable> tasks) {
+    ParallelTaskRunner.run(
+        tasks.size(),
+        new ParallelTaskRunner.Task() {
+          @Override
+          public void run(int index) {
+            tasks.get(index).run();
+          }
+        });
+  }
+}
@@ -40,6 +40,7 @@ public abstract class Section<L extends Section> extends SectionLifecycle
 
   private Section mParent;
   private boolean mInvalidated;
+  private boolean mHasSharedChildren;
   private SectionContext mScopedContext;
   EventHandler<LoadingEvent> loadingEventHandler;
 
@@ -242,6 +243,7 @@ public abstract class Section<L extends Section> extends SectionLifecycle
         }
         clone.mCount = 0;
         clone.setInvalidated(false);
+        clone.mHasSharedChildren = false;
       }
 
       return clone;
@@ -272,6 +274,56 @@ public abstract class Section<L extends Section> extends SectionLifecycle
     mChildren = children == null ? new ArrayList<Section>() : children.getChildren();
   }
 
+  /**
+   * Makes this section reuse the children of the given section, its equivalent in the previous
+   * tree, instead of creating its own. The children are still part of the committed tree, so they
+   * are left untouched until this section is committed, see {@link #adoptSharedChildren()}.
+   */
+  void shareChildren(Section<?> previous) {
+    mChildren = previous.mChildren;
+    mHasSharedChildren = true;
+  }
+
+  /**
+   * @return true if the children of this section are shared with its previous version and haven't
+   *     been adopted yet.
+   */
+  boolean hasSharedChildren() {
+    return mHasSharedChildren;
+  }
+
+  /**
+   * Called when this section is committed: re-parents the children it shares with its previous
+   * version to this section, and resets the invalidated flags left by the previous tree.
+   */
+  void adoptSharedChildren() {
+    mHasSharedChildren = false;
+
+    for (int i = 0, size = mChildren.size(); i < size; i++) {
+      final Section child = mChildren.get(i);
+      child.setParent(this);
+      resetInvalidated(child);
+    }
+  }
+
+  /**
+   * Resets the invalidated flag of the given section and of its invalidated descendants. Since
+   * invalidating a section also invalidates its ancestors, only the invalidated children need to be
+   * visited.
+   */
+  private static void resetInvalidated(Section<?> section) {
+    if (!section.isInvalidated()) {
+      return;
+    }
+
+    section.setInvalidated(false);
+    if (section.mChildren != null) {
+      for (int i = 0, size = section.mChildren.size(); i < size; i++) {
+        resetInvalidated(section.mChildren.get(i));
+      }
+    }
+  }
+
   /**
    * Mostly used by logging to provide more readable messages.
    */
@@ -291,6 +343,16 @@ public abstract class Section<L extends Section> extends SectionLifecycle
     return this.equals(other);
   }
 
+  /**
+   * @return a hash of the props of this section. Sections that are equivalent according to {@link
+   *     #isEquivalentTo(Section)} must have the same props hash. The default implementation returns
+   *     the same value for every section, and the generated sections compute it once from their
+   *     props.
+   */
+  public long getPropsHash() {
+    return 0;
+  }
+
   protected StateContainer getStateContainer() {
     return null;
   }
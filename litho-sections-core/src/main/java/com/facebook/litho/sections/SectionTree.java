@@ -20,6 +20,7 @@ import android.os.Message;
 import android.os.Process;
 import android.support.v4.util.Pair;
 import android.text.TextUtils;
+import android.util.SparseArray;
 import com.facebook.litho.Component;
 import com.facebook.litho.ComponentsPools;
 import com.facebook.litho.EventHandler;
@@ -29,8 +30,10 @@ import com.facebook.litho.sections.logger.SectionsDebugLogger;
 import com.facebook.litho.widget.RenderInfo;
 import com.facebook.litho.widget.ViewportInfo;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -111,6 +114,9 @@ public class SectionTree {
   @GuardedBy("ComponentTree.class")
   private static volatile Looper sDefaultChangeSetThreadLooper;
 
+  @GuardedBy("SectionTree.class")
+  private static final SparseArray<Looper> sChangeSetThreadLoopers = new SparseArray<>();
+
   private final SectionContext mContext;
   private final BatchedTarget mTarget;
   private final boolean mAsyncStateUpdates;
@@ -223,7 +229,7 @@ public class SectionTree {
     mHasNonLazyUpdate = false;
     Handler changeSetThreadHandler = builder.mChangeSetThreadHandler != null ?
         builder.mChangeSetThreadHandler :
-        new Handler(getDefaultChangeSetThreadLooper());
+        new Handler(getChangeSetThreadLooper(builder.mChangeSetThreadPriority));
     mCalculateChangeSetRunnable = new CalculateChangeSetRunnable(changeSetThreadHandler);
     mCalculateChangeSetOnMainThreadRunnable = new CalculateChangeSetRunnable(sMainThreadHandler);
   }
@@ -710,6 +716,9 @@ public class SectionTree {
       final ChangeSetState changeSetState =
           calculateNewChangeSet(
               mContext, currentRoot, nextRoot, pendingStateUpdates, mSectionsDebugLogger, mTag);
+      // Collapsing the changes here keeps the work off the main thread, where each change is
+      // applied to the target on its own.
+      changeSetState.getChangeSet().optimize();
 
       final boolean changeSetIsValid;
       Section oldRoot = null;
@@ -743,7 +752,7 @@ public class SectionTree {
           mPendingChangeSets.add(changeSetState.getChangeSet());
 
           if (oldRoot != null) {
-            unbindOldComponent(oldRoot);
+            unbindOldComponent(oldRoot, collectSharedChildren(newRoot));
             oldRoot.release();
           }
 
@@ -857,6 +866,14 @@ public class SectionTree {
   private void bindNewComponent(Section<?> section) {
     section.getLifecycle().bindService(section.getScopedContext(), section);
     bindEventHandlers(section);
+    // The flag was only needed to generate the committed ChangeSet.
+    section.setInvalidated(false);
+
+    if (section.hasSharedChildren()) {
+      // The shared children were kept bound, see unbindOldComponent.
+      section.adoptSharedChildren();
+      return;
+    }
 
     if (!section.isDiffSectionSpec()) {
       final List<Section> children = section.getChildren();
@@ -866,13 +883,52 @@ public class SectionTree {
     }
   }
 
-  private void unbindOldComponent(Section<?> section) {
+  /**
+   * Unbinds the services of the sections of the given tree, except the subtrees that are shared
+   * with the tree being committed: these stay bound instead of being unbound and bound again.
+   */
+  private void unbindOldComponent(Section<?> section, Set<List<Section>> sharedChildren) {
     section.getLifecycle().unbindService(section.getScopedContext(), section);
 
     if (!section.isDiffSectionSpec()) {
       final List<Section> children = section.getChildren();
+      if (sharedChildren.contains(children)) {
+        return;
+      }
+
       for (int i = 0, size = children.size(); i < size; i++) {
-        unbindOldComponent(children.get(i));
+        unbindOldComponent(children.get(i), sharedChildren);
+      }
+    }
+  }
+
+  /**
+   * @return the lists of children that the sections of the given tree share with their previous
+   *     version, compared by identity.
+   */
+  private static Set<List<Section>> collectSharedChildren(Section<?> root) {
+    if (!SectionsConfiguration.shareUnchangedSubtrees) {
+      return Collections.emptySet();
+    }
+
+    final Set<List<Section>> sharedChildren =
+        Collections.newSetFromMap(new IdentityHashMap<List<Section>, Boolean>());
+    collectSharedChildren(root, sharedChildren);
+    return sharedChildren;
+  }
+
+  private static void collectSharedChildren(
+      Section<?> section,
+      Set<List<Section>> sharedChildren) {
+    if (section.hasSharedChildren()) {
+      sharedChildren.add(section.getChildren());
+      return;
+    }
+
+    if (!section.isDiffSectionSpec()) {
+      final List<Section> children = section.getChildren();
+      for (int i = 0, size = children.size(); i < size; i++) {
+        collectSharedChildren(children.get(i), sharedChildren);
       }
     }
   }
@@ -1008,12 +1064,18 @@ public class SectionTree {
     }
 
     if (!sectionLifecycle.isDiffSectionSpec()) {
+      final TreeProps parentTreeProps = context.getTreeProps();
+      sectionLifecycle.populateTreeProps(nextRoot, parentTreeProps);
+
+      if (canShareChildren(currentRoot, nextRoot, parentTreeProps, pendingStateUpdates)) {
+        nextRoot.shareChildren(currentRoot);
+        return;
+      }
+
       final Map<String, Pair<Section, Integer>> currentComponentChildren = currentRoot == null ?
           null :
           Section.acquireChildrenMap(currentRoot);
 
-      final TreeProps parentTreeProps = context.getTreeProps();
-      sectionLifecycle.populateTreeProps(nextRoot, parentTreeProps);
       context.setTreeProps(
           sectionLifecycle.getTreePropsForChildren(context, nextRoot, parentTreeProps));
 
@@ -1064,6 +1126,37 @@ public class SectionTree {
     }
   }
 
+  /**
+   * @return true if the next version of a group section can reuse the children of its current
+   *     version, see {@link SectionsConfiguration#shareUnchangedSubtrees}. Sections consuming tree
+   *     props are never shared, since the tree props their ancestors provide may have changed.
+   */
+  private static boolean canShareChildren(
+      @Nullable Section<?> currentRoot,
+      Section<?> nextRoot,
+      @Nullable TreeProps parentTreeProps,
+      Map<String, List<StateUpdate>> pendingStateUpdates) {
+    if (!SectionsConfiguration.shareUnchangedSubtrees
+        || currentRoot == null
+        || currentRoot.getChildren() == null
+        || parentTreeProps != null
+        || nextRoot.isInvalidated()
+        || !currentRoot.getClass().equals(nextRoot.getClass())
+        || !currentRoot.isEquivalentTo(nextRoot)) {
+      return false;
+    }
+
+    // The global key of a section starts with the global keys of all its ancestors.
+    final String globalKey = nextRoot.getGlobalKey();
+    for (String key : pendingStateUpdates.keySet()) {
+      if (key.startsWith(globalKey)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   private static Set<String> acquireKeysSet() {
     //TODO use pools t11953296
     return new HashSet<>();
@@ -1084,6 +1177,27 @@ public class SectionTree {
     return sDefaultChangeSetThreadLooper;
   }
 
+  /**
+   * @return the looper of the background thread shared by the {@link SectionTree}s calculating
+   *     their {@link ChangeSet}s with the given priority.
+   */
+  private static synchronized Looper getChangeSetThreadLooper(int priority) {
+    if (priority == DEFAULT_CHANGESET_THREAD_PRIORITY) {
+      return getDefaultChangeSetThreadLooper();
+    }
+
+    Looper looper = sChangeSetThreadLoopers.get(priority);
+    if (looper == null) {
+      final HandlerThread thread =
+          new HandlerThread(DEFAULT_CHANGESET_THREAD_NAME + priority, priority);
+      thread.start();
+      looper = thread.getLooper();
+      sChangeSetThreadLoopers.put(priority, looper);
+    }
+
+    return looper;
+  }
+
   private Map<String, List<StateUpdate>> acquireUpdatesMap() {
     return new HashMap<>();
   }
@@ -1155,6 +1269,7 @@ public class SectionTree {
     private boolean mAsyngPropUpdates;
     private String mTag;
     private Handler mChangeSetThreadHandler;
+    private int mChangeSetThreadPriority = DEFAULT_CHANGESET_THREAD_PRIORITY;
 
     private Builder(SectionContext componentContext, Target target) {
       mContext = componentContext;
@@ -1172,6 +1287,17 @@ public class SectionTree {
       return this;
     }
 
+    /**
+     * An optional priority, as defined by {@link Process}, of the background thread where {@link
+     * ChangeSet} calculation should happen. The trees built with the same priority share a thread,
+     * so a tree only delays the calculations of the trees in its own lane. Ignored if a {@link
+     * #changeSetThreadHandler(Handler)} is provided.
+     */
+    public Builder changeSetThreadPriority(int changeSetThreadPriority) {
+      mChangeSetThreadPriority = changeSetThreadPriority;
+      return this;
+    }
+
     /**
      * If enabled, all state updates will be performed on a background thread.
      * @return
@@ -46,6 +46,13 @@ import java.util.List;
  *   {@link OnCheckIsSameContentEvent} whenever during a diffing it wants to check whether two items
  *   that represent the same piece of data have exactly the same content.
  *
+ *   {@link GetUniqueIdentifierEvent} whenever during a diffing it needs the unique identifier of an
+ *   item. Providing an handler for this event enables a faster diffing for long lists: two items
+ *   represent the same piece of data when their identifiers are equal, so {@link
+ *   OnCheckIsSameItemEvent} isn't dispatched, and the {@link OnCheckIsSameContentEvent}s may be
+ *   dispatched from several threads at once. The diffing falls back to the regular one when an
+ *   identifier is null or shared by several items of a list.
+ *
  * <p> For example:
  * <pre>
  * {@code
@@ -83,6 +90,7 @@ import java.util.List;
 @DiffSectionSpec(events = {
     OnCheckIsSameContentEvent.class,
     OnCheckIsSameItemEvent.class,
+    GetUniqueIdentifierEvent.class,
     RenderEvent.class})
 public class DataDiffSectionSpec<T> {
 
@@ -93,19 +101,34 @@ public class DataDiffSectionSpec<T> {
       @Prop Diff<List<T>> data,
       @Prop(optional = true) @Nullable Diff<Boolean> detectMoves) {
 
-    final Callback<T> callback = Callback.acquire(c, data.getPrevious(), data.getNext());
-    DiffUtil.DiffResult result =
-        DiffUtil.calculateDiff(callback, isDetectMovesEnabled(detectMoves));
     final RecyclerBinderUpdateCallback<T> updatesCallback = acquire(
         data.getPrevious() != null ? data.getPrevious().size() : 0,
         data.getNext(),
         new ComponentRenderer(DataDiffSection.getRenderEventHandler(c)),
         new DiffSectionOperationExecutor(changeSet));
 
-    result.dispatchUpdatesTo(updatesCallback);
-    updatesCallback.applyChangeset();
+    final EventHandler<GetUniqueIdentifierEvent> getUniqueIdentifierEventHandler =
+        DataDiffSection.getGetUniqueIdentifierEventHandler(c);
+    final boolean isDiffDispatched =
+        getUniqueIdentifierEventHandler != null
+            && UniqueIdentifierDiff.dispatchDiff(
+                data.getPrevious(),
+                data.getNext(),
+                isDetectMovesEnabled(detectMoves),
+                new ItemChecker<T>(
+                    getUniqueIdentifierEventHandler,
+                    DataDiffSection.getOnCheckIsSameContentEventHandler(c)),
+                updatesCallback);
+
+    if (!isDiffDispatched) {
+      final Callback<T> callback = Callback.acquire(c, data.getPrevious(), data.getNext());
+      DiffUtil.DiffResult result =
+          DiffUtil.calculateDiff(callback, isDetectMovesEnabled(detectMoves));
+      result.dispatchUpdatesTo(updatesCallback);
+      Callback.release(callback);
+    }
 
-    Callback.release(callback);
+    updatesCallback.applyChangeset();
     release(updatesCallback);
   }
 
@@ -194,6 +217,39 @@ public class DataDiffSectionSpec<T> {
     }
   }
 
+  private static class ItemChecker<T> implements UniqueIdentifierDiff.ItemChecker<T> {
+
+    private final EventHandler<GetUniqueIdentifierEvent> mGetUniqueIdentifierEventHandler;
+    private final @Nullable EventHandler<OnCheckIsSameContentEvent> mIsSameContentEventHandler;
+
+    private ItemChecker(
+        EventHandler<GetUniqueIdentifierEvent> getUniqueIdentifierEventHandler,
+        @Nullable EventHandler<OnCheckIsSameContentEvent> isSameContentEventHandler) {
+      mGetUniqueIdentifierEventHandler = getUniqueIdentifierEventHandler;
+      mIsSameContentEventHandler = isSameContentEventHandler;
+    }
+
+    @Override
+    @Nullable
+    public Object getUniqueIdentifier(T item) {
+      return DataDiffSection.dispatchGetUniqueIdentifierEvent(
+          mGetUniqueIdentifierEventHandler,
+          item);
+    }
+
+    @Override
+    public boolean isSameContent(T previous, T next) {
+      if (mIsSameContentEventHandler != null) {
+        return DataDiffSection.dispatchOnCheckIsSameContentEvent(
+            mIsSameContentEventHandler,
+            previous,
+            next);
+      }
+
+      return previous.equals(next);
+    }
+  }
+
   private static class Callback<T> extends DiffUtil.Callback {
     private static final Pool<Callback> sCallbackPool = new SynchronizedPool<>(2);
 
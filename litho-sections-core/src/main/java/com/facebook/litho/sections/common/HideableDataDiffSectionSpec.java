@@ -43,6 +43,9 @@ import java.util.List;
  *   {@link GetUniqueIdentifierEvent} is fired when a single unique identifier is needed for a
  *   model object.
  *
+ * <p>Setting diffByUniqueIdentifier also diffs the data by these identifiers, see {@link
+ * DataDiffSectionSpec}, which is faster for long lists. The identifiers then need to be unique
+ * among the items of the data, otherwise the regular diffing is used.
  */
 @GroupSectionSpec(events = {
     RenderWithHideItemHandlerEvent.class,
@@ -74,7 +77,8 @@ public class HideableDataDiffSectionSpec<T> {
       @Prop List<T> data,
       @Prop EventHandler<GetUniqueIdentifierEvent> getUniqueIdentifierHandler,
       @Prop(optional = true) EventHandler<OnCheckIsSameItemEvent> onSameItemEventHandler,
-      @Prop(optional = true) EventHandler<OnCheckIsSameContentEvent> onSameContentEventHandler) {
+      @Prop(optional = true) EventHandler<OnCheckIsSameContentEvent> onSameContentEventHandler,
+      @Prop(optional = true) boolean diffByUniqueIdentifier) {
     return Children.create()
         .child(DataDiffSection.<T>create(c)
             .data(removeBlacklistedItems(
@@ -83,6 +87,8 @@ public class HideableDataDiffSectionSpec<T> {
                 blacklistState,
                 getUniqueIdentifierHandler))
             .renderEventHandler(HideableDataDiffSection.onRenderEvent(c))
+            .getUniqueIdentifierEventHandler(
+                diffByUniqueIdentifier ? getUniqueIdentifierHandler : null)
             .onCheckIsSameContentEventHandler(onSameContentEventHandler)
             .onCheckIsSameItemEventHandler(onSameItemEventHandler))
         .build();
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import android.support.annotation.Nullable;
+import com.facebook.litho.Diff;
+import com.facebook.litho.EventHandler;
+import com.facebook.litho.StateValue;
+import com.facebook.litho.annotations.OnCreateInitialState;
+import com.facebook.litho.annotations.OnUpdateState;
+import com.facebook.litho.annotations.Param;
+import com.facebook.litho.annotations.Prop;
+import com.facebook.litho.annotations.PropDefault;
+import com.facebook.litho.annotations.State;
+import com.facebook.litho.sections.ChangeSet;
+import com.facebook.litho.sections.LoadEventsHandler;
+import com.facebook.litho.sections.LoadingEvent;
+import com.facebook.litho.sections.LoadingEvent.LoadingState;
+import com.facebook.litho.sections.SectionContext;
+import com.facebook.litho.sections.SectionLifecycle;
+import com.facebook.litho.sections.annotations.DiffSectionSpec;
+import com.facebook.litho.sections.annotations.OnBindService;
+import com.facebook.litho.sections.annotations.OnCreateService;
+import com.facebook.litho.sections.annotations.OnDiff;
+import com.facebook.litho.sections.annotations.OnUnbindService;
+import com.facebook.litho.sections.annotations.OnViewportChanged;
+import com.facebook.litho.widget.ComponentRenderInfo;
+import com.facebook.litho.widget.RenderInfo;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link DiffSectionSpec} that renders the items of a {@link PagedDataSource}, keeping in memory
+ * only the pages around the visible range instead of the whole list of data. Unlike {@link
+ * DataDiffSectionSpec}, the items are never diffed: the changeSet is made of the ranges of the
+ * pages that were loaded or evicted, and of the items appended or removed at the end of the list.
+ *
+ * <p>The visible pages and up to prefetchPages pages on each side of them are kept in memory,
+ * along with one more page on each side so that scrolling back and forth doesn't evict a page and
+ * load it right again. The items of the other pages are replaced by placeholders, and their pages
+ * are loaded again when they get close to the visible range, so the memory used doesn't grow
+ * however far the list is scrolled. The next page is requested as soon as the last page loaded
+ * gets within prefetchPages pages of the visible range.
+ *
+ * <p>This {@link com.facebook.litho.sections.Section} emits the following events:
+ *
+ *   {@link RenderEvent} whenever it needs a {@link com.facebook.litho.Component} to render an item
+ *   of the data source. Providing an handler for this event is mandatory.
+ *
+ *   {@link RenderPlaceholderEvent} whenever it needs a {@link com.facebook.litho.Component} to
+ *   render an item whose page is not in memory. Without an handler, these items are empty.
+ *
+ *   {@link LoadingEvent} whenever it starts loading a new page and whenever the new page loads or
+ *   fails loading, so that the {@link LoadEventsHandler} of the tree is notified of the prefetches.
+ *
+ * <p>The data source is only read when the section is created, so a new data source should be
+ * given a new key.
+ *
+ * <p> For example:
+ * <pre>
+ * {@code
+ *
+ * @GroupSectionSpec
+ * public class MyGroupSectionSpec {
+ *
+ *   @OnCreateChildren
+ *   protected Children onCreateChildren(
+ *     SectionContext c,
+ *     @Prop PagedDataSource<Model> dataSource) {
+ *
+ *     Children.create().child(PagedDataSection.create(c)
+ *       .dataSource(dataSource)
+ *       .prefetchPages(2)
+ *       .renderEventHandler(MyGroupSection.onRender(c))
+ *       .renderPlaceholderEventHandler(MyGroupSection.onRenderPlaceholder(c))
+ *       .build());
+ *   }
+ *
+ *   @OnEvent(RenderEvent.class)
+ *   protected RenderInfo onRender(ComponentContext c, @FromEvent Object model) {
+ *     return ComponentRenderInfo.create()
+ *       .component(MyComponent.create(c).model(model).build())
+ *       .build();
+ *   }
+ * </pre>
+ */
+@DiffSectionSpec(events = {RenderEvent.class, RenderPlaceholderEvent.class})
+public class PagedDataSectionSpec<T> {
+
+  @PropDefault protected static final int prefetchPages = 1;
+
+  @OnCreateInitialState
+  static void onCreateInitialState(
+      SectionContext c,
+      StateValue<PagedWindow.Snapshot> snapshot) {
+    snapshot.set(PagedWindow.Snapshot.EMPTY);
+  }
+
+  @OnCreateService
+  static <T> PagedWindow onCreateService(
+      SectionContext c,
+      @Prop PagedDataSource<T> dataSource,
+      @Prop(optional = true) int prefetchPages) {
+    return new PagedWindow(dataSource, prefetchPages);
+  }
+
+  @OnBindService
+  static void onBindService(SectionContext c, PagedWindow window) {
+    window.bind(new WindowListener(c));
+  }
+
+  @OnUnbindService
+  static void onUnbindService(SectionContext c, PagedWindow window) {
+    window.unbind();
+  }
+
+  @OnViewportChanged
+  static void onViewportChanged(
+      SectionContext c,
+      int firstVisibleIndex,
+      int lastVisibleIndex,
+      int totalCount,
+      int firstFullyVisibleIndex,
+      int lastFullyVisibleIndex,
+      PagedWindow window) {
+    window.setVisibleRange(firstVisibleIndex, lastVisibleIndex);
+  }
+
+  @OnUpdateState
+  static void updateSnapshot(
+      StateValue<PagedWindow.Snapshot> snapshot,
+      @Param PagedWindow.Snapshot newSnapshot) {
+    // The snapshots may be delivered from several threads, so they can arrive out of order.
+    if (newSnapshot.isNewerThan(snapshot.get())) {
+      snapshot.set(newSnapshot);
+    }
+  }
+
+  @OnDiff
+  static void onCreateChangeSet(
+      SectionContext c,
+      ChangeSet changeSet,
+      @State Diff<PagedWindow.Snapshot> snapshot) {
+    final PagedWindow.Snapshot previous =
+        snapshot.getPrevious() != null ? snapshot.getPrevious() : PagedWindow.Snapshot.EMPTY;
+    final PagedWindow.Snapshot next = snapshot.getNext();
+    final int previousCount = previous.getCount();
+    final int nextCount = next.getCount();
+    final int commonCount = Math.min(previousCount, nextCount);
+
+    final EventHandler<RenderEvent> renderEventHandler = PagedDataSection.getRenderEventHandler(c);
+    final EventHandler<RenderPlaceholderEvent> renderPlaceholderEventHandler =
+        PagedDataSection.getRenderPlaceholderEventHandler(c);
+
+    // Only the pages that are in memory in either snapshot can have been loaded or evicted.
+    for (int i = 0, size = next.getResidentPageCount(); i < size; i++) {
+      updatePage(
+          changeSet,
+          previous,
+          next,
+          next.getResidentPage(i),
+          commonCount,
+          renderEventHandler,
+          renderPlaceholderEventHandler);
+    }
+
+    for (int i = 0, size = previous.getResidentPageCount(); i < size; i++) {
+      final int page = previous.getResidentPage(i);
+      if (next.getPage(page) == null) {
+        updatePage(
+            changeSet,
+            previous,
+            next,
+            page,
+            commonCount,
+            renderEventHandler,
+            renderPlaceholderEventHandler);
+      }
+    }
+
+    if (nextCount > previousCount) {
+      final int count = nextCount - previousCount;
+      final List<RenderInfo> renderInfos =
+          render(next, previousCount, count, renderEventHandler, renderPlaceholderEventHandler);
+      if (count == 1) {
+        changeSet.insert(previousCount, renderInfos.get(0));
+      } else {
+        changeSet.insertRange(previousCount, count, renderInfos);
+      }
+    } else if (nextCount < previousCount) {
+      final int count = previousCount - nextCount;
+      if (count == 1) {
+        changeSet.delete(nextCount);
+      } else {
+        changeSet.deleteRange(nextCount, count);
+      }
+    }
+  }
+
+  /**
+   * Updates the items of the given page that are in both snapshots if the page was loaded, evicted
+   * or replaced in the meantime.
+   */
+  private static void updatePage(
+      ChangeSet changeSet,
+      PagedWindow.Snapshot previous,
+      PagedWindow.Snapshot next,
+      int page,
+      int commonCount,
+      EventHandler<RenderEvent> renderEventHandler,
+      @Nullable EventHandler<RenderPlaceholderEvent> renderPlaceholderEventHandler) {
+    final int start = page * next.getPageSize();
+    final int count = Math.min(next.getPageSize(), commonCount - start);
+    if (count <= 0 || previous.getPage(page) == next.getPage(page)) {
+      return;
+    }
+
+    final List<RenderInfo> renderInfos =
+        render(next, start, count, renderEventHandler, renderPlaceholderEventHandler);
+    if (count == 1) {
+      changeSet.update(start, renderInfos.get(0));
+    } else {
+      changeSet.updateRange(start, count, renderInfos);
+    }
+  }
+
+  private static List<RenderInfo> render(
+      PagedWindow.Snapshot snapshot,
+      int start,
+      int count,
+      EventHandler<RenderEvent> renderEventHandler,
+      @Nullable EventHandler<RenderPlaceholderEvent> renderPlaceholderEventHandler) {
+    final List<RenderInfo> renderInfos = new ArrayList<>(count);
+    for (int index = start, end = start + count; index < end; index++) {
+      final Object item = snapshot.getItem(index);
+      if (item != null) {
+        renderInfos.add(
+            PagedDataSection.dispatchRenderEvent(renderEventHandler, index, item, null));
+      } else if (renderPlaceholderEventHandler != null) {
+        renderInfos.add(
+            PagedDataSection.dispatchRenderPlaceholderEvent(renderPlaceholderEventHandler, index));
+      } else {
+        renderInfos.add(ComponentRenderInfo.createEmpty());
+      }
+    }
+
+    return renderInfos;
+  }
+
+  private static class WindowListener implements PagedWindow.Listener {
+
+    private final SectionContext mSectionContext;
+
+    private WindowListener(SectionContext sectionContext) {
+      mSectionContext = sectionContext;
+    }
+
+    @Override
+    public void onSnapshotChanged(PagedWindow.Snapshot snapshot) {
+      PagedDataSection.updateSnapshotAsync(mSectionContext, snapshot);
+    }
+
+    @Override
+    public void onLoadingStateChanged(
+        LoadingState loadingState, boolean isEmpty, @Nullable Throwable t) {
+      SectionLifecycle.dispatchLoadingEvent(mSectionContext, isEmpty, loadingState, t);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import java.util.List;
+
+/**
+ * A source of data loaded one page at a time, rendered by a {@link PagedDataSectionSpec}. The
+ * pages are numbered from 0 and every page but the last one holds exactly {@link #getPageSize()}
+ * items.
+ *
+ * <p>A page may be requested again after it was evicted from memory, so loading the same page
+ * twice should return the same items, unless they changed in the meantime.
+ */
+public interface PagedDataSource<T> {
+
+  /**
+   * @return the number of items of each page but the last one.
+   */
+  int getPageSize();
+
+  /**
+   * Starts loading the given page. This is called on a background thread shared by all the paged
+   * sections, so it should not block: the page can be delivered to the callback later, from any
+   * thread. A page that doesn't hold the expected number of items is reported as a failure.
+   *
+   * @param page the page to load, at most the number of pages loaded so far.
+   * @param callback the callback to deliver the page or the failure to.
+   */
+  void loadPage(int page, Callback<? super T> callback);
+
+  /**
+   * Receives the result of {@link #loadPage(int, Callback)}.
+   */
+  interface Callback<T> {
+
+    /**
+     * @param page the page that was loaded.
+     * @param items the items of the page. The list must not be modified afterwards.
+     * @param hasNextPage true if there are pages after this one. Only used when this is the last
+     *     page loaded so far.
+     */
+    void onPageLoaded(int page, List<? extends T> items, boolean hasNextPage);
+
+    /**
+     * @param page the page that failed loading.
+     * @param t the reason of the failure.
+     */
+    void onPageLoadFailed(int page, Throwable t);
+  }
+}
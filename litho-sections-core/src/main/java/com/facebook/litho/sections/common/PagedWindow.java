@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import com.facebook.litho.sections.LoadingEvent.LoadingState;
+import java.util.List;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The service of a {@link PagedDataSectionSpec}: loads the pages of a {@link PagedDataSource} and
+ * keeps in memory only the ones around the visible range, the visible pages and up to
+ * prefetchPages pages on each side of them. The pages out of this window are loaded again when
+ * they get close to the visible range. The next page is requested as soon as it's part of the
+ * window.
+ *
+ * <p>A page is only evicted once it's more than one page away from the window, so that scrolling
+ * back and forth around the edge of a page doesn't keep evicting and loading it again.
+ *
+ * <p>The pages are requested from a background thread shared by all the windows, so that the data
+ * source is never called while the {@link com.facebook.litho.sections.SectionTree} is locked.
+ *
+ * <p>Only the number of pages loaded so far and the size of the last one are kept for the evicted
+ * pages, so the memory used doesn't depend on how far the list was scrolled.
+ */
+@ThreadSafe
+class PagedWindow {
+
+  private static final String LOADER_THREAD_NAME = "PagedDataSourceLoaderThread";
+
+  /** The number of pages kept on each side of the window before they are evicted. */
+  private static final int EVICTION_SLACK_PAGES = 1;
+
+  @GuardedBy("PagedWindow.class")
+  private static @Nullable Looper sLoaderLooper;
+
+  /**
+   * Receives the changes of a {@link PagedWindow} while it's bound.
+   */
+  interface Listener {
+
+    void onSnapshotChanged(Snapshot snapshot);
+
+    void onLoadingStateChanged(LoadingState loadingState, boolean isEmpty, @Nullable Throwable t);
+  }
+
+  private final PagedDataSource<?> mDataSource;
+  private final int mPageSize;
+  private final int mPrefetchPages;
+  private final PagedDataSource.Callback<Object> mCallback = new PageCallback();
+  private final Handler mLoaderHandler = new Handler(getLoaderLooper());
+  private final Runnable mLoadPagesRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          loadPagesNow();
+        }
+      };
+
+  @GuardedBy("this")
+  private final SparseArray<List<?>> mPages = new SparseArray<>();
+
+  @GuardedBy("this")
+  private final SparseBooleanArray mLoadingPages = new SparseBooleanArray();
+
+  @GuardedBy("this")
+  private int mPageCount;
+
+  @GuardedBy("this")
+  private int mLastPageSize;
+
+  @GuardedBy("this")
+  private boolean mHasNextPage = true;
+
+  @GuardedBy("this")
+  private int mFirstVisiblePage;
+
+  @GuardedBy("this")
+  private int mLastVisiblePage;
+
+  @GuardedBy("this")
+  private int mVersion;
+
+  @GuardedBy("this")
+  private @Nullable Listener mListener;
+
+  @GuardedBy("this")
+  private boolean mHasPendingSnapshot;
+
+  @GuardedBy("this")
+  private boolean mIsLoadPagesPosted;
+
+  PagedWindow(PagedDataSource<?> dataSource, int prefetchPages) {
+    mDataSource = dataSource;
+    mPageSize = dataSource.getPageSize();
+    mPrefetchPages = Math.max(prefetchPages, 0);
+
+    if (mPageSize <= 0) {
+      throw new IllegalArgumentException("The page size must be positive, was " + mPageSize);
+    }
+  }
+
+  /**
+   * Starts delivering the changes to the given listener, including the ones that happened while
+   * the window wasn't bound, and loads the pages of the window that are missing.
+   */
+  void bind(Listener listener) {
+    final Snapshot pendingSnapshot;
+    synchronized (this) {
+      mListener = listener;
+      pendingSnapshot = mHasPendingSnapshot ? createSnapshot() : null;
+      mHasPendingSnapshot = false;
+    }
+
+    if (pendingSnapshot != null) {
+      listener.onSnapshotChanged(pendingSnapshot);
+    }
+
+    loadPages();
+  }
+
+  synchronized void unbind() {
+    mListener = null;
+  }
+
+  /**
+   * Moves the window around the given visible range, evicting the pages far from it and loading the
+   * ones that are missing. An empty range, when nothing is visible, leaves the window as it is.
+   */
+  void setVisibleRange(int firstVisibleIndex, int lastVisibleIndex) {
+    if (firstVisibleIndex < 0 || lastVisibleIndex < firstVisibleIndex) {
+      return;
+    }
+
+    final Listener listener;
+    final Snapshot snapshot;
+    synchronized (this) {
+      mFirstVisiblePage = firstVisibleIndex / mPageSize;
+      mLastVisiblePage = lastVisibleIndex / mPageSize;
+
+      boolean hasEvictedPages = false;
+      for (int i = mPages.size() - 1; i >= 0; i--) {
+        if (!isRetained(mPages.keyAt(i))) {
+          mPages.removeAt(i);
+          hasEvictedPages = true;
+        }
+      }
+
+      listener = mListener;
+      snapshot = hasEvictedPages ? onChanged() : null;
+    }
+
+    if (snapshot != null) {
+      listener.onSnapshotChanged(snapshot);
+    }
+
+    loadPages();
+  }
+
+  /**
+   * @return the number of pages held in memory.
+   */
+  synchronized int getResidentPageCount() {
+    return mPages.size();
+  }
+
+  /**
+   * Requests the pages of the window that are missing from the loader thread, since this may be
+   * called while the {@link com.facebook.litho.sections.SectionTree} is locked.
+   */
+  private void loadPages() {
+    synchronized (this) {
+      if (mIsLoadPagesPosted) {
+        return;
+      }
+
+      mIsLoadPagesPosted = true;
+    }
+
+    mLoaderHandler.post(mLoadPagesRunnable);
+  }
+
+  private void loadPagesNow() {
+    final int[] pages;
+    int pagesCount = 0;
+    final Listener listener;
+    final boolean isEmpty;
+    boolean isLoadingNextPage = false;
+
+    synchronized (this) {
+      mIsLoadPagesPosted = false;
+
+      final int windowStart = getWindowStart();
+      final int windowEnd = getWindowEnd();
+      pages = new int[windowEnd - windowStart + 1];
+
+      for (int page = windowStart; page <= windowEnd && page <= mPageCount; page++) {
+        if (mLoadingPages.get(page)) {
+          continue;
+        }
+
+        if (page < mPageCount ? mPages.get(page) == null : canLoadNextPage()) {
+          mLoadingPages.put(page, true);
+          pages[pagesCount++] = page;
+          isLoadingNextPage |= page == mPageCount;
+        }
+      }
+
+      listener = mListener;
+      isEmpty = getCount() == 0;
+    }
+
+    if (isLoadingNextPage && listener != null) {
+      listener.onLoadingStateChanged(
+          isEmpty ? LoadingState.INITIAL_LOAD : LoadingState.LOADING, isEmpty, null);
+    }
+
+    for (int i = 0; i < pagesCount; i++) {
+      mDataSource.loadPage(pages[i], mCallback);
+    }
+  }
+
+  private void onPageLoaded(int page, List<?> items, boolean hasNextPage) {
+    final boolean isNextPage;
+    final Listener listener;
+    final Snapshot snapshot;
+    final boolean isEmpty;
+    final String error;
+
+    synchronized (this) {
+      mLoadingPages.delete(page);
+      isNextPage = page == mPageCount;
+      listener = mListener;
+
+      if (page > mPageCount) {
+        error = "Page " + page + " was loaded before page " + mPageCount;
+      } else if (items.size() > mPageSize
+          || (page < mPageCount - 1 && items.size() != mPageSize)) {
+        error = "Page " + page + " has " + items.size() + " items, the page size is " + mPageSize;
+      } else {
+        error = null;
+
+        if (page >= mPageCount - 1) {
+          // This is the last page: it may have grown, shrunk, or be a new one.
+          mPageCount = items.isEmpty() ? page : page + 1;
+          mLastPageSize = items.isEmpty() ? (mPageCount > 0 ? mPageSize : 0) : items.size();
+          mHasNextPage = hasNextPage && !items.isEmpty();
+        }
+
+        if (isRetained(page) && !items.isEmpty()) {
+          mPages.put(page, items);
+        } else {
+          mPages.remove(page);
+        }
+      }
+
+      snapshot = error == null ? onChanged() : null;
+      isEmpty = getCount() == 0;
+    }
+
+    // This is called on the thread of the data source, so an invalid page is reported as a failure
+    // rather than thrown there. It isn't requested again until the visible range changes.
+    if (error != null) {
+      if (listener != null) {
+        listener.onLoadingStateChanged(
+            LoadingState.FAILED, isEmpty, new IllegalStateException(error));
+      }
+      return;
+    }
+
+    if (snapshot != null) {
+      listener.onSnapshotChanged(snapshot);
+    }
+
+    if (isNextPage && listener != null) {
+      listener.onLoadingStateChanged(LoadingState.SUCCEEDED, isEmpty, null);
+    }
+
+    // The window may still be missing some pages, e.g. the one after this one.
+    loadPages();
+  }
+
+  private void onPageLoadFailed(int page, Throwable t) {
+    final Listener listener;
+    final boolean isNextPage;
+    final boolean isEmpty;
+
+    synchronized (this) {
+      mLoadingPages.delete(page);
+      isNextPage = page == mPageCount;
+      listener = mListener;
+      isEmpty = getCount() == 0;
+    }
+
+    // The page isn't requested again until the visible range changes.
+    if (isNextPage && listener != null) {
+      listener.onLoadingStateChanged(LoadingState.FAILED, isEmpty, t);
+    }
+  }
+
+  /**
+   * @return the snapshot to deliver to the listener, or null if there is no listener to deliver it
+   *     to, in which case it's delivered once the window is bound again.
+   */
+  @GuardedBy("this")
+  @Nullable
+  private Snapshot onChanged() {
+    mVersion++;
+
+    if (mListener == null) {
+      mHasPendingSnapshot = true;
+      return null;
+    }
+
+    return createSnapshot();
+  }
+
+  @GuardedBy("this")
+  private Snapshot createSnapshot() {
+    return new Snapshot(mVersion, mPageSize, getCount(), mPages.clone());
+  }
+
+  @GuardedBy("this")
+  private int getCount() {
+    return mPageCount == 0 ? 0 : (mPageCount - 1) * mPageSize + mLastPageSize;
+  }
+
+  @GuardedBy("this")
+  private boolean canLoadNextPage() {
+    return mHasNextPage && (mPageCount == 0 || mLastPageSize == mPageSize);
+  }
+
+  /**
+   * @return true if the given page is close enough to the window to be kept in memory.
+   */
+  @GuardedBy("this")
+  private boolean isRetained(int page) {
+    return page >= getWindowStart() - EVICTION_SLACK_PAGES
+        && page <= getWindowEnd() + EVICTION_SLACK_PAGES;
+  }
+
+  @GuardedBy("this")
+  private int getWindowStart() {
+    return Math.max(mFirstVisiblePage - mPrefetchPages, 0);
+  }
+
+  @GuardedBy("this")
+  private int getWindowEnd() {
+    return mLastVisiblePage + mPrefetchPages;
+  }
+
+  private static synchronized Looper getLoaderLooper() {
+    if (sLoaderLooper == null) {
+      final HandlerThread loaderThread =
+          new HandlerThread(LOADER_THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+      loaderThread.start();
+      sLoaderLooper = loaderThread.getLooper();
+    }
+
+    return sLoaderLooper;
+  }
+
+  private class PageCallback implements PagedDataSource.Callback<Object> {
+
+    @Override
+    public void onPageLoaded(int page, List<?> items, boolean hasNextPage) {
+      PagedWindow.this.onPageLoaded(page, items, hasNextPage);
+    }
+
+    @Override
+    public void onPageLoadFailed(int page, Throwable t) {
+      PagedWindow.this.onPageLoadFailed(page, t);
+    }
+  }
+
+  /**
+   * An immutable copy of the items count and of the pages in memory of a {@link PagedWindow}, used
+   * as the state of {@link PagedDataSectionSpec}.
+   */
+  static final class Snapshot {
+
+    static final Snapshot EMPTY = new Snapshot(0, 1, 0, new SparseArray<List<?>>());
+
+    private final int mVersion;
+    private final int mPageSize;
+    private final int mCount;
+    private final SparseArray<List<?>> mPages;
+
+    private Snapshot(int version, int pageSize, int count, SparseArray<List<?>> pages) {
+      mVersion = version;
+      mPageSize = pageSize;
+      mCount = count;
+      mPages = pages;
+    }
+
+    /**
+     * @return true if this snapshot was taken after the given one.
+     */
+    boolean isNewerThan(@Nullable Snapshot snapshot) {
+      return snapshot == null || mVersion > snapshot.mVersion;
+    }
+
+    int getPageSize() {
+      return mPageSize;
+    }
+
+    /**
+     * @return the number of items of the data source, including the ones not in memory.
+     */
+    int getCount() {
+      return mCount;
+    }
+
+    int getResidentPageCount() {
+      return mPages.size();
+    }
+
+    /**
+     * @return the page at the given position among the pages in memory.
+     */
+    int getResidentPage(int position) {
+      return mPages.keyAt(position);
+    }
+
+    /**
+     * @return the items of the given page, or null if the page is not in memory.
+     */
+    @Nullable
+    List<?> getPage(int page) {
+      return mPages.get(page);
+    }
+
+    /**
+     * @return the item at the given index, or null if its page is not in memory.
+     */
+    @Nullable
+    Object getItem(int index) {
+      final List<?> page = mPages.get(index / mPageSize);
+      return page != null ? page.get(index % mPageSize) : null;
+    }
+  }
+}
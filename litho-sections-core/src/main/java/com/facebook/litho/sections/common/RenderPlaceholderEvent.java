@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import com.facebook.litho.annotations.Event;
+import com.facebook.litho.widget.RenderInfo;
+
+/**
+ * An {@link Event} that gets triggered by a {@link PagedDataSectionSpec} to render an item whose
+ * page is not in memory, either because it's still loading or because it was evicted.
+ *
+ * @param index the index of the item in the collection.
+ */
+@Event(returnType = RenderInfo.class)
+public class RenderPlaceholderEvent {
+  public int index;
+}
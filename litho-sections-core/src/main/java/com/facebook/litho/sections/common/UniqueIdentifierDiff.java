@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.sections.common;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.util.BatchingListUpdateCallback;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import com.facebook.litho.ParallelTaskRunner;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Diffs two lists whose items have a unique identifier, see {@link GetUniqueIdentifierEvent}, and
+ * dispatches the same updates {@link DiffUtil} would to a {@link ListUpdateCallback}.
+ *
+ * <p>Two items are the same item when their identifiers are equal. The common prefix and suffix of
+ * the lists are skipped, the items in between are matched through a map of their identifiers, and
+ * the contents of all the matched items are compared up front, in parallel when there are enough
+ * of them. {@link DiffUtil} then only runs on the part of the lists that changed, with constant
+ * time item and content checks.
+ */
+final class UniqueIdentifierDiff {
+
+  /**
+   * Gives the identifier of an item and compares the contents of two items with the same
+   * identifier. Both may be called from several threads at once.
+   */
+  interface ItemChecker<T> {
+
+    @Nullable
+    Object getUniqueIdentifier(T item);
+
+    boolean isSameContent(T previous, T next);
+  }
+
+  @VisibleForTesting static final int PARALLEL_CONTENT_CHECK_THRESHOLD = 256;
+
+  // Each worker claims the content checks in chunks so they don't contend on the shared index.
+  private static final int CONTENT_CHECK_CHUNK_SIZE = 64;
+
+  private UniqueIdentifierDiff() {}
+
+  /**
+   * Dispatches the updates turning the previous list into the next one to the given callback.
+   *
+   * @return false, without dispatching anything, if an identifier is null or shared by several
+   *     items, in which case the items can't be matched by their identifiers.
+   */
+  static <T> boolean dispatchDiff(
+      @Nullable List<T> previous,
+      @Nullable List<T> next,
+      boolean detectMoves,
+      ItemChecker<T> checker,
+      ListUpdateCallback callback) {
+    final int previousSize = previous == null ? 0 : previous.size();
+    final int nextSize = next == null ? 0 : next.size();
+    final int minSize = Math.min(previousSize, nextSize);
+
+    int prefixSize = 0;
+    while (prefixSize < minSize
+        && isSameItem(checker, previous.get(prefixSize), next.get(prefixSize))) {
+      prefixSize++;
+    }
+
+    int suffixSize = 0;
+    while (suffixSize < minSize - prefixSize
+        && isSameItem(
+            checker,
+            previous.get(previousSize - 1 - suffixSize),
+            next.get(nextSize - 1 - suffixSize))) {
+      suffixSize++;
+    }
+
+    final int previousMiddleSize = previousSize - prefixSize - suffixSize;
+    final int nextMiddleSize = nextSize - prefixSize - suffixSize;
+
+    final HashMap<Object, Integer> nextIndexes = new HashMap<>(nextMiddleSize * 2);
+    for (int i = 0; i < nextMiddleSize; i++) {
+      final Object identifier = checker.getUniqueIdentifier(next.get(prefixSize + i));
+      if (identifier == null || nextIndexes.put(identifier, i) != null) {
+        return false;
+      }
+    }
+
+    // The index in the middle of the next list of the item matching each item in the middle of
+    // the previous list, or -1.
+    final int[] matches = new int[previousMiddleSize];
+    final boolean[] isMatched = new boolean[nextMiddleSize];
+    for (int i = 0; i < previousMiddleSize; i++) {
+      final Object identifier = checker.getUniqueIdentifier(previous.get(prefixSize + i));
+      if (identifier == null) {
+        return false;
+      }
+
+      final Integer match = nextIndexes.get(identifier);
+      if (match == null) {
+        matches[i] = -1;
+      } else if (isMatched[match]) {
+        return false;
+      } else {
+        matches[i] = match;
+        isMatched[match] = true;
+      }
+    }
+
+    final boolean[] hasChanged =
+        checkContents(previous, next, prefixSize, suffixSize, matches, checker);
+
+    final BatchingListUpdateCallback batchingCallback = new BatchingListUpdateCallback(callback);
+
+    // Like DiffUtil, the updates are dispatched from the end of the list to its start, so the
+    // positions of the suffix still are the ones of the previous list.
+    for (int i = previousSize - 1; i >= previousSize - suffixSize; i--) {
+      if (hasChanged[i]) {
+        batchingCallback.onChanged(i, 1, null);
+      }
+    }
+
+    if (previousMiddleSize > 0 || nextMiddleSize > 0) {
+      DiffUtil.calculateDiff(
+              new MatchesCallback(
+                  previousMiddleSize, nextMiddleSize, prefixSize, matches, hasChanged),
+              detectMoves)
+          .dispatchUpdatesTo(new OffsetListUpdateCallback(batchingCallback, prefixSize));
+    }
+
+    for (int i = prefixSize - 1; i >= 0; i--) {
+      if (hasChanged[i]) {
+        batchingCallback.onChanged(i, 1, null);
+      }
+    }
+
+    batchingCallback.dispatchLastEvent();
+    return true;
+  }
+
+  /**
+   * @return whether the given items are the same item. Items without an identifier are only the
+   *     same item as themselves, the middle of the lists then falls back to the regular diffing.
+   */
+  private static <T> boolean isSameItem(ItemChecker<T> checker, T previous, T next) {
+    if (previous == next) {
+      return true;
+    }
+
+    final Object previousIdentifier = checker.getUniqueIdentifier(previous);
+    return previousIdentifier != null
+        && previousIdentifier.equals(checker.getUniqueIdentifier(next));
+  }
+
+  /**
+   * @return whether the content of each item of the previous list changed, for the items matched
+   *     with an item of the next list.
+   */
+  private static <T> boolean[] checkContents(
+      final List<T> previous,
+      final List<T> next,
+      int prefixSize,
+      int suffixSize,
+      int[] matches,
+      final ItemChecker<T> checker) {
+    final int previousSize = previous == null ? 0 : previous.size();
+    final int nextSize = next == null ? 0 : next.size();
+    final boolean[] hasChanged = new boolean[previousSize];
+
+    final int[] previousIndexes = new int[previousSize];
+    final int[] nextIndexes = new int[previousSize];
+    int count = 0;
+
+    for (int i = 0; i < previousSize; i++) {
+      final int nextIndex;
+      if (i < prefixSize) {
+        nextIndex = i;
+      } else if (i >= previousSize - suffixSize) {
+        nextIndex = i - previousSize + nextSize;
+      } else if (matches[i - prefixSize] >= 0) {
+        nextIndex = matches[i - prefixSize] + prefixSize;
+      } else {
+        continue;
+      }
+
+      if (previous.get(i) != next.get(nextIndex)) {
+        previousIndexes[count] = i;
+        nextIndexes[count] = nextIndex;
+        count++;
+      }
+    }
+
+    if (count < PARALLEL_CONTENT_CHECK_THRESHOLD) {
+      for (int i = 0; i < count; i++) {
+        hasChanged[previousIndexes[i]] =
+            !checker.isSameContent(previous.get(previousIndexes[i]), next.get(nextIndexes[i]));
+      }
+    } else {
+      checkContentsInParallel(
+          previous, next, previousIndexes, nextIndexes, count, hasChanged, checker);
+    }
+
+    return hasChanged;
+  }
+
+  private static <T> void checkContentsInParallel(
+      final List<T> previous,
+      final List<T> next,
+      final int[] previousIndexes,
+      final int[] nextIndexes,
+      final int count,
+      final boolean[] hasChanged,
+      final ItemChecker<T> checker) {
+    final int chunkCount = (count + CONTENT_CHECK_CHUNK_SIZE - 1) / CONTENT_CHECK_CHUNK_SIZE;
+
+    // Each chunk writes to distinct indexes of hasChanged.
+    ParallelTaskRunner.run(
+        chunkCount,
+        new ParallelTaskRunner.Task() {
+          @Override
+          public void run(int chunk) {
+            final int end = Math.min(count, (chunk + 1) * CONTENT_CHECK_CHUNK_SIZE);
+            for (int i = chunk * CONTENT_CHECK_CHUNK_SIZE; i < end; i++) {
+              hasChanged[previousIndexes[i]] =
+                  !checker.isSameContent(
+                      previous.get(previousIndexes[i]), next.get(nextIndexes[i]));
+            }
+          }
+        });
+  }
+
+  /**
+   * Diffs the middle of the lists using the matches and content checks computed beforehand.
+   */
+  private static class MatchesCallback extends DiffUtil.Callback {
+
+    private final int mPreviousSize;
+    private final int mNextSize;
+    private final int mOffset;
+    private final int[] mMatches;
+    private final boolean[] mHasChanged;
+
+    private MatchesCallback(
+        int previousSize, int nextSize, int offset, int[] matches, boolean[] hasChanged) {
+      mPreviousSize = previousSize;
+      mNextSize = nextSize;
+      mOffset = offset;
+      mMatches = matches;
+      mHasChanged = hasChanged;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return mPreviousSize;
+    }
+
+    @Override
+    public int getNewListSize() {
+      return mNextSize;
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      return mMatches[oldItemPosition] == newItemPosition;
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return !mHasChanged[mOffset + oldItemPosition];
+    }
+  }
+
+  private static class OffsetListUpdateCallback implements ListUpdateCallback {
+
+    private final ListUpdateCallback mCallback;
+    private final int mOffset;
+
+    private OffsetListUpdateCallback(ListUpdateCallback callback, int offset) {
+      mCallback = callback;
+      mOffset = offset;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      mCallback.onInserted(mOffset + position, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      mCallback.onRemoved(mOffset + position, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      mCallback.onMoved(mOffset + fromPosition, mOffset + toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      mCallback.onChanged(mOffset + position, count, payload);
+    }
+  }
+}
@@ -31,4 +31,26 @@ public class SectionsConfiguration {
    * <p>SectionLifecycle#destroyService(SectionContext, Object) will not be called if this is True
    */
   public static boolean noServiceRegistration = false;
+
+  /**
+   * If true, a group section whose props, state and tree props are unchanged and that has no
+   * pending state update in its subtree reuses the children of its current version instead of
+   * creating them again, so that a changeset only recreates the sections on the path to the updated
+   * ones.
+   */
+  public static boolean shareUnchangedSubtrees = false;
+
+  /**
+   * If true, the ChangeSets of the children of a group section are generated in parallel on a
+   * background thread pool when there are at least {@link #parallelChangeSetCalculationThreshold}
+   * of them, and then merged in order. The sections generating ChangeSets must then be safe to
+   * call from any thread.
+   */
+  public static boolean parallelChangeSetCalculation = false;
+
+  /**
+   * Minimum number of children of a single group section for their ChangeSets to be generated in
+   * parallel when {@link #parallelChangeSetCalculation} is enabled.
+   */
+  public static int parallelChangeSetCalculationThreshold = 4;
 }
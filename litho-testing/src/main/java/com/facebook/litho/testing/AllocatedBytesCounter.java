@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.testing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.junit.Assume;
+
+/**
+ * Reads the memory allocated by the current thread, for tests that check how much a piece of code
+ * allocates.
+ */
+public class AllocatedBytesCounter {
+
+  private final com.sun.management.ThreadMXBean mThreadMXBean;
+
+  private AllocatedBytesCounter(com.sun.management.ThreadMXBean threadMXBean) {
+    mThreadMXBean = threadMXBean;
+  }
+
+  /**
+   * Creates a counter, or skips the current test if the JVM does not track the memory allocated
+   * by threads.
+   */
+  public static AllocatedBytesCounter assumeSupported() {
+    final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(
+        "Counting allocations requires a JVM that tracks the memory allocated by threads",
+        threadMXBean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threadMXBean)
+                .isThreadAllocatedMemorySupported());
+
+    final com.sun.management.ThreadMXBean sunThreadMXBean =
+        (com.sun.management.ThreadMXBean) threadMXBean;
+    sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+    return new AllocatedBytesCounter(sunThreadMXBean);
+  }
+
+  /** @return the number of bytes allocated by the current thread so far. */
+  public long getAllocatedBytes() {
+    return mThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
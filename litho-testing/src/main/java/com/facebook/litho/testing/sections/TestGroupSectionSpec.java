@@ -19,6 +19,7 @@ import com.facebook.litho.sections.SectionContext;
 import com.facebook.litho.sections.annotations.GroupSectionSpec;
 import com.facebook.litho.sections.annotations.OnCreateChildren;
 import com.facebook.litho.sections.common.DataDiffSection;
+import com.facebook.litho.sections.common.GetUniqueIdentifierEvent;
 import com.facebook.litho.sections.common.OnCheckIsSameContentEvent;
 import com.facebook.litho.sections.common.OnCheckIsSameItemEvent;
 import com.facebook.litho.sections.common.RenderEvent;
@@ -31,12 +32,16 @@ import java.util.List;
 @GroupSectionSpec
 public class TestGroupSectionSpec {
 
+  /** The item whose unique identifier is null, when hasUniqueIdentifiers is set. */
+  public static final String NO_UNIQUE_IDENTIFIER = "no unique identifier";
+
   @OnCreateChildren
   protected static Children onCreateChildren(
       SectionContext c,
       @Prop List data,
       @Prop(optional = true) Comparator isSameItemComparator,
-      @Prop(optional = true) Comparator isSameContentComparator) {
+      @Prop(optional = true) Comparator isSameContentComparator,
+      @Prop(optional = true) boolean hasUniqueIdentifiers) {
 
     DataDiffSection.Builder builder = DataDiffSection.create(c)
         .data(data)
@@ -50,6 +55,10 @@ public class TestGroupSectionSpec {
       builder.onCheckIsSameContentEventHandler(TestGroupSection.onCheckIsSameContent(c));
     }
 
+    if (hasUniqueIdentifiers) {
+      builder.getUniqueIdentifierEventHandler(TestGroupSection.getUniqueIdentifier(c));
+    }
+
     return Children.create().child(builder.build()).build();
   }
 
@@ -80,4 +89,9 @@ public class TestGroupSectionSpec {
       @Prop(optional = true) Comparator isSameContentComparator) {
     return isSameContentComparator.compare(previousItem, nextItem) == 0;
   }
+
+  @OnEvent(GetUniqueIdentifierEvent.class)
+  protected static Object getUniqueIdentifier(SectionContext c, @FromEvent Object model) {
+    return NO_UNIQUE_IDENTIFIER.equals(model) ? null : model;
+  }
 }
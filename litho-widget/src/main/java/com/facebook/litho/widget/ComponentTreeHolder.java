@@ -14,6 +14,7 @@ import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.ComponentTree;
 import com.facebook.litho.LayoutHandler;
+import com.facebook.litho.MountContentPreallocationScheduler;
 import com.facebook.litho.Size;
 import com.facebook.litho.StateHandler;
 import javax.annotation.Nullable;
@@ -45,6 +46,7 @@ public class ComponentTreeHolder {
   private boolean mCanPrefetchDisplayLists;
   private boolean mCanCacheDrawingDisplayLists;
   private LayoutHandler mPreallocateMountContentHandler;
+  private @Nullable MountContentPreallocationScheduler mPreallocationScheduler;
 
   public static ComponentTreeHolder acquire(
       RenderInfo renderInfo,
@@ -82,6 +84,15 @@ public class ComponentTreeHolder {
     mIsTreeValid = false;
   }
 
+  /**
+   * Sets the scheduler used to preallocate the mount content of the tree of this holder. Only
+   * applies to trees that are created afterwards.
+   */
+  synchronized void setMountContentPreallocationScheduler(
+      @Nullable MountContentPreallocationScheduler preallocationScheduler) {
+    mPreallocationScheduler = preallocationScheduler;
+  }
+
   synchronized void clearStateHandler() {
     mStateHandler = null;
   }
@@ -151,6 +162,11 @@ public class ComponentTreeHolder {
     return mComponentTree;
   }
 
+  @Nullable
+  LayoutHandler getLayoutHandler() {
+    return mLayoutHandler;
+  }
+
   public synchronized void setRenderInfo(RenderInfo renderInfo) {
     invalidateTree();
     mRenderInfo = renderInfo;
@@ -163,6 +179,7 @@ public class ComponentTreeHolder {
     mLayoutHandler = null;
     mCanPrefetchDisplayLists = false;
     mCanCacheDrawingDisplayLists = false;
+    mPreallocationScheduler = null;
     sComponentTreeHoldersPool.release(this);
   }
 
@@ -180,6 +197,7 @@ public class ComponentTreeHolder {
               .canCacheDrawingDisplayLists(mCanCacheDrawingDisplayLists)
               .shouldClipChildren(clipChildren)
               .preAllocateMountContentHandler(mPreallocateMountContentHandler)
+              .mountContentPreallocationScheduler(mPreallocationScheduler)
               .build();
     }
   }
@@ -13,15 +13,24 @@ import static android.os.Process.THREAD_PRIORITY_BACKGROUND;
 import static android.os.Process.THREAD_PRIORITY_LOWEST;
 
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Picture;
+import android.graphics.Typeface;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.text.Layout;
 import com.facebook.fbui.textlayoutbuilder.util.LayoutMeasureUtil;
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * A class that schedules a background draw of a {@link Layout}. Drawing a {@link Layout} in the
@@ -29,6 +38,13 @@ import java.lang.ref.WeakReference;
  * {@link Layout} on a real {@link Canvas}. This will substantially reduce drawing times for big
  * chunks of text. On the other hand over-using text warming might rotate the glyphs cache too
  * quickly and diminish the optimization.
+ *
+ * <p>The layouts waiting to be warmed are deduplicated by their text and paint configuration, so a
+ * label repeated across the rows of a list is only drawn once, and they are drawn in batches into
+ * a single {@link Picture} recording. The most recently scheduled layouts are warmed first, the
+ * backlog is capped by dropping the oldest layouts, and a layout is skipped once it's drawn on
+ * screen, so that a fast scroll never waits behind work that is no longer useful. Drawing a layout
+ * only flags it, without taking any lock, so that the draw pass never contends with the warmer.
  */
 public class GlyphWarmer {
 
@@ -37,9 +53,40 @@ public class GlyphWarmer {
   private static final int WARMER_THREAD_PRIORITY =
       (THREAD_PRIORITY_BACKGROUND + THREAD_PRIORITY_LOWEST) / 2;
 
-  private static GlyphWarmer sInstance;
+  @VisibleForTesting static final int MAX_PENDING_LAYOUTS = 64;
+  @VisibleForTesting static final int MAX_LAYOUTS_PER_BATCH = 8;
+  private static final int MAX_WARMED_KEYS = 256;
+
+  private static volatile GlyphWarmer sInstance;
   private final WarmerHandler mHandler;
 
+  // Ordered from the oldest to the most recently scheduled layout.
+  @GuardedBy("this")
+  private final ArrayList<PendingLayout> mPendingLayouts = new ArrayList<>();
+
+  @GuardedBy("this")
+  private final Set<WarmKey> mPendingKeys = new HashSet<>();
+
+  // The same layouts as mPendingLayouts, looked up without the lock when they are drawn. Layout
+  // doesn't override equals() and hashCode(), so this is keyed by identity.
+  private final ConcurrentHashMap<Layout, PendingLayout> mPendingLayoutsByLayout =
+      new ConcurrentHashMap<>();
+
+  @GuardedBy("this")
+  private final LinkedHashMap<WarmKey, Boolean> mWarmedKeys =
+      new LinkedHashMap<WarmKey, Boolean>(16, 0.75f, true /* accessOrder */) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<WarmKey, Boolean> eldest) {
+          return size() > MAX_WARMED_KEYS;
+        }
+      };
+
+  @GuardedBy("this")
+  private boolean mIsBatchScheduled;
+
+  // Lets the draw path skip the lookup when nothing is pending.
+  private volatile boolean mHasPendingLayouts;
+
   /**
    * @return the global {@link GlyphWarmer} instance.
    */
@@ -56,7 +103,7 @@ public class GlyphWarmer {
     HandlerThread handlerThread = new HandlerThread(TAG, WARMER_THREAD_PRIORITY);
     handlerThread.start();
 
-    mHandler = new WarmerHandler(handlerThread.getLooper());
+    mHandler = new WarmerHandler(handlerThread.getLooper(), this);
   }
 
   @VisibleForTesting
@@ -66,18 +113,100 @@ public class GlyphWarmer {
 
   /**
    * Schedules a {@link Layout} to be drawn in the background. This warms up the Glyph cache for
-   * that {@link Layout}.
+   * that {@link Layout}. Nothing is scheduled if a layout with the same text and paint
+   * configuration is already waiting to be warmed or has been warmed recently.
    */
   public void warmLayout(Layout layout) {
-    mHandler.obtainMessage(WarmerHandler.WARM_LAYOUT, new WeakReference<>(layout)).sendToTarget();
+    final WarmKey key = WarmKey.create(layout);
+
+    synchronized (this) {
+      if (key != null) {
+        if (mPendingKeys.contains(key) || mWarmedKeys.containsKey(key)) {
+          return;
+        }
+        mPendingKeys.add(key);
+      }
+
+      if (mPendingLayouts.size() >= MAX_PENDING_LAYOUTS) {
+        removePendingLayoutAt(0);
+      }
+      final PendingLayout pendingLayout = new PendingLayout(layout, key);
+      mPendingLayouts.add(pendingLayout);
+      mPendingLayoutsByLayout.put(layout, pendingLayout);
+      mHasPendingLayouts = true;
+
+      if (!mIsBatchScheduled) {
+        mIsBatchScheduled = true;
+        mHandler.sendEmptyMessage(WarmerHandler.WARM_LAYOUTS);
+      }
+    }
+  }
+
+  /**
+   * Flags the pending warm up of a {@link Layout} that has just been drawn on screen to be skipped,
+   * since drawing it has already warmed its glyphs. This is called on every draw, so it doesn't
+   * take any lock.
+   */
+  static void onLayoutDrawn(Layout layout) {
+    final GlyphWarmer instance = sInstance;
+    if (instance == null || !instance.mHasPendingLayouts) {
+      return;
+    }
+
+    final PendingLayout pendingLayout = instance.mPendingLayoutsByLayout.get(layout);
+    if (pendingLayout != null) {
+      pendingLayout.isDrawn = true;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getPendingLayoutCount() {
+    return mPendingLayouts.size();
+  }
+
+  /**
+   * Moves up to {@link #MAX_LAYOUTS_PER_BATCH} of the most recently scheduled layouts that weren't
+   * drawn on screen in the meantime to the given list.
+   *
+   * @return whether more layouts are left to warm after this batch.
+   */
+  private synchronized boolean pollBatch(ArrayList<Layout> batch) {
+    for (int i = mPendingLayouts.size() - 1;
+        i >= 0 && batch.size() < MAX_LAYOUTS_PER_BATCH;
+        i--) {
+      final PendingLayout pendingLayout = mPendingLayouts.get(i);
+      removePendingLayoutAt(i);
+
+      if (!pendingLayout.isDrawn) {
+        batch.add(pendingLayout.layout);
+      }
+      if (pendingLayout.key != null) {
+        mWarmedKeys.put(pendingLayout.key, Boolean.TRUE);
+      }
+    }
+
+    mIsBatchScheduled = !mPendingLayouts.isEmpty();
+    return mIsBatchScheduled;
+  }
+
+  @GuardedBy("this")
+  private void removePendingLayoutAt(int index) {
+    final PendingLayout removed = mPendingLayouts.remove(index);
+    mPendingLayoutsByLayout.remove(removed.layout, removed);
+    if (removed.key != null) {
+      mPendingKeys.remove(removed.key);
+    }
+    mHasPendingLayouts = !mPendingLayouts.isEmpty();
   }
 
   private static final class WarmerHandler extends Handler {
-    public static final int WARM_LAYOUT = 0;
+    public static final int WARM_LAYOUTS = 0;
 
     private final Picture mPicture;
+    private final GlyphWarmer mGlyphWarmer;
+    private final ArrayList<Layout> mBatch = new ArrayList<>(MAX_LAYOUTS_PER_BATCH);
 
-    private WarmerHandler(Looper looper) {
+    private WarmerHandler(Looper looper, GlyphWarmer glyphWarmer) {
       super(looper);
 
       Picture picture;
@@ -88,30 +217,140 @@ public class GlyphWarmer {
       }
 
       mPicture = picture;
+      mGlyphWarmer = glyphWarmer;
     }
 
     @Override
     public void handleMessage(Message msg) {
+      final boolean hasMoreLayouts = mGlyphWarmer.pollBatch(mBatch);
+
+      // Warm the rest in a later message, so that each message stays short.
+      if (hasMoreLayouts) {
+        sendEmptyMessage(WARM_LAYOUTS);
+      }
+
       if (mPicture == null) {
+        mBatch.clear();
         return;
       }
 
       try {
-        final Layout layout = ((WeakReference<Layout>) msg.obj).get();
-
-        if (layout == null) {
-          return;
+        int width = 0;
+        int height = 0;
+        for (int i = 0, size = mBatch.size(); i < size; i++) {
+          final Layout layout = mBatch.get(i);
+          width = Math.max(width, layout.getWidth());
+          height += LayoutMeasureUtil.getHeight(layout);
         }
 
-        final Canvas canvas = mPicture.beginRecording(
-            layout.getWidth(),
-            LayoutMeasureUtil.getHeight(layout));
-
-        layout.draw(canvas);
+        final Canvas canvas = mPicture.beginRecording(width, height);
+        for (int i = 0, size = mBatch.size(); i < size; i++) {
+          final Layout layout = mBatch.get(i);
+          final int layoutHeight = LayoutMeasureUtil.getHeight(layout);
+          layout.draw(canvas);
+          canvas.translate(0, layoutHeight);
+        }
         mPicture.endRecording();
       } catch (Exception e) {
         // Nothing to do here. This is a best effort. No real problem if it fails.
+      } finally {
+        mBatch.clear();
       }
     }
   }
+
+  /**
+   * A layout waiting to be warmed. The pending layouts are capped to {@link #MAX_PENDING_LAYOUTS},
+   * so they are strongly referenced until they are warmed or dropped.
+   */
+  private static final class PendingLayout {
+
+    private final Layout layout;
+    private final @Nullable WarmKey key;
+    private volatile boolean isDrawn;
+
+    private PendingLayout(Layout layout, @Nullable WarmKey key) {
+      this.layout = layout;
+      this.key = key;
+    }
+  }
+
+  /**
+   * The text and paint configuration that determine which glyphs drawing a layout caches.
+   */
+  private static final class WarmKey {
+
+    private final String text;
+    private final float textSize;
+    private final float textScaleX;
+    private final float textSkewX;
+    private final int flags;
+    private final @Nullable Typeface typeface;
+    private final int hashCode;
+
+    private WarmKey(
+        String text,
+        float textSize,
+        float textScaleX,
+        float textSkewX,
+        int flags,
+        @Nullable Typeface typeface) {
+      this.text = text;
+      this.textSize = textSize;
+      this.textScaleX = textScaleX;
+      this.textSkewX = textSkewX;
+      this.flags = flags;
+      this.typeface = typeface;
+
+      int hash = text.hashCode();
+      hash = 31 * hash + Float.floatToIntBits(textSize);
+      hash = 31 * hash + flags;
+      hash = 31 * hash + (typeface != null ? typeface.hashCode() : 0);
+      this.hashCode = hash;
+    }
+
+    /**
+     * @return the key of the given layout, or null if it has no text or paint to dedupe it by.
+     */
+    @Nullable
+    static WarmKey create(Layout layout) {
+      final CharSequence text = layout.getText();
+      final Paint paint = layout.getPaint();
+      if (text == null || paint == null) {
+        return null;
+      }
+
+      return new WarmKey(
+          text.toString(),
+          paint.getTextSize(),
+          paint.getTextScaleX(),
+          paint.getTextSkewX(),
+          paint.getFlags(),
+          paint.getTypeface());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof WarmKey)) {
+        return false;
+      }
+
+      final WarmKey other = (WarmKey) o;
+      return hashCode == other.hashCode
+          && Float.compare(textSize, other.textSize) == 0
+          && Float.compare(textScaleX, other.textScaleX) == 0
+          && Float.compare(textSkewX, other.textSkewX) == 0
+          && flags == other.flags
+          && typeface == other.typeface
+          && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
 }
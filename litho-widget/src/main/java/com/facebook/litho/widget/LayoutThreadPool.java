@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.widget;
+
+import android.support.annotation.VisibleForTesting;
+import com.facebook.litho.ParallelTaskRunner;
+import com.facebook.litho.widget.PriorityLayoutHandlerFactory.PriorityLayoutHandler;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Schedules the layouts of the items of a {@link RecyclerBinder} on the background threads shared
+ * through {@link ParallelTaskRunner#getExecutor()}. Every posted layout hands one run to the
+ * executor, and each run takes the pending layout whose item is then the closest to the viewport
+ * of its binder, so that the items that are about to become visible are always computed first.
+ *
+ * <p>The pending layouts are kept in a priority queue ordered by the distance of their item to the
+ * viewport when they were posted. The distances change when the visible range or the positions of
+ * the items change, in which case the queue is rebuilt before the next layout is taken from it.
+ */
+@ThreadSafe
+final class LayoutThreadPool {
+
+  @GuardedBy("LayoutThreadPool.class")
+  private static LayoutThreadPool sDefaultInstance;
+
+  private final @Nullable Executor mExecutor;
+  private final Runnable mRunNextTaskRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          runNextTask();
+        }
+      };
+
+  @GuardedBy("this")
+  private PriorityQueue<Task> mPendingTasks = new PriorityQueue<>();
+
+  @GuardedBy("this")
+  private boolean mArePrioritiesStale;
+
+  @GuardedBy("this")
+  private long mTaskSequence;
+
+  /**
+   * @return the pool shared by all the {@link RecyclerBinder}s using a layout thread pool.
+   */
+  static synchronized LayoutThreadPool getDefault() {
+    if (sDefaultInstance == null) {
+      sDefaultInstance = new LayoutThreadPool(ParallelTaskRunner.getExecutor());
+    }
+
+    return sDefaultInstance;
+  }
+
+  /**
+   * @param executor the executor running the pending layouts, or null if they are only run through
+   *     {@link #runNextTask()}.
+   */
+  @VisibleForTesting
+  LayoutThreadPool(@Nullable Executor executor) {
+    mExecutor = executor;
+  }
+
+  void post(PriorityLayoutHandler handler, Runnable runnable, @Nullable Object token) {
+    synchronized (this) {
+      mPendingTasks.offer(
+          new Task(handler, runnable, token, handler.getDistanceToViewport(), mTaskSequence++));
+    }
+
+    // A run left without a task, when the task it was posted for was cancelled, does nothing.
+    if (mExecutor != null) {
+      mExecutor.execute(mRunNextTaskRunnable);
+    }
+  }
+
+  /**
+   * Cancels the pending tasks posted by the given handler for the given runnable, or all of its
+   * pending tasks if the runnable is null.
+   */
+  synchronized void removeCallbacks(PriorityLayoutHandler handler, @Nullable Runnable runnable) {
+    final Iterator<Task> iterator = mPendingTasks.iterator();
+    while (iterator.hasNext()) {
+      final Task task = iterator.next();
+      if (task.handler == handler && (runnable == null || task.runnable == runnable)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Cancels the pending tasks posted by the given handler with the given token, or all of its
+   * pending tasks if the token is null, like {@link android.os.Handler#removeCallbacksAndMessages}.
+   */
+  synchronized void removeCallbacksAndMessages(
+      PriorityLayoutHandler handler, @Nullable Object token) {
+    final Iterator<Task> iterator = mPendingTasks.iterator();
+    while (iterator.hasNext()) {
+      final Task task = iterator.next();
+      if (task.handler == handler && (token == null || task.token == token)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Notifies the pool that the distances to the viewport of the pending tasks may have changed, so
+   * that they are prioritized again before the next task is run.
+   */
+  synchronized void invalidatePriorities() {
+    mArePrioritiesStale = true;
+  }
+
+  @VisibleForTesting
+  synchronized int getPendingTaskCount() {
+    return mPendingTasks.size();
+  }
+
+  /**
+   * Runs the pending task with the highest priority on the calling thread.
+   *
+   * @return whether there was a task to run.
+   */
+  boolean runNextTask() {
+    final Task task;
+    synchronized (this) {
+      if (mPendingTasks.isEmpty()) {
+        return false;
+      }
+
+      task = pollNextTask();
+    }
+
+    task.runnable.run();
+    return true;
+  }
+
+  /**
+   * Removes and returns the task whose item is the closest to the viewport. Tasks at the same
+   * distance are run in the order in which they were posted.
+   */
+  @GuardedBy("this")
+  private Task pollNextTask() {
+    if (mArePrioritiesStale) {
+      final List<Task> tasks = new ArrayList<>(mPendingTasks);
+      for (int i = 0, size = tasks.size(); i < size; i++) {
+        final Task task = tasks.get(i);
+        task.priority = task.handler.getDistanceToViewport();
+      }
+
+      mPendingTasks = new PriorityQueue<>(tasks);
+      mArePrioritiesStale = false;
+    }
+
+    return mPendingTasks.poll();
+  }
+
+  private static class Task implements Comparable<Task> {
+
+    private final PriorityLayoutHandler handler;
+    private final Runnable runnable;
+    private final @Nullable Object token;
+    private final long sequence;
+
+    // Only updated while the task is out of the queue, when the queue is rebuilt.
+    private int priority;
+
+    private Task(
+        PriorityLayoutHandler handler,
+        Runnable runnable,
+        @Nullable Object token,
+        int priority,
+        long sequence) {
+      this.handler = handler;
+      this.runnable = runnable;
+      this.token = token;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return priority < other.priority ? -1 : 1;
+      }
+
+      return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+    }
+  }
+}
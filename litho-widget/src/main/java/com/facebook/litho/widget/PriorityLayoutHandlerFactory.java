@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.widget;
+
+import android.support.v7.widget.RecyclerView;
+import com.facebook.litho.DisplayListPrefetcher;
+import com.facebook.litho.LayoutHandler;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link LayoutHandlerFactory} that schedules the layouts of the items of a {@link
+ * RecyclerBinder} on a {@link LayoutThreadPool}, prioritizing them by their distance to the
+ * currently visible range of the binder.
+ */
+@ThreadSafe
+class PriorityLayoutHandlerFactory implements LayoutHandlerFactory {
+
+  private final LayoutThreadPool mLayoutThreadPool;
+  private volatile int mFirstVisiblePosition = RecyclerView.NO_POSITION;
+  private volatile int mLastVisiblePosition = RecyclerView.NO_POSITION;
+
+  PriorityLayoutHandlerFactory(LayoutThreadPool layoutThreadPool) {
+    mLayoutThreadPool = layoutThreadPool;
+  }
+
+  @Override
+  public LayoutHandler createLayoutCalculationHandler(RenderInfo renderInfo) {
+    return new PriorityLayoutHandler(this);
+  }
+
+  /**
+   * Updates the visible range of the binder. The layouts that are still pending are prioritized
+   * against the new range the next time a thread of the pool becomes available.
+   */
+  void setVisibleRange(int firstVisiblePosition, int lastVisiblePosition) {
+    if (mFirstVisiblePosition == firstVisiblePosition
+        && mLastVisiblePosition == lastVisiblePosition) {
+      return;
+    }
+
+    mFirstVisiblePosition = firstVisiblePosition;
+    mLastVisiblePosition = lastVisiblePosition;
+    mLayoutThreadPool.invalidatePriorities();
+  }
+
+  /**
+   * Updates the position in the binder of the item whose layouts are scheduled by the given
+   * handler. This is a no-op for handlers that were not created by this factory.
+   */
+  void setPosition(@Nullable LayoutHandler layoutHandler, int position) {
+    if (updatePosition(layoutHandler, position)) {
+      mLayoutThreadPool.invalidatePriorities();
+    }
+  }
+
+  /**
+   * Updates the positions of the items of the given holders from fromPosition, included, to
+   * toPosition, excluded, after items were inserted, removed or moved in the binder.
+   */
+  void setPositions(List<ComponentTreeHolder> holders, int fromPosition, int toPosition) {
+    boolean hasChanged = false;
+    for (int position = fromPosition; position < toPosition; position++) {
+      hasChanged |= updatePosition(holders.get(position).getLayoutHandler(), position);
+    }
+
+    if (hasChanged) {
+      mLayoutThreadPool.invalidatePriorities();
+    }
+  }
+
+  private boolean updatePosition(@Nullable LayoutHandler layoutHandler, int position) {
+    if (!(layoutHandler instanceof PriorityLayoutHandler)) {
+      return false;
+    }
+
+    final PriorityLayoutHandler priorityLayoutHandler = (PriorityLayoutHandler) layoutHandler;
+    if (priorityLayoutHandler.mFactory != this || priorityLayoutHandler.mPosition == position) {
+      return false;
+    }
+
+    priorityLayoutHandler.mPosition = position;
+    return true;
+  }
+
+  private int getDistanceToViewport(int position) {
+    if (position == RecyclerView.NO_POSITION) {
+      return Integer.MAX_VALUE;
+    }
+
+    final int firstVisiblePosition = Math.max(mFirstVisiblePosition, 0);
+    final int lastVisiblePosition = Math.max(mLastVisiblePosition, firstVisiblePosition);
+
+    if (position < firstVisiblePosition) {
+      return firstVisiblePosition - position;
+    } else if (position > lastVisiblePosition) {
+      return position - lastVisiblePosition;
+    }
+
+    return 0;
+  }
+
+  /**
+   * The {@link LayoutHandler} of a single item. Cancelling its callbacks, which happens when the
+   * item's {@link com.facebook.litho.ComponentTree} is released as it leaves the range, removes
+   * the layouts that are still pending from the pool. Its distance to the viewport also orders the
+   * display list prefetches of the item.
+   */
+  static class PriorityLayoutHandler
+      implements LayoutHandler, DisplayListPrefetcher.ViewportDistanceProvider {
+
+    private final PriorityLayoutHandlerFactory mFactory;
+    private volatile int mPosition = RecyclerView.NO_POSITION;
+
+    private PriorityLayoutHandler(PriorityLayoutHandlerFactory factory) {
+      mFactory = factory;
+    }
+
+    @Override
+    public boolean post(Runnable runnable) {
+      return post(runnable, null);
+    }
+
+    /**
+     * Posts the given runnable with a token that can be used to cancel it with {@link
+     * #removeCallbacksAndMessages(Object)}.
+     */
+    boolean post(Runnable runnable, @Nullable Object token) {
+      mFactory.mLayoutThreadPool.post(this, runnable, token);
+      return true;
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+      mFactory.mLayoutThreadPool.removeCallbacks(this, runnable);
+    }
+
+    @Override
+    public void removeCallbacksAndMessages(Object token) {
+      mFactory.mLayoutThreadPool.removeCallbacksAndMessages(this, token);
+    }
+
+    @Override
+    public int getDistanceToViewport() {
+      return mFactory.getDistanceToViewport(mPosition);
+    }
+  }
+}
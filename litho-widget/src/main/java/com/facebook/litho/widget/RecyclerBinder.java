@@ -36,6 +36,7 @@ import com.facebook.litho.EventHandler;
 import com.facebook.litho.LayoutHandler;
 import com.facebook.litho.LithoView;
 import com.facebook.litho.MeasureComparisonUtils;
+import com.facebook.litho.MountContentPreallocationScheduler;
 import com.facebook.litho.Size;
 import com.facebook.litho.SizeSpec;
 import com.facebook.litho.ThreadUtils;
@@ -43,6 +44,7 @@ import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.utils.DisplayListUtils;
 import com.facebook.litho.viewcompat.ViewCreator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
@@ -67,7 +69,9 @@ public class RecyclerBinder
   private final RecyclerView.Adapter mInternalAdapter;
   private final ComponentContext mComponentContext;
   private final RangeScrollListener mRangeScrollListener = new RangeScrollListener();
-  private final LayoutHandlerFactory mLayoutHandlerFactory;
+  private final @Nullable LayoutHandlerFactory mLayoutHandlerFactory;
+  private final @Nullable PriorityLayoutHandlerFactory mPriorityLayoutHandlerFactory;
+  private final @Nullable MountContentPreallocationScheduler mPreallocationScheduler;
   private final @Nullable LithoViewFactory mLithoViewFactory;
   private final ComponentTreeHolderFactory mComponentTreeHolderFactory;
   private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
@@ -104,6 +108,16 @@ public class RecyclerBinder
   private int mCurrentLastVisiblePosition = RecyclerView.NO_POSITION;
   private int mCurrentOffset;
   private @Nullable RangeCalculationResult mRange;
+
+  // The last range computed and whether it needs to be recomputed from scratch because the
+  // content or the measurements of the binder changed since then.
+  @GuardedBy("this")
+  private int mLastRangeStart;
+  @GuardedBy("this")
+  private int mLastRangeEnd;
+  @GuardedBy("this")
+  private boolean mIsRangeDirty = true;
+
   private StickyHeaderController mStickyHeaderController;
   private final boolean mCanPrefetchDisplayLists;
   private final boolean mCanCacheDrawingDisplayLists;
@@ -171,6 +185,8 @@ public class RecyclerBinder
     private ComponentContext componentContext;
     private LithoViewFactory lithoViewFactory;
     private boolean isCircular;
+    private boolean useLayoutThreadPool;
+    private @Nullable MountContentPreallocationScheduler mountContentPreallocationScheduler;
 
     /**
      * @param rangeRatio specifies how big a range this binder should try to compute. The range is
@@ -206,6 +222,29 @@ public class RecyclerBinder
       return this;
     }
 
+    /**
+     * @param useLayoutThreadPool whether the layouts of the items should be computed on a shared
+     *     pool of background threads, computing first the items that are the closest to the
+     *     viewport and cancelling the ones the user scrolled past. This is ignored if a {@link
+     *     LayoutHandlerFactory} is set. Defaults to false.
+     */
+    public Builder useLayoutThreadPool(boolean useLayoutThreadPool) {
+      this.useLayoutThreadPool = useLayoutThreadPool;
+      return this;
+    }
+
+    /**
+     * @param mountContentPreallocationScheduler a scheduler used to preallocate the mount content
+     *     of the items once their layout is computed, as well as of the items that are about to
+     *     become visible while scrolling. Defaults to null, which uses the preallocation handler
+     *     of the {@link ComponentTree}s if there is one.
+     */
+    public Builder mountContentPreallocationScheduler(
+        MountContentPreallocationScheduler mountContentPreallocationScheduler) {
+      this.mountContentPreallocationScheduler = mountContentPreallocationScheduler;
+      return this;
+    }
+
     public Builder lithoViewFactory(LithoViewFactory lithoViewFactory) {
       this.lithoViewFactory = lithoViewFactory;
       return this;
@@ -264,7 +303,15 @@ public class RecyclerBinder
 
     mRangeRatio = builder.rangeRatio;
     mLayoutInfo = builder.layoutInfo;
-    mLayoutHandlerFactory = builder.layoutHandlerFactory;
+    if (builder.layoutHandlerFactory == null && builder.useLayoutThreadPool) {
+      mPriorityLayoutHandlerFactory =
+          new PriorityLayoutHandlerFactory(LayoutThreadPool.getDefault());
+      mLayoutHandlerFactory = mPriorityLayoutHandlerFactory;
+    } else {
+      mPriorityLayoutHandlerFactory = null;
+      mLayoutHandlerFactory = builder.layoutHandlerFactory;
+    }
+    mPreallocationScheduler = builder.mountContentPreallocationScheduler;
     mLithoViewFactory = builder.lithoViewFactory;
     mCanPrefetchDisplayLists = builder.canPrefetchDisplayLists;
     mCanCacheDrawingDisplayLists = builder.canCacheDrawingDisplayLists;
@@ -399,10 +446,13 @@ public class RecyclerBinder
             null,
         mCanPrefetchDisplayLists,
         mCanCacheDrawingDisplayLists);
+    holder.setMountContentPreallocationScheduler(mPreallocationScheduler);
     final boolean computeLayout;
     final int childrenWidthSpec, childrenHeightSpec;
     synchronized (this) {
       mComponentTreeHolders.add(position, holder);
+      mIsRangeDirty = true;
+      updateLayoutPositions(position, mComponentTreeHolders.size());
 
       mRenderInfoViewCreatorController.maybeTrackViewCreator(renderInfo);
 
@@ -480,8 +530,10 @@ public class RecyclerBinder
                 null,
             mCanPrefetchDisplayLists,
             mCanCacheDrawingDisplayLists);
+        holder.setMountContentPreallocationScheduler(mPreallocationScheduler);
 
         mComponentTreeHolders.add(position + i, holder);
+        mIsRangeDirty = true;
         mRenderInfoViewCreatorController.maybeTrackViewCreator(renderInfo);
 
         if (mIsMeasured.get() && holder.getRenderInfo().rendersComponent()) {
@@ -499,6 +551,10 @@ public class RecyclerBinder
         }
       }
     }
+
+    synchronized (this) {
+      updateLayoutPositions(position, mComponentTreeHolders.size());
+    }
     mInternalAdapter.notifyItemRangeInserted(position, renderInfos.size());
 
     maybePostComputeRange();
@@ -537,6 +593,7 @@ public class RecyclerBinder
 
       mRenderInfoViewCreatorController.maybeTrackViewCreator(renderInfo);
       holder.setRenderInfo(renderInfo);
+      mIsRangeDirty = true;
 
       if (mRange == null && mIsMeasured.get() && renderInfo.rendersComponent()) {
         // Range might not have been initialized if all previous items were views and we update
@@ -597,6 +654,7 @@ public class RecyclerBinder
         mRenderInfoViewCreatorController.maybeTrackViewCreator(newRenderInfo);
 
         holder.setRenderInfo(newRenderInfo);
+        mIsRangeDirty = true;
 
         if (mRange == null && mIsMeasured.get() && newRenderInfo.rendersComponent()) {
           // Range might not have been initialized if all previous items were views and we update
@@ -637,6 +695,9 @@ public class RecyclerBinder
     synchronized (this) {
       holder = mComponentTreeHolders.remove(fromPosition);
       mComponentTreeHolders.add(toPosition, holder);
+      mIsRangeDirty = true;
+      updateLayoutPositions(
+          Math.min(fromPosition, toPosition), Math.max(fromPosition, toPosition) + 1);
 
       isNewPositionInRange = mRangeSize > 0 &&
           toPosition >= mCurrentFirstVisiblePosition - (mRangeSize * mRangeRatio) &&
@@ -676,6 +737,8 @@ public class RecyclerBinder
     final ComponentTreeHolder holder;
     synchronized (this) {
       holder = mComponentTreeHolders.remove(position);
+      mIsRangeDirty = true;
+      updateLayoutPositions(position, mComponentTreeHolders.size());
     }
     mInternalAdapter.notifyItemRemoved(position);
 
@@ -699,6 +762,8 @@ public class RecyclerBinder
         final ComponentTreeHolder holder = mComponentTreeHolders.remove(position);
         holder.release();
       }
+      mIsRangeDirty = true;
+      updateLayoutPositions(position, mComponentTreeHolders.size());
     }
     mInternalAdapter.notifyItemRangeRemoved(position, count);
 
@@ -942,6 +1007,7 @@ public class RecyclerBinder
   @GuardedBy("this")
   private void invalidateLayoutData() {
     mRange = null;
+    mIsRangeDirty = true;
     for (int i = 0, size = mComponentTreeHolders.size(); i < size; i++) {
       mComponentTreeHolders.get(i).invalidateTree();
     }
@@ -983,6 +1049,7 @@ public class RecyclerBinder
     mRange = new RangeCalculationResult();
     mRange.measuredSize = scrollDirection == HORIZONTAL ? size.height : size.width;
     mRange.estimatedViewportCount = rangeSize;
+    mIsRangeDirty = true;
   }
 
   /**
@@ -1209,6 +1276,35 @@ public class RecyclerBinder
     private int measuredSize;
   }
 
+  /**
+   * The holders collected under the binder lock by a single range computation, so that layouts
+   * can be computed and trees released without holding the lock.
+   */
+  private static class RangeBatch {
+
+    private final List<ComponentTreeHolder> holdersToRelease = new ArrayList<>();
+    private final List<ComponentTreeHolder> holdersToCompute = new ArrayList<>();
+    private int[] positions = new int[0];
+    private int[] childrenWidthSpecs = new int[0];
+    private int[] childrenHeightSpecs = new int[0];
+
+    private void addHolderToCompute(
+        ComponentTreeHolder holder, int position, int childrenWidthSpec, int childrenHeightSpec) {
+      final int index = holdersToCompute.size();
+      if (index == positions.length) {
+        final int newLength = Math.max(index * 2, 16);
+        positions = Arrays.copyOf(positions, newLength);
+        childrenWidthSpecs = Arrays.copyOf(childrenWidthSpecs, newLength);
+        childrenHeightSpecs = Arrays.copyOf(childrenHeightSpecs, newLength);
+      }
+
+      holdersToCompute.add(holder);
+      positions[index] = position;
+      childrenWidthSpecs[index] = childrenWidthSpec;
+      childrenHeightSpecs[index] = childrenHeightSpec;
+    }
+  }
+
   @Override
   @UiThread
   public void setViewportChangedListener(@Nullable ViewportChanged viewportChangedListener) {
@@ -1219,7 +1315,40 @@ public class RecyclerBinder
   void onNewVisibleRange(int firstVisiblePosition, int lastVisiblePosition) {
     mCurrentFirstVisiblePosition = firstVisiblePosition;
     mCurrentLastVisiblePosition = lastVisiblePosition;
+    if (mPriorityLayoutHandlerFactory != null) {
+      mPriorityLayoutHandlerFactory.setVisibleRange(firstVisiblePosition, lastVisiblePosition);
+    }
     computeRange(firstVisiblePosition, lastVisiblePosition);
+    if (mPreallocationScheduler != null) {
+      schedulePreallocation(firstVisiblePosition, lastVisiblePosition);
+    }
+  }
+
+  /**
+   * Schedules the preallocation of the mount content of the items that are about to become
+   * visible in either direction, as many as there are visible items, closest items first.
+   */
+  private synchronized void schedulePreallocation(int firstVisible, int lastVisible) {
+    if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION) {
+      return;
+    }
+
+    for (int i = 1, lookAhead = lastVisible - firstVisible + 1; i <= lookAhead; i++) {
+      maybeSchedulePreallocation(lastVisible + i);
+      maybeSchedulePreallocation(firstVisible - i);
+    }
+  }
+
+  @GuardedBy("this")
+  private void maybeSchedulePreallocation(int position) {
+    if (position < 0 || position >= mComponentTreeHolders.size()) {
+      return;
+    }
+
+    final ComponentTreeHolder holder = mComponentTreeHolders.get(position);
+    if (holder.isTreeValid()) {
+      mPreallocationScheduler.schedule(holder.getComponentTree());
+    }
   }
 
   private void maybePostComputeRange() {
@@ -1232,10 +1361,7 @@ public class RecyclerBinder
   }
 
   private void computeRange(int firstVisible, int lastVisible) {
-    final int rangeSize;
-    final int rangeStart;
-    final int rangeEnd;
-    final int treeHoldersSize;
+    final RangeBatch batch;
 
     synchronized (this) {
       if (!mIsMeasured.get() || mRange == null) {
@@ -1245,51 +1371,106 @@ public class RecyclerBinder
       if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION) {
         firstVisible = lastVisible = 0;
       }
-      rangeSize = Math.max(mRange.estimatedViewportCount, lastVisible - firstVisible);
-      rangeStart = firstVisible - (int) (rangeSize * mRangeRatio);
-      rangeEnd = firstVisible + rangeSize + (int) (rangeSize * mRangeRatio);
-      treeHoldersSize = mComponentTreeHolders.size();
+      final int rangeSize = Math.max(mRange.estimatedViewportCount, lastVisible - firstVisible);
+      final int rangeStart = firstVisible - (int) (rangeSize * mRangeRatio);
+      final int rangeEnd = firstVisible + rangeSize + (int) (rangeSize * mRangeRatio);
+
+      batch = collectRangeChanges(rangeStart, rangeEnd);
     }
 
-    computeRangeLayout(treeHoldersSize, rangeStart, rangeEnd, mIsCircular);
+    computeRangeLayout(batch);
   }
 
-  private void computeRangeLayout(
-      int treeHoldersSize, int rangeStart, int rangeEnd, boolean ignoreRange) {
-    // TODO 16212153 optimize computeRange loop.
-    for (int i = 0; i < treeHoldersSize; i++) {
-      final ComponentTreeHolder holder;
-      final int childrenWidthSpec, childrenHeightSpec;
+  /**
+   * Collects the holders whose tree needs to be computed or released for the new range. If
+   * nothing changed since the last range was computed only the holders entering or leaving the
+   * previous window are visited, otherwise every holder is re-evaluated.
+   */
+  @GuardedBy("this")
+  private RangeBatch collectRangeChanges(int rangeStart, int rangeEnd) {
+    final RangeBatch batch = new RangeBatch();
+    final int lastIndex = mComponentTreeHolders.size() - 1;
 
-      synchronized (this) {
-        // Someone modified the ComponentsTreeHolders while we were computing this range. We
-        // can just bail as another range will be computed.
-        if (treeHoldersSize != mComponentTreeHolders.size()) {
-          return;
-        }
+    if (mIsRangeDirty) {
+      if (mIsCircular) {
+        collectHoldersToCompute(batch, 0, lastIndex);
+      } else {
+        collectHoldersToRelease(batch, 0, Math.min(rangeStart - 1, lastIndex));
+        collectHoldersToRelease(batch, rangeEnd + 1, lastIndex);
+        collectHoldersToCompute(batch, rangeStart, Math.min(rangeEnd, lastIndex));
+      }
+    } else if (!mIsCircular) {
+      collectHoldersToRelease(
+          batch, mLastRangeStart, Math.min(Math.min(mLastRangeEnd, rangeStart - 1), lastIndex));
+      collectHoldersToRelease(
+          batch, Math.max(mLastRangeStart, rangeEnd + 1), Math.min(mLastRangeEnd, lastIndex));
+      collectHoldersToCompute(
+          batch, rangeStart, Math.min(Math.min(rangeEnd, mLastRangeStart - 1), lastIndex));
+      collectHoldersToCompute(
+          batch, Math.max(rangeStart, mLastRangeEnd + 1), Math.min(rangeEnd, lastIndex));
+    }
+
+    mIsRangeDirty = false;
+    mLastRangeStart = rangeStart;
+    mLastRangeEnd = rangeEnd;
+
+    return batch;
+  }
 
-        holder = mComponentTreeHolders.get(i);
+  @GuardedBy("this")
+  private void collectHoldersToRelease(RangeBatch batch, int from, int to) {
+    for (int i = Math.max(from, 0); i <= to; i++) {
+      final ComponentTreeHolder holder = mComponentTreeHolders.get(i);
 
-        if (holder.getRenderInfo().rendersView()) {
-          continue;
-        }
+      if (!holder.getRenderInfo().rendersView()) {
+        batch.holdersToRelease.add(holder);
+      }
+    }
+  }
+
+  @GuardedBy("this")
+  private void collectHoldersToCompute(RangeBatch batch, int from, int to) {
+    for (int i = Math.max(from, 0); i <= to; i++) {
+      final ComponentTreeHolder holder = mComponentTreeHolders.get(i);
 
-        childrenWidthSpec = getActualChildrenWidthSpec(holder);
-        childrenHeightSpec = getActualChildrenHeightSpec(holder);
+      if (!holder.getRenderInfo().rendersView()) {
+        batch.addHolderToCompute(
+            holder, i, getActualChildrenWidthSpec(holder), getActualChildrenHeightSpec(holder));
       }
+    }
+  }
 
-      if (ignoreRange) {
-        if (!holder.isTreeValid()) {
-          holder.computeLayoutAsync(mComponentContext, childrenWidthSpec, childrenHeightSpec);
-        }
-      } else {
-        if (i >= rangeStart && i <= rangeEnd) {
-          if (!holder.isTreeValid()) {
-            holder.computeLayoutAsync(mComponentContext, childrenWidthSpec, childrenHeightSpec);
-          }
-        } else if (holder.isTreeValid() && !holder.getRenderInfo().isSticky()) {
-          holder.acquireStateHandlerAndReleaseTree();
+  /**
+   * Updates the positions used to prioritize the layouts of the holders from fromPosition,
+   * included, to toPosition, excluded, whose positions changed since their handler was created or
+   * last updated.
+   */
+  @GuardedBy("this")
+  private void updateLayoutPositions(int fromPosition, int toPosition) {
+    if (mPriorityLayoutHandlerFactory != null) {
+      mPriorityLayoutHandlerFactory.setPositions(mComponentTreeHolders, fromPosition, toPosition);
+    }
+  }
+
+  private void computeRangeLayout(RangeBatch batch) {
+    for (int i = 0, size = batch.holdersToRelease.size(); i < size; i++) {
+      final ComponentTreeHolder holder = batch.holdersToRelease.get(i);
+
+      if (holder.isTreeValid() && !holder.getRenderInfo().isSticky()) {
+        holder.acquireStateHandlerAndReleaseTree();
+      }
+    }
+
+    for (int i = 0, size = batch.holdersToCompute.size(); i < size; i++) {
+      final ComponentTreeHolder holder = batch.holdersToCompute.get(i);
+
+      if (!holder.isTreeValid()) {
+        if (mPriorityLayoutHandlerFactory != null) {
+          mPriorityLayoutHandlerFactory.setPosition(
+              holder.getLayoutHandler(), batch.positions[i]);
         }
+        holder.computeLayoutAsync(
+            mComponentContext, batch.childrenWidthSpecs[i], batch.childrenHeightSpecs[i]);
       }
     }
   }
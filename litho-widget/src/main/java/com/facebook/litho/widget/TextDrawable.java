@@ -76,6 +76,8 @@ public class TextDrawable extends Drawable implements Touchable, TextContent, Dr
     canvas.translate(bounds.left, bounds.top + mLayoutTranslationY);
     mLayout.draw(canvas, getSelectionPath(), mHighlightPaint, 0);
     canvas.translate(-bounds.left, -bounds.top - mLayoutTranslationY);
+
+    GlyphWarmer.onLayoutDrawn(mLayout);
   }
 
   @Override
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.widget;
+
+import android.graphics.Typeface;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.text.TextDirectionHeuristicCompat;
+import android.text.Layout;
+import android.text.Layout.Alignment;
+import android.text.TextUtils.TruncateAt;
+import com.facebook.litho.ComponentsPools;
+import com.facebook.yoga.YogaDirection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded cache of the text {@link Layout}s created by {@link TextSpec}, shared by all the {@link
+ * com.facebook.litho.ComponentTree}s, see {@link
+ * com.facebook.litho.config.ComponentsConfiguration#useTextLayoutCache}. A layout is reused for a
+ * text equal to one that was already laid out with the same style attributes and width spec, so
+ * that the labels repeated across the rows of a list are only laid out once.
+ *
+ * <p>The cache is bounded by the estimated size of the layouts it holds, in bytes, and the least
+ * recently used layouts are evicted first. The layouts are shared by the components using them, so
+ * only the layouts whose paint is never changed once they are mounted may be cached. The shared
+ * instance is cleared along with the {@link ComponentsPools} on memory pressure and configuration
+ * changes.
+ */
+@ThreadSafe
+public final class TextLayoutCache implements ComponentsPools.ClearableCache {
+
+  @VisibleForTesting static final int DEFAULT_MAX_SIZE_BYTES = 512 * 1024;
+
+  // Rough estimates of the memory used by a layout: the objects themselves, each character of its
+  // text, and the metrics it keeps for each of its lines.
+  private static final int LAYOUT_OVERHEAD_BYTES = 128;
+  private static final int BYTES_PER_CHAR = 2;
+  private static final int BYTES_PER_LINE = 40;
+
+  @GuardedBy("TextLayoutCache.class")
+  private static TextLayoutCache sInstance;
+
+  private final int mMaxSizeBytes;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, Entry> mEntries =
+      new LinkedHashMap<>(16, 0.75f, true /* accessOrder */);
+
+  @GuardedBy("this")
+  private int mSizeBytes;
+
+  @GuardedBy("this")
+  private int mHitCount;
+
+  @GuardedBy("this")
+  private int mMissCount;
+
+  @GuardedBy("this")
+  private int mEvictionCount;
+
+  public static synchronized TextLayoutCache getInstance() {
+    if (sInstance == null) {
+      sInstance = new TextLayoutCache(DEFAULT_MAX_SIZE_BYTES);
+      ComponentsPools.registerClearableCache(sInstance);
+    }
+
+    return sInstance;
+  }
+
+  @VisibleForTesting
+  TextLayoutCache(int maxSizeBytes) {
+    mMaxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * @return the layout created for the given key, or null if there is none.
+   */
+  @Nullable
+  synchronized Layout get(Key key) {
+    final Entry entry = mEntries.get(key);
+
+    if (entry == null) {
+      mMissCount++;
+      return null;
+    }
+
+    mHitCount++;
+    return entry.layout;
+  }
+
+  synchronized void put(Key key, Layout layout) {
+    final Entry entry = new Entry(layout, estimateSizeBytes(key.text, layout));
+    if (entry.sizeBytes > mMaxSizeBytes) {
+      return;
+    }
+
+    final Entry previous = mEntries.put(key, entry);
+    if (previous != null) {
+      mSizeBytes -= previous.sizeBytes;
+    }
+    mSizeBytes += entry.sizeBytes;
+
+    final Iterator<Entry> iterator = mEntries.values().iterator();
+    while (mSizeBytes > mMaxSizeBytes && iterator.hasNext()) {
+      mSizeBytes -= iterator.next().sizeBytes;
+      iterator.remove();
+      mEvictionCount++;
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    mEntries.clear();
+    mSizeBytes = 0;
+  }
+
+  synchronized int size() {
+    return mEntries.size();
+  }
+
+  /**
+   * @return the estimated size in bytes of the layouts held by the cache.
+   */
+  public synchronized int getSizeBytes() {
+    return mSizeBytes;
+  }
+
+  public synchronized int getHitCount() {
+    return mHitCount;
+  }
+
+  public synchronized int getMissCount() {
+    return mMissCount;
+  }
+
+  public synchronized int getEvictionCount() {
+    return mEvictionCount;
+  }
+
+  private static int estimateSizeBytes(String text, Layout layout) {
+    return LAYOUT_OVERHEAD_BYTES
+        + text.length() * BYTES_PER_CHAR
+        + layout.getLineCount() * BYTES_PER_LINE;
+  }
+
+  private static final class Entry {
+
+    private final Layout layout;
+    private final int sizeBytes;
+
+    private Entry(Layout layout, int sizeBytes) {
+      this.layout = layout;
+      this.sizeBytes = sizeBytes;
+    }
+  }
+
+  /**
+   * The text, width spec and style attributes a text layout is created from.
+   */
+  static final class Key {
+
+    private final String text;
+    private final int widthSpec;
+    private final @Nullable TruncateAt ellipsize;
+    private final boolean shouldIncludeFontPadding;
+    private final int maxLines;
+    private final float shadowRadius;
+    private final float shadowDx;
+    private final float shadowDy;
+    private final int shadowColor;
+    private final boolean isSingleLine;
+    private final int textColor;
+    private final int linkColor;
+    private final int textSize;
+    private final float extraSpacing;
+    private final float spacingMultiplier;
+    private final int textStyle;
+    private final @Nullable Typeface typeface;
+    private final @Nullable Alignment textAlignment;
+    private final YogaDirection layoutDirection;
+    private final int minEms;
+    private final int maxEms;
+    private final int minTextWidth;
+    private final int maxTextWidth;
+    private final @Nullable TextDirectionHeuristicCompat textDirection;
+    private final int hashCode;
+
+    Key(
+        String text,
+        int widthSpec,
+        @Nullable TruncateAt ellipsize,
+        boolean shouldIncludeFontPadding,
+        int maxLines,
+        float shadowRadius,
+        float shadowDx,
+        float shadowDy,
+        int shadowColor,
+        boolean isSingleLine,
+        int textColor,
+        int linkColor,
+        int textSize,
+        float extraSpacing,
+        float spacingMultiplier,
+        int textStyle,
+        @Nullable Typeface typeface,
+        @Nullable Alignment textAlignment,
+        YogaDirection layoutDirection,
+        int minEms,
+        int maxEms,
+        int minTextWidth,
+        int maxTextWidth,
+        @Nullable TextDirectionHeuristicCompat textDirection) {
+      this.text = text;
+      this.widthSpec = widthSpec;
+      this.ellipsize = ellipsize;
+      this.shouldIncludeFontPadding = shouldIncludeFontPadding;
+      this.maxLines = maxLines;
+      this.shadowRadius = shadowRadius;
+      this.shadowDx = shadowDx;
+      this.shadowDy = shadowDy;
+      this.shadowColor = shadowColor;
+      this.isSingleLine = isSingleLine;
+      this.textColor = textColor;
+      this.linkColor = linkColor;
+      this.textSize = textSize;
+      this.extraSpacing = extraSpacing;
+      this.spacingMultiplier = spacingMultiplier;
+      this.textStyle = textStyle;
+      this.typeface = typeface;
+      this.textAlignment = textAlignment;
+      this.layoutDirection = layoutDirection;
+      this.minEms = minEms;
+      this.maxEms = maxEms;
+      this.minTextWidth = minTextWidth;
+      this.maxTextWidth = maxTextWidth;
+      this.textDirection = textDirection;
+
+      int hash = text.hashCode();
+      hash = 31 * hash + widthSpec;
+      hash = 31 * hash + textSize;
+      hash = 31 * hash + textColor;
+      hash = 31 * hash + maxLines;
+      hash = 31 * hash + textStyle;
+      hash = 31 * hash + (typeface != null ? typeface.hashCode() : 0);
+      this.hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key other = (Key) o;
+      return hashCode == other.hashCode
+          && widthSpec == other.widthSpec
+          && shouldIncludeFontPadding == other.shouldIncludeFontPadding
+          && maxLines == other.maxLines
+          && Float.compare(shadowRadius, other.shadowRadius) == 0
+          && Float.compare(shadowDx, other.shadowDx) == 0
+          && Float.compare(shadowDy, other.shadowDy) == 0
+          && shadowColor == other.shadowColor
+          && isSingleLine == other.isSingleLine
+          && textColor == other.textColor
+          && linkColor == other.linkColor
+          && textSize == other.textSize
+          && Float.compare(extraSpacing, other.extraSpacing) == 0
+          && Float.compare(spacingMultiplier, other.spacingMultiplier) == 0
+          && textStyle == other.textStyle
+          && minEms == other.minEms
+          && maxEms == other.maxEms
+          && minTextWidth == other.minTextWidth
+          && maxTextWidth == other.maxTextWidth
+          && ellipsize == other.ellipsize
+          && textAlignment == other.textAlignment
+          && layoutDirection == other.layoutDirection
+          && typeface == other.typeface
+          && textDirection == other.textDirection
+          && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -75,6 +75,7 @@ import com.facebook.litho.annotations.OnUnmount;
 import com.facebook.litho.annotations.Prop;
 import com.facebook.litho.annotations.PropDefault;
 import com.facebook.litho.annotations.ResType;
+import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.utils.DisplayListUtils;
 import com.facebook.widget.accessibility.delegates.AccessibleClickableSpan;
 import com.facebook.yoga.YogaDirection;
@@ -499,6 +500,46 @@ class TextSpec {
       TextDirectionHeuristicCompat textDirection) {
     Layout newLayout;
 
+    // The paint of a layout with a color state list is changed when the state of the drawable
+    // showing it changes, and the spans of a styled text may be stateful, so those layouts can't be
+    // shared.
+    final TextLayoutCache.Key cacheKey;
+    if (ComponentsConfiguration.useTextLayoutCache && textColor != 0 && text instanceof String) {
+      cacheKey =
+          new TextLayoutCache.Key(
+              (String) text,
+              widthSpec,
+              ellipsize,
+              shouldIncludeFontPadding,
+              maxLines,
+              shadowRadius,
+              shadowDx,
+              shadowDy,
+              shadowColor,
+              isSingleLine,
+              textColor,
+              linkColor,
+              textSize,
+              extraSpacing,
+              spacingMultiplier,
+              textStyle,
+              typeface,
+              textAlignment,
+              layoutDirection,
+              minEms,
+              maxEms,
+              minTextWidth,
+              maxTextWidth,
+              textDirection);
+
+      final Layout cachedLayout = TextLayoutCache.getInstance().get(cacheKey);
+      if (cachedLayout != null) {
+        return cachedLayout;
+      }
+    } else {
+      cacheKey = null;
+    }
+
     TextLayoutBuilder layoutBuilder = sTextLayoutBuilderPool.acquire();
     if (layoutBuilder == null) {
       layoutBuilder = new TextLayoutBuilder();
@@ -578,6 +619,10 @@ class TextSpec {
       GlyphWarmer.getInstance().warmLayout(newLayout);
     }
 
+    if (cacheKey != null) {
+      TextLayoutCache.getInstance().put(cacheKey, newLayout);
+    }
+
     return newLayout;
   }
 